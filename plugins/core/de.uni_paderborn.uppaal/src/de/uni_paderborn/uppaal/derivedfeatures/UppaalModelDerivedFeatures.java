@@ -199,9 +199,9 @@ public class UppaalModelDerivedFeatures {
 		variableVariables.removeAll(notIntegerLiteralVariables);
 		// Every variable in this collection now has only integer value assignments
 		// or 'var := var2' assignments
-		int size = 0;
-		while (size != variableVariableAssignments.size()) {
-			size = variableVariableAssignments.size(); // While we can remove vars from here
+		int size = -1;
+		while (size != variableVariables.size()) {
+			size = variableVariables.size(); // While we can remove vars from here
 			
 			for (Variable assignedVariable :
 						new ArrayList<Variable>(variableVariables)) {
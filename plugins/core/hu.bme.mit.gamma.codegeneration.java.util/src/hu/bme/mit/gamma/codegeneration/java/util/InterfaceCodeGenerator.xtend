@@ -99,6 +99,7 @@ class InterfaceCodeGenerator {
 			
 			void reset();
 					
+			/** The returned arrays are shared and must not be modified. */
 			String[] getPorts();
 					
 			String[] getEvents(String port);
@@ -113,12 +114,58 @@ class InterfaceCodeGenerator {
 			
 			Object[] getEventParameterValues(String port, String event);
 			
+			// Handle-based access: the handles are resolved once and then used without string processing
+			
+			int getInEventHandle(String port, String event);
+			
+			int getOutEventHandle(String port, String event);
+			
+			int getVariableHandle(String variable);
+			
+			void raiseEvent(int inEventHandle, Object[] parameters);
+			
+			/** Raises the given events in a single call: the i-th event is identified by the i-th handle and
+			 * has the i-th parameter array (the parameter arrays can be null for events without parameters). */
+			default void raiseEvents(int[] inEventHandles, Object[][] parameters) {
+				for (int i = 0; i < inEventHandles.length; i++) {
+					raiseEvent(inEventHandles[i], parameters == null ? null : parameters[i]);
+				}
+			}
+			
+			default boolean isRaisedEvent(int outEventHandle) {
+				return isRaisedEvent(outEventHandle, null);
+			}
+			
+			boolean isRaisedEvent(int outEventHandle, Object[] parameters);
+			
+			Object[] getEventParameterValues(int outEventHandle);
+			
+			Object getValue(int variableHandle);
+			
+			/** Returns the value of an integer variable without boxing. */
+			int getIntegerValue(int variableHandle);
+			
+			/** Returns the value of a boolean variable without boxing. */
+			boolean getBooleanValue(int variableHandle);
+			
+			//
+			
 			void schedule(String instance);
 			
 			default void schedule() {
 				schedule(null);
 			}
 			
+			/** Schedules the component the given number of times, e.g., runs the given number of cycles. */
+			default void schedule(int count) {
+				for (int i = 0; i < count; i++) {
+					schedule();
+				}
+			}
+			
+			/** Schedules the component until its event queues are empty. */
+			void scheduleAll();
+			
 			boolean isStateActive(String region, String state);
 			
 			String[] getRegions();
@@ -140,4 +187,21 @@ class InterfaceCodeGenerator {
 		}
 	'''
 	
+	def createSnapshotableInterface() '''
+		package «BASE_PACKAGE_NAME»;
+		
+		/**
+		 * Implemented by the components whose state can be saved and restored. Yakindu-based components
+		 * (and the composites containing them) do not implement it, as their internal state is not accessible.
+		 */
+		public interface «Namings.SNAPSHOTABLE_INTERFACE» {
+			
+			/** Creates a snapshot of the component (excluding timers) that can be restored any number of times. */
+			Object createSnapshot();
+			
+			void restoreSnapshot(Object snapshot);
+			
+		}
+	'''
+	
 }
\ No newline at end of file
@@ -36,6 +36,7 @@ class Namings {
 	
 	public static final String REFLECTIVE_WRAPPED_COMPONENT = "wrappedComponent"
 	public static final String REFLECTIVE_INTERFACE = "ReflectiveComponentInterface"
+	public static final String SNAPSHOTABLE_INTERFACE = "SnapshotableComponent"
 	
 	public static final String CHANNEL_PACKAGE_POSTFIX = "channels"
 	
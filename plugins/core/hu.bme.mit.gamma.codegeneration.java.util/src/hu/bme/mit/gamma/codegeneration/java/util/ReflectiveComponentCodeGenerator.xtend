@@ -10,13 +10,17 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.codegeneration.java.util
 
+import hu.bme.mit.gamma.expression.model.BooleanTypeDefinition
+import hu.bme.mit.gamma.expression.model.IntegerTypeDefinition
 import hu.bme.mit.gamma.expression.model.ParameterDeclaration
 import hu.bme.mit.gamma.expression.model.Type
+import hu.bme.mit.gamma.expression.model.VariableDeclaration
 import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
 import hu.bme.mit.gamma.statechart.composite.CompositeComponent
 import hu.bme.mit.gamma.statechart.composite.ScheduledAsynchronousCompositeComponent
 import hu.bme.mit.gamma.statechart.composite.SynchronousComponent
 import hu.bme.mit.gamma.statechart.interface_.Component
+import hu.bme.mit.gamma.statechart.interface_.Event
 import hu.bme.mit.gamma.statechart.interface_.Port
 import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 
@@ -27,20 +31,19 @@ import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartMo
 class ReflectiveComponentCodeGenerator {
 	
 	protected final String BASE_PACKAGE_NAME
-	protected Component component
 	// 
 	protected final extension TimingDeterminer timingDeterminer = TimingDeterminer.INSTANCE
 	protected final extension TypeSerializer typeSerializer = TypeSerializer.INSTANCE
 
-	new(String BASE_PACKAGE_NAME, Component component) {
+	new(String BASE_PACKAGE_NAME) {
 		this.BASE_PACKAGE_NAME = BASE_PACKAGE_NAME
-		this.component = component
 	}
 	
 	/**
-	 * Generates fields for parameter declarations
+	 * Generates the reflective class of the given component. The generator is stateless,
+	 * so the classes of different components can be rendered concurrently.
 	 */
-	def CharSequence createReflectiveClass() '''
+	def CharSequence createReflectiveClass(Component component) '''
 		package «component.getPackageString(BASE_PACKAGE_NAME)»;
 		
 		«component.generateReflectiveImports»
@@ -80,90 +83,131 @@ class ReflectiveComponentCodeGenerator {
 				return «Namings.REFLECTIVE_WRAPPED_COMPONENT»;
 			}
 			
+			// Names are stored in constant arrays, which must not be modified by the clients
+			private static final String[] PORTS = new String[] { «FOR port : component.allPorts SEPARATOR ", "»"«port.name»"«ENDFOR» };
+			private static final String[][] EVENTS = new String[][] {
+				«FOR port : component.allPorts SEPARATOR ","»
+					new String[] { «FOR event : port.interfaceRealization.interface.events SEPARATOR ", "»"«event.event.name»"«ENDFOR» }
+				«ENDFOR»
+			};
+			
 			public String[] getPorts() {
-				return new String[] { «FOR port : component.allPorts SEPARATOR ", "»"«port.name»"«ENDFOR» };
+				return PORTS;
 			}
 			
 			public String[] getEvents(String port) {
 				switch (port) {
 					«FOR port : component.allPorts»
 						case "«port.name»":
-							return new String[] { «FOR event : port.interfaceRealization.interface.events SEPARATOR ", "»"«event.event.name»"«ENDFOR» };
+							return EVENTS[«component.allPorts.indexOf(port)»];
 					«ENDFOR»
 					default:
 						throw new IllegalArgumentException("Not known port: " + port);
 				}
 			}
 			
+			public int getInEventHandle(String port, String event) {
+				switch (port) {
+					«FOR port : component.allPorts.filter[!it.inputEvents.empty]»
+						case "«port.name»":
+							switch (event) {
+								«FOR inEvent : port.inputEvents»
+									case "«inEvent.name»":
+										return «component.inEventHandles.indexOf(port -> inEvent)»;
+								«ENDFOR»
+							}
+							break;
+					«ENDFOR»
+				}
+				throw new IllegalArgumentException("Not known port-in event combination: " + port + "." + event);
+			}
+			
+			public int getOutEventHandle(String port, String event) {
+				switch (port) {
+					«FOR port : component.allPorts.filter[!it.outputEvents.empty]»
+						case "«port.name»":
+							switch (event) {
+								«FOR outEvent : port.outputEvents»
+									case "«outEvent.name»":
+										return «component.outEventHandles.indexOf(port -> outEvent)»;
+								«ENDFOR»
+							}
+							break;
+					«ENDFOR»
+				}
+				throw new IllegalArgumentException("Not known port-out event combination: " + port + "." + event);
+			}
+			
 			public void raiseEvent(String port, String event, Object[] parameters) {
-				String portEvent = port + "." + event;
-				switch (portEvent) {
-					«FOR port : component.allPorts»
-						«FOR inEvent : port.inputEvents»
-							case "«port.name».«inEvent.name»":
-								«Namings.REFLECTIVE_WRAPPED_COMPONENT».get«port.name.toFirstUpper»().raise«inEvent.name.toFirstUpper»(«FOR i : 0..< inEvent.parameterDeclarations.size SEPARATOR ", "»«inEvent.parameterDeclarations.get(i).type.generateParameterCast('''parameters[«i»]''')»«ENDFOR»);
-								break;
-						«ENDFOR»
+				raiseEvent(getInEventHandle(port, event), parameters);
+			}
+			
+			public void raiseEvent(int inEventHandle, Object[] parameters) {
+				switch (inEventHandle) {
+					«FOR handle : component.inEventHandles»
+						case «component.inEventHandles.indexOf(handle)»:
+							«Namings.REFLECTIVE_WRAPPED_COMPONENT».get«handle.key.name.toFirstUpper»().raise«handle.value.name.toFirstUpper»(«FOR i : 0..< handle.value.parameterDeclarations.size SEPARATOR ", "»«handle.value.parameterDeclarations.get(i).type.generateParameterCast('''parameters[«i»]''')»«ENDFOR»);
+							break;
 					«ENDFOR»
 					default:
-						throw new IllegalArgumentException("Not known port-in event combination: " + portEvent);
+						throw new IllegalArgumentException("Not known in event handle: " + inEventHandle);
 				}
 			}
 			
+			«component.generateBatchEventRaising»
+			
 			public boolean isRaisedEvent(String port, String event, Object[] parameters) {
-				String portEvent = port + "." + event;
-				switch (portEvent) {
-					«FOR port : component.allPorts»
-						«FOR outEvent : port.outputEvents»
-							case "«port.name».«outEvent.name»":
-								if («Namings.REFLECTIVE_WRAPPED_COMPONENT».get«port.name.toFirstUpper»().isRaised«outEvent.name.toFirstUpper»()) {
-									«IF outEvent.parameterDeclarations.empty»
+				return isRaisedEvent(getOutEventHandle(port, event), parameters);
+			}
+			
+			public boolean isRaisedEvent(int outEventHandle, Object[] parameters) {
+				switch (outEventHandle) {
+					«FOR handle : component.outEventHandles»
+						case «component.outEventHandles.indexOf(handle)»:
+							if («Namings.REFLECTIVE_WRAPPED_COMPONENT».get«handle.key.name.toFirstUpper»().isRaised«handle.value.name.toFirstUpper»()) {
+								«IF handle.value.parameterDeclarations.empty»
+									return true;
+								«ELSE»
+									if (parameters != null) {
+										return
+											«FOR i : 0..< handle.value.parameterDeclarations.size SEPARATOR " && "»
+												Objects.deepEquals(parameters[«i»], «handle.key.generateEventParameterValuesGetter(handle.value.parameterDeclarations.get(i))»)
+											«ENDFOR»;
+									}
+									else {
 										return true;
-									«ELSE»
-										if (parameters != null) {
-											return
-												«FOR i : 0..< outEvent.parameterDeclarations.size SEPARATOR " && "»
-													Objects.deepEquals(parameters[«i»], «port.generateEventParameterValuesGetter(outEvent.parameterDeclarations.get(i))»)
-												«ENDFOR»;
-										}
-										else {
-											return true;
-										}
-									«ENDIF»
-								}
-								break;
-						«ENDFOR»
+									}
+								«ENDIF»
+							}
+							break;
 					«ENDFOR»
 					default:
-						throw new IllegalArgumentException("Not known port-out event combination: " + portEvent);
+						throw new IllegalArgumentException("Not known out event handle: " + outEventHandle);
 				}
-				«IF !component.allPorts.map[it.outputEvents].flatten.empty»return false;«ENDIF»
+				«IF !component.outEventHandles.empty»return false;«ENDIF»
 			}
 			
 			public Object[] getEventParameterValues(String port, String event) {
-				String portEvent = port + "." + event;
-				switch (portEvent) {
-					«FOR port : component.allPorts»
-						«FOR outEvent : port.outputEvents»
-							case "«port.name».«outEvent.name»":
-«««								if («Namings.REFLECTIVE_WRAPPED_COMPONENT».get«port.name.toFirstUpper»().isRaised«outEvent.name.toFirstUpper»()) {
-								«IF outEvent.parameterDeclarations.empty»
-									return new Object[0];
-								«ELSE»
-									return new Object[] {
-										«FOR parameter : outEvent.parameterDeclarations SEPARATOR ", "»
-											«port.generateEventParameterValuesGetter(parameter)»
-										«ENDFOR»
-									};
-								«ENDIF»
-«««								}
-«««								break;
-						«ENDFOR»
+				return getEventParameterValues(getOutEventHandle(port, event));
+			}
+			
+			public Object[] getEventParameterValues(int outEventHandle) {
+				switch (outEventHandle) {
+					«FOR handle : component.outEventHandles»
+						case «component.outEventHandles.indexOf(handle)»:
+							«IF handle.value.parameterDeclarations.empty»
+								return new Object[0];
+							«ELSE»
+								return new Object[] {
+									«FOR parameter : handle.value.parameterDeclarations SEPARATOR ", "»
+										«handle.key.generateEventParameterValuesGetter(parameter)»
+									«ENDFOR»
+								};
+							«ENDIF»
 					«ENDFOR»
 					default:
-						throw new IllegalArgumentException("Not known port-out event combination: " + portEvent);
+						throw new IllegalArgumentException("Not known out event handle: " + outEventHandle);
 				}
-«««				«IF !component.allPorts.map[it.outputEvents].flatten.empty»return new Object[0];«ENDIF»
 			}
 			
 			«component.generateIsActiveState»
@@ -202,11 +246,60 @@ class ReflectiveComponentCodeGenerator {
 				component instanceof ScheduledAsynchronousCompositeComponent»
 					«Namings.REFLECTIVE_WRAPPED_COMPONENT».schedule();
 			«ELSE»
-«««					TODO
+					throw new UnsupportedOperationException("Asynchronous composite components are not scheduled");
+			«ENDIF»
+		}
+		«IF component instanceof SynchronousComponent || component instanceof StatechartDefinition»
+			
+			@Override
+			public void schedule(int count) {
+				«Namings.REFLECTIVE_WRAPPED_COMPONENT».runCycles(count);
+			}
+		«ELSEIF component instanceof AsynchronousAdapter»
+			
+			@Override
+			public void schedule(int count) {
+				«Namings.REFLECTIVE_WRAPPED_COMPONENT».schedule(count);
+			}
+		«ENDIF»
+		
+		public void scheduleAll() {
+			«IF component instanceof SynchronousComponent || component instanceof StatechartDefinition»
+					«Namings.REFLECTIVE_WRAPPED_COMPONENT».runFullCycle();
+			«ELSEIF component instanceof AsynchronousAdapter ||
+				component instanceof ScheduledAsynchronousCompositeComponent»
+					«Namings.REFLECTIVE_WRAPPED_COMPONENT».scheduleAll();
+			«ELSE»
+					throw new UnsupportedOperationException("Asynchronous composite components are not scheduled");
 			«ENDIF»
 		}
 	'''
 	
+	/**
+	 * Asynchronous adapters get the events in a single batch, so the locks of their message queues are acquired only once. 
+	 */
+	protected def generateBatchEventRaising(Component component) '''
+		«IF component instanceof AsynchronousAdapter»
+			@Override
+			public void raiseEvents(int[] inEventHandles, Object[][] parameters) {
+				«Namings.GAMMA_EVENT_CLASS»[] events = new «Namings.GAMMA_EVENT_CLASS»[inEventHandles.length];
+				for (int i = 0; i < inEventHandles.length; i++) {
+					int inEventHandle = inEventHandles[i];
+					switch (inEventHandle) {
+						«FOR handle : component.inEventHandles»
+							case «component.inEventHandles.indexOf(handle)»:
+								events[i] = new «Namings.GAMMA_EVENT_CLASS»("«handle.key.name».«handle.value.name»"«FOR j : 0..< handle.value.parameterDeclarations.size», «handle.value.parameterDeclarations.get(j).type.generateParameterCast('''parameters[i][«j»]''')»«ENDFOR»);
+								break;
+						«ENDFOR»
+						default:
+							throw new IllegalArgumentException("Not known in event handle: " + inEventHandle);
+					}
+				}
+				«Namings.REFLECTIVE_WRAPPED_COMPONENT».raiseEvents(events);
+			}
+		«ENDIF»
+	'''
+	
 	protected def generateIsActiveState(Component component) '''
 		public boolean isStateActive(String region, String state) {
 			«IF component instanceof StatechartDefinition»
@@ -218,18 +311,28 @@ class ReflectiveComponentCodeGenerator {
 	'''
 	
 	protected def generateRegionGetter(Component component) '''
+		private static final String[] REGIONS = new String[] { «IF component instanceof StatechartDefinition»«FOR region : component.allRegions SEPARATOR ", "»"«region.name»"«ENDFOR»«ENDIF» };
+		
 		public String[] getRegions() {
-			return new String[] { «IF component instanceof StatechartDefinition»«FOR region : component.allRegions SEPARATOR ", "»"«region.name»"«ENDFOR»«ENDIF» };
+			return REGIONS;
 		}
 	'''
 	
 	protected def generateStateGetter(Component component) '''
+		«IF component instanceof StatechartDefinition»
+			private static final String[][] STATES = new String[][] {
+				«FOR region : component.allRegions SEPARATOR ","»
+					new String[] { «FOR state : region.states SEPARATOR ", "»"«state.name»"«ENDFOR» }
+				«ENDFOR»
+			};
+			
+		«ENDIF»
 		public String[] getStates(String region) {
 			switch (region) {
 				«IF component instanceof StatechartDefinition»
 					«FOR region : component.allRegions»
 						case "«region.name»":
-							return new String[] { «FOR state : region.states SEPARATOR ", "»"«state.name»"«ENDFOR» };
+							return STATES[«component.allRegions.indexOf(region)»];
 					«ENDFOR»
 				«ENDIF»
 			}
@@ -238,27 +341,92 @@ class ReflectiveComponentCodeGenerator {
 	'''
 	
 	protected def generateVariableGetters(Component component) '''
+		private static final String[] VARIABLES = new String[] { «IF component instanceof StatechartDefinition»«FOR variable : component.variableDeclarations SEPARATOR ", "»"«variable.name»"«ENDFOR»«ENDIF» };
+		
 		public String[] getVariables() {
-			return new String[] { «IF component instanceof StatechartDefinition»«FOR variable : component.variableDeclarations SEPARATOR ", "»"«variable.name»"«ENDFOR»«ENDIF» };
+			return VARIABLES;
 		}
 	'''
 	
 	protected def generateEventParameterValuesGetter(Port port, ParameterDeclaration parameter) '''«Namings.REFLECTIVE_WRAPPED_COMPONENT».get«port.name.toFirstUpper»().get«parameter.name.toFirstUpper»()'''
 	
 	protected def generateVariableValueGetters(Component component) '''
-		public Object getValue(String variable) {
+		public int getVariableHandle(String variable) {
 			switch (variable) {
-				«IF component instanceof StatechartDefinition»
-					«FOR variable : component.variableDeclarations.filter[!it.transient]»
-						case "«variable.name»":
-							return «Namings.REFLECTIVE_WRAPPED_COMPONENT».get«variable.name.toFirstUpper»();
-					«ENDFOR»
-				«ENDIF»
+				«FOR variable : component.variableHandles»
+					case "«variable.name»":
+						return «component.variableHandles.indexOf(variable)»;
+				«ENDFOR»
 			}
 			throw new IllegalArgumentException("Not known variable: " + variable);
 		}
+		
+		public Object getValue(String variable) {
+			return getValue(getVariableHandle(variable));
+		}
+		
+		public Object getValue(int variableHandle) {
+			switch (variableHandle) {
+				«FOR variable : component.variableHandles»
+					case «component.variableHandles.indexOf(variable)»:
+						return «Namings.REFLECTIVE_WRAPPED_COMPONENT».get«variable.name.toFirstUpper»();
+				«ENDFOR»
+			}
+			throw new IllegalArgumentException("Not known variable handle: " + variableHandle);
+		}
+		
+		public int getIntegerValue(int variableHandle) {
+			switch (variableHandle) {
+				«FOR variable : component.variableHandles.filter[it.typeDefinition instanceof IntegerTypeDefinition]»
+					case «component.variableHandles.indexOf(variable)»:
+						return «Namings.REFLECTIVE_WRAPPED_COMPONENT».get«variable.name.toFirstUpper»();
+				«ENDFOR»
+			}
+			throw new IllegalArgumentException("Not known integer variable handle: " + variableHandle);
+		}
+		
+		public boolean getBooleanValue(int variableHandle) {
+			switch (variableHandle) {
+				«FOR variable : component.variableHandles.filter[it.typeDefinition instanceof BooleanTypeDefinition]»
+					case «component.variableHandles.indexOf(variable)»:
+						return «Namings.REFLECTIVE_WRAPPED_COMPONENT».get«variable.name.toFirstUpper»();
+				«ENDFOR»
+			}
+			throw new IllegalArgumentException("Not known boolean variable handle: " + variableHandle);
+		}
 	'''
 	
+	/**
+	 * The handles of in events, out events and variables are their indexes in the returned lists.
+	 */
+	protected def getInEventHandles(Component component) {
+		val handles = <Pair<Port, Event>>newArrayList
+		for (port : component.allPorts) {
+			for (event : port.inputEvents) {
+				handles += port -> event
+			}
+		}
+		return handles
+	}
+	
+	protected def getOutEventHandles(Component component) {
+		val handles = <Pair<Port, Event>>newArrayList
+		for (port : component.allPorts) {
+			for (event : port.outputEvents) {
+				handles += port -> event
+			}
+		}
+		return handles
+	}
+	
+	protected def getVariableHandles(Component component) {
+		val handles = <VariableDeclaration>newArrayList
+		if (component instanceof StatechartDefinition) {
+			handles += component.variableDeclarations.filter[!it.transient]
+		}
+		return handles
+	}
+	
 	protected def generateComponentGetters(Component component) '''
 		public String[] getComponents() {
 			return new String[] { «IF component instanceof CompositeComponent»«FOR containedComponent : component.derivedComponents SEPARATOR ", "»"«containedComponent.name»"«ENDFOR»«ELSEIF component instanceof AsynchronousAdapter»"«component.getWrappedComponentName»"«ENDIF»};
@@ -299,8 +467,4 @@ class ReflectiveComponentCodeGenerator {
 	
 	protected def transformType(Type type) '''«type.serialize»'''
 	
-	def getClassName() {
-		return component.reflectiveClassName
-	}
-	
 }
\ No newline at end of file
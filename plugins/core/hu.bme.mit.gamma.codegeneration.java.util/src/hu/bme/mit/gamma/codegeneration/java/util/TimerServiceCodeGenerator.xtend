@@ -137,11 +137,12 @@ class TimerServiceCodeGenerator {
 		package «PACKAGE_NAME»;
 		
 		import java.util.Map;
-		import java.util.HashMap;
+		import java.util.concurrent.ConcurrentHashMap;
 		
 		public class «GAMMA_CLASS_NAME» implements «Namings.GAMMA_TIMER_INTERFACE» {
 			
-			private Map<Object, Long> elapsedTime = new HashMap<Object, Long>();
+			// Components executed in parallel may share the timer
+			private Map<Object, Long> elapsedTime = new ConcurrentHashMap<Object, Long>();
 			
 			public void saveTime(Object object) {
 				elapsedTime.put(object, System.nanoTime());
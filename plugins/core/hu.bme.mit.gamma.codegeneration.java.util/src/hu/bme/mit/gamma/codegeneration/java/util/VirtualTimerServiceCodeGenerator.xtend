@@ -94,13 +94,13 @@ class VirtualTimerServiceCodeGenerator {
 				}
 			}
 			
-			public void setTimer(«ITIMER_CALLBACK_INTERFACE_NAME» callback, int eventID, long time, boolean isPeriodic) {	
+			public synchronized void setTimer(«ITIMER_CALLBACK_INTERFACE_NAME» callback, int eventID, long time, boolean isPeriodic) {	
 				// Creating a new TimerTask for given event and storing it
 				TimeEventTask timerTask = new TimeEventTask(callback, eventID, time, isPeriodic);
 				timerTaskList.add(timerTask);
 			}
 			
-			public void unsetTimer(«ITIMER_CALLBACK_INTERFACE_NAME» callback, int eventID) {
+			public synchronized void unsetTimer(«ITIMER_CALLBACK_INTERFACE_NAME» callback, int eventID) {
 				for (TimeEventTask timer : new ArrayList<TimeEventTask>(timerTaskList)) {
 					if (timer.callback.equals(callback) && timer.eventID == eventID) {
 						timerTaskList.remove(timer);
@@ -108,7 +108,7 @@ class VirtualTimerServiceCodeGenerator {
 				}
 			}
 			
-			public void elapse(long amount) {
+			public synchronized void elapse(long amount) {
 				for (TimeEventTask timer : timerTaskList) {
 					timer.elapse(amount);
 				}
@@ -117,11 +117,11 @@ class VirtualTimerServiceCodeGenerator {
 				}
 			}
 			
-			public void saveTime(Object object) {
+			public synchronized void saveTime(Object object) {
 				elapsedTime.put(object, Long.valueOf(0));
 			}
 			
-			public long getElapsedTime(Object object, TimeUnit timeUnit) {
+			public synchronized long getElapsedTime(Object object, TimeUnit timeUnit) {
 				long elapsedTime = this.elapsedTime.get(object);
 				switch (timeUnit) {
 					case MILLISECOND:
@@ -131,10 +131,36 @@ class VirtualTimerServiceCodeGenerator {
 				}
 			}
 		
-			public void reset() {
+			public synchronized void reset() {
 				timerTaskList.clear();
 				elapsedTime.clear();
 			}
+			
+			/** Creates a snapshot of the registered timer tasks, their remaining times and the elapsed times. */
+			public synchronized Object createSnapshot() {
+				long[] timeLefts = new long[timerTaskList.size()];
+				for (int i = 0; i < timeLefts.length; i++) {
+					timeLefts[i] = timerTaskList.get(i).timeLeft;
+				}
+				return new Object[] {
+					new ArrayList<TimeEventTask>(timerTaskList),
+					timeLefts,
+					new HashMap<Object, Long>(elapsedTime)
+				};
+			}
+			
+			/** Restores the timer tasks, their remaining times and the elapsed times stored in the given snapshot. */
+			@SuppressWarnings("unchecked")
+			public synchronized void restoreSnapshot(Object snapshot) {
+				Object[] values = (Object[]) snapshot;
+				timerTaskList.clear();
+				timerTaskList.addAll((List<TimeEventTask>) values[0]);
+				long[] timeLefts = (long[]) values[1];
+				for (int i = 0; i < timeLefts.length; i++) {
+					timerTaskList.get(i).timeLeft = timeLefts[i];
+				}
+				elapsedTime = new HashMap<Object, Long>((Map<Object, Long>) values[2]);
+			}
 		
 		}
 	'''
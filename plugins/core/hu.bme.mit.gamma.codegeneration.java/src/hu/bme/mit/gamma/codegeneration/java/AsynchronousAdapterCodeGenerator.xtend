@@ -19,12 +19,18 @@ import hu.bme.mit.gamma.codegeneration.java.util.InternalEventHandlerCodeGenerat
 import hu.bme.mit.gamma.codegeneration.java.util.TimingDeterminer
 import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
 import hu.bme.mit.gamma.statechart.composite.ControlFunction
+import hu.bme.mit.gamma.statechart.composite.ControlSpecification
 import hu.bme.mit.gamma.statechart.composite.DiscardStrategy
 import hu.bme.mit.gamma.statechart.composite.MessageQueue
 import hu.bme.mit.gamma.statechart.interface_.AnyTrigger
+import hu.bme.mit.gamma.statechart.interface_.EventTrigger
 import hu.bme.mit.gamma.statechart.interface_.Port
 import hu.bme.mit.gamma.statechart.interface_.TimeSpecification
 import hu.bme.mit.gamma.statechart.interface_.TimeUnit
+import hu.bme.mit.gamma.statechart.statechart.AnyPortEventReference
+import hu.bme.mit.gamma.statechart.statechart.ClockTickReference
+import hu.bme.mit.gamma.statechart.statechart.PortEventReference
+import java.util.Map
 
 import static extension hu.bme.mit.gamma.codegeneration.java.util.Namings.*
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
@@ -63,7 +69,7 @@ class AsynchronousAdapterCodeGenerator {
 		
 		«component.generateWrapperImports»
 		
-		public class «component.generateComponentClassName» implements Runnable, «component.generatePortOwnerInterfaceName» {			
+		public class «component.generateComponentClassName» implements Runnable, «component.generatePortOwnerInterfaceName»«IF component.snapshotable», «SNAPSHOTABLE_INTERFACE»«ENDIF» {			
 			// Thread running this wrapper instance
 			private Thread thread;
 			// Wrapped synchronous instance
@@ -90,6 +96,13 @@ class AsynchronousAdapterCodeGenerator {
 				private LinkedBlockingMultiQueue<String, Event>.SubQueue «queue.name»;
 			«ENDFOR»
 			«component.generateParameterDeclarationFields»
+			// Runtime metrics, reported only if set
+			private «RuntimeMetricsCodeGenerator.INTERFACE_NAME» metrics = null;
+			private String metricsName;
+			private static final String[] CONTROL_SPECIFICATIONS = { «FOR controlSpecification : component.controlSpecifications SEPARATOR ", "»"«controlSpecification.label»"«ENDFOR» };
+			«IF !component.clocks.empty»
+				private final long[] clockFiringTimes = new long[«component.clocks.size»];
+			«ENDIF»
 			
 			«IF component.needTimer»
 				public «component.generateComponentClassName»(«FOR parameter : component.parameterDeclarations SEPARATOR ", " AFTER ", "»«parameter.type.transformType» «parameter.name»«ENDFOR»«UNIFIED_TIMER_INTERFACE» timer) {
@@ -138,7 +151,10 @@ class AsynchronousAdapterCodeGenerator {
 							switch (eventId) {
 								«FOR match : QueuesOfClocks.Matcher.on(engine).getAllMatches(component, null, null)»
 									case «match.clock.name»:
-										«match.queue.name».offer(new Event("«match.clock.name»"));
+										if (metrics != null) {
+											clockFiringTimes[«match.clock.name»] = System.nanoTime();
+										}
+										offerEvent(«match.queue.name», new Event("«match.clock.name»"));
 									break;
 								«ENDFOR»
 								default:
@@ -209,30 +225,205 @@ class AsynchronousAdapterCodeGenerator {
 					// There was no event in the queue
 					return;
 				}
-				processEvent(«EVENT_INSTANCE_NAME»);
-				«IF component.hasInternalPort»handleInternalEvents();«ENDIF»
+				handleEvent(«EVENT_INSTANCE_NAME»);
+			}
+			
+			/** Manual scheduling of at most the given number of events. Returns the number of processed events. */
+			public int schedule(int count) {
+				int processed = 0;
+				while (processed < count) {
+					«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME» = __asyncQueue.poll();
+					if («EVENT_INSTANCE_NAME» == null) {
+						break;
+					}
+					handleEvent(«EVENT_INSTANCE_NAME»);
+					processed++;
+				}
+				return processed;
+			}
+			
+			/** Manual scheduling until the queues are empty, i.e., also the events raised during
+			 * the processing are processed. Returns the number of processed events. */
+			public int scheduleAll() {
+				return schedule(Integer.MAX_VALUE);
 			}
 			
+			/** Enqueues the given events (named as "port.event") in a single call. Consecutive events of the same
+			 * message queue are added as a batch, acquiring the lock of the queue only once. Returns the number of
+			 * enqueued events; as in the case of the raise methods, events are discarded if their queue is full. */
+			public int raiseEvents(«GAMMA_EVENT_CLASS»[] events) {
+				int enqueued = 0;
+				int from = 0;
+				LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue batchQueue = null;
+				for (int i = 0; i < events.length; i++) {
+					LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue queue = getBatchQueue(events[i]);
+					if (queue == null || queue != batchQueue) {
+						if (batchQueue != null) {
+							enqueued += offerEvents(batchQueue, events, from, i);
+						}
+						from = i;
+						batchQueue = queue;
+					}
+					if (queue == null) {
+						enqueued += enqueue(events[i]);
+					}
+				}
+				if (batchQueue != null) {
+					enqueued += offerEvents(batchQueue, events, from, events.length);
+				}
+				return enqueued;
+			}
+			
+			/** Returns the single queue of the given event, if it can be added as part of a batch. */
+			private LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue getBatchQueue(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+				switch («EVENT_INSTANCE_NAME».getEvent()) {
+					«FOR port : component.allPorts»
+						«FOR event : port.inputEvents»
+							«val queues = QueuesOfEvents.Matcher.on(engine).getAllValuesOfqueue(port, event)»
+							«IF queues.size == 1 && queues.head.additionMethodName == "offer"»
+								case "«port.name».«event.name»":
+									return «queues.head.name»;
+							«ENDIF»
+						«ENDFOR»
+					«ENDFOR»
+					default:
+						return null;
+				}
+			}
+			
+			/** Adds the given event to its queues one by one. Returns the number of queues the event was added to. */
+			private int enqueue(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+				int enqueued = 0;
+				switch («EVENT_INSTANCE_NAME».getEvent()) {
+					«FOR port : component.allPorts»
+						«FOR event : port.inputEvents»
+							case "«port.name».«event.name»":
+								«FOR queue : QueuesOfEvents.Matcher.on(engine).getAllValuesOfqueue(port, event)»
+									«IF queue.additionMethodName == "offer"»
+										if (offerEvent(«queue.name», «EVENT_INSTANCE_NAME»)) {
+											enqueued++;
+										}
+									«ELSE»
+										«queue.additionMethodName»Event(«queue.name», «EVENT_INSTANCE_NAME»);
+										enqueued++;
+									«ENDIF»
+								«ENDFOR»
+								return enqueued;
+						«ENDFOR»
+					«ENDFOR»
+					default:
+						throw new IllegalArgumentException("No such event: " + «EVENT_INSTANCE_NAME».getEvent());
+				}
+			}
+			
+			private boolean offerEvent(LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue queue, «GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+				boolean offered = queue.offer(«EVENT_INSTANCE_NAME»);
+				if (metrics != null) {
+					if (offered) {
+						metrics.eventsQueued(metricsName, queue.getKey(), 1, queue.size());
+					}
+					else {
+						metrics.eventsDropped(metricsName, queue.getKey(), 1);
+					}
+				}
+				return offered;
+			}
+			
+			private int offerEvents(LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue queue, «GAMMA_EVENT_CLASS»[] events, int from, int to) {
+				int offered = queue.offerAll(events, from, to);
+				if (metrics != null) {
+					if (offered > 0) {
+						metrics.eventsQueued(metricsName, queue.getKey(), offered, queue.size());
+					}
+					if (offered < to - from) {
+						metrics.eventsDropped(metricsName, queue.getKey(), to - from - offered);
+					}
+				}
+				return offered;
+			}
+			«IF component.messageQueues.exists[it.additionMethodName == "push"]»
+				
+				private void pushEvent(LinkedBlockingMultiQueue<String, «GAMMA_EVENT_CLASS»>.SubQueue queue, «GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+					if (metrics == null) {
+						queue.push(«EVENT_INSTANCE_NAME»);
+						return;
+					}
+					boolean full = queue.remainingCapacity() == 0; // The oldest event is discarded
+					queue.push(«EVENT_INSTANCE_NAME»);
+					if (full) {
+						metrics.eventsDropped(metricsName, queue.getKey(), 1);
+					}
+					metrics.eventsQueued(metricsName, queue.getKey(), 1, queue.size());
+				}
+			«ENDIF»
+			
 			/** Operation. */
 			@Override
 			public void run() {
 				while (!Thread.currentThread().isInterrupted()) {
 					try {
-						«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME» = __asyncQueue.take();		
-						processEvent(«EVENT_INSTANCE_NAME»);
-						«IF component.hasInternalPort»handleInternalEvents();«ENDIF»
+						«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME»;
+						if (metrics == null) {
+							«EVENT_INSTANCE_NAME» = __asyncQueue.take();
+						}
+						else {
+							long idleStart = System.nanoTime();
+							«EVENT_INSTANCE_NAME» = __asyncQueue.take();
+							metrics.threadIdle(metricsName, System.nanoTime() - idleStart);
+						}
+						handleEvent(«EVENT_INSTANCE_NAME»);
 					} catch (InterruptedException e) {
 						interrupt();
 					}
 				}
 			}
 			
-			private void processEvent(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+			/** Processes the given event and the resulting internal events, measuring the processing if metrics are set. */
+			private void handleEvent(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+				if (metrics == null) {
+					processEvent(«EVENT_INSTANCE_NAME»);
+					«IF component.hasInternalPort»handleInternalEvents();«ENDIF»
+					return;
+				}
+				long start = System.nanoTime();
+				int controlSpecification = processEvent(«EVENT_INSTANCE_NAME»);
+				«IF component.hasInternalPort»handleInternalEvents();«ENDIF»
+				long processingTime = System.nanoTime() - start;
+				metrics.eventProcessed(metricsName, getQueueName(«EVENT_INSTANCE_NAME»), processingTime);
+				if (controlSpecification >= 0) {
+					metrics.controlSpecificationTriggered(metricsName, CONTROL_SPECIFICATIONS[controlSpecification], processingTime);
+				}
+				«IF !component.clocks.empty»
+					switch («EVENT_INSTANCE_NAME».getEvent()) {
+						«FOR clock : component.clocks»
+							case "«clock.name»":
+								if (clockFiringTimes[«clock.name»] != 0) {
+									metrics.timerLag(metricsName, "«clock.name»", start - clockFiringTimes[«clock.name»]);
+								}
+							break;
+						«ENDFOR»
+					}
+				«ENDIF»
+			}
+			
+			/** Returns the index of the triggered control specification, or -1 if there is no such specification. */
+			private int processEvent(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
 				if (!isControlEvent(«EVENT_INSTANCE_NAME»)) {
 					// Event is forwarded to the wrapped component
 					forwardEvent(«EVENT_INSTANCE_NAME»);
 				}
-				performControlActions(«EVENT_INSTANCE_NAME»);
+				return performControlActions(«EVENT_INSTANCE_NAME»);
+			}
+			
+			private String getQueueName(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+				switch («EVENT_INSTANCE_NAME».getEvent()) {
+					«FOR entry : component.queueNames.entrySet»
+						case "«entry.key»":
+							return "«entry.value»";
+					«ENDFOR»
+					default:
+						return "";
+				}
 			}
 			
 			private boolean isControlEvent(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
@@ -252,37 +443,40 @@ class AsynchronousAdapterCodeGenerator {
 				}
 			}
 			
-			private void performControlActions(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
+			private int performControlActions(«GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME») {
 				String[] eventName = «EVENT_INSTANCE_NAME».getEvent().split("\\.");
 				«FOR controlSpecification : component.controlSpecifications»
 					«IF controlSpecification.trigger instanceof AnyTrigger»
 						// Any trigger
 						«controlSpecification.controlFunction.generateRunCycle(component.generateWrappedComponentName)»
-						return;
+						return «component.controlSpecifications.indexOf(controlSpecification)»;
 					«ELSE»
 						«FOR match : AnyPortTriggersOfWrappers.Matcher.on(engine).getAllMatches(component, controlSpecification, null, null)»
 							// Port trigger
 							if (eventName.length == 2 && eventName[0].equals("«match.port.name»")) {
 								«match.controlFunction.generateRunCycle(component.generateWrappedComponentName)»
-								return;
+								return «component.controlSpecifications.indexOf(controlSpecification)»;
 							}
 						«ENDFOR»
 						«FOR match : PortEventTriggersOfWrappers.Matcher.on(engine).getAllMatches(component, controlSpecification, null, null, null)»
 							// Port event trigger
 							if (eventName.length == 2 && eventName[0].equals("«match.port.name»") && eventName[1].equals("«match.event.name»")) {
 								«match.controlFunction.generateRunCycle(component.generateWrappedComponentName)»
-								return;
+								return «component.controlSpecifications.indexOf(controlSpecification)»;
 							}
 						«ENDFOR»
 						«FOR match : ClockTriggersOfWrappers.Matcher.on(engine).getAllMatches(component, controlSpecification, null, null)»
 							// Clock trigger
 							if (eventName.length == 1 && eventName[0].equals("«match.clock.name»")) {
 								«match.controlFunction.generateRunCycle(component.generateWrappedComponentName)»
-								return;
+								return «component.controlSpecifications.indexOf(controlSpecification)»;
 							}
 						«ENDFOR»
 					«ENDIF»
 				«ENDFOR»
+				«IF !component.controlSpecifications.exists[it.trigger instanceof AnyTrigger]»
+					return -1;
+				«ENDIF»
 			}
 			
 			/** Starts this wrapper instance on a thread. */
@@ -303,10 +497,47 @@ class AsynchronousAdapterCodeGenerator {
 				}
 			}
 			
+			«IF component.snapshotable»
+				/** Creates a snapshot of the wrapped component and the contents of the message queues.
+				 * Timers are not included. Should be used only when the thread of this instance is not running. */
+				public Object createSnapshot() {
+					return new Object[] {
+						«component.generateWrappedComponentName».createSnapshot()«FOR queue : component.messageQueues BEFORE "," SEPARATOR ","»
+						«queue.name».toArray()«ENDFOR»
+					};
+				}
+				
+				/** Restores the wrapped component and the contents of the message queues stored in the given snapshot. */
+				public void restoreSnapshot(Object snapshot) {
+					Object[] values = (Object[]) snapshot;
+					«component.generateWrappedComponentName».restoreSnapshot(values[0]);
+					«IF !component.messageQueues.empty»
+						int i = 1;
+					«ENDIF»
+					«FOR queue : component.messageQueues»
+						«queue.name».clear();
+						for (Object «EVENT_INSTANCE_NAME» : (Object[]) values[i++]) {
+							«queue.name».offer((«GAMMA_EVENT_CLASS») «EVENT_INSTANCE_NAME»);
+						}
+					«ENDFOR»
+				}
+			«ENDIF»
+			
 			public «component.wrappedComponent.type.generateComponentClassName» get«component.generateWrappedComponentName.toFirstUpper»() {
 				return «component.generateWrappedComponentName»;
 			}
 			
+			/** Sets the receiver of the runtime measurements of this component, which are reported with the given name;
+			 * null disables the measurements. Should be called before starting this component. */
+			public void setMetrics(«RuntimeMetricsCodeGenerator.INTERFACE_NAME» metrics, String name) {
+				this.metrics = metrics;
+				this.metricsName = name;
+			}
+			
+			public void setMetrics(«RuntimeMetricsCodeGenerator.INTERFACE_NAME» metrics) {
+				setMetrics(metrics, "«component.generateComponentClassName»");
+			}
+			
 			«IF component.needTimer»
 				public void setTimer(«UNIFIED_TIMER_INTERFACE» timer) {
 					«IF !component.clocks.empty»timerService = timer;«ENDIF»
@@ -364,12 +595,51 @@ class AsynchronousAdapterCodeGenerator {
 			@Override
 			public void raise«event.name.toFirstUpper»(«event.generateParameters») {
 				«FOR queue : QueuesOfEvents.Matcher.on(engine).getAllValuesOfqueue(port, event) SEPARATOR "\n"»
-					«queue.name».«queue.additionMethodName»(new Event("«port.name».«event.name»"«IF event.generateArguments.length != 0», «ENDIF»«event.generateArguments»));
+					«queue.additionMethodName»Event(«queue.name», new Event("«port.name».«event.name»"«IF event.generateArguments.length != 0», «ENDIF»«event.generateArguments»));
 				«ENDFOR»
 			}
 		«ENDFOR»
 	'''
 	
+	/**
+	 * Returns the name of the (first) message queue of the events of the given component.
+	 */
+	protected def Map<String, String> getQueueNames(AsynchronousAdapter component) {
+		val Map<String, String> queueNames = newLinkedHashMap
+		for (port : component.allPorts) {
+			for (event : port.inputEvents) {
+				val queues = QueuesOfEvents.Matcher.on(engine).getAllValuesOfqueue(port, event)
+				if (!queues.empty) {
+					queueNames.putIfAbsent(port.name + "." + event.name, queues.head.name)
+				}
+			}
+		}
+		for (match : QueuesOfClocks.Matcher.on(engine).getAllMatches(component, null, null)) {
+			queueNames.putIfAbsent(match.clock.name, match.queue.name)
+		}
+		return queueNames
+	}
+	
+	/**
+	 * Returns the label of the given control specification used in the runtime measurements.
+	 */
+	protected def getLabel(ControlSpecification controlSpecification) {
+		val trigger = controlSpecification.trigger
+		val triggerLabel = if (trigger instanceof EventTrigger) {
+			val eventReference = trigger.eventReference
+			switch (eventReference) {
+				PortEventReference: eventReference.port.name + "." + eventReference.event.name
+				AnyPortEventReference: eventReference.port.name + ".any"
+				ClockTickReference: eventReference.clock.name
+				default: "event"
+			}
+		}
+		else {
+			"any"
+		}
+		return triggerLabel + " / " + controlSpecification.controlFunction.literal
+	}
+	
 	protected def getAdditionMethodName(MessageQueue queue) {
 		val eventDiscardStrategy = queue.eventDiscardStrategy
 		switch (eventDiscardStrategy) {
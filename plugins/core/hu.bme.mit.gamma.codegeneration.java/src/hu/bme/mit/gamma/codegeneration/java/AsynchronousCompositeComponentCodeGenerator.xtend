@@ -55,7 +55,7 @@ class AsynchronousCompositeComponentCodeGenerator {
 		
 		«component.generateCompositeSystemImports»
 		
-		public class «component.generateComponentClassName» implements «component.generatePortOwnerInterfaceName»«IF component instanceof ScheduledAsynchronousCompositeComponent», Runnable«ENDIF» {
+		public class «component.generateComponentClassName» implements «component.generatePortOwnerInterfaceName»«IF component instanceof ScheduledAsynchronousCompositeComponent», Runnable«ENDIF»«IF component.snapshotable», «SNAPSHOTABLE_INTERFACE»«ENDIF» {
 			«IF component instanceof ScheduledAsynchronousCompositeComponent»private Thread thread;«ENDIF»
 			// Component instances
 			«FOR instance : component.components»
@@ -192,6 +192,20 @@ class AsynchronousCompositeComponentCodeGenerator {
 					«ENDFOR»
 				}
 				
+				/** Schedules the contained instances until their queues are empty. Returns the number of processed events. */
+				public int scheduleAll() {
+					int processed = 0;
+					int lastProcessed;
+					do {
+						lastProcessed = 0;
+						«FOR instance : component.scheduledInstances»
+							lastProcessed += «instance.name».scheduleAll();
+						«ENDFOR»
+						processed += lastProcessed;
+					} while (lastProcessed > 0);
+					return processed;
+				}
+				
 				/** Stops the thread running this composite instance. */
 				public void interrupt() {
 					if (thread != null) {
@@ -211,6 +225,38 @@ class AsynchronousCompositeComponentCodeGenerator {
 				}
 			«ENDIF»
 			
+			/** Sets the receiver of the runtime measurements of the contained asynchronous adapters, which are
+			 * reported with the given name prefixing the names of the instances; null disables the measurements. */
+			public void setMetrics(«RuntimeMetricsCodeGenerator.INTERFACE_NAME» metrics, String name) {
+				«FOR instance : component.components»
+					«instance.name».setMetrics(metrics, name + ".«instance.name»");
+				«ENDFOR»
+			}
+			
+			public void setMetrics(«RuntimeMetricsCodeGenerator.INTERFACE_NAME» metrics) {
+				setMetrics(metrics, "«component.generateComponentClassName»");
+			}
+			
+			«IF component.snapshotable»
+				/** Creates a snapshot of the contained component instances. Timers are not included.
+				 * Should be used only when the threads of the contained instances are not running. */
+				public Object createSnapshot() {
+					return new Object[] {
+						«FOR instance : component.components SEPARATOR ","»
+							«instance.name».createSnapshot()
+						«ENDFOR»
+					};
+				}
+				
+				/** Restores the contained component instances to the state stored in the given snapshot. */
+				public void restoreSnapshot(Object snapshot) {
+					Object[] values = (Object[]) snapshot;
+					«FOR instance : component.components»
+						«instance.name».restoreSnapshot(values[«component.components.indexOf(instance)»]);
+					«ENDFOR»
+				}
+			«ENDIF»
+			
 			/**  Getter for component instances, e.g., enabling to check their states. */
 			«FOR instance : component.components SEPARATOR "\n"»
 				public «instance.type.generateComponentClassName» get«instance.name.toFirstUpper»() {
@@ -0,0 +1,379 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.codegeneration.java
+
+import hu.bme.mit.gamma.codegeneration.java.util.TimingDeterminer
+import hu.bme.mit.gamma.codegeneration.java.util.VirtualTimerServiceCodeGenerator
+import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
+import hu.bme.mit.gamma.statechart.composite.ScheduledAsynchronousCompositeComponent
+import hu.bme.mit.gamma.statechart.interface_.Component
+import hu.bme.mit.gamma.statechart.interface_.Event
+import hu.bme.mit.gamma.statechart.interface_.Port
+import hu.bme.mit.gamma.trace.model.ExecutionTrace
+import hu.bme.mit.gamma.trace.model.RaiseEventAct
+import hu.bme.mit.gamma.trace.model.Reset
+import hu.bme.mit.gamma.trace.model.Schedule
+import hu.bme.mit.gamma.trace.model.TimeElapse
+import java.util.List
+
+import static extension hu.bme.mit.gamma.codegeneration.java.util.Namings.*
+import static extension hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.*
+import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
+
+/**
+ * Generates a JMH benchmark module for a generated component. The benchmarks drive the component
+ * through its reflective class: raise-and-run-cycle throughput with an event mix containing each in event
+ * of each port, batch raising, end-to-end latency of asynchronous components, timer-heavy runs driven
+ * by the virtual timer and the replay of recorded execution traces.
+ */
+class BenchmarkCodeGenerator {
+	
+	public static final String PACKAGE_POSTFIX = "benchmark"
+	public static final String JMH_VERSION = "1.37"
+	// Encoding of the acts of the replayed traces; non-negative values are indexes of events in the mix
+	protected static final int RESET = -1
+	protected static final int SCHEDULE = -2
+	protected static final int ELAPSE = -3
+	
+	protected final String BASE_PACKAGE_NAME
+	protected final Component component
+	protected final List<ExecutionTrace> traces
+	protected final String TIMER_CLASS_NAME
+	//
+	protected final extension TimingDeterminer timingDeterminer = TimingDeterminer.INSTANCE
+	protected final extension ExpressionSerializer expressionSerializer = ExpressionSerializer.INSTANCE
+	
+	new(String BASE_PACKAGE_NAME, Component component, List<ExecutionTrace> traces) {
+		this.BASE_PACKAGE_NAME = BASE_PACKAGE_NAME
+		this.component = component
+		this.traces = traces.filter[it.component === component].toList
+		this.TIMER_CLASS_NAME = new VirtualTimerServiceCodeGenerator(BASE_PACKAGE_NAME).className
+	}
+	
+	def getPackageName() {
+		return BASE_PACKAGE_NAME + "." + PACKAGE_POSTFIX
+	}
+	
+	def getClassName() {
+		return component.componentClassName + "Benchmark"
+	}
+	
+	/**
+	 * The sources of the generated components are added from the given folder relative to the module folder.
+	 */
+	def createPom(String relativeSourceFolder) '''
+		<?xml version="1.0" encoding="UTF-8"?>
+		<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+				xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+			<modelVersion>4.0.0</modelVersion>
+			
+			<groupId>«packageName»</groupId>
+			<artifactId>«component.name.toLowerCase»-benchmark</artifactId>
+			<version>1.0.0-SNAPSHOT</version>
+			
+			<properties>
+				<jmh.version>«JMH_VERSION»</jmh.version>
+				<maven.compiler.release>17</maven.compiler.release>
+				<project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+			</properties>
+			
+			<dependencies>
+				<dependency>
+					<groupId>org.openjdk.jmh</groupId>
+					<artifactId>jmh-core</artifactId>
+					<version>${jmh.version}</version>
+				</dependency>
+				<dependency>
+					<groupId>org.openjdk.jmh</groupId>
+					<artifactId>jmh-generator-annprocess</artifactId>
+					<version>${jmh.version}</version>
+					<scope>provided</scope>
+				</dependency>
+			</dependencies>
+			
+			<build>
+				<plugins>
+					<plugin>
+						<!-- Compiling the generated components together with the benchmarks -->
+						<groupId>org.codehaus.mojo</groupId>
+						<artifactId>build-helper-maven-plugin</artifactId>
+						<version>3.5.0</version>
+						<executions>
+							<execution>
+								<id>add-component-sources</id>
+								<phase>generate-sources</phase>
+								<goals>
+									<goal>add-source</goal>
+								</goals>
+								<configuration>
+									<sources>
+										<source>«relativeSourceFolder»</source>
+									</sources>
+								</configuration>
+							</execution>
+						</executions>
+					</plugin>
+					<plugin>
+						<!-- Packaging an executable benchmarks.jar: java -jar target/benchmarks.jar -->
+						<groupId>org.apache.maven.plugins</groupId>
+						<artifactId>maven-shade-plugin</artifactId>
+						<version>3.5.1</version>
+						<executions>
+							<execution>
+								<phase>package</phase>
+								<goals>
+									<goal>shade</goal>
+								</goals>
+								<configuration>
+									<finalName>benchmarks</finalName>
+									<transformers>
+										<transformer implementation="org.apache.maven.plugins.shade.resource.ManifestResourceTransformer">
+											<mainClass>org.openjdk.jmh.Main</mainClass>
+										</transformer>
+										<transformer implementation="org.apache.maven.plugins.shade.resource.ServicesResourceTransformer"/>
+									</transformers>
+								</configuration>
+							</execution>
+						</executions>
+					</plugin>
+				</plugins>
+			</build>
+		</project>
+	'''
+	
+	def createBenchmarkClass() {
+		val events = component.eventMix
+		val hasTimer = component.needTimer
+		val isAsynchronous = component instanceof AsynchronousAdapter ||
+			component instanceof ScheduledAsynchronousCompositeComponent
+		return '''
+			package «packageName»;
+			
+			import java.util.Arrays;
+			import java.util.concurrent.TimeUnit;
+			
+			import org.openjdk.jmh.annotations.*;
+			
+			import «BASE_PACKAGE_NAME».*;
+			import «component.getPackageString(BASE_PACKAGE_NAME)».*;
+			«FOR _package : component.containingPackage.componentImports.toSet /* For type declarations */
+					.filter[it.containsComponentsOrInterfacesOrTypes]»
+				import «_package.getPackageString(BASE_PACKAGE_NAME)».*;
+			«ENDFOR»
+			
+			@State(Scope.Thread)
+			@BenchmarkMode(Mode.Throughput)
+			@OutputTimeUnit(TimeUnit.MICROSECONDS)
+			@Warmup(iterations = 3, time = 1)
+			@Measurement(iterations = 5, time = 1)
+			@Fork(1)
+			public class «className» {
+				
+				// Event mix: each in event of each port with default arguments
+				private static final String[][] EVENTS = new String[][] {
+					«FOR event : events SEPARATOR ","»
+						new String[] { "«event.key.name»", "«event.value.name»" }
+					«ENDFOR»
+				};
+				private static final Object[][] EVENT_ARGUMENTS = new Object[][] {
+					«FOR event : events SEPARATOR ","»
+						new Object[] {«FOR parameter : event.value.parameterDeclarations BEFORE " " SEPARATOR ", " AFTER " "»«parameter.type.defaultExpression.serialize»«ENDFOR»}
+					«ENDFOR»
+				};
+				«IF !traces.empty»
+					
+					// Encoded acts of the recorded traces: non-negative values are indexes in the event mix
+					private static final int RESET = «RESET»;
+					private static final int SCHEDULE = «SCHEDULE»;
+					private static final int ELAPSE = «ELAPSE»;
+					private static final String[] TRACES = new String[] { «FOR trace : traces SEPARATOR ", "»"«trace.name»"«ENDFOR» };
+					private static final int[][] TRACE_ACTS = new int[][] {
+						«FOR trace : traces SEPARATOR ","»
+							new int[] { «FOR act : trace.encodableActs SEPARATOR ", "»«act.encode(events)»«ENDFOR» }
+						«ENDFOR»
+					};
+					private static final Object[][][] TRACE_ARGUMENTS = new Object[][][] {
+						«FOR trace : traces SEPARATOR ","»
+							new Object[][] { «FOR act : trace.encodableActs SEPARATOR ", "»«act.serializeArguments»«ENDFOR» }
+						«ENDFOR»
+					};
+				«ENDIF»
+				
+				private «component.reflectiveClassName» component;
+				«IF hasTimer»
+					private «TIMER_CLASS_NAME» timer;
+				«ENDIF»
+				private int[] handles;
+				private int next = 0;
+				
+				@Setup(Level.Iteration)
+				public void setUp() {
+					«IF hasTimer»
+						timer = new «TIMER_CLASS_NAME»();
+					«ENDIF»
+					component = new «component.reflectiveClassName»(«FOR parameter : component.parameterDeclarations SEPARATOR ", "»«parameter.type.defaultExpression.serialize»«ENDFOR»«IF hasTimer»«IF !component.parameterDeclarations.empty», «ENDIF»timer«ENDIF»);
+					component.reset();
+					// Handles are resolved once, so the benchmarks do not measure string processing
+					handles = new int[EVENTS.length];
+					for (int i = 0; i < EVENTS.length; i++) {
+						handles[i] = component.getInEventHandle(EVENTS[i][0], EVENTS[i][1]);
+					}
+					next = 0;
+				}
+				«IF !events.empty»
+					
+					/** Raises the next event of the mix and schedules the component once. */
+					@Benchmark
+					public void raiseAndRunCycle() {
+						raiseNext();
+						component.schedule();
+					}
+					
+					/** Raises all events of the mix in a single batch and schedules the component until its queues are empty. */
+					@Benchmark
+					@OperationsPerInvocation(«events.size»)
+					public void raiseBatchAndRunFullCycle() {
+						component.raiseEvents(handles, EVENT_ARGUMENTS);
+						component.scheduleAll();
+					}
+					«IF isAsynchronous»
+						
+						/** End-to-end latency of an event through the message queues and the processing of the contained components. */
+						@Benchmark
+						@BenchmarkMode(Mode.SampleTime)
+						@OutputTimeUnit(TimeUnit.NANOSECONDS)
+						public void eventLatency() {
+							raiseNext();
+							component.scheduleAll();
+						}
+					«ENDIF»
+					
+					private void raiseNext() {
+						int i = next;
+						next = (i + 1) % handles.length;
+						component.raiseEvent(handles[i], EVENT_ARGUMENTS[i]);
+					}
+				«ELSE»
+					
+					/** Schedules the component once (it has no in events). */
+					@Benchmark
+					public void runCycle() {
+						component.schedule();
+					}
+				«ENDIF»
+				«IF hasTimer»
+					
+					@State(Scope.Thread)
+					public static class TimeStep {
+						@Param({ "1", "10", "100", "1000" })
+						public long milliseconds;
+					}
+					
+					/** Elapses time in the virtual timer, firing the due timeouts, and schedules the component until its queues are empty. */
+					@Benchmark
+					public void elapseTimeAndRunFullCycle(TimeStep step) {
+						timer.elapse(step.milliseconds);
+						component.scheduleAll();
+					}
+				«ENDIF»
+				«IF !traces.empty»
+					
+					@State(Scope.Thread)
+					public static class RecordedTrace {
+						@Param({ «FOR trace : traces SEPARATOR ", "»"«trace.name»"«ENDFOR» })
+						public String name;
+						private int index;
+						
+						@Setup
+						public void setUp() {
+							index = Arrays.asList(TRACES).indexOf(name);
+						}
+					}
+					
+					/** Replays the raise, schedule, reset and time elapse acts of a recorded trace. */
+					@Benchmark
+					public void replayTrace(RecordedTrace trace) {
+						int[] acts = TRACE_ACTS[trace.index];
+						Object[][] arguments = TRACE_ARGUMENTS[trace.index];
+						for (int i = 0; i < acts.length; i++) {
+							int act = acts[i];
+							switch (act) {
+								case RESET:
+									component.reset();
+									break;
+								case SCHEDULE:
+									component.schedule();
+									break;
+								case ELAPSE:
+									«IF hasTimer»timer.elapse((long) arguments[i][0]);«ENDIF»
+									break;
+								default:
+									component.raiseEvent(handles[act], arguments[i]);
+							}
+						}
+					}
+				«ENDIF»
+				
+			}
+		'''
+	}
+	
+	/**
+	 * Each in event of each port of the component in the order of the ports, i.e., the events are
+	 * interleaved as in the case of a round-robin environment.
+	 */
+	protected def List<Pair<Port, Event>> getEventMix(Component component) {
+		val events = <Pair<Port, Event>>newArrayList
+		for (port : component.allPorts) {
+			for (event : port.inputEvents) {
+				events += port -> event
+			}
+		}
+		return events
+	}
+	
+	protected def getEncodableActs(ExecutionTrace trace) {
+		return trace.steps.map[it.actions].flatten.filter[
+			it instanceof RaiseEventAct || it instanceof Reset || it instanceof Schedule || it instanceof TimeElapse].toList
+	}
+	
+	protected def encode(Object act, List<Pair<Port, Event>> events) {
+		switch (act) {
+			RaiseEventAct: {
+				val index = events.indexOf(act.port -> act.event)
+				if (index < 0) {
+					throw new IllegalArgumentException("Not known in event: " + act.port.name + "." + act.event.name)
+				}
+				return index
+			}
+			Reset:
+				return RESET
+			Schedule:
+				return SCHEDULE
+			TimeElapse:
+				return ELAPSE
+			default:
+				throw new IllegalArgumentException("Not known act: " + act)
+		}
+	}
+	
+	protected def serializeArguments(Object act) {
+		switch (act) {
+			RaiseEventAct:
+				return '''new Object[] {«FOR argument : act.arguments BEFORE " " SEPARATOR ", " AFTER " "»«argument.serialize»«ENDFOR»}'''
+			TimeElapse:
+				return '''new Object[] { (long) («act.elapsedTime.serialize») }'''
+			default:
+				return "null"
+		}
+	}
+	
+}
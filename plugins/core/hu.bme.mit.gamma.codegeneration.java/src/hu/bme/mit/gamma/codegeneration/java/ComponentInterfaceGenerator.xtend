@@ -11,7 +11,6 @@
 package hu.bme.mit.gamma.codegeneration.java
 
 import hu.bme.mit.gamma.codegeneration.java.util.InterfaceCodeGenerator
-import hu.bme.mit.gamma.statechart.composite.AbstractSynchronousCompositeComponent
 import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
 import hu.bme.mit.gamma.statechart.composite.AsynchronousComponent
 import hu.bme.mit.gamma.statechart.composite.CompositeComponent
@@ -67,8 +66,18 @@ class ComponentInterfaceGenerator {
 				
 				void reset();
 				
-				«IF component instanceof SynchronousComponent»void runCycle();«ENDIF»
-				«IF component instanceof AbstractSynchronousCompositeComponent»void runFullCycle();«ENDIF»
+				«IF component instanceof SynchronousComponent»
+					void runCycle();
+					
+					void runFullCycle();
+					
+					/** Runs the given number of cycles; the listeners are notified after each cycle. */
+					default void runCycles(int count) {
+						for (int i = 0; i < count; i++) {
+							runCycle();
+						}
+					}
+				«ENDIF»
 				«IF component instanceof AsynchronousComponent»void start();«ENDIF»
 				
 			}
@@ -80,4 +89,8 @@ class ComponentInterfaceGenerator {
 		interfaceCodeGenerator.createReflectiveInterface
 	}
 	
+	def generateSnapshotableInterface() {
+		interfaceCodeGenerator.createSnapshotableInterface
+	}
+	
 }
\ No newline at end of file
@@ -29,7 +29,6 @@ import hu.bme.mit.gamma.statechart.interface_.Component
 import hu.bme.mit.gamma.statechart.interface_.Package
 import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 import java.io.File
-import java.io.FileWriter
 import java.util.HashSet
 import org.eclipse.emf.ecore.resource.ResourceSet
 import org.eclipse.viatra.query.runtime.api.IPatternMatch
@@ -57,6 +56,8 @@ class GlueCodeGenerator {
 	protected final String BASE_FOLDER_URI
 	protected final String BASE_PACKAGE_URI
 	protected final String CHANNEL_URI
+	// Renders the classes and writes only the changed ones
+	protected final IncrementalCodeWriter codeWriter
 	// The base of the package name, e.g.,: hu.bme.mit.gamma.tutorial.start
 	protected final String BASE_PACKAGE_NAME
 	// The base of the package name of the generated Yakindu components, not org.yakindu.scr anymore
@@ -77,6 +78,7 @@ class GlueCodeGenerator {
 	protected final extension SynchronousCompositeComponentCodeGenerator synchronousCompositeComponentCodeGenerator
 	protected final extension AsynchronousAdapterCodeGenerator synchronousComponentWrapperCodeGenerator
 	protected final extension LinkedBlockingQueueSource linkedBlockingQueueSourceGenerator
+	protected final extension RuntimeMetricsCodeGenerator runtimeMetricsCodeGenerator
 	protected final extension ChannelInterfaceGenerator channelInterfaceGenerator
 	protected final extension ChannelCodeGenerator channelCodeGenerator
 	protected final extension AsynchronousCompositeComponentCodeGenerator asynchronousCompositeComponentCodeGenerator
@@ -99,6 +101,7 @@ class GlueCodeGenerator {
 		this.BASE_FOLDER_URI = srcGenFolderUri
 		this.BASE_PACKAGE_URI = this.BASE_FOLDER_URI  + File.separator + basePackageName.replaceAll("\\.", "/")
 		this.CHANNEL_URI = BASE_PACKAGE_URI + File.separator + Namings.CHANNEL_PACKAGE_POSTFIX
+		this.codeWriter = new IncrementalCodeWriter(this.BASE_FOLDER_URI, topComponent.name)
 		//
 		val trace = new Trace(this.engine)
 		this.nameGenerator = new NameGenerator(this.BASE_PACKAGE_NAME)
@@ -115,6 +118,7 @@ class GlueCodeGenerator {
 		this.synchronousCompositeComponentCodeGenerator = new SynchronousCompositeComponentCodeGenerator(this.BASE_PACKAGE_NAME, this.YAKINDU_PACKAGE_NAME, trace)
 		this.synchronousComponentWrapperCodeGenerator = new AsynchronousAdapterCodeGenerator(this.BASE_PACKAGE_NAME, trace)
 		this.linkedBlockingQueueSourceGenerator = new LinkedBlockingQueueSource(this.BASE_PACKAGE_NAME)
+		this.runtimeMetricsCodeGenerator = new RuntimeMetricsCodeGenerator(this.BASE_PACKAGE_NAME)
 		this.channelInterfaceGenerator = new ChannelInterfaceGenerator(this.BASE_PACKAGE_NAME)
 		this.channelCodeGenerator = new ChannelCodeGenerator(this.BASE_PACKAGE_NAME)
 		this.asynchronousCompositeComponentCodeGenerator = new AsynchronousCompositeComponentCodeGenerator(this.BASE_PACKAGE_NAME, trace)
@@ -159,13 +163,16 @@ class GlueCodeGenerator {
 		getSynchronousCompositeComponentsRule.fireAllCurrent
 		if (hasSynchronousWrapper) {
 			generateLinkedBlockingMultiQueueClasses
+			generateRuntimeMetricsClasses
 		}
 		getAsynchronousAdapterRule.fireAllCurrent
 		if (hasAsynchronousComposite) {
 			getChannelsRule.fireAllCurrent
 		}
 		getAsynchronousCompositeComponentsRule.fireAllCurrent
-	}	
+		// The rules only register the renderers, the classes are rendered and saved here
+		codeWriter.write
+	}
 	
 	protected def checkUniqueInterfaceNames() {
 		val interfaces = Interfaces.Matcher.on(engine).allValuesOfinterface
@@ -233,8 +240,8 @@ class GlueCodeGenerator {
 			 	if (!it.typeDeclaration.type.primitive) {
  					val packageName = typeDeclaration.getPackageString(BASE_PACKAGE_NAME)
 					val TYPE_FOLDER_URI = BASE_FOLDER_URI.generateUri(packageName)
-					val code = it.typeDeclaration.generateTypeDeclarationCode
-					code.saveCode(TYPE_FOLDER_URI + File.separator + it.typeDeclaration.name + ".java")
+					val declaration = it.typeDeclaration
+					saveCode([| declaration.generateTypeDeclarationCode], TYPE_FOLDER_URI + File.separator + declaration.name + ".java")
 				}
 			].build		
 		}
@@ -249,8 +256,8 @@ class GlueCodeGenerator {
 			 portInterfaceRule = createRule(Interfaces.instance).action [
  				val interfacePackageName = interface.getPackageString(BASE_PACKAGE_NAME)
 				val INTERFACE_FOLDER_URI = BASE_FOLDER_URI.generateUri(interfacePackageName)
-				val code = it.interface.generatePortInterfaces
-				code.saveCode(INTERFACE_FOLDER_URI + File.separator + it.interface.implementationName + ".java")
+				val portInterface = it.interface
+				saveCode([| portInterface.generatePortInterfaces], INTERFACE_FOLDER_URI + File.separator + portInterface.implementationName + ".java")
 			].build		
 		}
 		return portInterfaceRule
@@ -260,6 +267,8 @@ class GlueCodeGenerator {
 		val interfaceUri = BASE_PACKAGE_URI
 		val reflectiveCode = generateReflectiveInterface
 		reflectiveCode.saveCode(interfaceUri + File.separator + Namings.REFLECTIVE_INTERFACE + ".java")
+		val snapshotableCode = generateSnapshotableInterface
+		snapshotableCode.saveCode(interfaceUri + File.separator + Namings.SNAPSHOTABLE_INTERFACE + ".java")
 	}
 	
 	/**
@@ -270,8 +279,8 @@ class GlueCodeGenerator {
 			 simpleComponentsReflectionRule = createRule(SimpleGammaComponents.instance).action [
 				val componentUri = BASE_PACKAGE_URI + File.separator  + it.statechartDefinition.containingPackage.name.toLowerCase
 				// Generating the reflective class
-				val reflectiveCode = it.statechartDefinition.generateReflectiveClass
-				reflectiveCode.saveCode(componentUri + File.separator + it.statechartDefinition.reflectiveClassName + ".java")
+				val statechartDefinition = it.statechartDefinition
+				saveCode([| statechartDefinition.generateReflectiveClass], componentUri + File.separator + statechartDefinition.reflectiveClassName + ".java")
 			].build		
 		}
 		return simpleComponentsReflectionRule
@@ -284,11 +293,10 @@ class GlueCodeGenerator {
 		if (simpleComponentsRule === null) {
 			 simpleComponentsRule = createRule(SimpleYakinduComponents.instance).action [
 				val componentUri = BASE_PACKAGE_URI + File.separator  + it.statechartDefinition.containingPackage.name.toLowerCase
-				val code = (it.statechartDefinition as StatechartDefinition).createSimpleComponentClass
-				code.saveCode(componentUri + File.separator + it.statechartDefinition.generateComponentClassName + ".java")
+				val statechartDefinition = it.statechartDefinition
+				saveCode([| (statechartDefinition as StatechartDefinition).createSimpleComponentClass], componentUri + File.separator + statechartDefinition.generateComponentClassName + ".java")
 				// Generating the interface for returning the Ports
-				val interfaceCode = it.statechartDefinition.generateComponentInterface
-				interfaceCode.saveCode(componentUri + File.separator + it.statechartDefinition.generatePortOwnerInterfaceName + ".java")
+				saveCode([| statechartDefinition.generateComponentInterface], componentUri + File.separator + statechartDefinition.generatePortOwnerInterfaceName + ".java")
 			].build		
 		}
 		return simpleComponentsRule
@@ -298,14 +306,12 @@ class GlueCodeGenerator {
 		if (synchronousCompositeComponentsRule === null) {
 			 synchronousCompositeComponentsRule = createRule(AbstractSynchronousCompositeComponents.instance).action [
 				val compositeSystemUri = BASE_PACKAGE_URI + File.separator + it.synchronousCompositeComponent.containingPackage.name.toLowerCase
-				val code = it.synchronousCompositeComponent.createSynchronousCompositeComponentClass
-				code.saveCode(compositeSystemUri + File.separator + it.synchronousCompositeComponent.generateComponentClassName + ".java")
+				val component = it.synchronousCompositeComponent
+				saveCode([| component.createSynchronousCompositeComponentClass], compositeSystemUri + File.separator + component.generateComponentClassName + ".java")
 				// Generating the interface that is able to return the Ports
-				val interfaceCode = it.synchronousCompositeComponent.generateComponentInterface
-				interfaceCode.saveCode(compositeSystemUri + File.separator + it.synchronousCompositeComponent.generatePortOwnerInterfaceName + ".java")
+				saveCode([| component.generateComponentInterface], compositeSystemUri + File.separator + component.generatePortOwnerInterfaceName + ".java")
 				// Generating the reflective class
-				val reflectiveCode = it.synchronousCompositeComponent.generateReflectiveClass
-				reflectiveCode.saveCode(compositeSystemUri + File.separator + it.synchronousCompositeComponent.reflectiveClassName + ".java")
+				saveCode([| component.generateReflectiveClass], compositeSystemUri + File.separator + component.reflectiveClassName + ".java")
 			].build		
 		}
 		return synchronousCompositeComponentsRule
@@ -320,17 +326,27 @@ class GlueCodeGenerator {
 		generatePollable.saveCode(compositeSystemUri + File.separator + "Pollable.java")
 	}
 	
+	/**
+	 * Creates and saves the runtime metrics interface of asynchronous components and its implementations.
+	 */
+	protected def void generateRuntimeMetricsClasses() {
+		val compositeSystemUri = BASE_PACKAGE_URI
+		createRuntimeMetricsInterface.saveCode(compositeSystemUri + File.separator + RuntimeMetricsCodeGenerator.INTERFACE_NAME + ".java")
+		createLatencyHistogramClass.saveCode(compositeSystemUri + File.separator + RuntimeMetricsCodeGenerator.HISTOGRAM_CLASS_NAME + ".java")
+		createRuntimeMetricsMXBeanInterface.saveCode(compositeSystemUri + File.separator + RuntimeMetricsCodeGenerator.MX_BEAN_INTERFACE_NAME + ".java")
+		createJmxRuntimeMetricsClass.saveCode(compositeSystemUri + File.separator + RuntimeMetricsCodeGenerator.JMX_CLASS_NAME + ".java")
+		createJfrRuntimeMetricsClass.saveCode(compositeSystemUri + File.separator + RuntimeMetricsCodeGenerator.JFR_CLASS_NAME + ".java")
+	}
+	
 	protected def getAsynchronousAdapterRule() {
 		if (synchronousComponentWrapperRule === null) {
 			 synchronousComponentWrapperRule = createRule(SynchronousComponentWrappers.instance).action [
 				val compositeSystemUri = BASE_PACKAGE_URI + File.separator + it.synchronousComponentWrapper.containingPackage.name.toLowerCase
-				val code = it.synchronousComponentWrapper.createAsynchronousAdapterClass
-				code.saveCode(compositeSystemUri + File.separator + it.synchronousComponentWrapper.generateComponentClassName + ".java")
-				val interfaceCode = it.synchronousComponentWrapper.generateComponentInterface
-				interfaceCode.saveCode(compositeSystemUri + File.separator + it.synchronousComponentWrapper.generatePortOwnerInterfaceName + ".java")
+				val component = it.synchronousComponentWrapper
+				saveCode([| component.createAsynchronousAdapterClass], compositeSystemUri + File.separator + component.generateComponentClassName + ".java")
+				saveCode([| component.generateComponentInterface], compositeSystemUri + File.separator + component.generatePortOwnerInterfaceName + ".java")
 				// Generating the reflective class
-				val reflectiveCode = it.synchronousComponentWrapper.generateReflectiveClass
-				reflectiveCode.saveCode(compositeSystemUri + File.separator + it.synchronousComponentWrapper.reflectiveClassName + ".java")
+				saveCode([| component.generateReflectiveClass], compositeSystemUri + File.separator + component.reflectiveClassName + ".java")
 			].build		
 		}
 		return synchronousComponentWrapperRule
@@ -342,10 +358,9 @@ class GlueCodeGenerator {
 	protected def getChannelsRule() {
 		if (channelsRule === null) {
 			 channelsRule = createRule(Interfaces.instance).action [
-				val channelInterfaceCode = it.interface.createChannelInterfaceCode
-				channelInterfaceCode.saveCode(CHANNEL_URI + File.separator + it.interface.generateChannelInterfaceName + ".java")
-				val channelClassCode = it.interface.createChannelClassCode
-				channelClassCode.saveCode(CHANNEL_URI + File.separator + it.interface.generateChannelName + ".java")	
+				val portInterface = it.interface
+				saveCode([| portInterface.createChannelInterfaceCode], CHANNEL_URI + File.separator + portInterface.generateChannelInterfaceName + ".java")
+				saveCode([| portInterface.createChannelClassCode], CHANNEL_URI + File.separator + portInterface.generateChannelName + ".java")
 			].build		
 		}
 		return channelsRule
@@ -356,28 +371,30 @@ class GlueCodeGenerator {
 			 asynchronousCompositeComponentsRule = createRule(AsynchronousCompositeComponents.instance).action [
 				val compositeSystemUri = BASE_PACKAGE_URI + File.separator + it.asynchronousCompositeComponent.containingPackage.name.toLowerCase
 				// Main components
-				val code = it.asynchronousCompositeComponent.createAsynchronousCompositeComponentClass
-				code.saveCode(compositeSystemUri + File.separator + it.asynchronousCompositeComponent.generateComponentClassName + ".java")
-				val interfaceCode = it.asynchronousCompositeComponent.generateComponentInterface
-				interfaceCode.saveCode(compositeSystemUri + File.separator + it.asynchronousCompositeComponent.generatePortOwnerInterfaceName + ".java")
+				val component = it.asynchronousCompositeComponent
+				saveCode([| component.createAsynchronousCompositeComponentClass], compositeSystemUri + File.separator + component.generateComponentClassName + ".java")
+				saveCode([| component.generateComponentInterface], compositeSystemUri + File.separator + component.generatePortOwnerInterfaceName + ".java")
 				
 				// Generating the reflective class
-				val reflectiveCode = it.asynchronousCompositeComponent.generateReflectiveClass
-				reflectiveCode.saveCode(compositeSystemUri + File.separator + it.asynchronousCompositeComponent.reflectiveClassName + ".java")
+				saveCode([| component.generateReflectiveClass], compositeSystemUri + File.separator + component.reflectiveClassName + ".java")
 			].build		
 		}
 		return asynchronousCompositeComponentsRule
 	}
 	
 	/**
-	 * Creates a Java class from the the given code at the location specified by the given URI.
+	 * Registers a Java class with the given code at the location specified by the given URI.
 	 */
 	protected def saveCode(CharSequence code, String uri) {
-		new File(uri.substring(0, uri.lastIndexOf(File.separator))).mkdirs
-		val fw = new FileWriter(uri)
-		fw.write(code.toString)
-		fw.close
-		return 
+		codeWriter.add(uri, [| code])
+	}
+	
+	/**
+	 * Registers a Java class rendered by the given renderer (when the classes are written)
+	 * at the location specified by the given URI.
+	 */
+	protected def saveCode(()=>CharSequence renderer, String uri) {
+		codeWriter.add(uri, renderer)
 	}
 	
 	/**
@@ -0,0 +1,151 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.codegeneration.java
+
+import java.io.File
+import java.nio.charset.Charset
+import java.nio.file.Files
+import java.security.MessageDigest
+import java.util.Arrays
+import java.util.HexFormat
+import java.util.Map
+import java.util.Set
+import java.util.logging.Level
+import java.util.logging.Logger
+import java.util.stream.Collectors
+
+/**
+ * Collects the files to be generated into a folder, renders them and writes only the files
+ * whose contents have changed, so the generated project is not recompiled from scratch. The generated
+ * files are recorded in a manifest (with the hashes of their contents); files of the previous
+ * generation that are not generated again are removed, unless they are recorded in the manifest of
+ * another generation in the same folder, e.g., one for another top component.
+ */
+class IncrementalCodeWriter {
+
+	public static final String MANIFEST_PREFIX = ".gamma-codegen-"
+	public static final String MANIFEST_EXTENSION = ".manifest"
+
+	protected final File folder
+	protected final File manifest
+	// Relative paths (with '/' separators) and renderers of the files to be generated
+	protected final Map<String, ()=>CharSequence> renderers = newLinkedHashMap
+	// Logger
+	protected final Logger logger = Logger.getLogger("GammaLogger")
+
+	new(String folderUri, String name) {
+		this.folder = new File(folderUri)
+		this.manifest = new File(folder, MANIFEST_PREFIX + name + MANIFEST_EXTENSION)
+	}
+
+	/**
+	 * Registers the file at the given URI (inside the folder) to be rendered by the given renderer.
+	 */
+	def void add(String uri, ()=>CharSequence renderer) {
+		renderers.put(uri.relativePath, renderer)
+	}
+
+	/**
+	 * Renders and writes the registered files, removes the stale files and updates the manifest.
+	 * The renderers query the models and the (not thread-safe) VIATRA engine, so they are executed
+	 * sequentially on the calling thread; only the hashing and writing of the files is parallel.
+	 */
+	def void write() {
+		val previousHashes = manifest.readManifest
+		val charset = Charset.defaultCharset // As in the case of the previous FileWriter-based saving
+		val Map<String, byte[]> contents = newLinkedHashMap
+		for (renderer : renderers.entrySet) {
+			contents.put(renderer.key, renderer.value.apply.toString.getBytes(charset))
+		}
+		val hashes = contents.entrySet.parallelStream.map[
+			val path = it.key
+			val bytes = it.value
+			val hash = bytes.hash
+			val file = path.file
+			if (!file.isUnchanged(bytes, hash, previousHashes.get(path))) {
+				file.parentFile.mkdirs
+				Files.write(file.toPath, bytes)
+			}
+			path -> hash
+		].collect(Collectors.toMap([it.key], [it.value]))
+		// Stale files
+		val protectedPaths = otherManifestPaths
+		val stalePaths = previousHashes.keySet.filter[!hashes.containsKey(it) && !protectedPaths.contains(it)].toList
+		for (stalePath : stalePaths) {
+			stalePath.file.deleteWithEmptyParents
+		}
+		// Sorted, so the manifest itself is stable
+		folder.mkdirs
+		Files.write(manifest.toPath, hashes.keySet.sort.map[hashes.get(it) + " " + it], charset)
+		renderers.clear
+		logger.log(Level.INFO, "Generated " + hashes.size + " files (" +
+			hashes.keySet.filter[previousHashes.get(it) != hashes.get(it)].size + " changed), removed " +
+				stalePaths.size + " stale files in " + folder.absolutePath)
+	}
+
+	protected def boolean isUnchanged(File file, byte[] bytes, String hash, String previousHash) {
+		if (!file.exists || file.length != bytes.length) {
+			return false
+		}
+		if (hash == previousHash) {
+			return true // No need to read the file
+		}
+		// E.g., the first generation with a manifest
+		return Arrays.equals(Files.readAllBytes(file.toPath), bytes)
+	}
+
+	protected def Map<String, String> readManifest(File manifest) {
+		val Map<String, String> hashes = newHashMap
+		if (manifest.exists) {
+			for (line : Files.readAllLines(manifest.toPath, Charset.defaultCharset)) {
+				val separatorIndex = line.indexOf(" ")
+				if (separatorIndex > 0) {
+					hashes.put(line.substring(separatorIndex + 1), line.substring(0, separatorIndex))
+				}
+			}
+		}
+		return hashes
+	}
+
+	protected def Set<String> getOtherManifestPaths() {
+		val Set<String> paths = newHashSet
+		val manifests = folder.listFiles[it.name.startsWith(MANIFEST_PREFIX) &&
+			it.name.endsWith(MANIFEST_EXTENSION) && it != manifest]
+		for (otherManifest : manifests ?: #[]) {
+			paths += otherManifest.readManifest.keySet
+		}
+		return paths
+	}
+
+	protected def void deleteWithEmptyParents(File file) {
+		if (!file.delete) {
+			return
+		}
+		var parent = file.parentFile
+		while (parent != folder && parent.list !== null && parent.list.length == 0 && parent.delete) {
+			parent = parent.parentFile
+		}
+	}
+
+	protected def String getRelativePath(String uri) {
+		return folder.toPath.relativize(new File(uri).toPath).toString.replace(File.separator, "/")
+	}
+
+	protected def File getFile(String path) {
+		return new File(folder, path.replace("/", File.separator))
+	}
+
+	protected def String hash(byte[] bytes) {
+		val digest = MessageDigest.getInstance("SHA-256")
+		return HexFormat.of.formatHex(digest.digest(bytes))
+	}
+
+}
@@ -628,6 +628,10 @@ class LinkedBlockingQueueSource {
 		        private final AtomicInteger count = new AtomicInteger();
 		        private boolean enabled = true;
 		
+		        public K getKey() {
+		            return key;
+		        }
+		
 		        public int remainingCapacity() {
 		            return capacity - count.get();
 		        }
@@ -835,6 +839,43 @@ class LinkedBlockingQueueSource {
 		            return true;
 		        }
 		
+		        /**
+		         * Inserts the elements of the given array between the given indexes (from inclusive, to exclusive) while
+		         * there is remaining capacity, acquiring the put lock and signaling the pollers only once. As in the case
+		         * of {@link #offer(Object)}, the elements that do not fit are not inserted.
+		         * 
+		         * @return the number of inserted elements
+		         */
+		        public int offerAll(E[] es, int from, int to) {
+		            for (int i = from; i < to; i++)
+		                if (es[i] == null)
+		                    throw new NullPointerException();
+		            long oldSize = -1;
+		            int n = 0;
+		            putLock.lock();
+		            try {
+		                // count can only decrease at this point, as all other puts are shut out by the lock
+		                n = Math.min(to - from, capacity - count.get());
+		                if (n <= 0)
+		                    return 0;
+		                for (int i = from; i < from + n; i++)
+		                    enqueue(new Node<E>(es[i]));
+		                if (count.getAndAdd(n) + n < capacity) {
+		                    // queue not full after adding, notify next offerer
+		                    notFull.signal();
+		                }
+		                if (enabled)
+		                    oldSize = totalCount.getAndAdd(n);
+		            } finally {
+		                putLock.unlock();
+		            }
+		            if (oldSize == 0) {
+		                // just added elements to an empty queue, notify pollers
+		                signalNotEmpty();
+		            }
+		            return n;
+		        }
+		
 		        public boolean remove(Object o) {
 		            if (o == null)
 		                return false;
@@ -18,13 +18,12 @@ class ReflectiveComponentCodeGenerator extends hu.bme.mit.gamma.codegeneration.j
 	protected final extension TypeTransformer typeTransformer
 
 	new(String BASE_PACKAGE_NAME, Trace trace) {
-		super(BASE_PACKAGE_NAME, null)
+		super(BASE_PACKAGE_NAME)
 		this.typeTransformer = new TypeTransformer(trace)
 	}
 	
 	def generateReflectiveClass(Component component) {
-		super.component = component
-		return super.createReflectiveClass
+		return component.createReflectiveClass
 	}
 	
 	protected override transformType(Type type) '''«typeTransformer.transformType(type)»'''
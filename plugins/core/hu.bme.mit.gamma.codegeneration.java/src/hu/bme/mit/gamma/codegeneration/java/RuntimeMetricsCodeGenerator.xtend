@@ -0,0 +1,531 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.codegeneration.java
+
+/**
+ * Generates the runtime metrics interface of asynchronous components, a latency histogram, and
+ * JMX and JFR implementations of the interface.
+ */
+class RuntimeMetricsCodeGenerator {
+	
+	public static final String INTERFACE_NAME = "RuntimeMetrics"
+	public static final String HISTOGRAM_CLASS_NAME = "LatencyHistogram"
+	public static final String JMX_CLASS_NAME = "JmxRuntimeMetrics"
+	public static final String MX_BEAN_INTERFACE_NAME = "RuntimeMetricsMXBean"
+	public static final String JFR_CLASS_NAME = "JfrRuntimeMetrics"
+	
+	protected final String basePackageName
+	
+	new(String basePackageName) {
+		this.basePackageName = basePackageName
+	}
+	
+	def createRuntimeMetricsInterface() '''
+		package «basePackageName»;
+		
+		/**
+		 * Receives the runtime measurements of asynchronous components. Components report only if a metrics
+		 * instance is set (setMetrics), otherwise the instrumentation is skipped. The methods are called
+		 * on the threads of the components and the event producers, so implementations must be thread-safe.
+		 */
+		public interface «INTERFACE_NAME» {
+			
+			/** The given number of events have been added to the given queue, resulting in the given queue depth. */
+			void eventsQueued(String component, String queue, int count, int depth);
+			
+			/** The given number of events have been discarded, as the given queue was full. */
+			void eventsDropped(String component, String queue, int count);
+			
+			/** An event of the given queue has been processed (including the control actions and internal events) in the given time. */
+			void eventProcessed(String component, String queue, long nanos);
+			
+			/** The given control specification has been triggered and the processing of the triggering event took the given time. */
+			void controlSpecificationTriggered(String component, String controlSpecification, long nanos);
+			
+			/** The event of the given clock has been processed the given time after the timer fired. */
+			void timerLag(String component, String clock, long nanos);
+			
+			/** The thread of the component has been waiting for events for the given time. */
+			void threadIdle(String component, long nanos);
+			
+		}
+	'''
+	
+	def createLatencyHistogramClass() '''
+		package «basePackageName»;
+		
+		import java.util.concurrent.atomic.AtomicLong;
+		import java.util.concurrent.atomic.AtomicLongArray;
+		
+		/**
+		 * Lock-free histogram of non-negative values, e.g., latencies in nanoseconds. As in HDR histograms,
+		 * the values are counted in exponential buckets divided into linear sub-buckets, so the relative error
+		 * of the percentiles is bounded (about 3%) and recording is constant time without allocation.
+		 */
+		public class «HISTOGRAM_CLASS_NAME» {
+			
+			private static final int SUB_BUCKET_BITS = 6;
+			private static final int HALF_SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+			
+			private final AtomicLongArray counts = new AtomicLongArray((66 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT);
+			private final AtomicLong count = new AtomicLong();
+			private final AtomicLong sum = new AtomicLong();
+			private final AtomicLong max = new AtomicLong();
+			
+			public void record(long value) {
+				long recordedValue = Math.max(value, 0);
+				counts.incrementAndGet(getIndex(recordedValue));
+				count.incrementAndGet();
+				sum.addAndGet(recordedValue);
+				max.accumulateAndGet(recordedValue, Math::max);
+			}
+			
+			public long getCount() {
+				return count.get();
+			}
+			
+			public long getMax() {
+				return max.get();
+			}
+			
+			public double getMean() {
+				long count = getCount();
+				return count == 0 ? 0 : ((double) sum.get()) / count;
+			}
+			
+			/** Returns the lower bound of the bucket containing the value at the given percentile (0-100). */
+			public long getValueAtPercentile(double percentile) {
+				long count = getCount();
+				if (count == 0) {
+					return 0;
+				}
+				long threshold = Math.max(1, (long) Math.ceil(count * percentile / 100));
+				long seen = 0;
+				for (int i = 0; i < counts.length(); i++) {
+					seen += counts.get(i);
+					if (seen >= threshold) {
+						return Math.min(getValue(i), getMax());
+					}
+				}
+				return getMax();
+			}
+			
+			public void reset() {
+				for (int i = 0; i < counts.length(); i++) {
+					counts.set(i, 0);
+				}
+				count.set(0);
+				sum.set(0);
+				max.set(0);
+			}
+			
+			private static int getIndex(long value) {
+				if (value < 2 * HALF_SUB_BUCKET_COUNT) {
+					return (int) value;
+				}
+				// The highest bit determines the bucket, the next bits the sub-bucket
+				int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+				return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+			}
+			
+			private static long getValue(int index) {
+				if (index < 2 * HALF_SUB_BUCKET_COUNT) {
+					return index;
+				}
+				int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+				long subBucket = index % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+				return subBucket << shift;
+			}
+			
+		}
+	'''
+	
+	def createRuntimeMetricsMXBeanInterface() '''
+		package «basePackageName»;
+		
+		import java.util.Map;
+		
+		/**
+		 * The keys of the maps are "component/queue", "component/control specification", "component/clock"
+		 * or "component" depending on the measurement. Times are in nanoseconds.
+		 */
+		public interface «MX_BEAN_INTERFACE_NAME» {
+			
+			Map<String, Long> getQueuedEvents();
+			
+			Map<String, Long> getDroppedEvents();
+			
+			Map<String, Long> getMaxQueueDepths();
+			
+			Map<String, Long> getProcessedEvents();
+			
+			Map<String, Long> getProcessingTimeMedians();
+			
+			Map<String, Long> getProcessingTime99thPercentiles();
+			
+			Map<String, Long> getProcessingTimeMaxima();
+			
+			Map<String, Long> getControlSpecificationTime99thPercentiles();
+			
+			Map<String, Long> getTimerLag99thPercentiles();
+			
+			Map<String, Long> getTimerLagMaxima();
+			
+			/** The ratio of the processing time and the sum of the processing and idle times of the component threads. */
+			Map<String, Double> getThreadUtilizations();
+			
+			void reset();
+			
+		}
+	'''
+	
+	def createJmxRuntimeMetricsClass() '''
+		package «basePackageName»;
+		
+		import java.lang.management.ManagementFactory;
+		import java.util.Map;
+		import java.util.TreeMap;
+		import java.util.concurrent.ConcurrentHashMap;
+		import java.util.concurrent.ConcurrentMap;
+		import java.util.concurrent.atomic.AtomicLong;
+		import java.util.concurrent.atomic.LongAdder;
+		import java.util.function.ToLongFunction;
+		
+		import javax.management.JMException;
+		import javax.management.ObjectName;
+		
+		/**
+		 * Aggregates the runtime measurements into counters and latency histograms, which can be
+		 * accessed directly or through JMX after registering this instance.
+		 */
+		public class «JMX_CLASS_NAME» implements «INTERFACE_NAME», «MX_BEAN_INTERFACE_NAME» {
+			
+			private final ConcurrentMap<String, LongAdder> queuedEvents = new ConcurrentHashMap<String, LongAdder>();
+			private final ConcurrentMap<String, LongAdder> droppedEvents = new ConcurrentHashMap<String, LongAdder>();
+			private final ConcurrentMap<String, AtomicLong> maxQueueDepths = new ConcurrentHashMap<String, AtomicLong>();
+			private final ConcurrentMap<String, «HISTOGRAM_CLASS_NAME»> processingTimes = new ConcurrentHashMap<String, «HISTOGRAM_CLASS_NAME»>();
+			private final ConcurrentMap<String, «HISTOGRAM_CLASS_NAME»> controlSpecificationTimes = new ConcurrentHashMap<String, «HISTOGRAM_CLASS_NAME»>();
+			private final ConcurrentMap<String, «HISTOGRAM_CLASS_NAME»> timerLags = new ConcurrentHashMap<String, «HISTOGRAM_CLASS_NAME»>();
+			private final ConcurrentMap<String, LongAdder> busyTimes = new ConcurrentHashMap<String, LongAdder>();
+			private final ConcurrentMap<String, LongAdder> idleTimes = new ConcurrentHashMap<String, LongAdder>();
+			
+			private ObjectName objectName;
+			
+			/** Registers this instance in the platform MBean server with the given name. */
+			public void register(String name) throws JMException {
+				objectName = new ObjectName("«basePackageName»:type=«INTERFACE_NAME»,name=" + ObjectName.quote(name));
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			}
+			
+			public void unregister() throws JMException {
+				if (objectName != null) {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+					objectName = null;
+				}
+			}
+			
+			// Recording
+			
+			@Override
+			public void eventsQueued(String component, String queue, int count, int depth) {
+				String key = component + "/" + queue;
+				getAdder(queuedEvents, key).add(count);
+				maxQueueDepths.computeIfAbsent(key, it -> new AtomicLong()).accumulateAndGet(depth, Math::max);
+			}
+			
+			@Override
+			public void eventsDropped(String component, String queue, int count) {
+				getAdder(droppedEvents, component + "/" + queue).add(count);
+			}
+			
+			@Override
+			public void eventProcessed(String component, String queue, long nanos) {
+				getHistogram(processingTimes, component + "/" + queue).record(nanos);
+				getAdder(busyTimes, component).add(nanos);
+			}
+			
+			@Override
+			public void controlSpecificationTriggered(String component, String controlSpecification, long nanos) {
+				getHistogram(controlSpecificationTimes, component + "/" + controlSpecification).record(nanos);
+			}
+			
+			@Override
+			public void timerLag(String component, String clock, long nanos) {
+				getHistogram(timerLags, component + "/" + clock).record(nanos);
+			}
+			
+			@Override
+			public void threadIdle(String component, long nanos) {
+				getAdder(idleTimes, component).add(nanos);
+			}
+			
+			private LongAdder getAdder(ConcurrentMap<String, LongAdder> adders, String key) {
+				LongAdder adder = adders.get(key); // Avoiding the locking of computeIfAbsent on the hot path
+				if (adder == null) {
+					adder = adders.computeIfAbsent(key, it -> new LongAdder());
+				}
+				return adder;
+			}
+			
+			private «HISTOGRAM_CLASS_NAME» getHistogram(ConcurrentMap<String, «HISTOGRAM_CLASS_NAME»> histograms, String key) {
+				«HISTOGRAM_CLASS_NAME» histogram = histograms.get(key);
+				if (histogram == null) {
+					histogram = histograms.computeIfAbsent(key, it -> new «HISTOGRAM_CLASS_NAME»());
+				}
+				return histogram;
+			}
+			
+			// Direct access
+			
+			public «HISTOGRAM_CLASS_NAME» getProcessingTimes(String component, String queue) {
+				return getHistogram(processingTimes, component + "/" + queue);
+			}
+			
+			public «HISTOGRAM_CLASS_NAME» getControlSpecificationTimes(String component, String controlSpecification) {
+				return getHistogram(controlSpecificationTimes, component + "/" + controlSpecification);
+			}
+			
+			public «HISTOGRAM_CLASS_NAME» getTimerLags(String component, String clock) {
+				return getHistogram(timerLags, component + "/" + clock);
+			}
+			
+			// MXBean
+			
+			@Override
+			public Map<String, Long> getQueuedEvents() {
+				return sum(queuedEvents);
+			}
+			
+			@Override
+			public Map<String, Long> getDroppedEvents() {
+				return sum(droppedEvents);
+			}
+			
+			@Override
+			public Map<String, Long> getMaxQueueDepths() {
+				Map<String, Long> values = new TreeMap<String, Long>();
+				maxQueueDepths.forEach((key, value) -> values.put(key, value.get()));
+				return values;
+			}
+			
+			@Override
+			public Map<String, Long> getProcessedEvents() {
+				return get(processingTimes, it -> it.getCount());
+			}
+			
+			@Override
+			public Map<String, Long> getProcessingTimeMedians() {
+				return get(processingTimes, it -> it.getValueAtPercentile(50));
+			}
+			
+			@Override
+			public Map<String, Long> getProcessingTime99thPercentiles() {
+				return get(processingTimes, it -> it.getValueAtPercentile(99));
+			}
+			
+			@Override
+			public Map<String, Long> getProcessingTimeMaxima() {
+				return get(processingTimes, it -> it.getMax());
+			}
+			
+			@Override
+			public Map<String, Long> getControlSpecificationTime99thPercentiles() {
+				return get(controlSpecificationTimes, it -> it.getValueAtPercentile(99));
+			}
+			
+			@Override
+			public Map<String, Long> getTimerLag99thPercentiles() {
+				return get(timerLags, it -> it.getValueAtPercentile(99));
+			}
+			
+			@Override
+			public Map<String, Long> getTimerLagMaxima() {
+				return get(timerLags, it -> it.getMax());
+			}
+			
+			@Override
+			public Map<String, Double> getThreadUtilizations() {
+				Map<String, Double> values = new TreeMap<String, Double>();
+				idleTimes.forEach((component, idleTime) -> {
+					long busyTime = getAdder(busyTimes, component).sum();
+					long totalTime = busyTime + idleTime.sum();
+					values.put(component, totalTime == 0 ? 0.0 : ((double) busyTime) / totalTime);
+				});
+				return values;
+			}
+			
+			@Override
+			public void reset() {
+				queuedEvents.clear();
+				droppedEvents.clear();
+				maxQueueDepths.clear();
+				processingTimes.clear();
+				controlSpecificationTimes.clear();
+				timerLags.clear();
+				busyTimes.clear();
+				idleTimes.clear();
+			}
+			
+			private Map<String, Long> sum(Map<String, LongAdder> adders) {
+				Map<String, Long> values = new TreeMap<String, Long>();
+				adders.forEach((key, value) -> values.put(key, value.sum()));
+				return values;
+			}
+			
+			private Map<String, Long> get(Map<String, «HISTOGRAM_CLASS_NAME»> histograms, ToLongFunction<«HISTOGRAM_CLASS_NAME»> getter) {
+				Map<String, Long> values = new TreeMap<String, Long>();
+				histograms.forEach((key, value) -> values.put(key, getter.applyAsLong(value)));
+				return values;
+			}
+			
+		}
+	'''
+	
+	def createJfrRuntimeMetricsClass() '''
+		package «basePackageName»;
+		
+		import jdk.jfr.Category;
+		import jdk.jfr.Enabled;
+		import jdk.jfr.Label;
+		import jdk.jfr.Name;
+		import jdk.jfr.Timespan;
+		
+		/**
+		 * Emits the runtime measurements as Java Flight Recorder events. Events are created
+		 * only if they are enabled in the running recording.
+		 */
+		public class «JFR_CLASS_NAME» implements «INTERFACE_NAME» {
+			
+			@Name("«basePackageName».EventsQueued")
+			@Label("Events Queued")
+			@Category({ "Gamma", "Asynchronous Components" })
+			@Enabled(false) // Emitted for every raised event
+			static class EventsQueued extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Queue") String queue;
+				@Label("Count") int count;
+				@Label("Depth") int depth;
+			}
+			
+			@Name("«basePackageName».EventsDropped")
+			@Label("Events Dropped")
+			@Category({ "Gamma", "Asynchronous Components" })
+			static class EventsDropped extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Queue") String queue;
+				@Label("Count") int count;
+			}
+			
+			@Name("«basePackageName».EventProcessed")
+			@Label("Event Processed")
+			@Category({ "Gamma", "Asynchronous Components" })
+			static class EventProcessed extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Queue") String queue;
+				@Label("Processing Time") @Timespan(Timespan.NANOSECONDS) long processingTime;
+			}
+			
+			@Name("«basePackageName».ControlSpecificationTriggered")
+			@Label("Control Specification Triggered")
+			@Category({ "Gamma", "Asynchronous Components" })
+			static class ControlSpecificationTriggered extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Control Specification") String controlSpecification;
+				@Label("Processing Time") @Timespan(Timespan.NANOSECONDS) long processingTime;
+			}
+			
+			@Name("«basePackageName».TimerLag")
+			@Label("Timer Lag")
+			@Category({ "Gamma", "Asynchronous Components" })
+			static class TimerLag extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Clock") String clock;
+				@Label("Lag") @Timespan(Timespan.NANOSECONDS) long lag;
+			}
+			
+			@Name("«basePackageName».ThreadIdle")
+			@Label("Thread Idle")
+			@Category({ "Gamma", "Asynchronous Components" })
+			static class ThreadIdle extends jdk.jfr.Event {
+				@Label("Component") String component;
+				@Label("Idle Time") @Timespan(Timespan.NANOSECONDS) long idleTime;
+			}
+			
+			@Override
+			public void eventsQueued(String component, String queue, int count, int depth) {
+				EventsQueued event = new EventsQueued();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.queue = queue;
+					event.count = count;
+					event.depth = depth;
+					event.commit();
+				}
+			}
+			
+			@Override
+			public void eventsDropped(String component, String queue, int count) {
+				EventsDropped event = new EventsDropped();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.queue = queue;
+					event.count = count;
+					event.commit();
+				}
+			}
+			
+			@Override
+			public void eventProcessed(String component, String queue, long nanos) {
+				EventProcessed event = new EventProcessed();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.queue = queue;
+					event.processingTime = nanos;
+					event.commit();
+				}
+			}
+			
+			@Override
+			public void controlSpecificationTriggered(String component, String controlSpecification, long nanos) {
+				ControlSpecificationTriggered event = new ControlSpecificationTriggered();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.controlSpecification = controlSpecification;
+					event.processingTime = nanos;
+					event.commit();
+				}
+			}
+			
+			@Override
+			public void timerLag(String component, String clock, long nanos) {
+				TimerLag event = new TimerLag();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.clock = clock;
+					event.lag = nanos;
+					event.commit();
+				}
+			}
+			
+			@Override
+			public void threadIdle(String component, long nanos) {
+				ThreadIdle event = new ThreadIdle();
+				if (event.isEnabled()) {
+					event.component = component;
+					event.idleTime = nanos;
+					event.commit();
+				}
+			}
+			
+		}
+	'''
+	
+}
@@ -77,6 +77,8 @@ class StatechartWrapperCodeGenerator {
 			// Event queues for the synchronization of statecharts
 			private Queue<«Namings.GAMMA_EVENT_CLASS»> «EVENT_QUEUE»1 = new LinkedList<«Namings.GAMMA_EVENT_CLASS»>();
 			private Queue<«Namings.GAMMA_EVENT_CLASS»> «EVENT_QUEUE»2 = new LinkedList<«Namings.GAMMA_EVENT_CLASS»>();
+			// Indexes of the out-events raised in the current cycle
+			private final java.util.BitSet raisedEvents = new java.util.BitSet();
 			«component.generateParameterDeclarationFields»
 			
 			public «component.generateComponentClassName»(«FOR parameter : component.parameterDeclarations SEPARATOR ", "»«parameter.type.transformType» «parameter.name»«ENDFOR») {
@@ -101,6 +103,7 @@ class StatechartWrapperCodeGenerator {
 				//
 				«component.generateStatemachineInstanceName».init();
 				«component.generateStatemachineInstanceName».enter();
+				collectRaisedEvents();
 				notifyListeners();
 			}
 			
@@ -143,6 +146,15 @@ class StatechartWrapperCodeGenerator {
 				runComponent();
 			}
 			
+			/** Initiates cycle runs until the event queue is empty, i.e., also the events raised during the cycles are processed. */
+			@Override
+			public void runFullCycle() {
+				do {
+					runCycle();
+				}
+				while (!is«EVENT_QUEUE.toFirstUpper»Empty());
+			}
+			
 			/** Changes the insert queue and initiates a run. */
 			public void runAndRechangeInsertQueue() {
 				// First the insert queue is changed back, so self-event sending can work
@@ -153,6 +165,13 @@ class StatechartWrapperCodeGenerator {
 			/** Initiates a cycle run without changing the event queues. It is needed if this component is contained (wrapped) by another component.
 			Should be used only be the container (composite system) class. */
 			public void runComponent() {
+				executeComponent();
+				completeComponent();
+			}
+			
+			/** Initiates a cycle run without notifying the registered listeners.
+			Should be used only be the container (composite system) class. */
+			public void executeComponent() {
 				Queue<«Namings.GAMMA_EVENT_CLASS»> «EVENT_QUEUE» = getProcessQueue();
 				while (!«EVENT_QUEUE».isEmpty()) {
 						«Namings.GAMMA_EVENT_CLASS» «EVENT_INSTANCE_NAME» = «EVENT_QUEUE».remove();
@@ -163,37 +182,48 @@ class StatechartWrapperCodeGenerator {
 						}
 				}
 				«component.generateStatemachineInstanceName».runCycle();
-				notifyListeners();
 «««				The parameters of transient in events do not have to be reset, as Yakindu does not allow to use a parameter, if the event is not raised
+				collectRaisedEvents();
+			}
+			
+			/** Stores the indexes of the out-events raised by the wrapped statemachine in the last cycle. */
+			private void collectRaisedEvents() {
+				raisedEvents.clear();
+				«FOR portEvent : component.outEvents»
+					if («portEvent.key.name.toFirstLower».isRaised«portEvent.value.name.toFirstUpper»()) {
+						raisedEvents.set(«component.outEvents.indexOf(portEvent)»);
+					}
+				«ENDFOR»
+			}
+			
+			/** Returns whether any out-event has been raised in the last cycle. */
+			public boolean hasRaisedEvents() {
+				return !raisedEvents.isEmpty();
+			}
+			
+			/** Notifies the registered listeners after a cycle run.
+			Should be used only be the container (composite system) class. */
+			public void completeComponent() {
+				notifyListeners();
 			}
 			
 			// Inner classes representing Ports
 			«FOR port : component.ports SEPARATOR "\n"»
 				public class «port.name.toFirstUpper» implements «port.implementedInterfaceName» {
-					private List<«port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»> registeredListeners = new LinkedList<«port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»>();
+					private «port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»[] listenerArray = new «port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»[0];
 
 					«port.generateRaisingMethods» 
 
 					«component.generateOutMethods(port)»
 					@Override
 					public void registerListener(final «port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener) {
-						registeredListeners.add(listener);
+						listenerArray = java.util.Arrays.copyOf(listenerArray, listenerArray.length + 1);
+						listenerArray[listenerArray.length - 1] = listener;
 					}
 					
 					@Override
 					public List<«port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»> getRegisteredListeners() {
-						return registeredListeners;
-					}
-					
-					/** Notifying the registered listeners. */
-					public void notifyListeners() {
-						«FOR event : port.outputEvents»
-							if (isRaised«event.name.toFirstUpper»()) {
-								for («port.interfaceRealization.interface.implementationName».Listener.«port.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener : registeredListeners) {
-									listener.raise«event.name.toFirstUpper»(«IF !event.parameterDeclarations.empty»get«event.name.toFirstUpper»Value()«ENDIF»);
-								}
-							}
-						«ENDFOR»
+						return List.of(listenerArray);
 					}
 
 				}
@@ -209,11 +239,21 @@ class StatechartWrapperCodeGenerator {
 				notifyListeners();
 			}
 			
-			/** Notifies all registered listeners in each contained port. */
+			/** Notifies the registered listeners only of the out-events raised in the last cycle. */
 			public void notifyListeners() {
-				«FOR port : component.ports»
-					get«port.name.toFirstUpper»().notifyListeners();
-				«ENDFOR»
+				«IF !component.outEvents.empty»
+					for (int i = raisedEvents.nextSetBit(0); i >= 0; i = raisedEvents.nextSetBit(i + 1)) {
+						switch (i) {
+							«FOR portEvent : component.outEvents»
+								case «component.outEvents.indexOf(portEvent)»:
+									for («portEvent.key.interfaceRealization.interface.implementationName».Listener.«portEvent.key.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener : «portEvent.key.name.toFirstLower».listenerArray) {
+										listener.raise«portEvent.value.name.toFirstUpper»(«IF !portEvent.value.parameterDeclarations.empty»«portEvent.key.name.toFirstLower».get«portEvent.value.name.toFirstUpper»Value()«ENDIF»);
+									}
+								break;
+							«ENDFOR»
+						}
+					}
+				«ENDIF»
 			}
 			
 			«IF component.hasNamelessInterface»
@@ -277,6 +317,13 @@ class StatechartWrapperCodeGenerator {
 		}
 	'''
 	
+	/**
+	 * Returns the out-events of the given component with their ports in the order of their raised-event bits.
+	 */
+	protected def getOutEvents(Component component) {
+		return component.ports.map[port | port.outputEvents.map[port -> it]].flatten.toList
+	}
+	
 	/**
 	 * Returns the imports needed for the simple component classes.
 	 */
@@ -58,7 +58,7 @@ class SynchronousCompositeComponentCodeGenerator {
 		
 		«component.generateCompositeSystemImports»
 		
-		public class «component.generateComponentClassName» implements «component.generatePortOwnerInterfaceName» {
+		public class «component.generateComponentClassName» implements «component.generatePortOwnerInterfaceName»«IF component.snapshotable», «SNAPSHOTABLE_INTERFACE»«ENDIF» {
 			// Component instances
 			«FOR instance : component.components»
 				private «instance.type.generateComponentClassName» «instance.name»;
@@ -69,6 +69,12 @@ class SynchronousCompositeComponentCodeGenerator {
 			«ENDFOR»
 			«component.generateParameterDeclarationFields»
 			«component.createInternalPortHandlingAttributes»
+			// Indexes of the ports with raised out-events in the current cycle
+			private final java.util.BitSet raisedPorts = new java.util.BitSet();
+			«IF component.parallelizable»
+				// Indicates whether the contained components are executed in parallel in a cycle
+				private boolean parallelExecution = false;
+			«ENDIF»
 			
 			«IF component.needTimer»
 				public «component.generateComponentClassName»(«FOR parameter : component.parameterDeclarations SEPARATOR ", " AFTER ", "»«parameter.type.transformType» «parameter.name»«ENDFOR»«Namings.UNIFIED_TIMER_INTERFACE» timer) {
@@ -128,7 +134,7 @@ class SynchronousCompositeComponentCodeGenerator {
 			// Inner classes representing Ports
 			«FOR systemPort : component.ports SEPARATOR "\n"»
 				public class «systemPort.name.toFirstUpper» implements «systemPort.interfaceRealization.interface.implementationName».«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» {
-					private List<«systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»> listeners = new LinkedList<«systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»>();
+					private «systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»[] listenerArray = new «systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»[0];
 «««					Cascade components need their raised events saved (multiple schedule of a component in a single turn)
 					«FOR event : systemPort.outputEvents»
 						boolean isRaised«event.name.toFirstUpper»;
@@ -154,6 +160,7 @@ class SynchronousCompositeComponentCodeGenerator {
 							@Override
 							public void raise«event.name.toFirstUpper»(«event.generateParameters») {
 								isRaised«event.name.toFirstUpper» = true;
+								raisedPorts.set(«component.ports.indexOf(systemPort)»);
 								«FOR parameter : event.parameterDeclarations»
 									«systemPort.name.toFirstUpper».this.«parameter.generateName» = «parameter.generateName»;
 								«ENDFOR»
@@ -163,12 +170,13 @@ class SynchronousCompositeComponentCodeGenerator {
 					
 					@Override
 					public void registerListener(«systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener) {
-						listeners.add(listener);
+						listenerArray = java.util.Arrays.copyOf(listenerArray, listenerArray.length + 1);
+						listenerArray[listenerArray.length - 1] = listener;
 					}
 					
 					@Override
 					public List<«systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper»> getRegisteredListeners() {
-						return listeners;
+						return List.of(listenerArray);
 					}
 					
 					/** Resetting the boolean event flags to false. */
@@ -178,11 +186,37 @@ class SynchronousCompositeComponentCodeGenerator {
 						«ENDFOR»
 					}
 					
+					«IF component.snapshotable»
+						/** Creates a snapshot of the boolean event flags and the event parameters. */
+						public Object[] createSnapshot() {
+							return new Object[] {
+								«FOR event : systemPort.outputEvents SEPARATOR ","»
+									isRaised«event.name.toFirstUpper»«FOR parameter : event.parameterDeclarations BEFORE "," SEPARATOR ","»
+									«parameter.generateName»«ENDFOR»
+								«ENDFOR»
+							};
+						}
+						
+						/** Restores the boolean event flags and the event parameters stored in the given snapshot. */
+						public void restoreSnapshot(Object[] snapshot) {
+							«IF !systemPort.outputEvents.empty»
+								int i = 0;
+							«ENDIF»
+							«FOR event : systemPort.outputEvents»
+								isRaised«event.name.toFirstUpper» = (boolean) snapshot[i++];
+								«FOR parameter : event.parameterDeclarations»
+									«parameter.generateName» = («parameter.type.transformType») snapshot[i++];
+								«ENDFOR»
+							«ENDFOR»
+							raisedPorts.set(«component.ports.indexOf(systemPort)», «IF systemPort.outputEvents.empty»false«ELSE»«FOR event : systemPort.outputEvents SEPARATOR " || "»isRaised«event.name.toFirstUpper»«ENDFOR»«ENDIF»);
+						}
+					«ENDIF»
+					
 					/** Notifying the registered listeners. */
 					public void notifyListeners() {
 						«FOR event : systemPort.outputEvents»
 							if (isRaised«event.name.toFirstUpper») {
-								for («systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener : listeners) {
+								for («systemPort.interfaceRealization.interface.implementationName».Listener.«systemPort.interfaceRealization.realizationMode.toString.toLowerCase.toFirstUpper» listener : listenerArray) {
 									listener.raise«event.name.toFirstUpper»(«event.generateArguments»);
 								}
 							}
@@ -197,11 +231,10 @@ class SynchronousCompositeComponentCodeGenerator {
 				}
 			«ENDFOR»
 			
-			/** Clears the the boolean flags of all out-events in each contained port. */
+			/** Clears the the boolean flags of all out-events in each port with raised out-events. */
 			private void clearPorts() {
-				«FOR portBinding : component.portBindings»
-					get«portBinding.compositeSystemPort.name.toFirstUpper»().clear();
-				«ENDFOR»
+				«component.forEachRaisedPort("clear")»
+				raisedPorts.clear();
 			}
 			
 			/** Notifies all registered listeners in each contained port. */
@@ -211,16 +244,23 @@ class SynchronousCompositeComponentCodeGenerator {
 				notifyListeners();
 			}
 			
+			/** Notifies all registered listeners in the contained components that have raised out-events. */
 			public void notifyAllSublisteners() {
 				«FOR subcomponent : component.components»
-					«subcomponent.name».notifyAllListeners();
+					if («subcomponent.name».hasRaisedEvents()) {
+						«subcomponent.name».notifyAllListeners();
+					}
 				«ENDFOR»
 			}
 			
+			/** Returns whether this component or any contained component has raised out-events. */
+			public boolean hasRaisedEvents() {
+				return !raisedPorts.isEmpty()«FOR subcomponent : component.components» || «subcomponent.name».hasRaisedEvents()«ENDFOR»;
+			}
+			
+			/** Notifies the registered listeners only in the ports with raised out-events. */
 			public void notifyListeners() {
-				«FOR portBinding : component.portBindings»
-					get«portBinding.compositeSystemPort.name.toFirstUpper»().notifyListeners();
-				«ENDFOR»
+				«component.forEachRaisedPort("notifyListeners")»
 			}
 			
 			«IF component instanceof SynchronousCompositeComponent»
@@ -262,16 +302,51 @@ class SynchronousCompositeComponentCodeGenerator {
 			/** Initiates a cycle run without changing the event queues.
 			 * Should be used only be the container (composite system) class. */
 			public void runComponent() {
+				executeComponent();
+				completeComponent();
+			}
+			
+			/** Initiates a cycle run without notifying the registered listeners.
+			 * Should be used only be the container (composite system) class. */
+			public void executeComponent() {
 				// Starts with the clearing of the previous out-event flags
 				clearPorts();
+				«IF component.parallelizable»
+					if (parallelExecution) {
+						// Contained components process only the events of the previous cycle, so they are independent
+						java.util.concurrent.ForkJoinTask.invokeAll(
+							«FOR instance : component.scheduledInstances SEPARATOR ","»
+								java.util.concurrent.ForkJoinTask.adapt(() -> «instance.name».executeComponent())
+							«ENDFOR»
+						);
+						// Notifying in the scheduling order, so the events are queued as in a sequential run
+						«FOR instance : component.scheduledInstances»
+							«instance.name».completeComponent();
+						«ENDFOR»
+						return;
+					}
+				«ENDIF»
 				// Running contained components
 				«FOR instance : component.scheduledInstances»
 					«instance.runCycleOrComponent(component)»
 				«ENDFOR»
+			}
+			
+			/** Notifies the registered listeners after a cycle run.
+			 * Should be used only be the container (composite system) class. */
+			public void completeComponent() {
 				// Notifying registered listeners
 				notifyListeners();
 				«IF component.hasInternalPort»handleInternalEvents();«ENDIF»
 			}
+			«IF component.parallelizable»
+				
+				/** Sets whether the contained components are executed in parallel in a cycle.
+				 * The results are identical to the ones of the sequential execution. */
+				public void setParallelExecution(boolean parallelExecution) {
+					this.parallelExecution = parallelExecution;
+				}
+			«ENDIF»
 		
 			«IF component.needTimer»
 				/** Setter for the timer e.g., a virtual timer. */
@@ -285,6 +360,33 @@ class SynchronousCompositeComponentCodeGenerator {
 				}
 			«ENDIF»
 			
+			«IF component.snapshotable»
+				/** Creates a snapshot of the contained component instances and the out-event flags of the ports.
+				 * Timers are not included. */
+				public Object createSnapshot() {
+					return new Object[] {
+						«FOR instance : component.components SEPARATOR "," AFTER (if (component.ports.empty) "" else ",")»
+							«instance.name».createSnapshot()
+						«ENDFOR»
+						«FOR port : component.ports SEPARATOR ","»
+							«port.name.toFirstLower».createSnapshot()
+						«ENDFOR»
+					};
+				}
+				
+				/** Restores the contained component instances and the out-event flags of the ports. */
+				public void restoreSnapshot(Object snapshot) {
+					Object[] values = (Object[]) snapshot;
+					int i = 0;
+					«FOR instance : component.components»
+						«instance.name».restoreSnapshot(values[i++]);
+					«ENDFOR»
+					«FOR port : component.ports»
+						«port.name.toFirstLower».restoreSnapshot((Object[]) values[i++]);
+					«ENDFOR»
+				}
+			«ENDIF»
+			
 			/**  Getter for component instances, e.g., enabling to check their states. */
 			«FOR instance : component.components SEPARATOR "\n"»
 				public «instance.type.generateComponentClassName» get«instance.name.toFirstUpper»() {
@@ -299,6 +401,27 @@ class SynchronousCompositeComponentCodeGenerator {
 		}
 	'''
 	
+	protected def forEachRaisedPort(AbstractSynchronousCompositeComponent component, String method) '''
+		for (int i = raisedPorts.nextSetBit(0); i >= 0; i = raisedPorts.nextSetBit(i + 1)) {
+			switch (i) {
+				«FOR port : component.ports»
+					case «component.ports.indexOf(port)»:
+						get«port.name.toFirstUpper»().«method»();
+						break;
+				«ENDFOR»
+			}
+		}
+	'''
+	
+	/**
+	 * Returns whether the contained components can be executed in parallel. In cascade components,
+	 * events raised in a cycle are processed in the same cycle, so the order of execution matters.
+	 */
+	protected def isParallelizable(AbstractSynchronousCompositeComponent component) {
+		return component instanceof SynchronousCompositeComponent && component.components.size > 1 &&
+			component.allInstances.map[it.derivedType].filter(CascadeCompositeComponent).empty
+	}
+	
 	protected def runCycleOrComponent(ComponentInstance instance,
 			AbstractSynchronousCompositeComponent component) '''
 		«IF component instanceof CascadeCompositeComponent && instance.derivedType instanceof SynchronousCompositeComponent»
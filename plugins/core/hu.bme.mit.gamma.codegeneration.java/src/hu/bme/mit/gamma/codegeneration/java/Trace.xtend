@@ -11,13 +11,19 @@
 package hu.bme.mit.gamma.codegeneration.java
 
 import hu.bme.mit.gamma.codegeneration.java.queries.EventToEvent
+import hu.bme.mit.gamma.codegeneration.java.queries.SimpleYakinduComponents
 import hu.bme.mit.gamma.codegeneration.java.queries.Traces
+import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
+import hu.bme.mit.gamma.statechart.composite.CompositeComponent
 import hu.bme.mit.gamma.statechart.interface_.Port
 import hu.bme.mit.gamma.statechart.interface_.Component
+import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine
 import org.yakindu.base.types.Event
 
+import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
+
 class Trace {
 	
 	protected final ViatraQueryEngine engine
@@ -56,4 +62,22 @@ class Trace {
 		return yEvents.head
 	}
 	
+	/**
+	 * Returns whether the Java class of the given component implements the snapshotable interface.
+	 * The internal state of Yakindu statemachines is not accessible, so neither they
+	 * nor the components containing them support snapshots.
+	 */
+	def boolean isSnapshotable(Component component) {
+		if (component instanceof StatechartDefinition) {
+			return !SimpleYakinduComponents.Matcher.on(engine).hasMatch(component)
+		}
+		if (component instanceof AsynchronousAdapter) {
+			return component.wrappedComponent.type.snapshotable
+		}
+		if (component instanceof CompositeComponent) {
+			return component.derivedComponents.forall[it.derivedType.snapshotable]
+		}
+		return false
+	}
+	
 }
\ No newline at end of file
@@ -10,11 +10,24 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.expression.util;
 
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
+import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -51,9 +64,25 @@ import hu.bme.mit.gamma.expression.model.ParameterDeclaration;
 import hu.bme.mit.gamma.expression.model.ReferenceExpression;
 import hu.bme.mit.gamma.expression.model.SubtractExpression;
 import hu.bme.mit.gamma.expression.model.TrueExpression;
+import hu.bme.mit.gamma.expression.model.UnaryMinusExpression;
+import hu.bme.mit.gamma.expression.model.UnaryPlusExpression;
 import hu.bme.mit.gamma.expression.model.XorExpression;
 import hu.bme.mit.gamma.util.GammaEcoreUtil;
 
+/**
+ * Constant-folding evaluator of Gamma expressions.
+ * <p>
+ * Internally, every expression is evaluated (exactly once per call) into a value that is either
+ * a {@link Long}, a {@link BigInteger} (only if the value does not fit into a long), a {@link Boolean}
+ * or {@code null} if the expression is not evaluable. The {@code tryEvaluate...} methods expose
+ * these values without throwing exceptions, whereas the legacy {@code evaluate...} methods throw an
+ * {@link IllegalArgumentException} if the expression is not evaluable or does not fit into the requested type.
+ * <p>
+ * The values of constants, the indexes of enumeration literals and the arguments bound to parameters
+ * are memoized in weak tables inside the evaluator, so the models are neither modified nor kept alive by the memos.
+ * The memos are validated before use: the value of a constant is reused as long as the constants it depends on
+ * (including itself) are defined by the same value expressions. Constants depending on parameters are not memoized.
+ */
 public class ExpressionEvaluator {
 	// Singleton
 	public static final ExpressionEvaluator INSTANCE = new ExpressionEvaluator();
@@ -62,117 +91,265 @@ public class ExpressionEvaluator {
 
 	protected final ArgumentInliner argumentInliner = ArgumentInliner.INSTANCE;
 	protected final GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE;
-	
+
+	// Memo tables: the keys are weak, and the values do not refer to the models strongly
+	protected final Map<EnumerationLiteralDefinition, Integer> literalIndexes =
+			Collections.synchronizedMap(new WeakHashMap<EnumerationLiteralDefinition, Integer>());
+	protected final Map<ParameterDeclaration, ParameterBinding> parameterBindings =
+			Collections.synchronizedMap(new WeakHashMap<ParameterDeclaration, ParameterBinding>());
+	protected final Map<ConstantDeclaration, ConstantValue> constantValues =
+			Collections.synchronizedMap(new WeakHashMap<ConstantDeclaration, ConstantValue>());
+	// Constants under evaluation on this thread
+	protected final ThreadLocal<Deque<ConstantEvaluation>> constantEvaluations =
+			ThreadLocal.withInitial(() -> new ArrayDeque<ConstantEvaluation>());
+
+	protected static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+	protected static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+	// Exception-free API
+
+	/**
+	 * Evaluates an integer, enumeration or boolean (true = 1, false = 0) expression.
+	 */
+	public OptionalLong tryEvaluate(Expression expression) {
+		Object value = evaluateValue(expression);
+		if (value instanceof Boolean) {
+			Boolean bool = (Boolean) value;
+			return OptionalLong.of(bool ? 1 : 0);
+		}
+		return toOptionalLong(value);
+	}
+
+	public OptionalInt tryEvaluateInteger(Expression expression) {
+		OptionalLong value = tryEvaluateLong(expression);
+		if (value.isPresent()) {
+			long longValue = value.getAsLong();
+			if (Integer.MIN_VALUE <= longValue && longValue <= Integer.MAX_VALUE) {
+				return OptionalInt.of((int) longValue);
+			}
+		}
+		return OptionalInt.empty();
+	}
+
+	public OptionalLong tryEvaluateLong(Expression expression) {
+		Object value = evaluateValue(expression);
+		return toOptionalLong(value);
+	}
+
+	public Optional<BigInteger> tryEvaluateBigInteger(Expression expression) {
+		Object value = evaluateValue(expression);
+		if (value instanceof Number) {
+			return Optional.of(
+					toBigInteger((Number) value));
+		}
+		return Optional.empty();
+	}
+
+	public Optional<Boolean> tryEvaluateBoolean(Expression expression) {
+		Object value = evaluateValue(expression);
+		if (value instanceof Boolean) {
+			return Optional.of((Boolean) value);
+		}
+		return Optional.empty();
+	}
+
+	public boolean isEvaluable(Expression expression) {
+		return evaluateValue(expression) != null;
+	}
+
+	public boolean isDefinitelyTrueExpression(Expression expression) {
+		return evaluateValue(expression) == Boolean.TRUE;
+	}
+
+	public boolean isDefinitelyFalseExpression(Expression expression) {
+		return evaluateValue(expression) == Boolean.FALSE;
+	}
+
+	// Legacy API: throws IllegalArgumentException if the expression is not evaluable
+
 	public int evaluate(Expression expression) {
-		try {
-			return evaluateInteger(expression);
-		} catch (IllegalArgumentException e) {
-			return evaluateBoolean(expression) ? 1 : 0;
+		Object value = evaluateValue(expression);
+		if (value instanceof Boolean) {
+			Boolean bool = (Boolean) value;
+			return bool ? 1 : 0;
 		}
+		return toInt(value, expression);
 	}
 
 	// Integers (and enums)
 	public int evaluateInteger(Expression expression) {
-		if (expression instanceof DirectReferenceExpression) {
-			DirectReferenceExpression referenceExpression = (DirectReferenceExpression) expression;
-			Declaration declaration = referenceExpression.getDeclaration();
-			if (declaration instanceof ConstantDeclaration) {
-				ConstantDeclaration constantDeclaration = (ConstantDeclaration) declaration;
-				return evaluateInteger(constantDeclaration.getExpression());
-			}
-			if (declaration instanceof ParameterDeclaration) {
-				ParameterDeclaration parameterDeclaration = (ParameterDeclaration) declaration;
-				Expression argument = evaluateParameter(parameterDeclaration);
-				return evaluateInteger(argument);
+		Object value = evaluateValue(expression);
+		return toInt(value, expression);
+	}
+
+	public long evaluateLong(Expression expression) {
+		Object value = evaluateValue(expression);
+		if (value instanceof Long) {
+			return (Long) value;
+		}
+		throw new IllegalArgumentException((value instanceof BigInteger) ?
+				"Long overflow: " + expression : "Not evaluable expression: " + expression);
+	}
+
+	public BigInteger evaluateBigInteger(Expression expression) {
+		return tryEvaluateBigInteger(expression).orElseThrow(
+				() -> new IllegalArgumentException("Not evaluable expression: " + expression));
+	}
+
+	// Booleans
+	public boolean evaluateBoolean(Expression expression) {
+		return tryEvaluateBoolean(expression).orElseThrow(
+				() -> new IllegalArgumentException("Not evaluable expression: " + expression));
+	}
+
+	// Parameters
+
+	public Expression evaluateParameter(ParameterDeclaration parameter) {
+		return tryEvaluateParameter(parameter).orElseThrow(
+				() -> new IllegalArgumentException("Not found expression for parameter: " + parameter));
+	}
+
+	public Optional<Expression> tryEvaluateParameter(ParameterDeclaration parameter) {
+		ParameterBinding binding = parameterBindings.get(parameter);
+		if (binding != null) {
+			Expression argument = binding.getArgument(parameter);
+			if (argument != null) {
+				return Optional.of(argument);
 			}
-			else {
-				throw new IllegalArgumentException("Not evaluable expression: " + expression.toString());
+		}
+
+		int index = ExpressionModelDerivedFeatures.getIndex(parameter);
+		EObject component = parameter.eContainer(); // Component
+		EObject root = EcoreUtil.getRootContainer(parameter); // Package
+		TreeIterator<Object> contents = EcoreUtil.getAllContents(root, true);
+		while (contents.hasNext()) {
+			Object content = contents.next();
+			if (content instanceof ArgumentedElement) {
+				ArgumentedElement element = (ArgumentedElement) content;
+				if (element.eCrossReferences().contains(component)) { // If the component is referenced
+					EList<Expression> arguments = element.getArguments();
+					if (index < 0 || arguments.size() <= index) {
+						return Optional.empty();
+					}
+					Expression argument = arguments.get(index);
+					parameterBindings.put(parameter,
+							new ParameterBinding(element, index, argument));
+					return Optional.of(argument);
+				}
 			}
 		}
+		return Optional.empty();
+	}
+
+	// Evaluation core: returns a Long, a BigInteger, a Boolean or null (not evaluable)
+
+	protected Object evaluateValue(Expression expression) {
+		return evaluateExpression(expression);
+	}
+
+	protected Object evaluateExpression(Expression expression) {
 		if (expression instanceof IntegerLiteralExpression) {
 			IntegerLiteralExpression integerLiteralExpression = (IntegerLiteralExpression) expression;
-			return integerLiteralExpression.getValue().intValue();
+			BigInteger value = integerLiteralExpression.getValue();
+			return (value == null) ? null : normalize(value);
+		}
+		if (expression instanceof TrueExpression) {
+			return Boolean.TRUE;
+		}
+		if (expression instanceof FalseExpression) {
+			return Boolean.FALSE;
 		}
 		if (expression instanceof EnumerationLiteralExpression) {
 			EnumerationLiteralExpression enumerationLiteralExpression = (EnumerationLiteralExpression) expression;
 			EnumerationLiteralDefinition enumLiteral = enumerationLiteralExpression.getReference();
-			EnumerationTypeDefinition type = (EnumerationTypeDefinition) enumLiteral.eContainer();
-			return type.getLiterals().indexOf(enumLiteral);
+			int index = getIndex(enumLiteral);
+			return (index < 0) ? null : Long.valueOf(index);
 		}
+		if (expression instanceof DirectReferenceExpression) {
+			DirectReferenceExpression referenceExpression = (DirectReferenceExpression) expression;
+			Declaration declaration = referenceExpression.getDeclaration();
+			if (declaration instanceof ConstantDeclaration) {
+				ConstantDeclaration constantDeclaration = (ConstantDeclaration) declaration;
+				return evaluateConstant(constantDeclaration);
+			}
+			if (declaration instanceof ParameterDeclaration) {
+				ParameterDeclaration parameterDeclaration = (ParameterDeclaration) declaration;
+				ConstantEvaluation constantEvaluation = constantEvaluations.get().peek();
+				if (constantEvaluation != null) {
+					constantEvaluation.memoizable = false; // The argument may change
+				}
+				Optional<Expression> argument = tryEvaluateParameter(parameterDeclaration);
+				return argument.isPresent() ? evaluateExpression(argument.get()) : null;
+			}
+			return null;
+		}
+		// Arithmetic
 		if (expression instanceof MultiplyExpression) {
 			MultiplyExpression multiplyExpression = (MultiplyExpression) expression;
-			return multiplyExpression.getOperands().stream().map(it -> evaluateInteger(it))
-					.reduce(1, (p1, p2) -> p1 * p2);
-		}
-		if (expression instanceof DivideExpression) {
-			DivideExpression divideExpression = (DivideExpression) expression;
-			return evaluateInteger(divideExpression.getLeftOperand())
-					/ evaluateInteger(divideExpression.getRightOperand());
+			Number product = Long.valueOf(1);
+			for (Expression operand : multiplyExpression.getOperands()) {
+				Object value = evaluateExpression(operand);
+				if (!(value instanceof Number)) {
+					return null;
+				}
+				product = multiply(product, (Number) value);
+			}
+			return product;
 		}
 		if (expression instanceof AddExpression) {
 			AddExpression addExpression = (AddExpression) expression;
-			return addExpression.getOperands().stream().map(it -> evaluateInteger(it))
-					.reduce(0, (p1, p2) -> p1 + p2);
+			Number sum = Long.valueOf(0);
+			for (Expression operand : addExpression.getOperands()) {
+				Object value = evaluateExpression(operand);
+				if (!(value instanceof Number)) {
+					return null;
+				}
+				sum = add(sum, (Number) value);
+			}
+			return sum;
 		}
 		if (expression instanceof SubtractExpression) {
 			SubtractExpression subtractExpression = (SubtractExpression) expression;
-			return evaluateInteger(subtractExpression.getLeftOperand())
-					- evaluateInteger(subtractExpression.getRightOperand());
-		}
-		if (expression instanceof FunctionAccessExpression) {
-			FunctionAccessExpression functionAccessExpression = (FunctionAccessExpression) expression;
-			Expression inlinedLambaExpression = argumentInliner.createInlinedLambaExpression(functionAccessExpression);
-			return evaluateInteger(inlinedLambaExpression);
-		}
-		if (expression instanceof IfThenElseExpression) {
-			IfThenElseExpression ifThenElseExpression = (IfThenElseExpression) expression;
-			Expression condition = ifThenElseExpression.getCondition();
-			if (evaluateBoolean(condition)) {
-				return evaluateInteger(
-						ifThenElseExpression.getThen());
+			Object left = evaluateExpression(subtractExpression.getLeftOperand());
+			Object right = evaluateExpression(subtractExpression.getRightOperand());
+			if (left instanceof Number && right instanceof Number) {
+				return subtract((Number) left, (Number) right);
 			}
-			return evaluateInteger(
-					ifThenElseExpression.getElse());
+			return null;
 		}
-		throw new IllegalArgumentException("Not transformable expression: " + expression);
-	}
-
-	public Expression evaluateParameter(ParameterDeclaration parameter) {
-		EObject component = parameter.eContainer(); // Component
-		EObject root = EcoreUtil.getRootContainer(parameter); // Package
-		TreeIterator<Object> contents = EcoreUtil.getAllContents(root, true);
-		while (contents.hasNext()) {
-			Object content = contents.next();
-			if (content instanceof ArgumentedElement) {
-				ArgumentedElement element = (ArgumentedElement) content;
-				if (element.eCrossReferences().contains(component)) { // If the component is referenced
-					int index = ExpressionModelDerivedFeatures.getIndex(parameter);
-					Expression expression = element.getArguments().get(index);
-					return expression;
-				}
+		if (expression instanceof DivideExpression) {
+			DivideExpression divideExpression = (DivideExpression) expression;
+			Object left = evaluateExpression(divideExpression.getLeftOperand());
+			Object right = evaluateExpression(divideExpression.getRightOperand());
+			if (left instanceof Number && right instanceof Number) {
+				return divide((Number) left, (Number) right);
 			}
+			return null;
 		}
-		throw new IllegalArgumentException("Not found expression for parameter: " + parameter);
-	}
-	
-	// Booleans
-	public boolean evaluateBoolean(Expression expression) {
-		if (expression instanceof TrueExpression) {
-			return true;
+		if (expression instanceof UnaryMinusExpression) {
+			UnaryMinusExpression unaryMinusExpression = (UnaryMinusExpression) expression;
+			Object operand = evaluateExpression(unaryMinusExpression.getOperand());
+			if (operand instanceof Number) {
+				return negate((Number) operand);
+			}
+			return null;
 		}
-		if (expression instanceof FalseExpression) {
-			return false;
+		if (expression instanceof UnaryPlusExpression) {
+			UnaryPlusExpression unaryPlusExpression = (UnaryPlusExpression) expression;
+			Object operand = evaluateExpression(unaryPlusExpression.getOperand());
+			return (operand instanceof Number) ? operand : null;
 		}
+		// Logic
 		if (expression instanceof AndExpression) {
 			AndExpression andExpression = (AndExpression) expression;
-			IllegalArgumentException unevaluableException = null;
+			boolean isEvaluable = true;
 			for (Expression subExpression : andExpression.getOperands()) {
-				try {
-					if (!evaluateBoolean(subExpression)) {
-						return false;
-					}
-				} catch (IllegalArgumentException e) {
-					unevaluableException = e;
+				Object value = evaluateExpression(subExpression);
+				if (value == Boolean.FALSE) {
+					return Boolean.FALSE;
+				}
+				if (value != Boolean.TRUE) {
+					isEvaluable = false;
 				}
 			}
 			// Checking equality expressions with references and different literals
@@ -181,36 +358,34 @@ public class ExpressionEvaluator {
 			List<EqualityExpression> referenceEqualityExpressions =
 					filterReferenceEqualityExpressions(equalityExpressions);
 			if (hasEqualityToDifferentLiterals(referenceEqualityExpressions)) {
-				return false;
+				return Boolean.FALSE;
 			}
 			//
-			if (unevaluableException != null) {
-				throw unevaluableException; // At least one was unevaluable
-			}
-			return true; // All subexpressions evaluated to true
+			return isEvaluable ? Boolean.TRUE : null; // Null if at least one was unevaluable
 		}
 		if (expression instanceof OrExpression) {
 			OrExpression orExpression = (OrExpression) expression;
-			IllegalArgumentException unevaluableException = null;
+			boolean isEvaluable = true;
 			for (Expression subExpression : orExpression.getOperands()) {
-				try {
-					if (evaluateBoolean(subExpression)) {
-						return true;
-					}
-				} catch (IllegalArgumentException e) {
-					unevaluableException = e;
+				Object value = evaluateExpression(subExpression);
+				if (value == Boolean.TRUE) {
+					return Boolean.TRUE;
+				}
+				if (value != Boolean.FALSE) {
+					isEvaluable = false;
 				}
 			}
-			if (unevaluableException != null) {
-				throw unevaluableException; // At least one was unevaluable
-			}
-			return false; // All subexpressions evaluated to false
+			return isEvaluable ? Boolean.FALSE : null; // Null if at least one was unevaluable
 		}
 		if (expression instanceof XorExpression) {
-			int positiveCount = 0;
 			XorExpression xorExpression = (XorExpression) expression;
+			int positiveCount = 0;
 			for (Expression subExpression : xorExpression.getOperands()) {
-				if (evaluateBoolean(subExpression)) {
+				Object value = evaluateExpression(subExpression);
+				if (!(value instanceof Boolean)) {
+					return null;
+				}
+				if ((Boolean) value) {
 					++positiveCount;
 				}
 			}
@@ -218,139 +393,420 @@ public class ExpressionEvaluator {
 		}
 		if (expression instanceof NotExpression) {
 			NotExpression notExpression = (NotExpression) expression;
-			return !evaluateBoolean(notExpression.getOperand());
+			Object value = evaluateExpression(notExpression.getOperand());
+			return (value instanceof Boolean) ? !((Boolean) value) : null;
 		}
 		if (expression instanceof BinaryExpression) {
 			BinaryExpression binaryExpression = (BinaryExpression) expression;
 			Expression left = binaryExpression.getLeftOperand();
 			Expression right = binaryExpression.getRightOperand();
 			if (expression instanceof ImplyExpression) {
-				return !evaluateBoolean(left) || evaluateBoolean(right);
+				Object leftValue = evaluateExpression(left);
+				if (leftValue == Boolean.FALSE) {
+					return Boolean.TRUE;
+				}
+				Object rightValue = evaluateExpression(right);
+				if (leftValue == Boolean.TRUE && rightValue instanceof Boolean) {
+					return rightValue;
+				}
+				return null;
 			}
 			if (expression instanceof EquivalenceExpression) {
-				if (expression instanceof EqualityExpression) {
-					// Handle enumeration literals as different ones can get the same integer value
-					if (left instanceof EnumerationLiteralExpression &&
-							right instanceof EnumerationLiteralExpression) {
-						return ecoreUtil.helperEquals(left, right);
+				// Handle enumeration literals as different ones can get the same integer value
+				if (left instanceof EnumerationLiteralExpression &&
+						right instanceof EnumerationLiteralExpression) {
+					boolean areEqual = ecoreUtil.helperEquals(left, right);
+					if (expression instanceof EqualityExpression) {
+						return areEqual;
 					}
-					return evaluate(left) == evaluate(right);
+					if (expression instanceof InequalityExpression) {
+						return !areEqual;
+					}
+				}
+				Number leftValue = toComparable(evaluateExpression(left));
+				Number rightValue = toComparable(evaluateExpression(right));
+				if (leftValue == null || rightValue == null) {
+					return null;
+				}
+				int comparison = compare(leftValue, rightValue);
+				if (expression instanceof EqualityExpression) {
+					return comparison == 0;
 				}
 				if (expression instanceof InequalityExpression) {
-					if (left instanceof EnumerationLiteralExpression &&
-							right instanceof EnumerationLiteralExpression) {
-						return !ecoreUtil.helperEquals(left, right);
-					}
-					return evaluate(left) != evaluate(right);
+					return comparison != 0;
 				}
+				return null;
 			}
-			if (expression instanceof LessExpression) {
-				return evaluate(left) < evaluate(right);
-			}
-			if (expression instanceof LessEqualExpression) {
-				return evaluate(left) <= evaluate(right);
-			}
-			if (expression instanceof GreaterExpression) {
-				return evaluate(left) > evaluate(right);
-			}
-			if (expression instanceof GreaterEqualExpression) {
-				return evaluate(left) >= evaluate(right);
-			}
-		}
-		if (expression instanceof DirectReferenceExpression) {
-			DirectReferenceExpression referenceExpression = (DirectReferenceExpression) expression;
-			Declaration declaration = referenceExpression.getDeclaration();
-			if (declaration instanceof ConstantDeclaration) {
-				ConstantDeclaration constantDeclaration = (ConstantDeclaration) declaration;
-				return evaluateBoolean(constantDeclaration.getExpression());
-			}
-			if (declaration instanceof ParameterDeclaration) {
-				ParameterDeclaration parameterDeclaration = (ParameterDeclaration) declaration;
-				Expression argument = evaluateParameter(parameterDeclaration);
-				return evaluateBoolean(argument);
-			}
-			else {
-				throw new IllegalArgumentException("Not transformable expression: " + expression);
+			if (expression instanceof LessExpression || expression instanceof LessEqualExpression ||
+					expression instanceof GreaterExpression || expression instanceof GreaterEqualExpression) {
+				Number leftValue = toComparable(evaluateExpression(left));
+				Number rightValue = toComparable(evaluateExpression(right));
+				if (leftValue == null || rightValue == null) {
+					return null;
+				}
+				int comparison = compare(leftValue, rightValue);
+				if (expression instanceof LessExpression) {
+					return comparison < 0;
+				}
+				if (expression instanceof LessEqualExpression) {
+					return comparison <= 0;
+				}
+				if (expression instanceof GreaterExpression) {
+					return comparison > 0;
+				}
+				return comparison >= 0; // GreaterEqualExpression
 			}
 		}
+		// Both
 		if (expression instanceof FunctionAccessExpression) {
 			FunctionAccessExpression functionAccessExpression = (FunctionAccessExpression) expression;
 			Expression inlinedLambaExpression = argumentInliner.createInlinedLambaExpression(functionAccessExpression);
-			return evaluateBoolean(inlinedLambaExpression);
+			return evaluateExpression(inlinedLambaExpression);
 		}
 		if (expression instanceof IfThenElseExpression) {
 			IfThenElseExpression ifThenElseExpression = (IfThenElseExpression) expression;
-			Expression condition = ifThenElseExpression.getCondition();
-			if (evaluateBoolean(condition)) {
-				return evaluateBoolean(
+			Object condition = evaluateExpression(ifThenElseExpression.getCondition());
+			if (condition == Boolean.TRUE) {
+				return evaluateExpression(
 						ifThenElseExpression.getThen());
 			}
-			return evaluateBoolean(
-					ifThenElseExpression.getElse());
+			if (condition == Boolean.FALSE) {
+				return evaluateExpression(
+						ifThenElseExpression.getElse());
+			}
+			return null;
 		}
-		throw new IllegalArgumentException("Not transformable expression: " + expression);
+		return null;
 	}
-	
 
-	public boolean isDefinitelyTrueExpression(Expression expression) {
+	// Memoized declarations
+
+	protected Object evaluateConstant(ConstantDeclaration constant) {
+		Deque<ConstantEvaluation> evaluations = constantEvaluations.get();
+		ConstantEvaluation container = evaluations.peek(); // The constant depending on this one
+		ConstantValue memo = constantValues.get(constant);
+		if (memo != null && memo.isValid()) {
+			if (container != null) {
+				memo.addDependenciesTo(container.dependencies);
+			}
+			return memo.value;
+		}
+		for (ConstantEvaluation evaluation : evaluations) {
+			if (evaluation.constant == constant) {
+				// Not evaluable in case of circular definitions
+				for (ConstantEvaluation circularEvaluation : evaluations) {
+					circularEvaluation.memoizable = false;
+				}
+				return null;
+			}
+		}
+		ConstantEvaluation evaluation = new ConstantEvaluation(constant);
+		evaluations.push(evaluation);
+		Object value;
 		try {
-			return evaluateBoolean(expression);
-		} catch (IllegalArgumentException e) {
-			return false;
+			value = evaluateExpression(
+					evaluation.expression);
+		} finally {
+			evaluations.pop();
+		}
+		if (evaluation.memoizable) {
+			constantValues.put(constant,
+					new ConstantValue(value, evaluation.dependencies));
 		}
+		if (container != null) {
+			container.dependencies.putAll(evaluation.dependencies);
+			container.memoizable &= evaluation.memoizable;
+		}
+		return value;
 	}
 
-	public boolean isDefinitelyFalseExpression(Expression expression) {
-		try {
-			return !evaluateBoolean(expression);
-		} catch (IllegalArgumentException e) {
-			return false;
+	protected int getIndex(EnumerationLiteralDefinition literal) {
+		EObject container = literal.eContainer();
+		if (!(container instanceof EnumerationTypeDefinition)) {
+			return -1;
+		}
+		EnumerationTypeDefinition type = (EnumerationTypeDefinition) container;
+		EList<EnumerationLiteralDefinition> literals = type.getLiterals();
+		Integer memoizedIndex = literalIndexes.get(literal);
+		if (memoizedIndex != null) {
+			int index = memoizedIndex;
+			if (index < literals.size() && literals.get(index) == literal) {
+				return index;
+			}
 		}
+		int index = literals.indexOf(literal);
+		literalIndexes.put(literal, index);
+		return index;
 	}
-	
+
+	/**
+	 * The constant under evaluation and the constants (including itself) its value depends on.
+	 */
+	protected static class ConstantEvaluation {
+
+		protected final ConstantDeclaration constant;
+		protected final Expression expression;
+		protected final Map<ConstantDeclaration, Expression> dependencies = new HashMap<ConstantDeclaration, Expression>();
+		protected boolean memoizable = true;
+
+		protected ConstantEvaluation(ConstantDeclaration constant) {
+			this.constant = constant;
+			this.expression = constant.getExpression();
+			this.dependencies.put(constant, expression);
+		}
+
+	}
+
+	/**
+	 * The value of a constant, which is valid as long as the constants it depends on keep their value expressions.
+	 */
+	protected static class ConstantValue {
+
+		protected final Object value; // Long, BigInteger, Boolean or null
+		protected final List<WeakReference<ConstantDeclaration>> constants =
+				new ArrayList<WeakReference<ConstantDeclaration>>();
+		protected final List<WeakReference<Expression>> expressions = new ArrayList<WeakReference<Expression>>();
+
+		protected ConstantValue(Object value, Map<ConstantDeclaration, Expression> dependencies) {
+			this.value = value;
+			for (Entry<ConstantDeclaration, Expression> dependency : dependencies.entrySet()) {
+				constants.add(
+						new WeakReference<ConstantDeclaration>(dependency.getKey()));
+				expressions.add(
+						new WeakReference<Expression>(dependency.getValue()));
+			}
+		}
+
+		protected boolean isValid() {
+			for (int i = 0; i < constants.size(); i++) {
+				ConstantDeclaration constant = constants.get(i).get();
+				Expression expression = expressions.get(i).get();
+				if (constant == null || expression == null || constant.getExpression() != expression) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Adds the dependencies of this value to the given ones; must be called only if this value is valid.
+		 */
+		protected void addDependenciesTo(Map<ConstantDeclaration, Expression> dependencies) {
+			for (int i = 0; i < constants.size(); i++) {
+				ConstantDeclaration constant = constants.get(i).get();
+				Expression expression = expressions.get(i).get();
+				if (constant != null && expression != null) {
+					dependencies.put(constant, expression);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The argument bound to a parameter, which is otherwise searched in the whole model.
+	 */
+	protected static class ParameterBinding {
+
+		protected final WeakReference<ArgumentedElement> element;
+		protected final int index;
+		protected final WeakReference<Expression> argument;
+
+		protected ParameterBinding(ArgumentedElement element, int index, Expression argument) {
+			this.element = new WeakReference<ArgumentedElement>(element);
+			this.index = index;
+			this.argument = new WeakReference<Expression>(argument);
+		}
+
+		/**
+		 * Returns the memoized argument if it is still bound to the parameter, otherwise null.
+		 */
+		protected Expression getArgument(ParameterDeclaration parameter) {
+			ArgumentedElement element = this.element.get();
+			Expression argument = this.argument.get();
+			if (element == null || argument == null) {
+				return null;
+			}
+			EList<Expression> arguments = element.getArguments();
+			if (index < arguments.size() && arguments.get(index) == argument &&
+					EcoreUtil.getRootContainer(element) == EcoreUtil.getRootContainer(parameter)) {
+				return argument;
+			}
+			return null;
+		}
+
+	}
+
+	// 64-bit arithmetic falling back to BigIntegers on overflow
+
+	protected Number add(Number lhs, Number rhs) {
+		if (lhs instanceof Long && rhs instanceof Long) {
+			long left = lhs.longValue();
+			long right = rhs.longValue();
+			long sum = left + right;
+			if (((left ^ sum) & (right ^ sum)) >= 0) {
+				return sum;
+			}
+		}
+		return normalize(
+				toBigInteger(lhs).add(toBigInteger(rhs)));
+	}
+
+	protected Number subtract(Number lhs, Number rhs) {
+		if (lhs instanceof Long && rhs instanceof Long) {
+			long left = lhs.longValue();
+			long right = rhs.longValue();
+			long difference = left - right;
+			if (((left ^ right) & (left ^ difference)) >= 0) {
+				return difference;
+			}
+		}
+		return normalize(
+				toBigInteger(lhs).subtract(toBigInteger(rhs)));
+	}
+
+	protected Number multiply(Number lhs, Number rhs) {
+		if (lhs instanceof Long && rhs instanceof Long) {
+			long left = lhs.longValue();
+			long right = rhs.longValue();
+			long high = Math.multiplyHigh(left, right);
+			long low = left * right;
+			if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+				return low;
+			}
+		}
+		return normalize(
+				toBigInteger(lhs).multiply(toBigInteger(rhs)));
+	}
+
+	protected Number divide(Number lhs, Number rhs) {
+		if (lhs instanceof Long && rhs instanceof Long) {
+			long left = lhs.longValue();
+			long right = rhs.longValue();
+			if (right == 0) {
+				return null;
+			}
+			if (left != Long.MIN_VALUE || right != -1) {
+				return left / right;
+			}
+		}
+		BigInteger right = toBigInteger(rhs);
+		if (right.signum() == 0) {
+			return null;
+		}
+		return normalize(
+				toBigInteger(lhs).divide(right)); // Truncating like the long division
+	}
+
+	protected Number negate(Number operand) {
+		if (operand instanceof Long) {
+			long value = operand.longValue();
+			if (value != Long.MIN_VALUE) {
+				return -value;
+			}
+		}
+		return normalize(
+				toBigInteger(operand).negate());
+	}
+
+	protected int compare(Number lhs, Number rhs) {
+		if (lhs instanceof Long && rhs instanceof Long) {
+			return Long.compare(lhs.longValue(), rhs.longValue());
+		}
+		return toBigInteger(lhs).compareTo(toBigInteger(rhs));
+	}
+
 	// Auxiliary
-	
+
+	protected Number normalize(BigInteger value) {
+		if (value.bitLength() < Long.SIZE) {
+			return value.longValue();
+		}
+		return value;
+	}
+
+	protected BigInteger toBigInteger(Number value) {
+		if (value instanceof BigInteger) {
+			return (BigInteger) value;
+		}
+		return BigInteger.valueOf(value.longValue());
+	}
+
+	protected Number toComparable(Object value) {
+		if (value instanceof Boolean) {
+			Boolean bool = (Boolean) value;
+			return Long.valueOf(bool ? 1 : 0);
+		}
+		if (value instanceof Number) {
+			return (Number) value;
+		}
+		return null;
+	}
+
+	protected OptionalLong toOptionalLong(Object value) {
+		if (value instanceof Long) {
+			return OptionalLong.of((Long) value);
+		}
+		return OptionalLong.empty(); // Not evaluable, boolean or BigInteger
+	}
+
+	protected int toInt(Object value, Expression expression) {
+		if (value instanceof Long) {
+			long longValue = (Long) value;
+			if (Integer.MIN_VALUE <= longValue && longValue <= Integer.MAX_VALUE) {
+				return (int) longValue;
+			}
+		}
+		if (value instanceof Number) {
+			throw new IllegalArgumentException("Integer overflow: " + expression);
+		}
+		throw new IllegalArgumentException("Not evaluable expression: " + expression);
+	}
+
 	protected boolean hasEqualityToDifferentLiterals(List<EqualityExpression> expressions) {
-		for (int i = 0; i < expressions.size() - 1; ++i) {
-			try {
-				EqualityExpression leftEqualityExpression = expressions.get(i);
-				Expression leftReference = leftEqualityExpression.getLeftOperand();
-				Expression leftValueExpression = leftEqualityExpression.getRightOperand();
-				int leftValue = evaluate(leftValueExpression);
-				for (int j = i + 1; j < expressions.size(); ++j) {
-					try {
-						EqualityExpression rightEqualityExpression = expressions.get(j);
-						Expression rightReference = rightEqualityExpression.getLeftOperand();
-						if (ecoreUtil.helperEquals(leftReference, rightReference)) {
-							Expression rightValueExpression = rightEqualityExpression.getRightOperand();
-							
-							if (leftValueExpression instanceof EnumerationLiteralExpression &&
-									rightValueExpression instanceof EnumerationLiteralExpression) {
-								if (!ecoreUtil.helperEquals(leftValueExpression, rightValueExpression)) {
-									return true;
-								}
-							}
-							
-							int rightValue = evaluate(rightValueExpression);
-							if (leftValue != rightValue) {
-								return true;
-							}
+		int size = expressions.size();
+		if (size < 2) {
+			return false;
+		}
+		// Evaluating every value only once
+		Number[] values = new Number[size];
+		for (int i = 0; i < size; ++i) {
+			Expression valueExpression = expressions.get(i).getRightOperand();
+			values[i] = toComparable(
+					evaluateExpression(valueExpression));
+		}
+		for (int i = 0; i < size - 1; ++i) {
+			if (values[i] == null) {
+				continue; // i is not evaluable
+			}
+			EqualityExpression leftEqualityExpression = expressions.get(i);
+			Expression leftReference = leftEqualityExpression.getLeftOperand();
+			Expression leftValueExpression = leftEqualityExpression.getRightOperand();
+			for (int j = i + 1; j < size; ++j) {
+				if (values[j] == null) {
+					continue; // j is not evaluable
+				}
+				EqualityExpression rightEqualityExpression = expressions.get(j);
+				Expression rightReference = rightEqualityExpression.getLeftOperand();
+				if (ecoreUtil.helperEquals(leftReference, rightReference)) {
+					Expression rightValueExpression = rightEqualityExpression.getRightOperand();
+
+					if (leftValueExpression instanceof EnumerationLiteralExpression &&
+							rightValueExpression instanceof EnumerationLiteralExpression) {
+						if (!ecoreUtil.helperEquals(leftValueExpression, rightValueExpression)) {
+							return true;
 						}
-					} catch (IllegalArgumentException e) {
-						// j is not evaluable
-						expressions.remove(j);
-						--j;
+					}
+
+					if (compare(values[i], values[j]) != 0) {
+						return true;
 					}
 				}
-			} catch (IllegalArgumentException e) {
-				// i is not evaluable
-				expressions.remove(i);
-				--i;
 			}
 		}
 		return false;
 	}
-	
+
 	protected List<EqualityExpression> collectAllEqualityExpressions(AndExpression expression) {
 		List<EqualityExpression> equalityExpressions = new ArrayList<EqualityExpression>();
 		for (Expression subexpression : expression.getOperands()) {
@@ -373,5 +829,5 @@ public class ExpressionEvaluator {
 				&& !(it.getRightOperand() instanceof ReferenceExpression))
 			.collect(Collectors.toList());
 	}
-	
+
 }
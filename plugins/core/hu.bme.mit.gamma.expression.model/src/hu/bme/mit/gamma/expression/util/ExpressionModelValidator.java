@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EObject;
@@ -324,17 +326,18 @@ public class ExpressionModelValidator {
 		}
 		// if index evaluated as integer
 		else {
-			try {
-				// check index and size
-				int index = expressionEvaluator.evaluateInteger(expression.getIndex());
-				int size = expressionEvaluator.evaluateInteger(type.getSize()); 
+			// check index and size
+			OptionalInt evaluatedIndex = expressionEvaluator.tryEvaluateInteger(expression.getIndex());
+			OptionalInt evaluatedSize = expressionEvaluator.tryEvaluateInteger(type.getSize());
+			// If not evaluable, there is a type error on a lower level, no need to display the error message on this level too
+			if (evaluatedIndex.isPresent() && evaluatedSize.isPresent()) {
+				int index = evaluatedIndex.getAsInt();
+				int size = evaluatedSize.getAsInt();
 				if (index >= size || index < 0) {
 					validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
 							"Index out of bounds with index " + index + " to size " + size, 
 							new ReferenceInfo(ExpressionModelPackage.Literals.ARRAY_ACCESS_EXPRESSION__INDEX)));
 				}
-			} catch (Exception exception) {
-				// There is a type error on a lower level, no need to display the error message on this level too
 			}
 		}
 		return validationResultMessages;
@@ -572,21 +575,19 @@ public class ExpressionModelValidator {
 	
 	public Collection<ValidationResultMessage> checkArrayTypeDefinition(ArrayTypeDefinition arrayType) {
 		Collection<ValidationResultMessage> validationResultMessages = new ArrayList<ValidationResultMessage>();
-		try {
-			// The size of the array must be given as an integer
-			if (!typeDeterminator.isInteger(arrayType.getSize())) {
-				validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
-					"The size of the array must be given as an integer",
-						new ReferenceInfo(ExpressionModelPackage.Literals.ARRAY_TYPE_DEFINITION__SIZE)));
-			}
-			// Array initial size must be greater than 0
-			if (expressionEvaluator.evaluateInteger(arrayType.getSize()) <= 0) {
-				validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
-					"The size of the array must be greater than 0",
-						new ReferenceInfo(ExpressionModelPackage.Literals.ARRAY_TYPE_DEFINITION__SIZE)));
-			}
-		} catch (Exception exception) {
-			// There is a type error on a lower level, no need to display the error message on this level too
+		// The size of the array must be given as an integer
+		if (!typeDeterminator.isInteger(arrayType.getSize())) {
+			validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
+				"The size of the array must be given as an integer",
+					new ReferenceInfo(ExpressionModelPackage.Literals.ARRAY_TYPE_DEFINITION__SIZE)));
+		}
+		// Array initial size must be greater than 0
+		// If not evaluable, there is a type error on a lower level, no need to display the error message on this level too
+		OptionalInt size = expressionEvaluator.tryEvaluateInteger(arrayType.getSize());
+		if (size.isPresent() && size.getAsInt() <= 0) {
+			validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
+				"The size of the array must be greater than 0",
+					new ReferenceInfo(ExpressionModelPackage.Literals.ARRAY_TYPE_DEFINITION__SIZE)));
 		}
 		return validationResultMessages;
 	}
@@ -635,23 +636,21 @@ public class ExpressionModelValidator {
 	
 	public Collection<ValidationResultMessage> checkDivZero(ArithmeticExpression expression) {
 		Collection<ValidationResultMessage> validationResultMessages = new ArrayList<ValidationResultMessage>();
-		try {
-			// BinaryExpression
-			if (expression instanceof BinaryExpression) {
-				BinaryExpression binaryExpression = (BinaryExpression) expression;
-				// DivideExpression, DivExpression, ModExpression
-				if (expression instanceof DivideExpression || expression instanceof DivExpression ||
-						expression instanceof ModExpression) {
-					// Right hand side is zero
-					if (expressionEvaluator.evaluateInteger(binaryExpression.getRightOperand()) == 0) {
-						validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
-							"Division by zero is not allowed",
-								new ReferenceInfo(ExpressionModelPackage.Literals.BINARY_EXPRESSION__RIGHT_OPERAND)));
-					}
+		// BinaryExpression
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression binaryExpression = (BinaryExpression) expression;
+			// DivideExpression, DivExpression, ModExpression
+			if (expression instanceof DivideExpression || expression instanceof DivExpression ||
+					expression instanceof ModExpression) {
+				// Right hand side is zero
+				// If not evaluable, there is a type error on a lower level, no need to display the error message on this level too
+				OptionalLong rightValue = expressionEvaluator.tryEvaluateLong(binaryExpression.getRightOperand());
+				if (rightValue.isPresent() && rightValue.getAsLong() == 0) {
+					validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
+						"Division by zero is not allowed",
+							new ReferenceInfo(ExpressionModelPackage.Literals.BINARY_EXPRESSION__RIGHT_OPERAND)));
 				}
 			}
-		} catch (Exception exception) {
-			// There is a type error on a lower level, no need to display the error message on this level too
 		}
 		return validationResultMessages;
 	}
@@ -767,14 +766,13 @@ public class ExpressionModelValidator {
 		}
 		// Check right operand is less than left operand
 		if (typeDeterminator.isInteger(rightExp) && typeDeterminator.isInteger(leftExp)) {
-			try {
-				if (expressionEvaluator.evaluateInteger(leftExp) > expressionEvaluator.evaluateInteger(rightExp)) {
-					validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
-							"The left operand must be less equal than the right operand",
-							new ReferenceInfo(ExpressionModelPackage.Literals.INTEGER_RANGE_LITERAL_EXPRESSION__LEFT_INCLUSIVE)));
-				}
-			} catch (Exception exception) {
-				// There is a type error on a lower level, no need to display the error message on this level too
+			OptionalInt leftValue = expressionEvaluator.tryEvaluateInteger(leftExp);
+			OptionalInt rightValue = expressionEvaluator.tryEvaluateInteger(rightExp);
+			// If not evaluable, there is a type error on a lower level, no need to display the error message on this level too
+			if (leftValue.isPresent() && rightValue.isPresent() && leftValue.getAsInt() > rightValue.getAsInt()) {
+				validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
+						"The left operand must be less equal than the right operand",
+						new ReferenceInfo(ExpressionModelPackage.Literals.INTEGER_RANGE_LITERAL_EXPRESSION__LEFT_INCLUSIVE)));
 			}
 		}
 		return validationResultMessages;
@@ -18,6 +18,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -184,23 +186,24 @@ public class ExpressionUtil {
 		Set<Boolean> booleanValues = new HashSet<Boolean>();
 		Set<Expression> evaluatedExpressions = new HashSet<Expression>();
 		for (Expression expression : expressions) {
-			try {
-				// Integers and enums
-				int value = evaluator.evaluateInteger(expression);
+			// Integers and enums
+			OptionalInt integerValue = evaluator.tryEvaluateInteger(expression);
+			if (integerValue.isPresent()) {
+				int value = integerValue.getAsInt();
 				if (!integerValues.contains(value)) {
 					integerValues.add(value);
 					evaluatedExpressions.add(toIntegerLiteral(value));
 				}
-			} catch (Exception e) {}
+			}
 			// Excluding branches
-			try {
-				// Boolean
-				boolean bool = evaluator.evaluateBoolean(expression);
+			Optional<Boolean> booleanValue = evaluator.tryEvaluateBoolean(expression);
+			if (booleanValue.isPresent()) {
+				boolean bool = booleanValue.get();
 				if (!booleanValues.contains(bool)) {
 					booleanValues.add(bool);
 					evaluatedExpressions.add(bool ? factory.createTrueExpression() : factory.createFalseExpression());
 				}
-			} catch (Exception e) {}
+			}
 		}
 		return evaluatedExpressions;
 	}
@@ -12,6 +12,7 @@ package hu.bme.mit.gamma.expression.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -47,23 +48,34 @@ public class PredicateHandler {
 	//
 	
 	protected int getIntegerValue(BinaryExpression predicate, VariableDeclaration variable) {
+		return tryGetIntegerValue(predicate, variable).orElseThrow(
+				() -> new IllegalArgumentException("No referenced variable: " + variable));
+	}
+	
+	protected OptionalInt tryGetIntegerValue(BinaryExpression predicate, VariableDeclaration variable) {
 		Expression left = predicate.getLeftOperand();
 		Expression right = predicate.getRightOperand();
 		
 		if (left instanceof ReferenceExpression) {
 			Declaration declaration = expressionUtil.getDeclaration(left);
 			if (declaration == variable) {
-				return expressionEvaluator.evaluateInteger(right);
+				return expressionEvaluator.tryEvaluateInteger(right);
 			}
 		}
 		else if (right instanceof ReferenceExpression) {
 			Declaration declaration = expressionUtil.getDeclaration(right);
 			if (declaration == variable) {
-				return expressionEvaluator.evaluateInteger(left);
+				return expressionEvaluator.tryEvaluateInteger(left);
 			}
 		}
 		
-		throw new IllegalArgumentException("No referenced variable: " + variable);
+		return OptionalInt.empty();
+	}
+	
+	protected boolean isComparison(Expression predicate) {
+		return predicate instanceof EqualityExpression || predicate instanceof InequalityExpression ||
+				predicate instanceof GreaterEqualExpression || predicate instanceof GreaterExpression ||
+				predicate instanceof LessEqualExpression || predicate instanceof LessExpression;
 	}
 	
 	// Should handle intervals, this is just an initial iteration
@@ -211,15 +223,14 @@ public class PredicateHandler {
 				predicateExpressions, BinaryExpression.class);
 		
 		for (BinaryExpression predicate : predicates) {
-			try {
+			// Predicates not comparing the variable to an evaluable value are skipped
+			// Note that inequality expressions can mess up things here
+			if (isComparison(predicate) && tryGetIntegerValue(predicate, variable).isPresent()) {
 				// Both valid and invalid variables are "interesting"
 				integerValues.add(
 						calculateValidIntegerValue(predicate, variable));
 				integerValues.add(
 						calculateInvalidIntegerValue(predicate, variable));
-			} catch (IllegalArgumentException e) {
-				// Predicate does not contain variable references
-				// Note that inequality expressions can mess up things here
 			}
 		}
 		
@@ -25,6 +25,8 @@ import hu.bme.mit.gamma.util.FileUtil
 import hu.bme.mit.gamma.util.GammaEcoreUtil
 import java.io.File
 import java.util.List
+import java.util.logging.Level
+import java.util.logging.Logger
 
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
 import static extension hu.bme.mit.gamma.trace.derivedfeatures.TraceModelDerivedFeatures.*
@@ -32,10 +34,31 @@ import static extension hu.bme.mit.gamma.trace.derivedfeatures.TraceModelDerived
 class StatechartToTestTransformer {
 	
 	val queryParameters = "-C -t1"
+	// The number of elementary cycles can be exponential in the size of the contract statechart
+	public static final int DEFAULT_MAX_DEPTH = 32
+	public static final long DEFAULT_MAX_COUNT = 1024
+	
+	protected final int maxDepth
+	protected final long maxCount
 	
 	protected final extension FileUtil fileUtil = FileUtil.INSTANCE
 	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
 	
+	protected final Logger logger = Logger.getLogger("GammaLogger")
+	
+	new() {
+		this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_COUNT)
+	}
+	
+	/**
+	 * Contract paths longer than maxDepth transitions are not explored and at most maxCount paths
+	 * are turned into tests for each contract statechart.
+	 */
+	new(int maxDepth, long maxCount) {
+		this.maxDepth = maxDepth
+		this.maxCount = maxCount
+	}
+	
 	def execute(StatechartDefinition statechart, File containingFile, File testFolder, String basePackageName) {
 		execute(statechart, #[], containingFile, testFolder, basePackageName, null)
 	}
@@ -92,11 +115,15 @@ class StatechartToTestTransformer {
 			val finalTraces = newArrayList
 			val contractToTraceTransformer = new StatechartContractToTraceTransformer
 			for (contractStatechart : contractStatecharts) {
-				val contractTraces = contractToTraceTransformer.execute(contractStatechart)
-				for (contractTrace : contractTraces) {
+				// Traces are processed as soon as the respective paths are retrieved
+				val previousTraceCount = finalTraces.size
+				contractToTraceTransformer.stream(contractStatechart, false, maxDepth, maxCount).forEach[contractTrace |
 					val finalTrace = simpleStateExecutionTrace.clone
 					finalTrace.steps += contractTrace.steps
 					finalTraces += finalTrace
+				]
+				if (finalTraces.size - previousTraceCount >= maxCount) {
+					logger.log(Level.WARNING, '''Only the first «maxCount» paths of «contractStatechart.name» are tested''')
 				}
 				// Generating tests
 				val className = '''«IF fileName === null»«simpleState.name.toFirstUpper»«tranistionId»«contractStatechart.name.toFirstUpper»«ELSE»«fileName»«ENDIF»'''
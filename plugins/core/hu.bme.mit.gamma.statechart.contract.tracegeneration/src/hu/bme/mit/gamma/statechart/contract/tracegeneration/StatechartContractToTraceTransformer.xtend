@@ -12,10 +12,14 @@ package hu.bme.mit.gamma.statechart.contract.tracegeneration
 
 import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 import hu.bme.mit.gamma.statechart.traverser.LooplessPathRetriever
+import hu.bme.mit.gamma.statechart.traverser.Path
+import hu.bme.mit.gamma.trace.model.ExecutionTrace
 import hu.bme.mit.gamma.trace.model.Schedule
 import hu.bme.mit.gamma.trace.model.Step
 import hu.bme.mit.gamma.trace.model.TraceModelFactory
 import java.util.List
+import java.util.stream.Collectors
+import java.util.stream.Stream
 
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
 import static extension hu.bme.mit.gamma.trace.derivedfeatures.TraceModelDerivedFeatures.*
@@ -32,33 +36,45 @@ class StatechartContractToTraceTransformer {
 	}
 	
 	def execute(StatechartDefinition statechart, boolean addReset) {
-		val paths = newArrayList
-		for (topRegion : statechart.regions) {
-			paths += topRegion.retrievePaths
+		return statechart.stream(addReset).collect(Collectors.toList)
+	}
+	
+	def stream(StatechartDefinition statechart, boolean addReset) {
+		return statechart.stream(addReset, Integer.MAX_VALUE, Long.MAX_VALUE)
+	}
+	
+	/**
+	 * Returns the traces lazily, i.e., a trace is created only when the next path is retrieved.
+	 * Paths longer than maxDepth transitions are not explored and at most maxCount traces are returned.
+	 */
+	def Stream<ExecutionTrace> stream(StatechartDefinition statechart, boolean addReset,
+			int maxDepth, long maxCount) {
+		return statechart.regions.stream
+			.flatMap[it.streamPaths(maxDepth, maxCount)]
+			.limit(maxCount)
+			.map[it.transform(statechart, addReset)]
+	}
+	
+	protected def transform(Path path, StatechartDefinition statechart, boolean addReset) {
+		val trace = createExecutionTrace => [
+			it.import = statechart.containingPackage
+			it.component = statechart
+			// Not adding arguments
+		]
+		val steps = trace.steps
+		for (transition : path.transitions) {
+			steps += transition.execute
 		}
-		val traces = newArrayList
-		for (path : paths) {
-			val trace = createExecutionTrace => [
-				it.import = statechart.containingPackage
-				it.component = statechart
-				// Not adding arguments
-			]
-			traces += trace
-			val steps = trace.steps
-			for (transition : path.transitions) {
-				steps += transition.execute
-			}
-			// Putting out-events after the scheduling step
-			steps.mergeSteps
-			// Adding reset in the first step if necessary
-			if (addReset) {
-				if (!steps.empty) {
-					val firstStep = steps.head
-					firstStep.actions.add(0, createReset)
-				}
+		// Putting out-events after the scheduling step
+		steps.mergeSteps
+		// Adding reset in the first step if necessary
+		if (addReset) {
+			if (!steps.empty) {
+				val firstStep = steps.head
+				firstStep.actions.add(0, createReset)
 			}
 		}
-		return traces
+		return trace
 	}
 	
 	private def mergeSteps(List<Step> steps) {
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -621,15 +622,15 @@ public class StatechartModelValidator extends ActionModelValidator {
 	
 	public Collection<ValidationResultMessage> checkTimeSpecifications(TimeSpecification timeSpecification) {
 		Collection<ValidationResultMessage> validationResultMessages = new ArrayList<ValidationResultMessage>();
-		try {
-			int value = expressionEvaluator.evaluateInteger(timeSpecification.getValue());
+		// Not evaluable expressions contain variable declarations
+		OptionalInt evaluatedValue = expressionEvaluator.tryEvaluateInteger(timeSpecification.getValue());
+		if (evaluatedValue.isPresent()) {
+			int value = evaluatedValue.getAsInt();
 			if (value <= 0) {
 				validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR, 
 					"Time specifications must have positive values: " + value, 
 						new ReferenceInfo(InterfaceModelPackage.Literals.TIME_SPECIFICATION__VALUE)));
 			}
-		} catch (IllegalArgumentException e) {
-			// Untransformable expression, it contains variable declarations
 		}
 		return validationResultMessages;
 	}
@@ -12,58 +12,165 @@ package hu.bme.mit.gamma.statechart.traverser
 
 import hu.bme.mit.gamma.statechart.statechart.Region
 import hu.bme.mit.gamma.statechart.statechart.StateNode
+import hu.bme.mit.gamma.statechart.statechart.Transition
+import java.util.ArrayDeque
 import java.util.Collection
-import java.util.logging.Level
-import java.util.logging.Logger
+import java.util.Deque
+import java.util.Iterator
+import java.util.List
+import java.util.Map
+import java.util.NoSuchElementException
+import java.util.Set
+import java.util.Spliterator
+import java.util.Spliterators
+import java.util.stream.Collectors
+import java.util.stream.Stream
+import java.util.stream.StreamSupport
 
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
 
 class LooplessPathRetriever {
-	
-	val logger = Logger.getLogger("GammaLogger")
-	
+
 	def Collection<Path> retrievePaths(Region region) {
-		var entryState = region.entryState
+		return region.streamPaths.collect(Collectors.toList)
+	}
+
+	def Stream<Path> streamPaths(Region region) {
+		return region.streamPaths(Integer.MAX_VALUE, Long.MAX_VALUE)
+	}
+
+	/**
+	 * Returns the loops (elementary cycles) of the first active states of the region lazily.
+	 * Loops longer than maxDepth transitions are not explored and at most maxCount loops are returned.
+	 */
+	def Stream<Path> streamPaths(Region region, int maxDepth, long maxCount) {
+		val spliterator = Spliterators.spliteratorUnknownSize(region.iteratePaths(maxDepth),
+			Spliterator.ORDERED.bitwiseOr(Spliterator.NONNULL))
+		return StreamSupport.stream(spliterator, false).limit(maxCount)
+	}
+
+	def Iterator<Path> iteratePaths(Region region, int maxDepth) {
+		val entryState = region.entryState
 		val firstActiveStates = entryState.reachableStates
-		val pathsUnderExamination = newArrayList
-		val finalPaths = newArrayList
-		for (firstActiveState : firstActiveStates) {
-			val visitedStates = <StateNode>newHashSet(firstActiveState)
-			// Looking for loops resulting in the respective first active states (separately)
-			for (firstOutgoingTransition : firstActiveState.outgoingTransitions) {
-				pathsUnderExamination += new Path(firstOutgoingTransition)
-				while (!pathsUnderExamination.empty) {
-					// Copying the paths under examination so that an exception is not thrown
-					val copiedPathsUnderExamination = newArrayList
-					copiedPathsUnderExamination += pathsUnderExamination
-					for (pathUnderExamination : copiedPathsUnderExamination) {
-						// Removing the path from the queue
-						pathsUnderExamination -= pathUnderExamination
-						val targetState = pathUnderExamination.last.targetState
+		val outgoingTransitions = region.containingStatechart.transitions
+			.groupBy[it.sourceState]
+		return new LoopIterator(firstActiveStates, outgoingTransitions, maxDepth)
+	}
+
+	/**
+	 * Depth-first enumeration of the loops of the given states. Only the states of the strongly
+	 * connected component of the actual first active state are traversed, as other states cannot
+	 * lead back to it.
+	 */
+	static class LoopIterator implements Iterator<Path> {
+
+		final Iterator<? extends StateNode> firstActiveStates
+		final Map<StateNode, List<Transition>> outgoingTransitions
+		final int maxDepth
+
+		StateNode firstActiveState
+		Set<StateNode> component
+		final Deque<Iterator<Transition>> stack = new ArrayDeque
+		final List<Transition> transitions = newArrayList
+		final Set<StateNode> visitedStates = newHashSet
+		Path next
+
+		new(Collection<? extends StateNode> firstActiveStates,
+				Map<StateNode, List<Transition>> outgoingTransitions, int maxDepth) {
+			this.firstActiveStates = firstActiveStates.iterator
+			this.outgoingTransitions = outgoingTransitions
+			this.maxDepth = maxDepth
+		}
+
+		override hasNext() {
+			if (next === null) {
+				next = findNext
+			}
+			return next !== null
+		}
+
+		override next() {
+			if (!hasNext) {
+				throw new NoSuchElementException
+			}
+			val path = next
+			next = null
+			return path
+		}
+
+		private def Path findNext() {
+			while (!stack.empty || firstActiveStates.hasNext) {
+				if (stack.empty) {
+					firstActiveState = firstActiveStates.next
+					component = firstActiveState.stronglyConnectedComponent
+					stack.push(firstActiveState.componentTransitions)
+				}
+				while (!stack.empty) {
+					val iterator = stack.peek
+					if (!iterator.hasNext) {
+						stack.pop
+						if (!transitions.empty) {
+							val transition = transitions.remove(transitions.size - 1)
+							visitedStates -= transition.targetState
+						}
+					}
+					else {
+						val transition = iterator.next
+						val targetState = transition.targetState
 						if (targetState === firstActiveState) {
 							// Found a loop
-							finalPaths += pathUnderExamination
+							val path = new Path(transitions)
+							path.extend(transition)
+							return path
 						}
-						else if (visitedStates.contains(targetState)) {
-							// We found a loop that does not end in the first active state
-							logger.log(Level.INFO, "Found a circle: " + pathUnderExamination)
-						}
-						else {
-							for (outgoingTransition : targetState.outgoingTransitions) {
-								val extendedPath = new Path(pathUnderExamination)
-								// Extending with one new transition
-								extendedPath.extend(outgoingTransition)
-								// Putting it into the queue
-								pathsUnderExamination += extendedPath
-								// Store visited state
-								visitedStates += targetState
-							}
+						if (!visitedStates.contains(targetState) && transitions.size + 1 < maxDepth) {
+							transitions += transition
+							visitedStates += targetState
+							stack.push(targetState.componentTransitions)
 						}
 					}
 				}
 			}
+			return null
+		}
+
+		private def getComponentTransitions(StateNode node) {
+			val transitions = outgoingTransitions.get(node) ?: #[]
+			return transitions.filter[component.contains(it.targetState)].iterator
+		}
+
+		/**
+		 * The states that are reachable from the given state and from which the given state is reachable.
+		 */
+		private def getStronglyConnectedComponent(StateNode node) {
+			val forwardReachableStates = <StateNode>newHashSet(node)
+			val queue = <StateNode>newLinkedList(node)
+			while (!queue.empty) {
+				val state = queue.poll
+				for (transition : outgoingTransitions.get(state) ?: #[]) {
+					val targetState = transition.targetState
+					if (forwardReachableStates.add(targetState)) {
+						queue += targetState
+					}
+				}
+			}
+			val incomingTransitions = outgoingTransitions.values.flatten
+				.filter[forwardReachableStates.contains(it.targetState)]
+				.groupBy[it.targetState]
+			val component = <StateNode>newHashSet(node)
+			queue += node
+			while (!queue.empty) {
+				val state = queue.poll
+				for (transition : incomingTransitions.get(state) ?: #[]) {
+					val sourceState = transition.sourceState
+					if (forwardReachableStates.contains(sourceState) && component.add(sourceState)) {
+						queue += sourceState
+					}
+				}
+			}
+			return component
 		}
-		return finalPaths
+
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,450 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.trace.util;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+
+import hu.bme.mit.gamma.expression.model.Expression;
+import hu.bme.mit.gamma.trace.model.Act;
+import hu.bme.mit.gamma.trace.model.Cycle;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.trace.model.Reset;
+import hu.bme.mit.gamma.trace.model.Step;
+import hu.bme.mit.gamma.trace.model.TraceModelFactory;
+import hu.bme.mit.gamma.util.GammaEcoreUtil;
+
+/**
+ * Compact store of execution traces. The distinct acts and asserts (with respect to structural equality)
+ * are stored only once and are referenced by their ids; the steps are encoded as int records in an
+ * off-heap buffer, so the traces do not keep their EMF step objects. Coverage checks and the removal of
+ * covered traces work on the encoding (with the semantics of {@link TraceUtil}), whereas the
+ * {@link ExecutionTrace} objects are materialized (as new objects) only on demand, e.g., for serialization.
+ * <p>
+ * Record of a trace: step count, cycle step count (-1 if there is no cycle), shared flag, then the steps
+ * and cycle steps, each as: reset flag, action count, action ids, assert count, assert ids.
+ * The records of removed traces and the acts and asserts referenced only by them are freed
+ * by compaction after the removal of covered traces.
+ */
+public class CompactTraceStore {
+	//
+	protected final TraceModelFactory factory = TraceModelFactory.eINSTANCE;
+	protected final GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE;
+	//
+	// Distinct acts and asserts, and their ids grouped by structural hashes
+	protected final List<EObject> elements = new ArrayList<EObject>();
+	protected final Map<Integer, List<Integer>> elementIds = new HashMap<Integer, List<Integer>>();
+	// Traces without steps and cycles, and the offsets of their records
+	protected final List<ExecutionTrace> shells = new ArrayList<ExecutionTrace>();
+	protected final List<Integer> offsets = new ArrayList<Integer>();
+	// Off-heap records
+	protected static final int INITIAL_CAPACITY = 1024;
+	protected IntBuffer records = allocate(INITIAL_CAPACITY);
+	protected int size = 0;
+
+	/**
+	 * Stores the given trace, the steps and cycle of which are removed (reused as stored acts and
+	 * asserts); the rest of the trace, e.g., its annotations, is kept.
+	 */
+	public void add(ExecutionTrace trace) {
+		// Acts and asserts referencing the variables of the trace are not shared with other traces
+		boolean isShared = trace.getVariableDeclarations().isEmpty();
+		Cycle cycle = trace.getCycle();
+		List<Step> steps = trace.getSteps();
+		offsets.add(size);
+		put(steps.size());
+		put((cycle == null) ? -1 : cycle.getSteps().size());
+		put(isShared ? 1 : 0);
+		encode(steps, isShared);
+		if (cycle != null) {
+			encode(cycle.getSteps(), isShared);
+			trace.setCycle(null);
+		}
+		steps.clear();
+		shells.add(trace);
+	}
+
+	public void addAll(CompactTraceStore traces) {
+		for (ExecutionTrace trace : traces.asList()) {
+			add(trace);
+		}
+	}
+
+	public int size() {
+		return shells.size();
+	}
+
+	public boolean isEmpty() {
+		return shells.isEmpty();
+	}
+
+	public void clear() {
+		elements.clear();
+		elementIds.clear();
+		shells.clear();
+		offsets.clear();
+		records = allocate(INITIAL_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * Materializes the trace at the given index as a new object.
+	 */
+	public ExecutionTrace get(int index) {
+		Copier copier = new Copier();
+		ExecutionTrace trace = (ExecutionTrace) copier.copy(shells.get(index));
+		int offset = offsets.get(index);
+		int stepCount = records.get(offset++);
+		int cycleStepCount = records.get(offset++);
+		// Not shared elements are copied together with the trace, so their references to the variables of the
+		// trace are redirected to the copies; shared elements can occur multiple times, so they are copied one by one
+		Copier elementCopier = (records.get(offset++) != 0) ? null : copier;
+		offset = decode(trace.getSteps(), stepCount, offset, elementCopier);
+		if (cycleStepCount >= 0) {
+			Cycle cycle = factory.createCycle();
+			decode(cycle.getSteps(), cycleStepCount, offset, elementCopier);
+			trace.setCycle(cycle);
+		}
+		copier.copyReferences();
+		return trace;
+	}
+
+	/**
+	 * Returns a view of the stored traces, which materializes a trace whenever it is accessed.
+	 */
+	public List<ExecutionTrace> asList() {
+		return new AbstractList<ExecutionTrace>() {
+			@Override
+			public ExecutionTrace get(int index) {
+				return CompactTraceStore.this.get(index);
+			}
+			@Override
+			public int size() {
+				return CompactTraceStore.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Materializes all stored traces.
+	 */
+	public List<ExecutionTrace> materialize() {
+		return new ArrayList<ExecutionTrace>(asList());
+	}
+
+	// Coverage
+
+	/**
+	 * Returns whether the given (not stored) trace is covered by a stored trace,
+	 * as in {@link TraceUtil#isCovered(ExecutionTrace, List)}.
+	 */
+	public boolean isCovered(ExecutionTrace trace) {
+		int[] covered = encodeActions(trace.getSteps());
+		for (int offset : offsets) {
+			if (isCovered(covered, offset)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the stored traces that are covered by another stored trace,
+	 * as in {@link TraceUtil#removeCoveredExecutionTraces(List)}.
+	 */
+	public void removeCoveredTraces() {
+		int traceCount = offsets.size();
+		for (int i = 0; i < offsets.size() - 1; ++i) {
+			int[] lhs = getActions(offsets.get(i));
+			boolean isLhsDeleted = false;
+			for (int j = i + 1; j < offsets.size() && !isLhsDeleted; ++j) {
+				int rhsOffset = offsets.get(j);
+				if (isCovered(getActions(rhsOffset), offsets.get(i))) {
+					remove(j);
+					--j;
+				}
+				else if (isCovered(lhs, rhsOffset)) {
+					// Else is important, as it is possible that both cover the other one
+					isLhsDeleted = true;
+					remove(i);
+					--i;
+				}
+			}
+		}
+		if (offsets.size() < traceCount) {
+			compact();
+		}
+	}
+
+	/**
+	 * Returns whether the given steps (encoded by getActions) are covered by a reset-separated
+	 * segment of the trace stored at the given offset.
+	 */
+	protected boolean isCovered(int[] covered, int offset) {
+		int stepCount = records.get(offset);
+		int coveredStepCount = covered[0];
+		int stepOffset = offset + 3;
+		for (int i = 0; i < stepCount; i++) {
+			if (i == 0 || isReset(stepOffset)) {
+				// Segment start
+				if (isCoveredSegment(covered, coveredStepCount, stepOffset, stepCount - i)) {
+					return true;
+				}
+			}
+			stepOffset = skipStep(stepOffset);
+		}
+		return false;
+	}
+
+	protected boolean isCoveredSegment(int[] covered, int coveredStepCount, int stepOffset, int remainingStepCount) {
+		int coveredOffset = 1;
+		for (int i = 0; i < coveredStepCount; i++) {
+			if (i >= remainingStepCount || (i > 0 && isReset(stepOffset))) {
+				return false; // The segment is shorter
+			}
+			int coveredActionCount = covered[coveredOffset];
+			int actionCount = records.get(stepOffset + 1);
+			if (coveredActionCount != actionCount) {
+				return false;
+			}
+			for (int j = 0; j < coveredActionCount; j++) {
+				if (!containsAction(stepOffset, covered[coveredOffset + 1 + j])) {
+					return false;
+				}
+			}
+			coveredOffset += 1 + coveredActionCount;
+			stepOffset = skipStep(stepOffset);
+		}
+		return true;
+	}
+
+	protected boolean containsAction(int stepOffset, int actionId) {
+		int actionCount = records.get(stepOffset + 1);
+		for (int i = 0; i < actionCount; i++) {
+			if (records.get(stepOffset + 2 + i) == actionId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected boolean isReset(int stepOffset) {
+		return records.get(stepOffset) != 0;
+	}
+
+	protected int skipStep(int stepOffset) {
+		int assertOffset = stepOffset + 2 + records.get(stepOffset + 1);
+		return assertOffset + 1 + records.get(assertOffset);
+	}
+
+	/**
+	 * Returns the action ids of the steps (without the cycle) of the trace at the given offset:
+	 * step count, then action count and action ids for each step.
+	 */
+	protected int[] getActions(int offset) {
+		int stepCount = records.get(offset);
+		List<Integer> actions = new ArrayList<Integer>();
+		actions.add(stepCount);
+		int stepOffset = offset + 3;
+		for (int i = 0; i < stepCount; i++) {
+			int actionCount = records.get(stepOffset + 1);
+			actions.add(actionCount);
+			for (int j = 0; j < actionCount; j++) {
+				actions.add(records.get(stepOffset + 2 + j));
+			}
+			stepOffset = skipStep(stepOffset);
+		}
+		return actions.stream().mapToInt(it -> it).toArray();
+	}
+
+	/**
+	 * Encodes the actions of the given steps as in getActions without storing new acts;
+	 * unknown acts are encoded as -1, which is not covered by any stored act.
+	 */
+	protected int[] encodeActions(List<Step> steps) {
+		List<Integer> actions = new ArrayList<Integer>();
+		actions.add(steps.size());
+		for (Step step : steps) {
+			List<Act> stepActions = step.getActions();
+			actions.add(stepActions.size());
+			for (Act action : stepActions) {
+				actions.add(getId(action));
+			}
+		}
+		return actions.stream().mapToInt(it -> it).toArray();
+	}
+
+	protected void remove(int index) {
+		// The record remains in the buffer until the next compaction
+		shells.remove(index);
+		offsets.remove(index);
+	}
+
+	/**
+	 * Copies the records of the stored traces into a new buffer and drops the acts and asserts
+	 * that are not referenced by them; the ids of the kept elements are reassigned.
+	 */
+	protected void compact() {
+		int liveSize = 0;
+		for (int offset : offsets) {
+			liveSize += skipRecord(offset) - offset;
+		}
+		IntBuffer newRecords = allocate(Math.max(liveSize, INITIAL_CAPACITY));
+		int newSize = 0;
+		List<EObject> newElements = new ArrayList<EObject>();
+		int[] newIds = new int[elements.size()];
+		Arrays.fill(newIds, -1);
+		for (int i = 0; i < offsets.size(); i++) {
+			int offset = offsets.get(i);
+			offsets.set(i, newSize);
+			int stepCount = records.get(offset);
+			int cycleStepCount = records.get(offset + 1);
+			// Header
+			for (int j = 0; j < 3; j++) {
+				newRecords.put(newSize++, records.get(offset++));
+			}
+			for (int j = 0; j < stepCount + Math.max(cycleStepCount, 0); j++) {
+				newRecords.put(newSize++, records.get(offset++)); // Reset flag
+				for (int k = 0; k < 2; k++) { // Actions, then asserts
+					int count = records.get(offset++);
+					newRecords.put(newSize++, count);
+					for (int l = 0; l < count; l++) {
+						int id = records.get(offset++);
+						if (newIds[id] < 0) {
+							newIds[id] = newElements.size();
+							newElements.add(elements.get(id));
+						}
+						newRecords.put(newSize++, newIds[id]);
+					}
+				}
+			}
+		}
+		for (List<Integer> ids : elementIds.values()) {
+			ids.replaceAll(id -> newIds[id]);
+			ids.removeIf(id -> id < 0);
+		}
+		elementIds.values().removeIf(List::isEmpty);
+		elements.clear();
+		elements.addAll(newElements);
+		records = newRecords;
+		size = newSize;
+	}
+
+	/**
+	 * Returns the offset following the record of the trace at the given offset.
+	 */
+	protected int skipRecord(int offset) {
+		int stepCount = records.get(offset);
+		int cycleStepCount = records.get(offset + 1);
+		int stepOffset = offset + 3;
+		for (int i = 0; i < stepCount + Math.max(cycleStepCount, 0); i++) {
+			stepOffset = skipStep(stepOffset);
+		}
+		return stepOffset;
+	}
+
+	// Encoding
+
+	protected void encode(List<Step> steps, boolean isShared) {
+		for (Step step : steps) {
+			List<Act> actions = new ArrayList<Act>(step.getActions());
+			List<Expression> asserts = new ArrayList<Expression>(step.getAsserts());
+			put(actions.stream().anyMatch(it -> it instanceof Reset) ? 1 : 0);
+			put(actions.size());
+			for (Act action : actions) {
+				put(intern(action, isShared));
+			}
+			put(asserts.size());
+			for (Expression assertion : asserts) {
+				put(intern(assertion, isShared));
+			}
+		}
+	}
+
+	protected int decode(List<Step> steps, int stepCount, int offset, Copier copier) {
+		for (int i = 0; i < stepCount; i++) {
+			Step step = factory.createStep();
+			offset++; // Reset flag
+			int actionCount = records.get(offset++);
+			for (int j = 0; j < actionCount; j++) {
+				step.getActions().add((Act) copy(elements.get(records.get(offset++)), copier));
+			}
+			int assertCount = records.get(offset++);
+			for (int j = 0; j < assertCount; j++) {
+				step.getAsserts().add((Expression) copy(elements.get(records.get(offset++)), copier));
+			}
+			steps.add(step);
+		}
+		return offset;
+	}
+
+	protected EObject copy(EObject element, Copier copier) {
+		if (copier == null) {
+			return EcoreUtil.copy(element);
+		}
+		return copier.copy(element);
+	}
+
+	protected int intern(EObject element, boolean isShared) {
+		List<Integer> ids = null;
+		if (isShared) {
+			ids = elementIds.computeIfAbsent(ecoreUtil.helperHashCode(element), it -> new ArrayList<Integer>());
+			for (int id : ids) {
+				if (ecoreUtil.helperEquals(element, elements.get(id))) {
+					return id;
+				}
+			}
+		}
+		int id = elements.size();
+		EcoreUtil.remove(element); // Detaching it from the trace
+		elements.add(element);
+		if (ids != null) {
+			ids.add(id); // Not shared elements cannot be looked up
+		}
+		return id;
+	}
+
+	protected int getId(EObject element) {
+		List<Integer> ids = elementIds.get(ecoreUtil.helperHashCode(element));
+		if (ids != null) {
+			for (int id : ids) {
+				if (ecoreUtil.helperEquals(element, elements.get(id))) {
+					return id;
+				}
+			}
+		}
+		return -1;
+	}
+
+	protected void put(int value) {
+		if (size == records.capacity()) {
+			IntBuffer newRecords = allocate(2 * size);
+			newRecords.put(0, records, 0, size);
+			records = newRecords;
+		}
+		records.put(size++, value);
+	}
+
+	protected static IntBuffer allocate(int capacity) {
+		return ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+	}
+
+}
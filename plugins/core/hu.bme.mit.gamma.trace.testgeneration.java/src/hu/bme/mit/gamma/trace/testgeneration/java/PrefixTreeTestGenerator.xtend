@@ -0,0 +1,300 @@
+/********************************************************************************
+ * Copyright (c) 2018-2022 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.trace.testgeneration.java
+
+import hu.bme.mit.gamma.statechart.interface_.Component
+import hu.bme.mit.gamma.trace.model.ExecutionTrace
+import hu.bme.mit.gamma.trace.model.Step
+import java.util.List
+import java.util.Map
+
+import static extension hu.bme.mit.gamma.codegeneration.java.util.Namings.*
+import static extension hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.*
+import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
+import static extension hu.bme.mit.gamma.trace.derivedfeatures.TraceModelDerivedFeatures.*
+
+/**
+ * Generates a test class in which each trace is an independent test case (AND relation).
+ * Steps shared by the prefixes of multiple traces are organized into a prefix tree and executed
+ * only once: the state of the component, the virtual timer and the trace variables is saved
+ * into a snapshot at the branching nodes, and the test cases continue from these snapshots.
+ * If the component does not support snapshots (e.g., it contains Yakindu statemachines), the test
+ * cases replay their steps from a new component instance.
+ */
+class PrefixTreeTestGenerator extends TestGenerator {
+	// Constant strings
+	protected final String REACH_NAME = "reach"
+	protected final String SNAPSHOTS_NAME = "snapshots"
+	protected final String TEST_CASE_NAME = "test"
+
+	new(List<ExecutionTrace> traces, String basePackage, String className) {
+		super(traces, basePackage, className)
+	}
+
+	override generateTestClass(List<ExecutionTrace> traces, Component component, String className) {
+		val leaves = traces.createPrefixTree
+		val root = leaves.head.root
+		val variables = traces.head.variableDeclarations
+		return '''
+			«createPackageName»
+
+			«component.generateImports(#['BeforeClass', 'AfterClass'])»
+			import java.util.Map;
+			import java.util.HashMap;
+
+			public class «className» {
+
+				private static «TEST_CLASS_NAME» «TEST_INSTANCE_NAME»;
+				«IF component.timed»private static «TIMER_CLASS_NAME» «TIMER_OBJECT_NAME»;«ENDIF»
+				// Snapshots of the prefix tree nodes shared by multiple traces
+				private static final Map<Integer, Object[]> «SNAPSHOTS_NAME» = new HashMap<Integer, Object[]>();
+
+				«FOR variable : variables»
+					protected static «variable.type.serialize» «variable.name»«IF variable.expression !== null» = «variable.expression.serialize»«ENDIF»;
+				«ENDFOR»
+
+				@BeforeClass
+				public static void init() {
+					createInstance();
+					saveSnapshot(«root.id»);
+				}
+
+				private static void createInstance() {
+					«IF component.timed»
+						«TIMER_OBJECT_NAME» = new «TIMER_CLASS_NAME»();
+						«TEST_INSTANCE_NAME» = new «TEST_CLASS_NAME»(«FOR parameter : firstTrace.arguments SEPARATOR ', ' AFTER ', '»«parameter.serialize»«ENDFOR»«TIMER_OBJECT_NAME»);  // Virtual timer is automatically set
+					«ELSE»
+						«TEST_INSTANCE_NAME» = new «TEST_CLASS_NAME»(«FOR parameter : firstTrace.arguments SEPARATOR ', '»«parameter.serialize»«ENDFOR»);
+					«ENDIF»
+					«FOR variable : variables»
+						«variable.name» = «IF variable.expression !== null»«variable.expression.serialize»«ELSE»«variable.defaultExpression.serialize»«ENDIF»;
+					«ENDFOR»
+				}
+
+				@AfterClass
+				public static void tearDown() {
+					«SNAPSHOTS_NAME».clear();
+					«IF component.timed»
+						«TIMER_OBJECT_NAME» = null;
+					«ENDIF»
+					«TEST_INSTANCE_NAME» = null;
+				}
+
+				// Null if the component does not support snapshots, e.g., it contains Yakindu statemachines
+				private static «SNAPSHOTABLE_INTERFACE» getSnapshotableComponent() {
+					Object component = «TEST_INSTANCE_NAME».get«REFLECTIVE_WRAPPED_COMPONENT.toFirstUpper»();
+					return (component instanceof «SNAPSHOTABLE_INTERFACE») ? («SNAPSHOTABLE_INTERFACE») component : null;
+				}
+
+				private static void saveSnapshot(int node) {
+					«SNAPSHOTABLE_INTERFACE» component = getSnapshotableComponent();
+					if (component == null) {
+						return;
+					}
+					«SNAPSHOTS_NAME».put(node, new Object[] {
+						component.createSnapshot()«IF component.timed»,
+						«TIMER_OBJECT_NAME».createSnapshot()«ENDIF»«FOR variable : variables BEFORE ',' SEPARATOR ','»
+						«variable.name»«ENDFOR»
+					});
+				}
+
+				private static boolean restoreSnapshot(int node) {
+					Object[] snapshot = «SNAPSHOTS_NAME».get(node);
+					if (snapshot == null) {
+						return false;
+					}
+					int i = 0;
+					getSnapshotableComponent().restoreSnapshot(snapshot[i++]);
+					«IF component.timed»
+						«TIMER_OBJECT_NAME».restoreSnapshot(snapshot[i++]);
+					«ENDIF»
+					«FOR variable : variables»
+						«variable.name» = («variable.type.serialize») snapshot[i++];
+					«ENDFOR»
+					return true;
+				}
+
+				«root.generateReachMethods»
+
+				«traces.generateTestCases(leaves)»
+
+				«IF waitingHandle instanceof WaitingAllowedInFunction»
+					«waitingHandle.generateWaitingHandlerFunction(TEST_INSTANCE_NAME)»
+				«ENDIF»
+			}
+		'''
+	}
+
+	protected def CharSequence generateReachMethods(PrefixTreeNode node) '''
+		«IF node.snapshotNode»
+			private void «REACH_NAME»«node.id»() {
+				«IF node.parent === null»
+					if (!restoreSnapshot(«node.id»)) {
+						// No snapshots: the steps are replayed from a new instance
+						createInstance();
+					}
+				«ELSE»
+					if (restoreSnapshot(«node.id»)) {
+						return;
+					}
+					«node.generateStepsFromSnapshot»
+					saveSnapshot(«node.id»);
+				«ENDIF»
+			}
+
+		«ENDIF»
+		«FOR child : node.children.values»
+			«child.generateReachMethods»
+		«ENDFOR»
+	'''
+
+	protected def generateTestCases(List<ExecutionTrace> traces, List<PrefixTreeNode> leaves) '''
+		«FOR i : 0 ..< traces.size SEPARATOR System.lineSeparator»
+			«TEST_ANNOTATION»«IF traces.get(i).isNegativeTest»(expected=AssertionError.class)«ENDIF»
+			public void «TEST_CASE_NAME»«i»() {
+				«val leaf = leaves.get(i)»
+				«IF leaf.snapshotNode»
+					«REACH_NAME»«leaf.id»();
+				«ELSE»
+					«leaf.generateStepsFromSnapshot»
+				«ENDIF»
+			}
+		«ENDFOR»
+	'''
+
+	/**
+	 * Reaches the nearest snapshot ancestor of the given node and executes the remaining steps.
+	 */
+	protected def generateStepsFromSnapshot(PrefixTreeNode node) {
+		val steps = newLinkedList
+		var ancestor = node
+		do {
+			steps.addFirst(ancestor.step)
+			ancestor = ancestor.parent
+		} while (!ancestor.snapshotNode)
+		return '''
+			«REACH_NAME»«ancestor.id»();
+			«FOR step : steps»
+				«step»
+			«ENDFOR»
+		'''
+	}
+
+	/**
+	 * Creates the prefix tree of the steps of the given traces and returns the node of the last step
+	 * of each trace (in the order of the traces).
+	 */
+	protected def createPrefixTree(List<ExecutionTrace> traces) {
+		val serializedTraces = <List<String>>newArrayList
+		for (trace : traces) {
+			val steps = <Step>newArrayList
+			steps += trace.steps
+			if (trace.cycle !== null) {
+				// Cycle steps are not handled differently
+				steps += trace.cycle.steps
+			}
+			serializedTraces += steps.map[it.serializeStep.toString]
+		}
+		return PrefixTreeNode.createPrefixTree(serializedTraces)
+	}
+
+	/**
+	 * Steps are considered equal if their serialized code is equal.
+	 */
+	protected def serializeStep(Step step) '''
+		// Act
+		«FOR act : step.actions»
+			«actAndAssertSerializer.serialize(act)»
+		«ENDFOR»
+		// Assert
+		«val filteredAsserts = testGeneratorUtil.filterAsserts(step)»
+		«IF !filteredAsserts.nullOrEmpty»
+			«waitingHandle.generateAssertBlock(filteredAsserts)»
+		«ENDIF»
+	'''
+
+	static class PrefixTreeNode {
+		final int id
+		final PrefixTreeNode parent
+		final String step
+		final Map<String, PrefixTreeNode> children = newLinkedHashMap
+		int traceCount = 0
+
+		new(int id, PrefixTreeNode parent, String step) {
+			this.id = id
+			this.parent = parent
+			this.step = step
+		}
+
+		/**
+		 * Creates the prefix tree of the given step sequences and returns the node of the last step
+		 * of each sequence (in the order of the sequences).
+		 */
+		static def createPrefixTree(List<? extends List<String>> stepSequences) {
+			val leaves = <PrefixTreeNode>newArrayList
+			var id = 0
+			val root = new PrefixTreeNode(id++, null, null)
+			for (steps : stepSequences) {
+				var node = root
+				node.traceCount++
+				for (step : steps) {
+					var child = node.children.get(step)
+					if (child === null) {
+						child = new PrefixTreeNode(id++, node, step)
+						node.children.put(step, child)
+					}
+					child.traceCount++
+					node = child
+				}
+				leaves += node
+			}
+			return leaves
+		}
+
+		def getId() {
+			return id
+		}
+
+		def getParent() {
+			return parent
+		}
+
+		def getStep() {
+			return step
+		}
+
+		def getChildren() {
+			return children
+		}
+
+		def getTraceCount() {
+			return traceCount
+		}
+
+		def getRoot() {
+			var node = this
+			while (node.parent !== null) {
+				node = node.parent
+			}
+			return node
+		}
+
+		/**
+		 * A snapshot is saved at the root and at the deepest nodes shared by multiple traces.
+		 */
+		def isSnapshotNode() {
+			return parent === null || traceCount > 1 &&
+				children.values.forall[it.traceCount < traceCount]
+		}
+
+	}
+
+}
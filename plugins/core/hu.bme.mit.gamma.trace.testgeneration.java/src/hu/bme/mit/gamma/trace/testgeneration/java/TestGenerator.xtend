@@ -112,12 +112,12 @@ class TestGenerator {
 		return BASE_PACKAGE + "." + finalName
 	}
 	
-	private def createPackageName() '''package «PACKAGE_NAME»;'''
+	protected def createPackageName() '''package «PACKAGE_NAME»;'''
 		
 	protected def generateTestClass(List<ExecutionTrace> traces, Component component, String className) '''
 		«createPackageName»
 		
-		«component.generateImports»
+		«component.generateImports(#['Before', 'After'])»
 		
 		public class «className» {
 			
@@ -162,7 +162,10 @@ class TestGenerator {
 		}
 	'''
 	
-	protected def generateImports(Component component) '''
+	/**
+	 * Generates the imports of the test class, including the given JUnit annotations used in it.
+	 */
+	protected def generateImports(Component component, List<String> junitAnnotations) '''
 		import «BASE_PACKAGE».*;
 		«FOR _package : firstTrace.typeDeclarations.map[it.containingPackage].toSet»
 			import «_package.getPackageString(BASE_PACKAGE)».*;
@@ -172,8 +175,9 @@ class TestGenerator {
 		
 		import static org.junit.Assert.assertTrue;
 		
-		import org.junit.Before;
-		import org.junit.After;
+		«FOR junitAnnotation : junitAnnotations»
+			import org.junit.«junitAnnotation»;
+		«ENDFOR»
 		import org.junit.Test;
 		«IF waitingHandle instanceof WaitingAllowedInFunction»
 			import java.util.Arrays;
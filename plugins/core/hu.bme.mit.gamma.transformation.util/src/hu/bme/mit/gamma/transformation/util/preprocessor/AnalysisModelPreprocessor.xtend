@@ -23,6 +23,7 @@ import hu.bme.mit.gamma.transformation.util.GammaFileNamer
 import hu.bme.mit.gamma.transformation.util.reducer.SystemReducer
 import hu.bme.mit.gamma.util.FileUtil
 import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.util.PhaseRecorder
 import java.io.File
 import java.util.List
 import java.util.logging.Level
@@ -43,6 +44,7 @@ class AnalysisModelPreprocessor {
 	protected final extension FileUtil fileUtil = FileUtil.INSTANCE
 	protected final extension GammaFileNamer fileNamer = GammaFileNamer.INSTANCE
 	protected final extension InterfaceModelFactory interfaceModelFactory = InterfaceModelFactory.eINSTANCE
+	protected final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE
 	//
 	protected final Logger logger = Logger.getLogger("GammaLogger")
 	
@@ -55,10 +57,14 @@ class AnalysisModelPreprocessor {
 		val fileNameExtensionless = fileName.extensionlessName
 		
 		// Unfolding the given system
+		val unfoldingPhase = phaseRecorder.start("unfolding")
 		val modelUnfolder = new ModelUnfolder(gammaPackage)
 		val trace = modelUnfolder.unfold
 		var _package = trace.package
 		val component = trace.topComponent
+		unfoldingPhase.put("components", _package.components.size)
+			.put("simpleInstances", component.allSimpleInstances.size)
+			.end
 		checkState(!component.asynchronousStatechart) // ModelUnfolder handles them
 		
 		val name = component.name
@@ -99,8 +105,10 @@ class AnalysisModelPreprocessor {
 		val resourceSet = resource.resourceSet
 		// Optimizing - removing unfireable transitions
 		if (optimize) {
+			val reductionPhase = phaseRecorder.start("system-reduction")
 			val transitionOptimizer = new SystemReducer(resourceSet)
 			transitionOptimizer.execute
+			reductionPhase.end
 		}
 		
 		// Saving the Package of the unfolded model
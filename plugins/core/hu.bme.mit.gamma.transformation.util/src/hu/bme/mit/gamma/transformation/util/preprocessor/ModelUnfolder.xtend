@@ -15,10 +15,9 @@ import hu.bme.mit.gamma.statechart.composite.AbstractAsynchronousCompositeCompon
 import hu.bme.mit.gamma.statechart.composite.AbstractSynchronousCompositeComponent
 import hu.bme.mit.gamma.statechart.composite.AsynchronousAdapter
 import hu.bme.mit.gamma.statechart.composite.AsynchronousComponent
-import hu.bme.mit.gamma.statechart.composite.BroadcastChannel
 import hu.bme.mit.gamma.statechart.composite.ComponentInstance
 import hu.bme.mit.gamma.statechart.composite.CompositeComponent
-import hu.bme.mit.gamma.statechart.composite.SimpleChannel
+import hu.bme.mit.gamma.statechart.composite.InstancePortReference
 import hu.bme.mit.gamma.statechart.composite.SynchronousComponent
 import hu.bme.mit.gamma.statechart.interface_.Component
 import hu.bme.mit.gamma.statechart.interface_.EventTrigger
@@ -35,8 +34,11 @@ import hu.bme.mit.gamma.statechart.util.StatechartUtil
 import hu.bme.mit.gamma.util.GammaEcoreUtil
 import hu.bme.mit.gamma.util.JavaUtil
 import java.util.Collection
+import java.util.List
 import java.util.Map
+import java.util.stream.Collectors
 import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
 
 import static com.google.common.base.Preconditions.checkNotNull
 import static com.google.common.base.Preconditions.checkState
@@ -75,6 +77,9 @@ class ModelUnfolder {
 		
 		val trace = new Trace(clonedPackage, topComponent)
 		
+		// Instance types are cloned in parallel, which is thread-safe only if the proxy resolution,
+		// which modifies the original models, is done beforehand
+		gammaPackage.resolveAllProxies
 		topComponent.copyComponents(clonedPackage, trace)
 		topComponent.renameInstances
 		topComponent.validateInstanceNames
@@ -102,39 +107,39 @@ class ModelUnfolder {
 	
 	private dispatch def void copyComponents(AbstractSynchronousCompositeComponent component,
 			Package gammaPackage, Trace trace) {
-		for (instance : component.components) {
+		val instances = component.components
+		val clonedTypes = instances.map[it.type].cloneContainingPackages
+		for (var i = 0; i < instances.size; i++) {
+			val instance = instances.get(i)
 			val type = instance.type
-			val clonedPackage = type.containingPackage.clone
-			val clonedComponent = clonedPackage.components
-					.findFirst[it.helperEquals(type)] as SynchronousComponent // Sync composite or Statechart
+			val clonedPackage = clonedTypes.get(i).key
+			val clonedComponent = clonedTypes.get(i).value as SynchronousComponent // Sync composite or Statechart
 			clonedComponent.removeAnnotations // To prevent importing unnecessary resources into the resource set
 			gammaPackage.components += clonedComponent // Adding it to the "Instance container"
 			instance.type = clonedComponent // Setting the type to the new declaration
 			// Declarations must be copied AFTER moving component instances to enable reference changes
 			gammaPackage.addDeclarations(clonedPackage)
 			
-			// Changing the port binding
-			fixPortBindings(component, instance)
-			// Changing the providedPort references of Channels
-			fixChannelProvidedPorts(component, instance)
-			// Changing the requiredPort references of Channels
-			fixChannelRequiredPorts(component, instance)
 			if (clonedComponent instanceof AbstractSynchronousCompositeComponent) {
 				clonedComponent.copyComponents(gammaPackage, trace) // Cloning the contained CompositeSystems recursively
 			}
 			// Tracing
 			type.traceComponentInstances(clonedComponent, trace)
 		}
+		// Changing the port bindings and the port references of channels
+		component.fixPortReferences
 	}
 	
 	private dispatch def void copyComponents(AbstractAsynchronousCompositeComponent component,
 			Package gammaPackage, Trace trace) {
-		for (instance : component.components) {
+		val instances = component.components
+		val clonedTypes = instances.map[it.type].cloneContainingPackages
+		for (var i = 0; i < instances.size; i++) {
+			val instance = instances.get(i)
 			val type = instance.type
 			
-			val clonedPackage = type.containingPackage.clone
-			val clonedComponent = clonedPackage.components
-						.findFirst[it.helperEquals(type)] as AsynchronousComponent
+			val clonedPackage = clonedTypes.get(i).key
+			val clonedComponent = clonedTypes.get(i).value as AsynchronousComponent
 			gammaPackage.components += clonedComponent
 			
 			instance.type = clonedComponent
@@ -145,13 +150,9 @@ class ModelUnfolder {
 			
 			// Tracing
 			type.traceComponentInstances(clonedComponent, trace)
-			// Changing the port binding
-			fixPortBindings(component, instance)
-			// Changing the providedPort references of Channels
-			fixChannelProvidedPorts(component, instance)
-			// Changing the requiredPort references of Channels
-			fixChannelRequiredPorts(component, instance)
 		}
+		// Changing the port bindings and the port references of channels
+		component.fixPortReferences
 	}
 	
 	private dispatch def void copyComponents(AsynchronousAdapter component, Package gammaPackage,
@@ -159,7 +160,7 @@ class ModelUnfolder {
 		val type = component.wrappedComponent.type
 		val clonedPackage = type.containingPackage.clone
 		val clonedComponent = clonedPackage.components
-				.findFirst[it.helperEquals(type)] as SynchronousComponent  // Sync composite or Statechart
+				.get(type.containingPackage.components.indexOf(type)) as SynchronousComponent  // Sync composite or Statechart
 		gammaPackage.components += clonedComponent // Adding it to the "Instance container"
 		component.wrappedComponent.type = clonedComponent // Setting the type to the new declaration
 		// Declarations must be copied AFTER moving component instances to enable reference changes
@@ -178,7 +179,7 @@ class ModelUnfolder {
 			Package gammaPackage, Trace trace) {
 		val clonedPackage = component.containingPackage.clone
 		val clonedComponent = clonedPackage.components
-				.findFirst[it.helperEquals(component)] as AsynchronousStatechartDefinition
+				.get(component.containingPackage.components.indexOf(component)) as AsynchronousStatechartDefinition
 		
 		// Attributes
 		val synchronousStatechart = clonedComponent.mapIntoSynchronousStatechart
@@ -215,63 +216,32 @@ class ModelUnfolder {
 		}
 	}
 	
-	protected def void fixChannelRequiredPorts(CompositeComponent composite, ComponentInstance instance) {
-		val type = instance.derivedType
-		// Fixing the SimpleChannels
-		for (simpleChannel : composite.channels.filter(SimpleChannel).filter[it.requiredPort.instance == instance].toList) {
+	/**
+	 * Retargets the port references of the port bindings and channels of the composite to the ports of
+	 * the cloned instance types. The references are indexed by instance in a single pass, instead of
+	 * filtering the bindings and channels for each instance.
+	 */
+	protected def void fixPortReferences(CompositeComponent composite) {
+		val instancePortReferences = <ComponentInstance, List<InstancePortReference>>newHashMap
+		val portReferences = composite.portBindings.map[it.instancePortReference] +
+			composite.channels.map[#[it.providedPort] + it.requiredPorts].flatten
+		for (portReference : portReferences) {
+			val instance = portReference.instance
+			instancePortReferences.computeIfAbsent(instance, [newArrayList]) += portReference
+		}
+		for (instance : instancePortReferences.keySet) {
+			val type = instance.derivedType
 			val ports = switch (type) {
 				AsynchronousAdapter: type.allPorts // An individual check for wrappers is needed
 				default: type.ports
 			}
-			val newPorts = ports.filter[it.helperEquals(simpleChannel.requiredPort.port)]
-			if (newPorts.size != 1) {
-				throw new IllegalArgumentException("Not one port found: " + newPorts)
-			}
-			simpleChannel.requiredPort.port = newPorts.head	
-		}
-		// Fixing BroadcastChannels
-		for (broadcastChannel : composite.channels.filter(BroadcastChannel)) {
-			for (requiredPort : broadcastChannel.requiredPorts.filter[it.instance == instance].toList) {
-				val ports = switch (type) {
-					AsynchronousAdapter: type.allPorts // An individual check for wrappers is needed
-					default: type.ports
-				}
-				val newPorts = ports.filter[it.helperEquals(requiredPort.port)]
+			for (portReference : instancePortReferences.get(instance)) {
+				val newPorts = ports.filter[it.helperEquals(portReference.port)]
 				if (newPorts.size != 1) {
 					throw new IllegalArgumentException("Not one port found: " + newPorts)
 				}
-				requiredPort.port = newPorts.head	
-			}
-		}
-	}
-	
-	protected def void fixChannelProvidedPorts(CompositeComponent composite, ComponentInstance instance) {
-		val type = instance.derivedType
-		for (channel : composite.channels.filter[it.providedPort.instance == instance].toList) {
-			val ports = switch (type) {
-				AsynchronousAdapter: type.allPorts // An individual check for wrappers is needed
-				default: type.ports
+				portReference.port = newPorts.head
 			}
-			val newPorts = ports.filter[it.helperEquals(channel.providedPort.port)]
-			if (newPorts.size != 1) {
-				throw new IllegalArgumentException("Not one port found: " + newPorts)
-			}
-			channel.providedPort.port = newPorts.head	
-		}
-	}
-	
-	protected def void fixPortBindings(CompositeComponent composite, ComponentInstance instance) {
-		val type = instance.derivedType
-		for (portBinding : composite.portBindings.filter[it.instancePortReference.instance == instance].toList) {
-			val ports = switch (type) {
-				AsynchronousAdapter: type.allPorts // An individual check for wrappers is needed
-				default: type.ports
-			}
-			val newPorts = ports.filter[it.helperEquals(portBinding.instancePortReference.port)]
-			if (newPorts.size != 1) {
-				throw new IllegalArgumentException("Not one port found: " + newPorts)
-			}
-			portBinding.instancePortReference.port = newPorts.head	
 		}
 	}
 	
@@ -405,6 +375,31 @@ class ModelUnfolder {
 		return topComponent
 	}
 	
+	/**
+	 * Clones the containing packages of the given components in parallel, and returns the cloned packages
+	 * and the clones of the components in the same order. Only the original models are read, so this is
+	 * thread-safe, given that their proxies have been resolved.
+	 */
+	protected def List<Pair<Package, Component>> cloneContainingPackages(List<? extends Component> components) {
+		return components.parallelStream.map[
+			val containingPackage = it.containingPackage
+			val clonedPackage = containingPackage.clone
+			// Clones are at the same index, no need for expensive structural comparisons
+			val clonedComponent = clonedPackage.components.get(containingPackage.components.indexOf(it))
+			clonedPackage -> clonedComponent
+		].collect(Collectors.toList)
+	}
+	
+	protected def resolveAllProxies(Package gammaPackage) {
+		val resourceSet = gammaPackage.eResource?.resourceSet
+		if (resourceSet !== null) {
+			EcoreUtil.resolveAll(resourceSet)
+		}
+		else {
+			EcoreUtil.resolveAll(gammaPackage)
+		}
+	}
+	
 	protected def addDeclarations(Package gammaPackage, Package clonedPackage) {
 		val selfAndImports = clonedPackage.selfAndImports
 		// As constants and functions can be imported - is the fact that imported packages are not cloned a problem? 
@@ -417,10 +412,7 @@ class ModelUnfolder {
 			.map[it.functionDeclarations].flatten.toSet
 			.map[val clone = it.clone; clones += it -> clone; clone] // Crucial...
 		// Crucial as e.g, function declarations can refer to constant declarations
-		for (original : clones.keySet) {
-			val clone = clones.get(original)
-			clone.change(original, gammaPackage)
-		}
+		clones.change(gammaPackage) // A single pass for every clone
 		// No interface and type declarations as their cloning causes a lot of trouble
 	}
 	
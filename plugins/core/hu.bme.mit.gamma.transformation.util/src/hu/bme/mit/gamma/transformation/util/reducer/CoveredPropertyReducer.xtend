@@ -10,23 +10,45 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.transformation.util.reducer
 
+import hu.bme.mit.gamma.expression.model.AndExpression
+import hu.bme.mit.gamma.expression.model.BinaryExpression
+import hu.bme.mit.gamma.expression.model.EqualityExpression
+import hu.bme.mit.gamma.expression.model.Expression
 import hu.bme.mit.gamma.expression.model.ExpressionModelFactory
+import hu.bme.mit.gamma.expression.model.GreaterEqualExpression
+import hu.bme.mit.gamma.expression.model.GreaterExpression
+import hu.bme.mit.gamma.expression.model.ImplyExpression
+import hu.bme.mit.gamma.expression.model.InequalityExpression
+import hu.bme.mit.gamma.expression.model.LessEqualExpression
+import hu.bme.mit.gamma.expression.model.LessExpression
+import hu.bme.mit.gamma.expression.model.NotExpression
+import hu.bme.mit.gamma.expression.model.OrExpression
 import hu.bme.mit.gamma.expression.util.ExpressionEvaluator
 import hu.bme.mit.gamma.property.model.AtomicFormula
 import hu.bme.mit.gamma.property.model.StateFormula
 import hu.bme.mit.gamma.property.util.PropertyUtil
+import hu.bme.mit.gamma.statechart.composite.ComponentInstance
 import hu.bme.mit.gamma.statechart.composite.ComponentInstanceElementReferenceExpression
 import hu.bme.mit.gamma.statechart.composite.ComponentInstanceEventParameterReferenceExpression
 import hu.bme.mit.gamma.statechart.composite.ComponentInstanceEventReferenceExpression
 import hu.bme.mit.gamma.statechart.composite.ComponentInstanceStateReferenceExpression
+import hu.bme.mit.gamma.statechart.composite.ComponentInstanceReferenceExpression
 import hu.bme.mit.gamma.statechart.composite.ComponentInstanceVariableReferenceExpression
+import hu.bme.mit.gamma.statechart.interface_.EventParameterReferenceExpression
 import hu.bme.mit.gamma.trace.model.ExecutionTrace
+import hu.bme.mit.gamma.trace.model.RaiseEventAct
 import hu.bme.mit.gamma.trace.model.Step
 import hu.bme.mit.gamma.transformation.util.UnfoldingTraceability
 import hu.bme.mit.gamma.util.GammaEcoreUtil
+import java.math.BigInteger
 import java.util.Collection
+import java.util.List
+import java.util.Map
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Function
 import java.util.logging.Level
 import java.util.logging.Logger
+import org.eclipse.emf.ecore.EObject
 
 import static extension hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.*
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
@@ -36,6 +58,9 @@ class CoveredPropertyReducer {
 	
 	protected final Collection<StateFormula> formulas
 	protected final Collection<ExecutionTrace> traces
+	// Memos for the compiled formulas
+	protected final Map<Pair<?, ?>, Boolean> equalities = new ConcurrentHashMap
+	protected final Map<Pair<?, ?>, Boolean> containments = new ConcurrentHashMap
 	
 	protected final extension ExpressionModelFactory expressionModelFactory = ExpressionModelFactory.eINSTANCE
 	
@@ -56,34 +81,23 @@ class CoveredPropertyReducer {
 	}
 	
 	def execute() {
+		// Every step is indexed only once
+		val traceIndexes = traces.map[it.steps.map[new StepIndex(it)]].toList
 		val unnecessaryFormulas = newArrayList
 		for (formula : formulas) {
 			val egLessFormula = formula.egLessFormula
 			if (egLessFormula !== null) {
 				if (egLessFormula instanceof AtomicFormula) {
-					var isUnnecessary = false
-					for (var i = 0; i < traces.size && !isUnnecessary; i++)  {
-						val trace = traces.get(i)
-						val steps = trace.steps
-						for (var j = 0; j < steps.size && !isUnnecessary; j++) {
-							// New formula is cloned for each step
-							val clonedFormula = egLessFormula.clone
-							val step = steps.get(j)
-							for (instanceStateExpression : clonedFormula
-									.getAllContentsOfType(ComponentInstanceElementReferenceExpression)) {
-								val evaluation = instanceStateExpression.evaluate(step)
-								evaluation.replace(instanceStateExpression)
-							}
-							// No transient variables in traces (as they are also default)
-							// Resettable variable cannot be removed, think of
-							// transition-pair coverage
-							val expression = clonedFormula.expression
-							val evaluation = expression.definitelyTrueExpression
-							if (evaluation) {
-								isUnnecessary = true
-								unnecessaryFormulas += formula
-							}
-						}
+					val predicate = egLessFormula.expression.compile
+					val isUnnecessary = if (predicate !== null) {
+						// Compiled predicates are evaluated over the indexed steps of the traces in parallel
+						traceIndexes.parallelStream.anyMatch[it.exists[predicate.apply(it) == Boolean.TRUE]]
+					}
+					else {
+						egLessFormula.isCoveredByClonedFormula
+					}
+					if (isUnnecessary) {
+						unnecessaryFormulas += formula
 					}
 				}
 			}
@@ -91,6 +105,310 @@ class CoveredPropertyReducer {
 		return unnecessaryFormulas
 	}
 	
+	protected def isCoveredByClonedFormula(AtomicFormula egLessFormula) {
+		for (trace : traces) {
+			for (step : trace.steps) {
+				// New formula is cloned for each step
+				val clonedFormula = egLessFormula.clone
+				for (instanceStateExpression : clonedFormula
+						.getAllContentsOfType(ComponentInstanceElementReferenceExpression)) {
+					val evaluation = instanceStateExpression.evaluate(step)
+					evaluation.replace(instanceStateExpression)
+				}
+				// No transient variables in traces (as they are also default)
+				// Resettable variable cannot be removed, think of
+				// transition-pair coverage
+				val expression = clonedFormula.expression
+				val evaluation = expression.definitelyTrueExpression
+				if (evaluation) {
+					return true
+				}
+			}
+		}
+		return false
+	}
+	
+	// Compilation of state formulas into predicates over indexed steps
+	
+	/**
+	 * Returns a function evaluating the expression in a step into a Boolean, a BigInteger (integers and
+	 * enumeration literal indexes) or null (unknown value); returns null if the expression is not supported.
+	 */
+	protected def Function<StepIndex, Object> compile(Expression expression) {
+		if (expression.getAllContentsOfType(ComponentInstanceElementReferenceExpression).empty &&
+				!(expression instanceof ComponentInstanceElementReferenceExpression)) {
+			// Constant folding
+			val value = expression.evaluateConstant
+			return [value]
+		}
+		switch (expression) {
+			NotExpression: {
+				val operand = expression.operand.compile
+				if (operand === null) {
+					return null
+				}
+				return [
+					val value = operand.apply(it)
+					if (value instanceof Boolean) !value else null
+				]
+			}
+			AndExpression: {
+				val operands = expression.operands.map[it.compile]
+				if (operands.contains(null)) {
+					return null
+				}
+				return [index |
+					var Object result = Boolean.TRUE
+					for (operand : operands) {
+						val value = operand.apply(index)
+						if (value == Boolean.FALSE) {
+							return Boolean.FALSE
+						}
+						if (value != Boolean.TRUE) {
+							result = null // Unknown, unless another operand is false
+						}
+					}
+					return result
+				]
+			}
+			OrExpression: {
+				val operands = expression.operands.map[it.compile]
+				if (operands.contains(null)) {
+					return null
+				}
+				return [index |
+					var Object result = Boolean.FALSE
+					for (operand : operands) {
+						val value = operand.apply(index)
+						if (value == Boolean.TRUE) {
+							return Boolean.TRUE
+						}
+						if (value != Boolean.FALSE) {
+							result = null // Unknown, unless another operand is true
+						}
+					}
+					return result
+				]
+			}
+			ImplyExpression: {
+				val lhs = expression.leftOperand.compile
+				val rhs = expression.rightOperand.compile
+				if (lhs === null || rhs === null) {
+					return null
+				}
+				return [
+					val lhsValue = lhs.apply(it)
+					val rhsValue = rhs.apply(it)
+					if (lhsValue == Boolean.FALSE || rhsValue == Boolean.TRUE) {
+						return Boolean.TRUE
+					}
+					if (lhsValue == Boolean.TRUE && rhsValue == Boolean.FALSE) {
+						return Boolean.FALSE
+					}
+					return null
+				]
+			}
+			EqualityExpression: {
+				return expression.compile[lhs, rhs | lhs == rhs]
+			}
+			InequalityExpression: {
+				return expression.compile[lhs, rhs | lhs != rhs]
+			}
+			LessExpression: {
+				return expression.compile[lhs, rhs | lhs.compareIntegers(rhs)[it < 0]]
+			}
+			LessEqualExpression: {
+				return expression.compile[lhs, rhs | lhs.compareIntegers(rhs)[it <= 0]]
+			}
+			GreaterExpression: {
+				return expression.compile[lhs, rhs | lhs.compareIntegers(rhs)[it > 0]]
+			}
+			GreaterEqualExpression: {
+				return expression.compile[lhs, rhs | lhs.compareIntegers(rhs)[it >= 0]]
+			}
+			ComponentInstanceStateReferenceExpression: {
+				return [it.getValue(expression)]
+			}
+			ComponentInstanceVariableReferenceExpression: {
+				return [it.getValue(expression)]
+			}
+			ComponentInstanceEventReferenceExpression: {
+				return [it.getValue(expression)]
+			}
+			ComponentInstanceEventParameterReferenceExpression: {
+				return [it.getValue(expression)]
+			}
+			default:
+				return null
+		}
+	}
+	
+	protected def Function<StepIndex, Object> compile(BinaryExpression expression,
+			(Object, Object) => Object comparison) {
+		val lhs = expression.leftOperand.compile
+		val rhs = expression.rightOperand.compile
+		if (lhs === null || rhs === null) {
+			return null
+		}
+		return [
+			val lhsValue = lhs.apply(it)
+			val rhsValue = rhs.apply(it)
+			if (lhsValue === null || rhsValue === null || lhsValue.class != rhsValue.class) {
+				return null // Unknown, e.g., the parameter of a not raised event compared to an integer
+			}
+			return comparison.apply(lhsValue, rhsValue)
+		]
+	}
+	
+	protected def Boolean compareIntegers(Object lhs, Object rhs, (Integer) => boolean comparison) {
+		if (lhs instanceof BigInteger && rhs instanceof BigInteger) {
+			return comparison.apply((lhs as BigInteger).compareTo(rhs as BigInteger))
+		}
+		return null // Unknown
+	}
+	
+	protected def Object evaluateConstant(Expression expression) {
+		if (expression === null) {
+			return null
+		}
+		val booleanValue = expressionEvaluator.tryEvaluateBoolean(expression)
+		if (booleanValue.present) {
+			return booleanValue.get
+		}
+		return expressionEvaluator.tryEvaluateBigInteger(expression).orElse(null)
+	}
+	
+	// Evaluation of references in indexed steps
+	
+	protected def getValue(StepIndex step, ComponentInstanceStateReferenceExpression expression) {
+		val instance = expression.instance
+		val state = expression.state
+		
+		for (stateConfiguration : step.getStateConfigurations(state.name)) {
+			val stateInstance = stateConfiguration.instance.lastInstance // Only one expected
+			val stateVariable = stateConfiguration.state
+			
+			if (instance.isContained(stateInstance) && state.isEqual(stateVariable)) {
+				return Boolean.TRUE
+			}
+		}
+		return Boolean.FALSE
+	}
+	
+	protected def getValue(StepIndex step, ComponentInstanceVariableReferenceExpression expression) {
+		val instance = expression.instance
+		val variable = expression.variableDeclaration
+		
+		for (variableReference : step.getVariableStates(variable.name)) {
+			val stateInstance = variableReference.instance.lastInstance // Only one expected
+			val stateVariable = variableReference.variableDeclaration
+			
+			if (instance.isContained(stateInstance) && variable.isEqual(stateVariable)) {
+				val value = variableReference.otherOperandIfContainedByEquality
+				return value.evaluateConstant // Unknown if null
+			}
+		}
+		// Same handling as in the case of cloned formulas
+		val isTransient = variable.transient
+		val isResettable = variable.resettable
+		if (isTransient || isResettable) {
+			logger.log(Level.WARNING, ('''Not found variable for transient («isTransient») or ''' +
+					'''resettable («isResettable») variable: «variable.name»'''))
+			return variable.defaultExpression.evaluateConstant
+		}
+		throw new IllegalStateException('''Not found variable: «variable.name»''')
+	}
+	
+	protected def getValue(StepIndex step, ComponentInstanceEventReferenceExpression expression) {
+		val topComponentPort = expression.port.boundTopComponentPort
+		val event = expression.event
+		
+		for (raiseEventAct : step.getOutEvents(event.name)) {
+			if (topComponentPort.isEqual(raiseEventAct.port) && event.isEqual(raiseEventAct.event)) {
+				return Boolean.TRUE
+			}
+		}
+		return Boolean.FALSE
+	}
+	
+	protected def getValue(StepIndex step, ComponentInstanceEventParameterReferenceExpression expression) {
+		val topComponentPort = expression.port.boundTopComponentPort
+		val event = expression.event
+		val parameterIndex = expression.parameterDeclaration.index
+		
+		for (raiseEventAct : step.getOutEvents(event.name)) {
+			if (topComponentPort.isEqual(raiseEventAct.port) && event.isEqual(raiseEventAct.event)) {
+				return raiseEventAct.arguments.get(parameterIndex).evaluateConstant
+			}
+		}
+		for (eventParameterReference : step.getEventParameterReferences(event.name)) {
+			if (topComponentPort.isEqual(eventParameterReference.port) &&
+					event.isEqual(eventParameterReference.event)) {
+				val value = eventParameterReference.otherOperandIfContainedByEquality
+				return value.evaluateConstant // Unknown if null
+			}
+		}
+		return null // Unknown, as the event has not been raised
+	}
+	
+	// Memoized (and synchronized, as they are not necessarily thread-safe) comparisons
+	
+	protected def boolean isEqual(EObject lhs, EObject rhs) {
+		return equalities.memoize(lhs -> rhs)[lhs.helperEquals(rhs)]
+	}
+	
+	protected def boolean isContained(ComponentInstanceReferenceExpression original, ComponentInstance copy) {
+		return containments.memoize(original -> copy)[traceability.contains(original, copy)]
+	}
+	
+	protected def boolean memoize(Map<Pair<?, ?>, Boolean> memo, Pair<?, ?> key, () => boolean function) {
+		val value = memo.get(key)
+		if (value !== null) {
+			return value
+		}
+		synchronized (memo) {
+			return memo.computeIfAbsent(key, [function.apply])
+		}
+	}
+	
+	/**
+	 * Elements of a step indexed by the names of the states, variables and events. Candidates with the
+	 * same name are still compared with the memoized structural equality.
+	 */
+	static class StepIndex {
+		
+		final Map<String, List<ComponentInstanceStateReferenceExpression>> stateConfigurations
+		final Map<String, List<ComponentInstanceVariableReferenceExpression>> variableStates
+		final Map<String, List<RaiseEventAct>> outEvents
+		final Map<String, List<EventParameterReferenceExpression>> eventParameterReferences
+		
+		new(Step step) {
+			stateConfigurations = step.instanceStateConfigurations.groupBy[it.state.name]
+			variableStates = step.instanceVariableStates.groupBy[it.variableDeclaration.name]
+			outEvents = step.outEvents.groupBy[it.event.name]
+			eventParameterReferences = step.eventParameterReferences.groupBy[it.event.name]
+		}
+		
+		def getStateConfigurations(String stateName) {
+			return stateConfigurations.getOrDefault(stateName, #[])
+		}
+		
+		def getVariableStates(String variableName) {
+			return variableStates.getOrDefault(variableName, #[])
+		}
+		
+		def getOutEvents(String eventName) {
+			return outEvents.getOrDefault(eventName, #[])
+		}
+		
+		def getEventParameterReferences(String eventName) {
+			return eventParameterReferences.getOrDefault(eventName, #[])
+		}
+		
+	}
+	
+	// Evaluation of references by cloning (for not compilable formulas)
+	
 	protected def dispatch evaluate(ComponentInstanceEventParameterReferenceExpression expression, Step step) {
 		val topComponentPort = expression.port.boundTopComponentPort
 		val event = expression.event
@@ -215,13 +215,10 @@ class SystemReducer implements Reducer {
 		val transitions = statecharts.map[it.transitions].flatten.reject[it.guard === null]
 		val falseGuardedTransitions = newArrayList
 		for (transition : transitions) {
-			try {
-				val guard = transition.guard
-				if (guard.definitelyFalseExpression) {
-					falseGuardedTransitions += transition
-				}
-			} catch (IllegalArgumentException e) {
-				// The guard contains a variable reference
+			val guard = transition.guard
+			// Guards containing variable references are not evaluable, i.e., not definitely false
+			if (guard.definitelyFalseExpression) {
+				falseGuardedTransitions += transition
 			}
 		}
 		return falseGuardedTransitions
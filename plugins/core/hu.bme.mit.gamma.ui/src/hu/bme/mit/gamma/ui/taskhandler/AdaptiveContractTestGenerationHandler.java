@@ -184,10 +184,8 @@ public class AdaptiveContractTestGenerationHandler extends TaskHandler {
 		fileUtil.forceDelete(temporaryTraceFolder);
 
 		// Serializing traces
-		for (ExecutionTrace testTrace : testsTraces) {
-			serializer.serialize(targetFolderUri, traceFileName,
-					testFolderUri, testFileName, packageName, testTrace);
-		}
+		serializer.serialize(targetFolderUri, traceFileName, null,
+				testFolderUri, testFileName, packageName, testsTraces, false);
 	}
 
 	// Load traces
@@ -119,6 +119,9 @@ public class AnalysisModelTransformationHandler extends TaskHandler {
 				case PROMELA:
 					transformer = new Gamma2XstsPromelaTransformer();
 					break;
+				case XSTS_EXPLICIT:
+					transformer = new Gamma2XstsTransformer();
+					break;
 				default:
 					throw new IllegalArgumentException("Only UPPAAL and Theta are supported");
 			}
@@ -149,6 +152,8 @@ public class AnalysisModelTransformationHandler extends TaskHandler {
 			return fileNamer.getXmlUppaalFileName(plainFileName);
 		case PROMELA:
 			return fileNamer.getPmlPromelaFileName(plainFileName);
+		case XSTS_EXPLICIT:
+			return fileNamer.getEmfXStsFileName(plainFileName);
 		default:
 			throw new IllegalArgumentException("Not known language " + analysisLanguage);
 		}
@@ -12,6 +12,8 @@ package hu.bme.mit.gamma.ui.taskhandler;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.File;
+import java.util.List;
 import java.util.logging.Level;
 
 import org.eclipse.core.resources.IFile;
@@ -20,8 +22,10 @@ import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 
+import hu.bme.mit.gamma.codegeneration.java.BenchmarkCodeGenerator;
 import hu.bme.mit.gamma.codegeneration.java.GlueCodeGenerator;
 import hu.bme.mit.gamma.genmodel.model.CodeGeneration;
+import hu.bme.mit.gamma.genmodel.model.GenModel;
 import hu.bme.mit.gamma.genmodel.model.ProgrammingLanguage;
 import hu.bme.mit.gamma.statechart.composite.ComponentInstance;
 import hu.bme.mit.gamma.statechart.composite.CompositeComponent;
@@ -29,6 +33,7 @@ import hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeature
 import hu.bme.mit.gamma.statechart.interface_.Component;
 import hu.bme.mit.gamma.statechart.lowlevel.transformation.commandhandler.CommandHandler;
 import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
 
 public class CodeGenerationHandler extends TaskHandler {
 
@@ -66,6 +71,27 @@ public class CodeGenerationHandler extends TaskHandler {
 			generator.execute();
 			generator.dispose();
 		}
+		if (codeGeneration.isBenchmark()) {
+			generateBenchmark(codeGeneration, component);
+		}
+	}
+	
+	private void generateBenchmark(CodeGeneration codeGeneration, Component component) {
+		GenModel genmodel = ecoreUtil.getContainerOfType(codeGeneration, GenModel.class);
+		// Traces of other components are filtered by the generator
+		List<ExecutionTrace> traces = (genmodel == null) ? List.of() : genmodel.getTraceImports();
+		BenchmarkCodeGenerator generator = new BenchmarkCodeGenerator(
+				codeGeneration.getPackageName().get(0), component, traces);
+		// The benchmark module is a sibling of the target folder, as it needs JMH on its class path
+		File targetFolder = new File(targetFolderUri);
+		File benchmarkFolder = new File(targetFolder.getParentFile(), BenchmarkCodeGenerator.PACKAGE_POSTFIX);
+		fileUtil.saveString(new File(benchmarkFolder, "pom.xml"),
+				generator.createPom("../" + targetFolder.getName()).toString());
+		File sourceFolder = new File(benchmarkFolder, "src" + File.separator + "main" + File.separator + "java" +
+				File.separator + generator.getPackageName().replace(".", File.separator));
+		fileUtil.saveString(new File(sourceFolder, generator.getClassName() + ".java"),
+				generator.createBenchmarkClass().toString());
+		logger.log(Level.INFO, "Generated the benchmark module in " + benchmarkFolder.getAbsolutePath());
 	}
 	
 	private void setCodeGeneration(CodeGeneration codeGeneration, String packageName) {
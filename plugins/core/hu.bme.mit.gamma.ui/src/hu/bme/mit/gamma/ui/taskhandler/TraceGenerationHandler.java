@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.eclipse.core.resources.IFile;
@@ -87,10 +88,7 @@ public class TraceGenerationHandler extends TaskHandler {
 		retrievedTraces = ttg.execute(modelFile, fullTraces, variableList, noTransitionCoverage, useAbstraction);
 		logger.log(Level.INFO, "Number of received traces: "+retrievedTraces.size());
 
-		for (ExecutionTrace trace : retrievedTraces) {
-			serializer.serialize(targetFolder.getAbsolutePath(), traceFileName, svgFileName,
-					testFolderUri, testFileName, "", trace);
-		}
+		serializer.serialize(targetFolder.getAbsolutePath(), traceFileName, retrievedTraces);
 		traces.addAll(retrievedTraces);
 		System.err.println(traces.size());
 	}
@@ -155,6 +153,18 @@ public class TraceGenerationHandler extends TaskHandler {
 			serializer.saveModel(trace, traceFolderUri, fileName);
 		}
 		
+		public void serialize(String traceFolderUri, String traceFileName,
+				List<? extends ExecutionTrace> traces) throws IOException {
+			// Single scan of the trace folder
+			AtomicInteger idAllocator = fileUtil.getFileIdAllocator(new File(traceFolderUri),
+					traceFileName, GammaFileNamer.EXECUTION_XTEXT_EXTENSION);
+			for (ExecutionTrace trace : traces) {
+				String fileName = traceFileName + idAllocator.getAndIncrement() + "." +
+						GammaFileNamer.EXECUTION_XTEXT_EXTENSION;
+				serializer.saveModel(trace, traceFolderUri, fileName);
+			}
+		}
+		
 		@SuppressWarnings("unused")
 		public static class VerificationResult {
 			
@@ -16,6 +16,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -24,13 +26,20 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
 import com.google.common.base.Stopwatch;
 import com.google.gson.Gson;
@@ -54,6 +63,8 @@ import hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeature
 import hu.bme.mit.gamma.statechart.interface_.Component;
 import hu.bme.mit.gamma.theta.verification.ThetaVerification;
 import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.trace.util.CompactTraceStore;
+import hu.bme.mit.gamma.trace.testgeneration.java.PrefixTreeTestGenerator;
 import hu.bme.mit.gamma.trace.testgeneration.java.TestGenerator;
 import hu.bme.mit.gamma.trace.util.TraceUtil;
 import hu.bme.mit.gamma.transformation.util.GammaFileNamer;
@@ -61,17 +72,23 @@ import hu.bme.mit.gamma.transformation.util.StatechartEcoreUtil;
 import hu.bme.mit.gamma.transformation.util.UnfoldedExecutionTraceBackAnnotator;
 import hu.bme.mit.gamma.transformation.util.reducer.CoveredPropertyReducer;
 import hu.bme.mit.gamma.ui.taskhandler.VerificationHandler.ExecutionTraceSerializer.VerificationResult;
+import hu.bme.mit.gamma.uppaal.verification.AbstractUppaalVerification;
 import hu.bme.mit.gamma.uppaal.verification.UppaalVerification;
 import hu.bme.mit.gamma.uppaal.verification.XstsUppaalVerification;
 import hu.bme.mit.gamma.util.FileUtil;
+import hu.bme.mit.gamma.util.PhaseRecorder;
+import hu.bme.mit.gamma.util.PhaseRecorder.Phase;
 import hu.bme.mit.gamma.verification.result.ThreeStateBoolean;
 import hu.bme.mit.gamma.verification.util.AbstractVerification;
 import hu.bme.mit.gamma.verification.util.AbstractVerifier.Result;
+import hu.bme.mit.gamma.xsts.explicit.verification.ExplicitStateVerification;
+import hu.bme.mit.gamma.xsts.explicit.verification.ExplicitStateVerifier;
 
 public class VerificationHandler extends TaskHandler {
 
 	protected boolean serializeTraces; // Denotes whether traces are serialized
 	protected boolean serializeTest; // Denotes whether test code is generated
+	protected boolean prefixTreeTest; // Denotes whether a single test class sharing the trace prefixes is generated
 	protected String testFolderUri;
 	// targetFolderUri is traceFolderUri 
 	protected String packageName; // Set in setVerification
@@ -85,7 +102,8 @@ public class VerificationHandler extends TaskHandler {
 	
 	//
 	
-	protected final List<ExecutionTrace> traces = new ArrayList<ExecutionTrace>();
+	// Traces are stored in a compact form and are materialized only for serialization
+	protected final CompactTraceStore traces = new CompactTraceStore();
 	
 	//
 	
@@ -93,6 +111,7 @@ public class VerificationHandler extends TaskHandler {
 	protected final PropertyUtil propertyUtil = PropertyUtil.INSTANCE;
 	protected final StatechartEcoreUtil statechartEcoreUtil = StatechartEcoreUtil.INSTANCE;
 	protected final ExecutionTraceSerializer serializer = ExecutionTraceSerializer.INSTANCE;
+	protected final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE;
 	
 	//
 	
@@ -140,6 +159,11 @@ public class VerificationHandler extends TaskHandler {
 					verificationTask = PromelaVerification.INSTANCE;
 					propertySerializer = PromelaPropertySerializer.INSTANCE;
 					break;
+				case XSTS_EXPLICIT:
+					verificationTask = ExplicitStateVerification.INSTANCE;
+					propertySerializer = ThetaPropertySerializer.INSTANCE;
+					distinguishStringFormulas = true;
+					break;
 				default:
 					throw new IllegalArgumentException("Currently only UPPAAL and Theta are supported");
 			}
@@ -148,6 +172,10 @@ public class VerificationHandler extends TaskHandler {
 		String[] arguments = verificationArguments.isEmpty() ?
 				verificationTask.getDefaultArguments() :
 					verificationArguments.toArray(new String[verificationArguments.size()]);
+		// Portfolios of verifyta processes check the queries one by one,
+		// so the times are measured for each query
+		boolean splitUppaalFormulas = verificationTask instanceof AbstractUppaalVerification &&
+				arguments.length > 1;
 		
 		String filePath = verification.getFileName().get(0);
 		File modelFile = new File(filePath);
@@ -155,7 +183,7 @@ public class VerificationHandler extends TaskHandler {
 		
 		// Retrieved traces
 		List<VerificationResult> retrievedVerificationResults = new ArrayList<VerificationResult>();
-		List<ExecutionTrace> retrievedTraces = new ArrayList<ExecutionTrace>();
+		CompactTraceStore retrievedTraces = new CompactTraceStore();
 		
 		// Map for collecting both supported property representations
 		Map<String, StateFormula> formulas = new LinkedHashMap<String, StateFormula>();
@@ -190,6 +218,15 @@ public class VerificationHandler extends TaskHandler {
 					formulas.put(line, null);
 				}
 			}
+			else if (splitUppaalFormulas) {
+				String[] lines = formulaFileString.split("\\R");
+				for (String line : lines) {
+					String query = line.trim();
+					if (!query.isEmpty() && !query.startsWith("//")) { // Empty and comment lines are not queries
+						formulas.put(query, null);
+					}
+				}
+			}
 			else {
 				// UPPAAL would benefit from the merging of all query files into one string
 				formulas.put(formulaFileString, null);
@@ -218,6 +255,7 @@ public class VerificationHandler extends TaskHandler {
 			queryFile.deleteOnExit();
 			
 			Stopwatch stopwatch = Stopwatch.createStarted();
+			Phase verificationPhase = phaseRecorder.start("verification");
 			
 			Result result = execute(verificationTask, modelFile, queryFile, arguments,
 					retrievedTraces, isOptimize);
@@ -225,6 +263,10 @@ public class VerificationHandler extends TaskHandler {
 			ThreeStateBoolean verificationResult = result.getResult();
 			
 			stopwatch.stop();
+			verificationPhase.put("backend", verificationTask.getClass().getSimpleName())
+				.put("query", serializedFormula)
+				.put("result", String.valueOf(verificationResult))
+				.end();
 			
 			// Adding comment to connect the trace with the property
 			if (trace != null) {
@@ -243,16 +285,24 @@ public class VerificationHandler extends TaskHandler {
 			if (isOptimize) {
 				removeCoveredProperties(trace, formulaQueue);
 			}
+			// Storing the trace (and releasing its steps) only after it has been processed
+			if (trace != null && !trace.getSteps().isEmpty()) {
+				retrievedTraces.add(trace);
+			}
+		}
+		if (verificationTask instanceof ExplicitStateVerification) {
+			// The explored state spaces are reused only by the queries of this task
+			ExplicitStateVerifier.clearExplorers();
 		}
 		if (isOptimize) {
 			// Optimization again on the retrieved tests (front to back and vice versa)
-			traceUtil.removeCoveredExecutionTraces(retrievedTraces);
+			retrievedTraces.removeCoveredTraces();
 		}
 		
 		// Back-annotating
 		if (verification.isBackAnnotateToOriginal()) {
-			List<ExecutionTrace> backAnnotatedTraces = new ArrayList<ExecutionTrace>();
-			for (ExecutionTrace trace : retrievedTraces) {
+			CompactTraceStore backAnnotatedTraces = new CompactTraceStore();
+			for (ExecutionTrace trace : retrievedTraces.asList()) { // Materializing the traces one by one
 				Component newComponent = trace.getComponent();
 				Component originalComponent = statechartEcoreUtil.loadAndReplaceToOriginalComponent(newComponent);
 				UnfoldedExecutionTraceBackAnnotator backAnnotator =
@@ -260,25 +310,25 @@ public class VerificationHandler extends TaskHandler {
 				ExecutionTrace orignalTrace = backAnnotator.execute();
 				backAnnotatedTraces.add(orignalTrace);
 			}
-			retrievedTraces.clear();
-			retrievedTraces.addAll(backAnnotatedTraces);
+			retrievedTraces = backAnnotatedTraces;
 		}
 		
 		traces.addAll(retrievedTraces);
 		if (serializeTraces) { // After 'traces.add...'
-			serializeTraces();
+			serializeTraces(true); // SVGs are rendered while the results are serialized
 		}
 		
 		// Note that .get and .json postfix ids will not match if optimization is applied
 		for (VerificationResult verificationResult : retrievedVerificationResults) {
 			serializer.serialize(targetFolderUri, traceFileName, verificationResult);
 		}
+		serializer.awaitDeferredSvgs();
 	}
 	
 	//
 	
 	private void removeCoveredProperties(Queue<Entry<String, StateFormula>> formulaQueue) {
-		removeCoveredProperties(traces, formulaQueue);
+		removeCoveredProperties(traces.asList(), formulaQueue);
 	}
 	
 	private void removeCoveredProperties(Collection<? extends ExecutionTrace> traces,
@@ -309,13 +359,13 @@ public class VerificationHandler extends TaskHandler {
 	//
 	
 	protected Result execute(AbstractVerification verificationTask, File modelFile,
-			File queryFile, List<ExecutionTrace> retrievedTraces, boolean isOptimize) throws InterruptedException {
+			File queryFile, CompactTraceStore retrievedTraces, boolean isOptimize) throws InterruptedException {
 		return this.execute(verificationTask, modelFile, queryFile,
 				new String[0], retrievedTraces, isOptimize);
 	}
 	
 	protected Result execute(AbstractVerification verificationTask, File modelFile, File queryFile,
-			String[] arguments, List<ExecutionTrace> retrievedTraces, boolean isOptimize) throws InterruptedException {
+			String[] arguments, CompactTraceStore retrievedTraces, boolean isOptimize) throws InterruptedException {
 		// If arguments are empty, we execute a task with default arguments
 		Result result = (arguments.length == 0) ? verificationTask.execute(modelFile, queryFile) :
 			verificationTask.execute(modelFile, queryFile, arguments);
@@ -325,7 +375,7 @@ public class VerificationHandler extends TaskHandler {
 		if (trace != null) {
 			if (isOptimize) {
 				logger.log(Level.INFO, "Checking if trace is already covered by previous traces...");
-				if (traceUtil.isCovered(trace, retrievedTraces)) {
+				if (retrievedTraces.isCovered(trace)) {
 					logger.log(Level.INFO, "Trace is already covered");
 					return new Result(result.getResult(), null);
 					// We do not return a trace as it is already covered
@@ -333,9 +383,7 @@ public class VerificationHandler extends TaskHandler {
 				// Checking individual trace
 				traceUtil.removeCoveredSteps(trace);
 			}
-			if (!trace.getSteps().isEmpty()) {
-				retrievedTraces.add(trace);
-			}
+			// Non-empty traces are stored by the caller
 		}
 		return result;
 	}
@@ -359,6 +407,7 @@ public class VerificationHandler extends TaskHandler {
 			// Setting the attribute, the test folder is a RELATIVE path now from the project
 			this.testFolderUri = URI.decode(projectLocation + File.separator + verification.getTestFolder().get(0));
 		}
+		this.prefixTreeTest = verification.isPrefixTreeTest();
 		Resource resource = verification.eResource();
 		File file = (resource != null) ?
 				ecoreUtil.getFile(resource).getParentFile() : // If Verification is contained in a resource
@@ -372,25 +421,35 @@ public class VerificationHandler extends TaskHandler {
 	//
 	
 	public List<ExecutionTrace> getTraces() {
-		return traces;
+		return traces.materialize();
 	}
 	
 	public void optimizeTraces() {
 		// Optimization again on the retrieved tests (front to back and vice versa)
-		traceUtil.removeCoveredExecutionTraces(traces);
+		traces.removeCoveredTraces();
 	}
 	
 	public void serializeTraces() throws IOException {
+		serializeTraces(false);
+	}
+	
+	protected void serializeTraces(boolean deferSvgs) throws IOException {
 		// Serializing
-		String testFolderUri = serializeTest ? this.testFolderUri : null;
-		String testFileName = serializeTest ? this.testFileName : null;
-		String packageName = serializeTest ? this.packageName : null;
-		for (ExecutionTrace trace : traces) {
-			serializer.serialize(targetFolderUri, traceFileName, svgFileName,
-					testFolderUri, testFileName, packageName, trace);
+		boolean serializeTraceTests = serializeTest && !prefixTreeTest; // Otherwise, a single test class
+		String testFolderUri = serializeTraceTests ? this.testFolderUri : null;
+		String testFileName = serializeTraceTests ? this.testFileName : null;
+		String packageName = serializeTraceTests ? this.packageName : null;
+		serializer.serialize(targetFolderUri, traceFileName, svgFileName,
+				testFolderUri, testFileName, packageName, traces.asList(), deferSvgs); // Materialized one by one
+		if (serializeTest && prefixTreeTest) {
+			serializePrefixTreeTest();
 		}
 	}
 	
+	protected void serializePrefixTreeTest() throws IOException {
+		serializer.serializePrefixTreeTest(testFolderUri, testFileName + "Suite", packageName, traces.materialize());
+	}
+	
 	//
 	
 	public static class ExecutionTraceSerializer {
@@ -401,6 +460,14 @@ public class VerificationHandler extends TaskHandler {
 		protected final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
 		protected final FileUtil fileUtil = FileUtil.INSTANCE;
 		protected final ModelSerializer serializer = ModelSerializer.INSTANCE;
+		// Bounded pool for rendering SVGs and generating tests
+		protected final ExecutorService executor = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors(), runnable -> {
+					Thread thread = new Thread(runnable, "Gamma trace serializer");
+					thread.setDaemon(true);
+					return thread;
+				});
+		protected final List<Future<?>> deferredSvgs = Collections.synchronizedList(new ArrayList<Future<?>>());
 		
 		public void serialize(String traceFolderUri, String traceFileName, ExecutionTrace trace) throws IOException {
 			this.serialize(traceFolderUri, traceFileName, null, null, null, trace);
@@ -423,25 +490,139 @@ public class VerificationHandler extends TaskHandler {
 			
 			// SVG
 			if (svgFileName != null) {
-				TraceToPlantUmlTransformer transformer = new TraceToPlantUmlTransformer(trace);
-				String plantUmlString = transformer.execute();
-				SvgSerializer serializer = SvgSerializer.INSTANCE;
-				String svg = serializer.serialize(plantUmlString);
-				String svgFileNameWithId = svgFileName + id;
-				fileUtil.saveString(traceFolderUri + File.separator + svgFileNameWithId + ".svg", svg);
+				serializeSvg(traceFolderUri, svgFileName, id, trace);
 			}
 			
 			// Test
-			boolean serializeTest = testFolderUri != null && testFileName != null && basePackage != null;
-			if (serializeTest) {
-				String className = testFileName + id;
+			if (isSerializeTest(testFolderUri, testFileName, basePackage)) {
+				serializeTest(testFolderUri, testFileName, basePackage, id, trace);
+			}
+		}
+		
+		/**
+		 * Serializes the given traces: the ids are allocated after a single scan of the trace folder,
+		 * the models are saved on the calling thread, whereas the SVGs and tests are rendered concurrently
+		 * on a bounded pool. Deferred SVGs are not waited for; they can be awaited using
+		 * {@link #awaitDeferredSvgs()}.
+		 */
+		public void serialize(String traceFolderUri, String traceFileName, String svgFileName,
+				String testFolderUri, String testFileName, String basePackage,
+				List<? extends ExecutionTrace> traces, boolean deferSvgs) throws IOException {
+			AtomicInteger idAllocator = fileUtil.getFileIdAllocator(new File(traceFolderUri),
+					traceFileName, GammaFileNamer.EXECUTION_XTEXT_EXTENSION);
+			boolean serializeTest = isSerializeTest(testFolderUri, testFileName, basePackage);
+			Set<ResourceSet> resolvedResourceSets = new HashSet<ResourceSet>();
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (ExecutionTrace trace : traces) {
+				int id = idAllocator.getAndIncrement();
+				// The models must not be modified by proxy resolution while they are read on other threads
+				resolveAll(trace, resolvedResourceSets);
+				
+				// Model
+				String fileName = traceFileName + id + "." + GammaFileNamer.EXECUTION_XTEXT_EXTENSION;
+				serializer.saveModel(trace, traceFolderUri, fileName);
+				
+				// SVG
+				if (svgFileName != null) {
+					Future<?> future = executor.submit(() -> {
+						serializeSvg(traceFolderUri, svgFileName, id, trace);
+						return null;
+					});
+					if (deferSvgs) {
+						deferredSvgs.add(future);
+					}
+					else {
+						futures.add(future);
+					}
+				}
 				
-				TestGenerator testGenerator = new TestGenerator(trace, basePackage, className);
-				String testCode = testGenerator.execute();
-				String packageUri = testGenerator.getPackageName().replaceAll("\\.", "/");
-				fileUtil.saveString(testFolderUri + File.separator + packageUri +
-					File.separator + className + ".java", testCode);
+				// Test
+				if (serializeTest) {
+					futures.add(executor.submit(() -> {
+						serializeTest(testFolderUri, testFileName, basePackage, id, trace);
+						return null;
+					}));
+				}
+			}
+			await(futures);
+		}
+		
+		public void awaitDeferredSvgs() throws IOException {
+			List<Future<?>> futures;
+			synchronized (deferredSvgs) {
+				futures = new ArrayList<Future<?>>(deferredSvgs);
+				deferredSvgs.clear();
+			}
+			await(futures);
+		}
+		
+		protected void serializeSvg(String traceFolderUri, String svgFileName,
+				int id, ExecutionTrace trace) throws IOException {
+			TraceToPlantUmlTransformer transformer = new TraceToPlantUmlTransformer(trace);
+			String plantUmlString = transformer.execute();
+			SvgSerializer serializer = SvgSerializer.INSTANCE;
+			String svg = serializer.serialize(plantUmlString);
+			String svgFileNameWithId = svgFileName + id;
+			fileUtil.saveString(traceFolderUri + File.separator + svgFileNameWithId + ".svg", svg);
+		}
+		
+		protected void serializeTest(String testFolderUri, String testFileName, String basePackage,
+				int id, ExecutionTrace trace) throws IOException {
+			String className = testFileName + id;
+			
+			TestGenerator testGenerator = new TestGenerator(trace, basePackage, className);
+			String testCode = testGenerator.execute();
+			String packageUri = testGenerator.getPackageName().replaceAll("\\.", "/");
+			fileUtil.saveString(testFolderUri + File.separator + packageUri +
+				File.separator + className + ".java", testCode);
+		}
+		
+		protected boolean isSerializeTest(String testFolderUri, String testFileName, String basePackage) {
+			return testFolderUri != null && testFileName != null && basePackage != null;
+		}
+		
+		protected void resolveAll(ExecutionTrace trace, Set<ResourceSet> resolvedResourceSets) {
+			EcoreUtil.resolveAll(trace);
+			Resource resource = trace.getComponent().eResource();
+			if (resource != null) {
+				ResourceSet resourceSet = resource.getResourceSet();
+				if (resourceSet != null && resolvedResourceSets.add(resourceSet)) {
+					EcoreUtil.resolveAll(resourceSet);
+				}
+			}
+		}
+		
+		protected void await(List<Future<?>> futures) throws IOException {
+			try {
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+		
+		/**
+		 * Serializes a single test class for the given traces (each being a separate test case),
+		 * in which the steps of the shared trace prefixes are executed only once.
+		 */
+		public void serializePrefixTreeTest(String testFolderUri, String testFileName,
+				String basePackage, List<ExecutionTrace> traces) throws IOException {
+			if (traces.isEmpty()) {
+				return;
 			}
+			PrefixTreeTestGenerator testGenerator = new PrefixTreeTestGenerator(traces, basePackage, testFileName);
+			String testCode = testGenerator.execute();
+			String packageUri = testGenerator.getPackageName().replaceAll("\\.", "/");
+			fileUtil.saveString(testFolderUri + File.separator + packageUri +
+				File.separator + testFileName + ".java", testCode);
 		}
 		
 		public void serialize(String resultFolderUri, String resultFileName,
@@ -0,0 +1,96 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.ui.util;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import hu.bme.mit.gamma.util.FileUtil;
+import hu.bme.mit.gamma.util.GammaEcoreUtil;
+import hu.bme.mit.gamma.util.PhaseRecorder;
+import hu.bme.mit.gamma.util.PhaseRecorder.Phase;
+
+/**
+ * Task hook saving the phases (e.g., unfolding, XSTS transformation, backend runs and back-annotation)
+ * recorded during the execution of a task into a JSON file next to the genmodel file.
+ * The file name is prefixed with the task name and the index of the task.
+ */
+public class TaskPhaseRecorder implements TaskHook {
+
+	private final String fileName;
+	private File targetFolder;
+	private String taskName;
+	private int taskIndex = 0;
+	private Phase iterationPhase;
+	private boolean active = false; // A failed task may not end its process
+
+	private final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE;
+	private final GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE;
+	private final FileUtil fileUtil = FileUtil.INSTANCE;
+
+	protected final Logger logger = Logger.getLogger("GammaLogger");
+
+	public TaskPhaseRecorder(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public int getIterationCount() {
+		return 1;
+	}
+
+	public void startTaskProcess(Object object) {
+		if (object instanceof EObject) {
+			EObject eObject = (EObject) object;
+			Resource resource = eObject.eResource();
+			File siblingFile = ecoreUtil.getFile(resource);
+			this.targetFolder = siblingFile.getParentFile();
+			this.taskName = eObject.eClass().getName();
+		}
+		else {
+			this.taskName = String.valueOf(object);
+		}
+		taskIndex++;
+		if (!active) {
+			phaseRecorder.activate();
+			active = true;
+		}
+		phaseRecorder.drain(); // Dropping the phases of a previous, failed task
+	}
+
+	public void startIteration() {
+		iterationPhase = phaseRecorder.start(taskName);
+	}
+
+	public void endIteration() {
+		iterationPhase.end();
+	}
+
+	public void endTaskProcess() {
+		List<Phase> phases = phaseRecorder.drain();
+		if (active) {
+			phaseRecorder.deactivate();
+			active = false;
+		}
+		if (targetFolder == null) {
+			logger.log(Level.INFO, phaseRecorder.toJson(phases));
+			return;
+		}
+		File targetFile = new File(targetFolder, taskIndex + "-" + taskName + "-" + fileName);
+		fileUtil.saveString(targetFile, phaseRecorder.toJson(phases));
+		logger.log(Level.INFO, "Saved the recorded phases in " + targetFile.getAbsolutePath());
+	}
+
+}
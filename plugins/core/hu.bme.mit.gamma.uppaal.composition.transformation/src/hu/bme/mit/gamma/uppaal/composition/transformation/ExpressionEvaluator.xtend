@@ -45,60 +45,98 @@ class ExpressionEvaluator {
 		this.engine = engine
 	}
 	
-	def evaluateToInt(Expression exp) {
-		try {
-			return exp.evaluate
-		} catch (IllegalArgumentException e) {
-			return exp.evaluateBoolean
+	def int evaluateToInt(Expression exp) {
+		val value = exp.tryEvaluate
+		if (value !== null) {
+			return value
 		}
+		val bool = exp.tryEvaluateBoolean
+		if (bool !== null) {
+			return if (bool) 1 else 0
+		}
+		throw new IllegalArgumentException("Not transformable expression: " + exp)
 	}
 	
-	def dispatch int evaluate(Expression exp) {
-		throw new IllegalArgumentException("Not transformable expression: " + exp)
+	def int evaluate(Expression exp) {
+		val value = exp.tryEvaluate
+		if (value === null) {
+			throw new IllegalArgumentException("Not transformable expression: " + exp)
+		}
+		return value
 	}
 	
-	def dispatch int evaluate(DirectReferenceExpression exp) {
+	def boolean evaluateBoolean(Expression exp) {
+		val value = exp.tryEvaluateBoolean
+		if (value === null) {
+			throw new IllegalArgumentException("Not transformable expression: " + exp)
+		}
+		return value
+	}
+	
+	// Exception-free evaluation: null if the expression cannot be evaluated
+	
+	def dispatch Integer tryEvaluate(Expression exp) {
+		return null
+	}
+	
+	def dispatch Integer tryEvaluate(DirectReferenceExpression exp) {
 		val declaration = exp.declaration
 		if (declaration instanceof ConstantDeclaration) {
-			return declaration.expression.evaluate
+			return declaration.expression.tryEvaluate
 		}
 		else if (declaration instanceof ParameterDeclaration) {
-			return declaration.parameterValue.evaluate
-		}
-		else {
-			throw new IllegalArgumentException("Not transformable expression: " + exp)
+			return declaration.parameterValue?.tryEvaluate
 		}
+		return null
 	}
 	
-	def dispatch int evaluate(AccessExpression exp) {
+	def dispatch Integer tryEvaluate(AccessExpression exp) {
 		//TODO
-		throw new IllegalArgumentException("Access expressions are not yet transformed" + exp)
+		return null // Access expressions are not yet transformed
 	}
 	
-	def dispatch int evaluate(IntegerLiteralExpression exp) {
+	def dispatch Integer tryEvaluate(IntegerLiteralExpression exp) {
 		return exp.value.intValue
 	}
 	
-	def dispatch int evaluate(EnumerationLiteralExpression exp) {
+	def dispatch Integer tryEvaluate(EnumerationLiteralExpression exp) {
 		val enum = exp.reference
 		val type = enum.eContainer as EnumerationTypeDefinition
 		return type.literals.indexOf(enum)
 	}
 	
-	def dispatch int evaluate(MultiplyExpression exp) {
-		return exp.operands.map[it.evaluate].reduce[p1, p2| p1 * p2]
+	def dispatch Integer tryEvaluate(MultiplyExpression exp) {
+		val values = exp.operands.map[it.tryEvaluate]
+		if (values.contains(null)) {
+			return null
+		}
+		return values.reduce[p1, p2| p1 * p2]
 	}
 	
-	def dispatch int evaluate(DivideExpression exp) {
-		return exp.leftOperand.evaluate / exp.rightOperand.evaluate
+	def dispatch Integer tryEvaluate(DivideExpression exp) {
+		val left = exp.leftOperand.tryEvaluate
+		val right = exp.rightOperand.tryEvaluate
+		if (left === null || right === null || right == 0) {
+			return null
+		}
+		return left / right
 	}
 	
-	def dispatch int evaluate(AddExpression exp) {
-		return exp.operands.map[it.evaluate].reduce[p1, p2| p1 + p2]
+	def dispatch Integer tryEvaluate(AddExpression exp) {
+		val values = exp.operands.map[it.tryEvaluate]
+		if (values.contains(null)) {
+			return null
+		}
+		return values.reduce[p1, p2| p1 + p2]
 	}
 	
-	def dispatch int evaluate(SubtractExpression exp) {
-		return exp.leftOperand.evaluate - exp.rightOperand.evaluate
+	def dispatch Integer tryEvaluate(SubtractExpression exp) {
+		val left = exp.leftOperand.tryEvaluate
+		val right = exp.rightOperand.tryEvaluate
+		if (left === null || right === null) {
+			return null
+		}
+		return left - right
 	}
 	
 	private def Expression getParameterValue(ParameterDeclaration parameter) {
@@ -110,74 +148,103 @@ class ExpressionEvaluator {
 		return expression
 	}
 	
-	def dispatch boolean evaluateBoolean(TrueExpression expression) {
+	def dispatch Boolean tryEvaluateBoolean(Expression expression) {
+		return null
+	}
+	
+	def dispatch Boolean tryEvaluateBoolean(TrueExpression expression) {
 		return true
 	}
 	
-	def dispatch boolean evaluateBoolean(FalseExpression expression) {
+	def dispatch Boolean tryEvaluateBoolean(FalseExpression expression) {
 		return false
 	}
 	
-	def dispatch boolean evaluateBoolean(AndExpression expression) {
+	def dispatch Boolean tryEvaluateBoolean(AndExpression expression) {
+		var isEvaluable = true
 		for (subExpression : expression.operands) {
-			if (!subExpression.evaluateBoolean) {
+			val value = subExpression.tryEvaluateBoolean
+			if (value === null) {
+				isEvaluable = false
+			}
+			else if (!value) {
 				return false
 			}
 		}
-		return true
+		return if (isEvaluable) true else null
 	}
 	
-	def dispatch boolean evaluateBoolean(OrExpression expression) {
+	def dispatch Boolean tryEvaluateBoolean(OrExpression expression) {
+		var isEvaluable = true
 		for (subExpression : expression.operands) {
-			if (subExpression.evaluateBoolean) {
+			val value = subExpression.tryEvaluateBoolean
+			if (value === null) {
+				isEvaluable = false
+			}
+			else if (value) {
 				return true
 			}
 		}
-		return false
+		return if (isEvaluable) false else null
 	}
 	
-	def dispatch boolean evaluateBoolean(XorExpression expression) {
+	def dispatch Boolean tryEvaluateBoolean(XorExpression expression) {
 		var positiveCount = 0
 		for (subExpression : expression.operands) {
-			if (subExpression.evaluateBoolean) {
+			val value = subExpression.tryEvaluateBoolean
+			if (value === null) {
+				return null
+			}
+			if (value) {
 				positiveCount++
 			}
 		}
 		return positiveCount % 2 == 1
 	}
 	
-	def dispatch boolean evaluateBoolean(ImplyExpression expression) {
-		return !expression.leftOperand.evaluateBoolean || expression.rightOperand.evaluateBoolean
+	def dispatch Boolean tryEvaluateBoolean(ImplyExpression expression) {
+		val left = expression.leftOperand.tryEvaluateBoolean
+		if (left == Boolean.FALSE) {
+			return true
+		}
+		val right = expression.rightOperand.tryEvaluateBoolean
+		if (left === null || right === null) {
+			return if (right == Boolean.TRUE) true else null
+		}
+		return right
 	}
 	
-	def dispatch boolean evaluateBoolean(NotExpression expression) {
-		return !expression.operand.evaluateBoolean
+	def dispatch Boolean tryEvaluateBoolean(NotExpression expression) {
+		val value = expression.operand.tryEvaluateBoolean
+		return if (value === null) null else !value
 	}
 	
-	def dispatch boolean evaluateBoolean(EqualityExpression expression) {
-		return expression.leftOperand.evaluateBoolean == expression.rightOperand.evaluateBoolean
+	def dispatch Boolean tryEvaluateBoolean(EqualityExpression expression) {
+		val left = expression.leftOperand.tryEvaluateBoolean
+		val right = expression.rightOperand.tryEvaluateBoolean
+		return if (left === null || right === null) null else left == right
 	}
 	
-	def dispatch boolean evaluateBoolean(InequalityExpression expression) {
-		return expression.leftOperand.evaluateBoolean != expression.rightOperand.evaluateBoolean
+	def dispatch Boolean tryEvaluateBoolean(InequalityExpression expression) {
+		val left = expression.leftOperand.tryEvaluateBoolean
+		val right = expression.rightOperand.tryEvaluateBoolean
+		return if (left === null || right === null) null else left != right
 	}
 	
-	def dispatch boolean evaluateBoolean(DirectReferenceExpression exp) {
+	def dispatch Boolean tryEvaluateBoolean(DirectReferenceExpression exp) {
 		val declaration = exp.declaration
 		if (declaration instanceof ConstantDeclaration) {
-			return declaration.expression.evaluateBoolean
+			return declaration.expression.tryEvaluateBoolean
 		}
 		else if (declaration instanceof ParameterDeclaration) {
-			return declaration.parameterValue.evaluateBoolean
-		}
-		else {
-			throw new IllegalArgumentException("Not transformable expression: " + exp)
+			return declaration.parameterValue?.tryEvaluateBoolean
 		}
+		return null
 	}
 	
-	def dispatch boolean evaluateBoolean(AccessExpression exp) {
+	def dispatch Boolean tryEvaluateBoolean(AccessExpression exp) {
 		//TODO
-		throw new IllegalArgumentException("Access expressions are not yet transformed" + exp)
+		return null // Access expressions are not yet transformed
 	}
 	
 }
@@ -41,7 +41,6 @@ import hu.bme.mit.gamma.uppaal.util.MultiaryExpressionCreator
 import hu.bme.mit.gamma.uppaal.util.NtaBuilder
 import java.util.Collection
 import java.util.List
-import java.util.NoSuchElementException
 import java.util.Optional
 import java.util.logging.Level
 import java.util.logging.Logger
@@ -265,14 +264,12 @@ class OrchestratorCreator {
 	 * Returns the maximum timeout value (specified as an integer literal) in the model.
 	 */
 	private def getMaxTimeout() {
-		try {
-			val maxValue = TimeoutValues.Matcher.on(engine).allValuesOftimeSpec
-				.map[it.convertToMs.evaluate]
-				.max
-			return maxValue
-		} catch (NoSuchElementException e) {
+		val values = TimeoutValues.Matcher.on(engine).allValuesOftimeSpec
+			.map[it.convertToMs.evaluate]
+		if (values.empty) {
 			return null
 		}
+		return values.max
 	}
 	
 	/**
@@ -0,0 +1,111 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.uppaal.util
+
+import hu.bme.mit.gamma.util.GammaEcoreUtil
+import java.util.Map
+import java.util.Set
+import uppaal.templates.Edge
+import uppaal.templates.Location
+import uppaal.templates.Template
+
+/**
+ * Adjacency index of the locations of a template, i.e., an alternative of
+ * UppaalModelDerivedFeatures.getIncomingEdges and getOutgoingEdges that does not traverse every
+ * edge of the template. The index is kept up-to-date if edges are rewired or removed via this class.
+ */
+class EdgeIndex {
+	
+	protected final Template template
+	protected final Map<Location, Set<Edge>> outgoingEdges = newHashMap
+	protected final Map<Location, Set<Edge>> incomingEdges = newHashMap
+	//
+	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
+	
+	new(Template template) {
+		this.template = template
+		for (edge : template.edge) {
+			edge.register
+		}
+	}
+	
+	// Queries
+	
+	def getTemplate() {
+		return template
+	}
+	
+	/**
+	 * Returns a copy, so the result can be modified and the edges can be rewired while iterating.
+	 */
+	def getOutgoingEdges(Location location) {
+		return newArrayList(outgoingEdges.get(location) ?: emptySet)
+	}
+	
+	def getIncomingEdges(Location location) {
+		return newArrayList(incomingEdges.get(location) ?: emptySet)
+	}
+	
+	def getOutgoingEdgeCount(Location location) {
+		return (outgoingEdges.get(location) ?: emptySet).size
+	}
+	
+	def getIncomingEdgeCount(Location location) {
+		return (incomingEdges.get(location) ?: emptySet).size
+	}
+	
+	def contains(Edge edge) {
+		return (outgoingEdges.get(edge.source) ?: emptySet).contains(edge)
+	}
+	
+	// Updates
+	
+	def void setSource(Edge edge, Location source) {
+		outgoingEdges.get(edge.source)?.remove(edge)
+		edge.source = source
+		outgoingEdges.computeIfAbsent(source, [newLinkedHashSet]) += edge
+	}
+	
+	def void setTarget(Edge edge, Location target) {
+		incomingEdges.get(edge.target)?.remove(edge)
+		edge.target = target
+		incomingEdges.computeIfAbsent(target, [newLinkedHashSet]) += edge
+	}
+	
+	def void removeEdge(Edge edge) {
+		outgoingEdges.get(edge.source)?.remove(edge)
+		incomingEdges.get(edge.target)?.remove(edge)
+		edge.remove // Delete does not work due to unsupported basicGetTypeDefinition
+	}
+	
+	/**
+	 * Removes the location together with its incoming and outgoing edges.
+	 */
+	def void removeLocation(Location location) {
+		for (edge : location.outgoingEdges) {
+			edge.removeEdge
+		}
+		for (edge : location.incomingEdges) {
+			edge.removeEdge
+		}
+		outgoingEdges.remove(location)
+		incomingEdges.remove(location)
+		location.remove
+	}
+	
+	//
+	
+	protected def void register(Edge edge) {
+		outgoingEdges.computeIfAbsent(edge.source, [newLinkedHashSet]) += edge
+		incomingEdges.computeIfAbsent(edge.target, [newLinkedHashSet]) += edge
+	}
+	
+}
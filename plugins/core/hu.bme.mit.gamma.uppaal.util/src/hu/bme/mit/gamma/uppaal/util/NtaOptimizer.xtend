@@ -11,11 +11,16 @@
 package hu.bme.mit.gamma.uppaal.util
 
 import hu.bme.mit.gamma.util.GammaEcoreUtil
+import java.util.AbstractMap.SimpleEntry
+import java.util.Collection
+import java.util.Map
+import java.util.Map.Entry
 import java.util.Set
 import java.util.logging.Level
 import java.util.logging.Logger
 import org.eclipse.emf.ecore.EObject
 import uppaal.declarations.DataVariableDeclaration
+import uppaal.declarations.VariableContainer
 import uppaal.expressions.AssignmentExpression
 import uppaal.expressions.IdentifierExpression
 import uppaal.expressions.LiteralExpression
@@ -24,6 +29,7 @@ import uppaal.statements.ExpressionStatement
 import uppaal.templates.Edge
 import uppaal.templates.Location
 import uppaal.templates.LocationKind
+import uppaal.templates.Template
 import uppaal.types.RangeTypeSpecification
 import uppaal.types.TypesFactory
 
@@ -43,66 +49,121 @@ class NtaOptimizer {
 	}
 	
 	def void optimizeSubsequentEdges(Location location) {
-		val outgoingEdges = newHashSet
-		outgoingEdges += location.outgoingEdges
-		outgoingEdges.optimizeSubsequentEdges(newHashSet)
+		#[location].optimizeSubsequentEdges
+	}
+	
+	/**
+	 * Merges the subsequent edges reachable from the given locations of a template through committed
+	 * locations, and then removes the locations that have become unreachable from the initial location.
+	 */
+	def void optimizeSubsequentEdges(Collection<? extends Location> locations) {
+		if (locations.empty) {
+			return
+		}
+		val template = locations.head.parentTemplate
+		val index = new EdgeIndex(template)
+		for (location : locations) {
+			if (location.parentTemplate !== null) { // The location could have been removed by a merge
+				val outgoingEdges = <Edge>newLinkedHashSet
+				outgoingEdges += index.getOutgoingEdges(location)
+				outgoingEdges.optimizeSubsequentEdges(newHashSet, index)
+			}
+		}
+		index.removeUnreachableLocations
 	}
 	
 	def void optimizeSubsequentEdges(Set<Edge> edges, Set<Edge> visitedEdges) {
+		if (!edges.empty) {
+			val index = new EdgeIndex(edges.head.parentTemplate)
+			edges.optimizeSubsequentEdges(visitedEdges, index)
+		}
+	}
+	
+	protected def void optimizeSubsequentEdges(Set<Edge> edges, Set<Edge> visitedEdges, EdgeIndex index) {
+		val initialLocation = index.template.init
 		while (!edges.empty) {
 			val firstEdge = edges.head
 			visitedEdges += firstEdge
 			edges -= firstEdge
-			val source = firstEdge.source
-			val target = firstEdge.target
-			val targetIncomingEdges = target.incomingEdges
-			targetIncomingEdges -= firstEdge
-			val targetOutgoingEdges = target.outgoingEdges
-			if (firstEdge.isEmpty) {
-				// Everything is empty, the edge is unnecessary
-				if (source.locationTimeKind == LocationKind.COMMITED) {
-					// Only if the source is committed
-					val sourceIncomingEdges = source.incomingEdges
-					val sourceOutgoingEdges = source.outgoingEdges
-					if (sourceOutgoingEdges.size == 1) {
-						for (incomingEdge : sourceIncomingEdges) {
-							incomingEdge.target = target
+			if (index.contains(firstEdge)) { // The edge could have been removed by a previous merge
+				val source = firstEdge.source
+				val target = firstEdge.target
+				val targetOutgoingEdges = index.getOutgoingEdges(target)
+				val isTargetEnteredOnlyViaFirstEdge = source !== target && target !== initialLocation &&
+					index.getIncomingEdgeCount(target) == 1
+				if (firstEdge.isEmpty) {
+					// Everything is empty, the edge is unnecessary
+					if (source.locationTimeKind == LocationKind.COMMITED) {
+						// Only if the source is committed
+						if (index.getOutgoingEdgeCount(source) == 1 &&
+								source !== target && source !== initialLocation) {
+							for (incomingEdge : index.getIncomingEdges(source)) {
+								index.setTarget(incomingEdge, target)
+							}
+							index.removeLocation(source) // Removes the first edge, too
 						}
-						firstEdge.remove // Delete does not work due to unsupported basicGetTypeDefinition
-						source.remove
 					}
 				}
-			}
-			else if (target.locationTimeKind == LocationKind.COMMITED) {
-				// Only if the target is committed (we cannot go through normal locations)
-				if (targetIncomingEdges.empty && firstEdge.hasOnlyGuard) {
-					// Only guard
-					val guard = firstEdge.guard
-					if (targetOutgoingEdges.forall[it.hasOnlyGuard]) {
-						for (outgoingEdge : targetOutgoingEdges) {
-							outgoingEdge.addGuard(guard.clone, LogicalOperator.AND)
-							outgoingEdge.source = source
+				else if (target.locationTimeKind == LocationKind.COMMITED && isTargetEnteredOnlyViaFirstEdge &&
+						!targetOutgoingEdges.empty) {
+					// Only if the target is committed (we cannot go through normal locations)
+					if (firstEdge.hasOnlyGuard) {
+						// Only guard: the state is not changed, so it can be conjoined to any subsequent guard
+						if (targetOutgoingEdges.forall[it.selection.empty && it.synchronization === null]) {
+							val guard = firstEdge.guard
+							for (outgoingEdge : targetOutgoingEdges) {
+								outgoingEdge.addGuard(guard.clone, LogicalOperator.AND)
+								index.setSource(outgoingEdge, source)
+							}
+							index.removeLocation(target) // Removes the first edge, too
 						}
-						firstEdge.remove // Delete does not work due to unsupported basicGetTypeDefinition
-						target.remove
 					}
-				}
-				else if (targetIncomingEdges.empty && firstEdge.hasOnlyUpdate) {
-					// Only updates
-					val updates = firstEdge.update
-					if (targetOutgoingEdges.forall[it.hasOnlyUpdate]) {
-						for (outgoingEdge : targetOutgoingEdges) {
-							outgoingEdge.update.addAll(0, updates.map[it.clone])
-							outgoingEdge.source = source
+					else if (firstEdge.hasOnlyUpdate) {
+						// Only updates: subsequent guards would have to be evaluated after the updates
+						if (targetOutgoingEdges.forall[it.selection.empty && it.guard === null &&
+								it.synchronization === null]) {
+							val updates = firstEdge.update
+							for (outgoingEdge : targetOutgoingEdges) {
+								outgoingEdge.update.addAll(0, updates.map[it.clone])
+								index.setSource(outgoingEdge, source)
+							}
+							index.removeLocation(target) // Removes the first edge, too
 						}
-						firstEdge.remove // Delete does not work due to unsupported basicGetTypeDefinition
-						target.remove
 					}
 				}
+				// Recursion
+				for (outgoingEdge : targetOutgoingEdges.reject[visitedEdges.contains(it)]) {
+					edges += outgoingEdge
+				}
 			}
-			// Recursion
-			for (outgoingEdge : targetOutgoingEdges.reject[visitedEdges.contains(it)]) {
-				edges += outgoingEdge
+		}
+	}
+	
+	def void removeUnreachableLocations(Template template) {
+		new EdgeIndex(template).removeUnreachableLocations
+	}
+	
+	/**
+	 * Removes the locations (and their edges) that are not reachable from the initial location.
+	 */
+	protected def void removeUnreachableLocations(EdgeIndex index) {
+		val template = index.template
+		val initialLocation = template.init
+		val reachableLocations = <Location>newHashSet(initialLocation)
+		val queue = <Location>newLinkedList(initialLocation)
+		while (!queue.empty) {
+			val location = queue.poll
+			for (outgoingEdge : index.getOutgoingEdges(location)) {
+				val target = outgoingEdge.target
+				if (reachableLocations.add(target)) {
+					queue += target
+				}
+			}
+		}
+		for (location : newArrayList(template.location)) {
+			if (!reachableLocations.contains(location)) {
+				logger.log(Level.INFO, "Deleting unreachable location: " + location.name)
+				index.removeLocation(location)
 			}
 		}
 	}
@@ -110,9 +171,32 @@ class NtaOptimizer {
 	//
 	
 	def optimizelIntegerCodomains() {
+		optimizelIntegerCodomains(emptyMap)
+	}
+	
+	/**
+	 * The known codomains (e.g., from an interval analysis of the source model) are intersected
+	 * with the codomains derived from the assignments of the NTA.
+	 */
+	def optimizelIntegerCodomains(Map<? extends VariableContainer, ? extends Entry<Integer, Integer>> knownCodomains) {
 		val nta = ntaBuilder.nta
 		val integerVariableCodomains = nta.integerVariableCodomains
 		
+		for (variable : knownCodomains.keySet) {
+			val knownCodomain = knownCodomains.get(variable)
+			val codomain = integerVariableCodomains.get(variable)
+			if (codomain === null) {
+				integerVariableCodomains.put(variable, knownCodomain)
+			}
+			else {
+				val min = Integer.max(codomain.key, knownCodomain.key)
+				val max = Integer.min(codomain.value, knownCodomain.value)
+				if (min <= max) { // Both are sound, so this should always hold
+					integerVariableCodomains.put(variable, new SimpleEntry<Integer, Integer>(min, max))
+				}
+			}
+		}
+		
 		for (integerVariable : integerVariableCodomains.keySet) {
 			val codomain = integerVariableCodomains.get(integerVariable)
 			
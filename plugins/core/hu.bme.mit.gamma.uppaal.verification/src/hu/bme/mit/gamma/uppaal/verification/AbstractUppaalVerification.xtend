@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2018-2022 Contributors to the Gamma project
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -10,12 +10,86 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.uppaal.verification
 
+import hu.bme.mit.gamma.util.InterruptableCallable
+import hu.bme.mit.gamma.util.ThreadRacer
+import hu.bme.mit.gamma.verification.result.ThreeStateBoolean
 import hu.bme.mit.gamma.verification.util.AbstractVerification
+import hu.bme.mit.gamma.verification.util.AbstractVerifier.Result
+import java.io.File
+import java.util.logging.Level
+import org.eclipse.emf.ecore.EObject
 
+/**
+ * Executes verifyta for a query file. If more than one argument is given, e.g., ones with different
+ * search orders (-o0, -o1, -o2) and state-space representations (-C, -S0, -S2), a portfolio of verifyta
+ * processes is raced on the same model and query file, and the first definite result is returned.
+ */
 abstract class AbstractUppaalVerification extends AbstractVerification {
 	
+	override Result execute(File modelFile, File queryFile, String[] arguments) {
+		for (argument : arguments) {
+			argument.sanitizeArgument
+		}
+		val traceability = modelFile.loadTraceability
+		return if (arguments.length <= 1) {
+			val verifier = new UppaalVerifier
+			verifier.verifyQuery(traceability, arguments.head, modelFile, queryFile)
+		}
+		else {
+			traceability.race(arguments, modelFile, queryFile)
+		}
+	}
+	
+	protected def Result race(EObject traceability, String[] arguments, File modelFile, File queryFile) {
+		// The back-annotations of the racing verifiers are serialized (see UppaalVerifier),
+		// and the ones that have lost the race are skipped
+		val resourceSet = traceability.eResource?.resourceSet
+		if (resourceSet !== null) {
+			ecoreUtil.resolveAll(resourceSet)
+		}
+		
+		val racer = new ThreadRacer<Result>
+		val callables = <InterruptableCallable<Result>>newArrayList
+		
+		for (argument : arguments) {
+			val verifier = new UppaalVerifier
+			callables += new InterruptableCallable<Result> {
+				
+				override Result call() {
+					val currentThread = Thread.currentThread
+					logger.log(Level.INFO, '''Starting verifyta on thread «currentThread.name» with "«argument»"''')
+					// Every verifier reads the same model and query file
+					val result = verifier.verifyQuery(traceability, argument, modelFile, queryFile)
+					if (result.result == ThreeStateBoolean.UNDEF) {
+						// E.g., out of memory: another search order or representation may still succeed
+						throw new IllegalStateException('''verifyta with "«argument»" could not decide the query''')
+					}
+					logger.log(Level.INFO, '''Thread «currentThread.name» with "«argument»" has won''')
+					return result
+				}
+				
+				override void cancel() {
+					verifier.cancel
+					logger.log(Level.INFO, '''UPPAAL verification instance with "«argument»" has been cancelled''')
+				}
+				
+			}
+		}
+		
+		val result = racer.execute(callables)
+		if (result === null) {
+			// Every verifier has aborted
+			return new Result(ThreeStateBoolean.UNDEF, null)
+		}
+		return result
+	}
+	
+	//
+	
+	protected abstract def EObject loadTraceability(File modelFile)
+	
 	protected override getArgumentPattern() {
 		return "((-A|-C|-H[0-9]*|-n[0-4]|-o[0-4]|-S[0-2]|-T|-Z|-N|-t[0-2])( )?)*"
 	}
 	
-}
\ No newline at end of file
+}
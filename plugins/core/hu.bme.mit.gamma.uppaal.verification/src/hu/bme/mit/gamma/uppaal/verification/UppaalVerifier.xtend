@@ -12,21 +12,26 @@ package hu.bme.mit.gamma.uppaal.verification
 
 import hu.bme.mit.gamma.statechart.interface_.Package
 import hu.bme.mit.gamma.uppaal.transformation.traceability.G2UTrace
+import hu.bme.mit.gamma.util.PhaseRecorder.Phase
 import hu.bme.mit.gamma.util.ScannerLogger
 import hu.bme.mit.gamma.verification.result.ThreeStateBoolean
 import hu.bme.mit.gamma.verification.util.AbstractVerifier
 import java.io.File
 import java.util.Scanner
 import java.util.logging.Level
+import java.util.regex.Pattern
 
 class UppaalVerifier extends AbstractVerifier {
 	
 	protected ScannerLogger resultLogger = null // Created one for each execution
+	// The query engines of the back-annotators must not be initialized on the same resources concurrently
+	protected static final Object backAnnotationSynchronizationObject = new Object
 	
 	override Result verifyQuery(Object traceability, String parameters,
 			File uppaalFile, File uppaalQueryFile) {
 		var Scanner resultReader = null
 		var Scanner traceReader = null
+		var Phase backendPhase = null
 		val actualUppaalQuery = uppaalQueryFile.loadString
 		try {
 			// verifyta -t0 -T TestOneComponent.xml asd.q 
@@ -35,6 +40,7 @@ class UppaalVerifier extends AbstractVerifier {
 			
 			// Executing the command
 			logger.log(Level.INFO, "Executing command: " + command.join(" "))
+			backendPhase = phaseRecorder.start("verifyta").put("arguments", parameters)
 			process =  Runtime.getRuntime().exec(command)
 			val outputStream = process.inputStream
 			val errorStream = process.errorStream
@@ -43,12 +49,18 @@ class UppaalVerifier extends AbstractVerifier {
 			resultReader = new Scanner(outputStream)
 			resultLogger = new ScannerLogger(resultReader, "Out of memory", 2 /* UPPAAL-specific */)
 			resultLogger.start
-			traceReader = new Scanner(errorStream)
 			
 			if (isCancelled || Thread.currentThread.interrupted) {
 				// If the process is killed, this is where it can be checked
+				process.destroyForcibly // In case it has been cancelled before starting the process
 				throw new NotBackannotatedException(ThreeStateBoolean.UNDEF)
 			}
+			// The trace is printed at the end of the run, so it is buffered to exclude the back-annotation
+			// from the backend phase
+			val traceOutput = new String(errorStream.readAllBytes)
+			process.waitFor
+			backendPhase.end
+			traceReader = new Scanner(traceOutput)
 			if (!traceReader.hasNext()) {
 				if (resultLogger.error) {
 					// E.g. out of memory
@@ -58,18 +70,28 @@ class UppaalVerifier extends AbstractVerifier {
 				throw new NotBackannotatedException(
 						actualUppaalQuery.handleEmptyLines)
 			}
-			val backAnnotator = if (traceability instanceof G2UTrace) {
-				new UppaalBackAnnotator(traceability, traceReader)
-			}
-			else if (traceability instanceof Package) {
-				new XstsUppaalBackAnnotator(traceability, traceReader)
-			}
-			else {
-				throw new IllegalStateException("Not known traceability element: " + traceability)
+			val traceModel = synchronized (backAnnotationSynchronizationObject) {
+				if (isCancelled) {
+					// E.g., another verifier of a portfolio has won while this one was waiting
+					throw new NotBackannotatedException(ThreeStateBoolean.UNDEF)
+				}
+				val backAnnotator = if (traceability instanceof G2UTrace) {
+					new UppaalBackAnnotator(traceability, traceReader)
+				}
+				else if (traceability instanceof Package) {
+					new XstsUppaalBackAnnotator(traceability, traceReader)
+				}
+				else {
+					throw new IllegalStateException("Not known traceability element: " + traceability)
+				}
+				val backAnnotationPhase = phaseRecorder.start("back-annotation")
+				val trace = backAnnotator.execute
+				backAnnotationPhase.put("steps", trace.steps.size).end
+				trace
 			}
-			val traceModel = backAnnotator.execute
 			
 			val lines = resultLogger.concatenateLines
+			backendPhase.putStatistics(lines) // The output is read on another thread
 			result =
 			if (lines.contains("Formula is NOT satisfied")) {
 				ThreeStateBoolean.FALSE
@@ -93,6 +115,14 @@ class UppaalVerifier extends AbstractVerifier {
 			traceReader?.close
 			resultLogger?.cancel
 			cancel
+			backendPhase?.end
+		}
+	}
+	
+	override protected getStatisticsPatterns() {
+		return #{
+			"statesExplored" -> Pattern.compile("States explored\\s*:\\s*(\\d+)"),
+			"statesStored" -> Pattern.compile("States stored\\s*:\\s*(\\d+)")
 		}
 	}
 	
@@ -109,7 +139,7 @@ class UppaalVerifier extends AbstractVerifier {
 	}
 	
 	override cancel() {
-		resultLogger.cancel
+		resultLogger?.cancel
 		super.cancel
 	}
 	
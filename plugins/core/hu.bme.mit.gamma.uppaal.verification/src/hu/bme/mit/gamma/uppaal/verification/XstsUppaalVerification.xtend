@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2018-2022 Contributors to the Gamma project
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -10,7 +10,6 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.uppaal.verification
 
-import hu.bme.mit.gamma.verification.util.AbstractVerifier.Result
 import java.io.File
 
 class XstsUppaalVerification extends AbstractUppaalVerification {
@@ -19,16 +18,10 @@ class XstsUppaalVerification extends AbstractUppaalVerification {
 	protected new() {}
 	//
 	
-	override Result execute(File modelFile, File queryFile, String[] arguments) {
+	protected override loadTraceability(File modelFile) {
 		val fileName = modelFile.name
 		val packageFileName = fileName.unfoldedPackageFileName
-		val gammaPackage = ecoreUtil.normalLoad(modelFile.parent, packageFileName)
-		val verifier = new UppaalVerifier
-		val argument = arguments.head
-		
-		argument.sanitizeArgument
-		
-		return verifier.verifyQuery(gammaPackage, argument, modelFile, queryFile)
+		return ecoreUtil.normalLoad(modelFile.parent, packageFileName)
 	}
 	
 	override getDefaultArguments() {
@@ -13,10 +13,10 @@ package hu.bme.mit.gamma.util
 import java.io.File
 import java.io.FileWriter
 import java.util.AbstractMap
-import java.util.ArrayList
-import java.util.Collections
 import java.util.Map
 import java.util.Scanner
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.regex.Pattern
 import javax.xml.XMLConstants
 import javax.xml.parsers.DocumentBuilderFactory
 import org.eclipse.core.resources.IFile
@@ -194,25 +194,32 @@ class FileUtil {
 	 * Returns the next valid name for the file that is suffixed by indices.
 	 */
 	def Map.Entry<String, Integer> getFileName(File folder, String fileName, String fileExtension) {
-		val usedIds = new ArrayList<Integer>();
-		folder.mkdirs();
-		// Searching the trace folder for highest id
-		for (File file: folder.listFiles()) {
-			val name = file.getName();
-			if (name.matches(fileName + "[0-9]+\\." + fileExtension)) {
-				// File extension needed to distinguish .get and .json
-				val id = name.substring(fileName.length(),
-						name.length() - ("." + fileExtension).length());
-				usedIds.add(Integer.parseInt(id));
+		val id = folder.getNextFileId(fileName, fileExtension)
+		return new AbstractMap.SimpleEntry<String, Integer>(fileName + id + "." + fileExtension, id)
+	}
+	
+	/**
+	 * Returns a thread-safe allocator of the indices of files that are suffixed by indices, seeded by
+	 * a single scan of the folder. Indices must be allocated only via the returned allocator.
+	 */
+	def AtomicInteger getFileIdAllocator(File folder, String fileName, String fileExtension) {
+		return new AtomicInteger(folder.getNextFileId(fileName, fileExtension))
+	}
+	
+	protected def int getNextFileId(File folder, String fileName, String fileExtension) {
+		folder.mkdirs
+		// File extension needed to distinguish .get and .json
+		val pattern = Pattern.compile(Pattern.quote(fileName) + "([0-9]+)" + Pattern.quote("." + fileExtension))
+		var nextId = 0
+		// Searching the folder for highest id
+		for (File file : folder.listFiles) {
+			val matcher = pattern.matcher(file.name)
+			if (matcher.matches) {
+				val id = Integer.parseInt(matcher.group(1))
+				nextId = Math.max(nextId, id + 1)
 			}
 		}
-		if (usedIds.isEmpty()) {
-			return new AbstractMap.SimpleEntry<String, Integer>(fileName + "0." + fileExtension, 0);
-		}
-		Collections.sort(usedIds);
-		val biggestId = usedIds.get(usedIds.size() - 1);
-		return new AbstractMap.SimpleEntry<String, Integer>(
-				fileName + (biggestId + 1) + "." + fileExtension, (biggestId + 1));
+		return nextId
 	}
 	
 }
\ No newline at end of file
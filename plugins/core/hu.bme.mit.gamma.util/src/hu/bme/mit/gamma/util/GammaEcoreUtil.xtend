@@ -16,6 +16,8 @@ import java.util.Collections
 import java.util.Comparator
 import java.util.Iterator
 import java.util.List
+import java.util.Map
+import java.util.Objects
 import java.util.logging.Level
 import java.util.logging.Logger
 import org.eclipse.core.resources.ResourcesPlugin
@@ -23,6 +25,7 @@ import org.eclipse.core.runtime.Path
 import org.eclipse.emf.common.util.URI
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.emf.ecore.EReference
+import org.eclipse.emf.ecore.EStructuralFeature.Setting
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.emf.ecore.resource.ResourceSet
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl
@@ -72,28 +75,46 @@ class GammaEcoreUtil {
 	def void change(EObject newObject, EObject oldObject, EObject container) {
 		val oldReferences = UsageCrossReferencer.find(oldObject, container)
 		for (oldReference : oldReferences) {
-			val referenceHolder = oldReference.get(true)
-			if (referenceHolder instanceof List) {
-				val list =  referenceHolder as List<EObject>
-				val index = list.indexOf(oldObject)
-				try {
-					if (list.contains(newObject)) {
-						// To avoid 'no duplicates' constraint violation
-						list.remove(index)
-					}
-					else {
-						list.set(index, newObject)
-					}
-				} catch (UnsupportedOperationException e) {
-					// Derived feature, cannot be changed
-					logger.log(Level.WARNING, "Reference from " + oldObject
-						+ " to " + newObject + " in " + container + " cannot be changed")
-				}
+			oldReference.changeReference(newObject, oldObject, container)
+		}
+	}
+	
+	/**
+	 * Changes the references of every key to the corresponding value in a single pass over the container.
+	 */
+	def void change(Map<? extends EObject, ? extends EObject> oldNewObjects, EObject container) {
+		val oldReferences = UsageCrossReferencer.findAll(oldNewObjects.keySet, container)
+		for (oldObject : oldReferences.keySet) {
+			val newObject = oldNewObjects.get(oldObject)
+			for (oldReference : oldReferences.get(oldObject)) {
+				oldReference.changeReference(newObject, oldObject, container)
 			}
-			else {
-				oldReference.set(newObject)
+		}
+	}
+	
+	protected def void changeReference(Setting oldReference, EObject newObject, EObject oldObject,
+			EObject container) {
+		val referenceHolder = oldReference.get(true)
+		if (referenceHolder instanceof List) {
+			val list =  referenceHolder as List<EObject>
+			val index = list.indexOf(oldObject)
+			try {
+				if (list.contains(newObject)) {
+					// To avoid 'no duplicates' constraint violation
+					list.remove(index)
+				}
+				else {
+					list.set(index, newObject)
+				}
+			} catch (UnsupportedOperationException e) {
+				// Derived feature, cannot be changed
+				logger.log(Level.WARNING, "Reference from " + oldObject
+					+ " to " + newObject + " in " + container + " cannot be changed")
 			}
 		}
+		else {
+			oldReference.set(newObject)
+		}
 	}
 	
 	def void change(EObject newObject, EObject oldObject, Iterable<? extends EObject> containers) {
@@ -542,6 +563,49 @@ class GammaEcoreUtil {
 		return helper.equals(lhs, rhs)
 	}
 	
+	/**
+	 * Returns a hash code that is consistent with helperEquals, i.e., equal objects have equal hash codes.
+	 * Referenced (not contained) objects are represented only by their classes.
+	 */
+	def int helperHashCode(EObject object) {
+		if (object === null) {
+			return 0
+		}
+		val eClass = object.eClass
+		var hash = eClass.hashCode
+		for (feature : eClass.EAllStructuralFeatures.filter[!it.derived]) {
+			val value = object.eGet(feature)
+			val featureHash = if (feature instanceof EReference) {
+				if (feature.many) {
+					val values = value as List<? extends EObject>
+					if (feature.containment) values.helperHashCode else values.map[it.eClass.hashCode].hashCode
+				}
+				else {
+					val referencedObject = value as EObject
+					if (referencedObject === null) 0
+					else if (feature.containment) referencedObject.helperHashCode
+					else referencedObject.eClass.hashCode
+				}
+			}
+			else {
+				Objects.hashCode(value)
+			}
+			hash = 31 * hash + featureHash
+		}
+		return hash
+	}
+	
+	def int helperHashCode(List<? extends EObject> objects) {
+		if (objects === null) {
+			return 0
+		}
+		var hash = 1
+		for (object : objects) {
+			hash = 31 * hash + object.helperHashCode
+		}
+		return hash
+	}
+	
 	def boolean allHelperEquals(List<? extends EObject> objects) {
 		for (var i = 0; i < objects.size - 1; i++) {
 			val lhs = objects.get(i)
@@ -0,0 +1,127 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.util
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.List
+import java.util.Map
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.EStructuralFeature
+import org.eclipse.emf.ecore.util.EcoreUtil
+
+class ModelFingerprinter {
+	// Singleton
+	public static final ModelFingerprinter INSTANCE = new ModelFingerprinter
+	protected new() {}
+	//
+
+	/**
+	 * Returns a SHA-256 fingerprint of the given object, its contents and (transitively) the top-level
+	 * elements it references, e.g., interfaces and type declarations in other packages. Cross-references
+	 * are encoded as relative fragment paths, so the fingerprint does not depend on resource URIs;
+	 * two structurally identical models have the same fingerprint. The salts (e.g., transformation
+	 * settings) are also hashed.
+	 */
+	def String getFingerprint(EObject object, String... salts) {
+		val digest = MessageDigest.getInstance("SHA-256")
+		for (salt : salts) {
+			digest.update(salt)
+		}
+		val List<EObject> units = newArrayList(object)
+		val Map<EObject, Integer> unitIndexes = newHashMap(object -> 0)
+		// The list of units grows as new top-level elements are referenced
+		for (var i = 0; i < units.size; i++) {
+			digest.update(units.get(i), units, unitIndexes)
+		}
+		return HexFormat.of.formatHex(digest.digest)
+	}
+
+	protected def void update(MessageDigest digest, EObject object,
+			List<EObject> units, Map<EObject, Integer> unitIndexes) {
+		val eClass = object.eClass
+		digest.update(eClass.EPackage.nsURI + "#" + eClass.name)
+		for (attribute : eClass.EAllAttributes.filter[it.hashed]) {
+			digest.update(attribute.name + "=" + object.eGet(attribute))
+		}
+		for (reference : eClass.EAllReferences.filter[it.hashed && !it.containment]) {
+			digest.update(reference.name)
+			for (target : object.getTargets(reference)) {
+				digest.update(target.getId(units, unitIndexes))
+			}
+		}
+		for (reference : eClass.EAllContainments.filter[it.hashed]) {
+			val contents = object.getTargets(reference)
+			digest.update(reference.name + "[" + contents.size + "]")
+			for (content : contents) {
+				digest.update(content, units, unitIndexes)
+			}
+		}
+	}
+
+	protected def String getId(EObject target, List<EObject> units, Map<EObject, Integer> unitIndexes) {
+		if (target.eIsProxy) {
+			return EcoreUtil.getURI(target).toString // Unresolvable
+		}
+		var unit = target.getUnit(unitIndexes)
+		if (!unitIndexes.containsKey(unit)) {
+			unitIndexes.put(unit, units.size)
+			units += unit
+		}
+		val index = unitIndexes.get(unit)
+		if (unit === target) {
+			return "@" + index
+		}
+		return "@" + index + "/" + EcoreUtil.getRelativeURIFragmentPath(unit, target)
+	}
+
+	/**
+	 * Returns the closest already hashed container, or the top-level element (a direct child of the
+	 * root object) containing the given object.
+	 */
+	protected def EObject getUnit(EObject object, Map<EObject, Integer> unitIndexes) {
+		var EObject topLevelElement = object
+		var EObject container = object
+		while (container !== null) {
+			if (unitIndexes.containsKey(container)) {
+				return container
+			}
+			val parent = container.eContainer
+			if (parent !== null && parent.eContainer === null) {
+				topLevelElement = container
+			}
+			container = parent
+		}
+		return topLevelElement
+	}
+
+	protected def List<EObject> getTargets(EObject object, EStructuralFeature feature) {
+		val value = object.eGet(feature, false) // Not resolving proxies
+		if (value === null) {
+			return #[]
+		}
+		if (feature.many) {
+			return value as List<EObject>
+		}
+		return #[value as EObject]
+	}
+
+	protected def isHashed(EStructuralFeature feature) {
+		return !feature.derived && !feature.transient
+	}
+
+	protected def void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8))
+		digest.update(0 as byte) // Separator
+	}
+
+}
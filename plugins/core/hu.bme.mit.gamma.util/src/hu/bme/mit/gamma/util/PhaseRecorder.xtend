@@ -0,0 +1,205 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.util
+
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import java.util.List
+import java.util.Map
+import java.util.Queue
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Thread-safe recorder of the phases of Gamma tasks, e.g., unfolding, XSTS transformation, backend runs
+ * and back-annotation. A phase records its wall time, the CPU time and allocated bytes of the executing
+ * thread, the peak heap usage and custom counters, e.g., model sizes and backend statistics.
+ * Recording is opt-in: ended phases are collected only while the recorder is active (see activate),
+ * until they are drained, e.g., at the end of a task. Otherwise, ending a phase has no effect.
+ */
+class PhaseRecorder {
+	// Singleton
+	public static final PhaseRecorder INSTANCE = new PhaseRecorder
+	protected new() {}
+	//
+
+	protected final Queue<Phase> phases = new ConcurrentLinkedQueue
+	protected final AtomicInteger activations = new AtomicInteger
+
+	def Phase start(String name) {
+		return new Phase(name, this)
+	}
+
+	/**
+	 * Starts collecting the ended phases; has to be paired with a deactivate call.
+	 */
+	def void activate() {
+		activations.incrementAndGet
+	}
+
+	/**
+	 * Stops collecting the ended phases if there is no other activation and drops the collected ones.
+	 */
+	def void deactivate() {
+		if (activations.decrementAndGet <= 0) {
+			activations.set(0)
+			phases.clear
+		}
+	}
+
+	def boolean isActive() {
+		return activations.get > 0
+	}
+
+	/**
+	 * Returns and removes the ended phases, and resets the peak heap usage.
+	 */
+	def List<Phase> drain() {
+		val drainedPhases = <Phase>newArrayList
+		for (var phase = phases.poll; phase !== null; phase = phases.poll) {
+			drainedPhases += phase
+		}
+		for (pool : ManagementFactory.memoryPoolMXBeans) {
+			pool.resetPeakUsage
+		}
+		return drainedPhases
+	}
+
+	def String toJson(List<Phase> phases) {
+		return '''[«FOR phase : phases SEPARATOR ','»«System.lineSeparator»  «phase.toJson»«ENDFOR»«System.lineSeparator»]'''
+	}
+
+	protected def add(Phase phase) {
+		phases += phase
+	}
+
+	// Phase and measurement utilities
+
+	static class Phase {
+
+		final String name
+		final String threadName
+		final PhaseRecorder recorder
+
+		final long startTime = System.nanoTime
+		final long startCpuTime = currentThreadCpuTime
+		final long startAllocatedBytes = currentThreadAllocatedBytes
+
+		long wallTime = -1
+		long cpuTime
+		long allocatedBytes
+		long peakHeap
+		final Map<String, Object> counters = newLinkedHashMap
+
+		protected new(String name, PhaseRecorder recorder) {
+			this.name = name
+			this.threadName = Thread.currentThread.name
+			this.recorder = recorder
+		}
+
+		def Phase put(String counter, Object value) {
+			synchronized (counters) {
+				counters.put(counter, value)
+			}
+			return this
+		}
+
+		/**
+		 * Must be called on the thread that has started the phase; subsequent calls and calls
+		 * while the recorder is inactive have no effect.
+		 */
+		def void end() {
+			if (wallTime >= 0 || !recorder.active) {
+				return
+			}
+			wallTime = System.nanoTime - startTime
+			cpuTime = currentThreadCpuTime - startCpuTime
+			allocatedBytes = currentThreadAllocatedBytes - startAllocatedBytes
+			peakHeap = peakHeapUsage
+			recorder.add(this)
+		}
+
+		def getName() {
+			return name
+		}
+
+		def getWallTime() {
+			return wallTime
+		}
+
+		def getCpuTime() {
+			return cpuTime
+		}
+
+		def getAllocatedBytes() {
+			return allocatedBytes
+		}
+
+		def getCounters() {
+			return counters
+		}
+
+		def String toJson() {
+			val builder = new StringBuilder
+			builder.append('''{"phase": «name.quote», "thread": «threadName.quote», ''')
+			builder.append('''"wallTimeNs": «wallTime», "cpuTimeNs": «cpuTime», ''')
+			builder.append('''"allocatedBytes": «allocatedBytes», "peakHeapBytes": «peakHeap»''')
+			synchronized (counters) {
+				for (counter : counters.entrySet) {
+					val value = counter.value
+					val serializedValue = if (value instanceof Number) value.toString else value?.toString.quote
+					builder.append(''', «counter.key.quote»: «serializedValue»''')
+				}
+			}
+			builder.append("}")
+			return builder.toString
+		}
+
+		protected static def String quote(String value) {
+			if (value === null) {
+				return "null"
+			}
+			return '"' + value.replace("\\", "\\\\").replace('"', '\\"')
+				.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t") + '"'
+		}
+
+		protected static def long getCurrentThreadCpuTime() {
+			val threadBean = ManagementFactory.threadMXBean
+			if (threadBean.currentThreadCpuTimeSupported) {
+				return threadBean.currentThreadCpuTime
+			}
+			return 0
+		}
+
+		protected static def long getCurrentThreadAllocatedBytes() {
+			val threadBean = ManagementFactory.threadMXBean
+			if (threadBean instanceof com.sun.management.ThreadMXBean) {
+				if (threadBean.threadAllocatedMemorySupported) {
+					return threadBean.currentThreadAllocatedBytes
+				}
+			}
+			return 0
+		}
+
+		protected static def long getPeakHeapUsage() {
+			var peakHeap = 0L
+			for (pool : ManagementFactory.memoryPoolMXBeans.filter[it.type == MemoryType.HEAP]) {
+				val peakUsage = pool.peakUsage
+				if (peakUsage !== null) {
+					peakHeap += peakUsage.used
+				}
+			}
+			return peakHeap
+		}
+
+	}
+
+}
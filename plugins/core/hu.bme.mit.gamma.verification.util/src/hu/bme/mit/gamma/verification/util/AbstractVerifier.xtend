@@ -15,20 +15,26 @@ import hu.bme.mit.gamma.trace.util.TraceUtil
 import hu.bme.mit.gamma.transformation.util.GammaFileNamer
 import hu.bme.mit.gamma.util.FileUtil
 import hu.bme.mit.gamma.util.PathEscaper
+import hu.bme.mit.gamma.util.PhaseRecorder
+import hu.bme.mit.gamma.util.PhaseRecorder.Phase
 import hu.bme.mit.gamma.verification.result.ThreeStateBoolean
 import java.io.File
+import java.math.BigDecimal
+import java.util.Map
 import java.util.logging.Logger
+import java.util.regex.Pattern
 import org.eclipse.xtend.lib.annotations.Data
 
 abstract class AbstractVerifier {
 	
 	protected volatile boolean isCancelled
-	protected Process process
+	protected volatile Process process // Can be cancelled from another thread
 	protected ThreeStateBoolean result
 	
 	protected final Logger logger = Logger.getLogger("GammaLogger")
 	
 	protected final GammaFileNamer fileNamer = GammaFileNamer.INSTANCE
+	protected final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE
 	
 	protected extension FileUtil codeGeneratorUtil = FileUtil.INSTANCE
 	protected extension PathEscaper pathEscaper = PathEscaper.INSTANCE
@@ -73,6 +79,37 @@ abstract class AbstractVerifier {
 		return fileNamer.getHiddenSerializedPropertyFileName(modelFile.name)
 	}
 	
+	/**
+	 * Puts the last values of the backend statistics (see getStatisticsPatterns) found in the given
+	 * output of the backend into the phase.
+	 */
+	protected def void putStatistics(Phase phase, CharSequence output) {
+		for (statistic : statisticsPatterns.entrySet) {
+			val matcher = statistic.value.matcher(output)
+			var String value = null
+			while (matcher.find) {
+				value = matcher.group(1)
+			}
+			if (value !== null) {
+				phase.put(statistic.key, value.parseStatistic)
+			}
+		}
+	}
+	
+	/**
+	 * Parses the value of a backend statistic matched by a pattern of getStatisticsPatterns.
+	 */
+	protected def Number parseStatistic(String value) {
+		return new BigDecimal(value)
+	}
+	
+	/**
+	 * Returns the names of the backend statistics and the patterns whose first group matches their values.
+	 */
+	protected def Map<String, Pattern> getStatisticsPatterns() {
+		return #{}
+	}
+	
 	@Data
 	static class Result {
 		ThreeStateBoolean result
@@ -20,6 +20,7 @@ import java.io.FileOutputStream
 import java.io.OutputStreamWriter
 import java.util.Scanner
 import java.util.logging.Level
+import java.util.regex.Pattern
 
 class PromelaVerifier extends AbstractVerifier {
 	
@@ -92,6 +93,7 @@ class PromelaVerifier extends AbstractVerifier {
 			
 			// Executing the command
 			logger.log(Level.INFO, "Executing command: " + searchCommand.join(" "))
+			val backendPhase = phaseRecorder.start("spin")
 			process = Runtime.getRuntime().exec(searchCommand, null, execFolder)
 			val outputStream = process.inputStream
 			// Reading the result of the command
@@ -112,6 +114,8 @@ class PromelaVerifier extends AbstractVerifier {
 				}
 			}
 			fileUtil.saveString(outputFile, outputString.toString)
+			backendPhase.putStatistics(outputString)
+			backendPhase.end
 			
 			if (firstLine.contains("violated")) {
 				super.result = ThreeStateBoolean.FALSE
@@ -172,8 +176,10 @@ class PromelaVerifier extends AbstractVerifier {
 			}
 			
 			val gammaPackage = traceability as Package
+			val backAnnotationPhase = phaseRecorder.start("back-annotation")
 			val backAnnotator = new TraceBackAnnotator(gammaPackage, resultReader)
 			val trace = backAnnotator.execute
+			backAnnotationPhase.put("steps", trace.steps.size).end
 			
 			return new Result(result, trace)
 		} finally {
@@ -186,6 +192,21 @@ class PromelaVerifier extends AbstractVerifier {
 		super.cancel
 	}
 	
+	override protected getStatisticsPatterns() {
+		return #{
+			// Spin prints the statistics with '%g', e.g., '1.2e+06 states, stored'
+			"statesStored" -> Pattern.compile("([\\d.]+(?:e[+-]?\\d+)?) states, stored"),
+			"statesMatched" -> Pattern.compile("([\\d.]+(?:e[+-]?\\d+)?) states, matched"),
+			"transitions" -> Pattern.compile("([\\d.]+(?:e[+-]?\\d+)?) transitions \\("),
+			"memoryMb" -> Pattern.compile("([\\d.]+(?:e[+-]?\\d+)?)\\s+total actual memory usage"),
+			"elapsedSeconds" -> Pattern.compile("elapsed time ([\\d.]+(?:e[+-]?\\d+)?) seconds")
+		}
+	}
+	
+	override protected parseStatistic(String value) {
+		return Double.valueOf(value)
+	}
+	
 	def getTrailFile(File modelFile) {
 		return modelFile.parent + File.separator + modelFile.name + ".trail"
 	}
@@ -12,6 +12,7 @@ package hu.bme.mit.gamma.xsts.promela.transformation.serializer
 
 import hu.bme.mit.gamma.expression.model.ArrayTypeDefinition
 import hu.bme.mit.gamma.expression.model.Declaration
+import hu.bme.mit.gamma.expression.model.IntegerTypeDefinition
 import hu.bme.mit.gamma.expression.model.VariableDeclaration
 import hu.bme.mit.gamma.expression.util.ExpressionEvaluator
 import hu.bme.mit.gamma.expression.util.ExpressionTypeDeterminator2
@@ -22,7 +23,10 @@ import hu.bme.mit.gamma.xsts.model.XSTS
 import hu.bme.mit.gamma.xsts.promela.transformation.util.ArrayHandler
 import hu.bme.mit.gamma.xsts.promela.transformation.util.Configuration
 import hu.bme.mit.gamma.xsts.promela.transformation.util.MessageQueueHandler
+import java.util.Map
+import java.util.Map.Entry
 
+import static extension hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.*
 import static extension hu.bme.mit.gamma.xsts.derivedfeatures.XstsDerivedFeatures.*
 
 class DeclarationSerializer {
@@ -44,6 +48,7 @@ class DeclarationSerializer {
 	//
 	
 	def String serializeDeclaration(XSTS xSts) '''
+		«val integerVariableCodomains = xSts.integerVariableCodomains»
 		«FOR type : xSts.getAllContentsOfType(ArrayTypeDefinition).allArrayTypeDefinition»
 			«IF type.elementType instanceof ArrayTypeDefinition»«type.elementType.serializeArrayTypeDeclaration»«ENDIF»
 		«ENDFOR»
@@ -55,13 +60,18 @@ class DeclarationSerializer {
 		«FOR variableDeclaration : xSts.variableDeclarations
 				// Native message queue handling
 				.filter[!Configuration.HANDLE_NATIVE_MESSAGE_QUEUES || !xSts.messageQueueSizeGroup.variables.contains(it)]»
-			«variableDeclaration.serializeVariableDeclaration»
+			«variableDeclaration.serializeVariableDeclaration(integerVariableCodomains)»
 		«ENDFOR»
 	'''
 
 	// Variable
 	
 	protected def String serializeVariableDeclaration(VariableDeclaration variable) {
+		return variable.serializeVariableDeclaration(emptyMap)
+	}
+	
+	protected def String serializeVariableDeclaration(VariableDeclaration variable,
+			Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableCodomains) {
 		// Promela does not support multidimensional arrays, so they need to be handled differently
 		// It also does not support the use of array init blocks in processes
 		val type = variable.type
@@ -78,11 +88,32 @@ class DeclarationSerializer {
 					«type.serializeType» «variable.serializeName»[«type.size.serialize»]«IF variable.expression !== null» = «variable.expression.serialize»«ENDIF»;
 				«ENDIF»
 			«ELSE»
-				«type.serializeType» «variable.serializeName»«IF variable.expression !== null» = «variable.expression.serialize»«ENDIF»;
+				«variable.serializeType(integerVariableCodomains)» «variable.serializeName»«IF variable.expression !== null» = «variable.expression.serialize»«ENDIF»;
 			«ENDIF»
 		'''
 	}
 	
+	/**
+	 * Integer variables with small codomains (based on the interval analysis of the XSTS)
+	 * are stored in byte or short variables to reduce the size of the state vector.
+	 */
+	protected def serializeType(VariableDeclaration variable,
+			Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableCodomains) {
+		val type = variable.type
+		val codomain = integerVariableCodomains.get(variable)
+		if (codomain !== null && type.typeDefinition instanceof IntegerTypeDefinition) {
+			val min = codomain.key
+			val max = codomain.value
+			if (0 <= min && max <= 255) {
+				return "byte"
+			}
+			if (Short.MIN_VALUE <= min && max <= Short.MAX_VALUE) {
+				return "short"
+			}
+		}
+		return type.serializeType
+	}
+	
 	def String serializeLocalVariableDeclaration(VariableDeclaration variable) {
 		return '''local «variable.serializeVariableDeclaration»'''
 	}
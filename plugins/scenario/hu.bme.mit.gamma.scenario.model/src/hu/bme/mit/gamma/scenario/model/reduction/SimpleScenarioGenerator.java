@@ -197,11 +197,9 @@ public class SimpleScenarioGenerator extends ScenarioModelSwitch<EObject> {
 						ScenarioCheckExpression.class);
 				for (int i = 0; i < checks.size(); i++) {
 					ScenarioCheckExpression check = checks.get(i);
-					try {
-						shouldBeAdded = shouldBeAdded && evaluator.evaluateBoolean(check.getExpression());
-					} catch (Exception e) {
-						// Empty on purpose
-					}
+					// Not evaluable checks do not exclude the fragment
+					shouldBeAdded = shouldBeAdded &&
+							evaluator.tryEvaluateBoolean(check.getExpression()).orElse(true);
 				}
 			}
 			if (shouldBeAdded) {
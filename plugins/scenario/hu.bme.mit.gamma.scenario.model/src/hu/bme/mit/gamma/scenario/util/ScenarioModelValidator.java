@@ -15,6 +15,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
 import java.util.stream.Collectors;
 
 import org.eclipse.emf.ecore.EObject;
@@ -265,22 +266,21 @@ public class ScenarioModelValidator extends ExpressionModelValidator {
 			EStructuralFeature minimumFeature, EStructuralFeature maximumFeature) {
 		Collection<ValidationResultMessage> validationResultMessages = new ArrayList<ValidationResultMessage>();
 
-		try {
-			int min = expressionEvaluator.evaluateInteger(minimum);
+		OptionalInt evaluatedMinimum = expressionEvaluator.tryEvaluateInteger(minimum);
+		if (evaluatedMinimum.isPresent()) {
+			int min = evaluatedMinimum.getAsInt();
 			if (min < 0) {
 				validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
 						"The minimum value must be greater than or equals to 0", new ReferenceInfo(minimumFeature)));
 			}
 			if (maximum != null) {
-				int max = expressionEvaluator.evaluateInteger(maximum);
-				if (min > max) {
+				OptionalInt evaluatedMaximum = expressionEvaluator.tryEvaluateInteger(maximum);
+				if (evaluatedMaximum.isPresent() && min > evaluatedMaximum.getAsInt()) {
 					validationResultMessages.add(new ValidationResultMessage(ValidationResult.ERROR,
 							"The minimum value must not be greater than the maximum value",
 							new ReferenceInfo(minimumFeature)));
 				}
 			}
-		} catch (IllegalArgumentException e) {
-			// empty on purpouse
 		}
 
 		Type minType = typeDeterminator.getType(minimum);
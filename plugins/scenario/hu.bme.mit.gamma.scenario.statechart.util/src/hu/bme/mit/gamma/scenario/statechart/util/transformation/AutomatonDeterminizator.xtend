@@ -19,14 +19,17 @@ import hu.bme.mit.gamma.statechart.contract.ContractModelFactory
 import hu.bme.mit.gamma.statechart.contract.SpecialStateKind
 import hu.bme.mit.gamma.statechart.interface_.InterfaceModelFactory
 import hu.bme.mit.gamma.statechart.statechart.Region
+import hu.bme.mit.gamma.statechart.statechart.State
 import hu.bme.mit.gamma.statechart.statechart.StateNode
 import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 import hu.bme.mit.gamma.statechart.statechart.StatechartModelFactory
 import hu.bme.mit.gamma.statechart.statechart.Transition
 import hu.bme.mit.gamma.statechart.util.StatechartUtil
 import hu.bme.mit.gamma.util.GammaEcoreUtil
-import java.util.Collection
-import java.util.Set
+import java.util.Arrays
+import java.util.BitSet
+import java.util.List
+import java.util.Map
 
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
 
@@ -42,15 +45,12 @@ class AutomatonDeterminizator {
 	protected val extension ExpressionUtil exprUtil = ExpressionUtil.INSTANCE
 	protected val extension ScenarioStatechartUtil scenarioStatechartUtil = ScenarioStatechartUtil.INSTANCE
 	protected val extension StatechartUtil statechartUtil = StatechartUtil.INSTANCE
+	protected val extension AutomatonMinimizer automatonMinimizer = AutomatonMinimizer.INSTANCE
 
-	var StatechartDefinition oldStatechart = null
-	val newStateOldStates = <StateNode, Collection<StateNode>>newLinkedHashMap
-	val statesCollectiveState = <Collection<StateNode>, StateNode>newLinkedHashMap
-	val oldStateNewStates = <StateNode, Collection<StateNode>>newLinkedHashMap
-	val oldNewStateMap = <StateNode, StateNode>newLinkedHashMap
-	var Region firstRegion = null
-	var Region oldFirstRegion = null
-	var StatechartDefinition newStatechart = null
+	val StatechartDefinition oldStatechart
+	val Region oldFirstRegion
+	val StatechartDefinition newStatechart
+	val Region firstRegion
 	var int stateCount = 0
 
 	new(StatechartDefinition oldStatechart) {
@@ -62,42 +62,106 @@ class AutomatonDeterminizator {
 		newStatechart.variableDeclarations += oldStatechart.variableDeclarations
 	}
 
+	/**
+	 * Determinizes the automaton with subset construction on bitsets of the original state indexes,
+	 * then merges the equivalent states (Hopcroft) and writes the result back to a statechart.
+	 * Only the states reachable from the initial state are created.
+	 */
 	def StatechartDefinition execute() {
 		firstRegion.stateNodes.clear
 		newStatechart.transitions.clear
-		for (state : oldStatechart.regions.head.stateNodes) {
-			val stateClone = state.clone
-			oldStateNewStates += {
-				state -> newLinkedList
+
+		// Integer-indexed view of the original automaton
+		val oldStates = oldFirstRegion.stateNodes
+		val oldStateIndexes = <StateNode, Integer>newHashMap
+		val oldOutgoingTransitions = <List<Transition>>newArrayList
+		for (oldState : oldStates) {
+			oldStateIndexes.put(oldState, oldOutgoingTransitions.size)
+			oldOutgoingTransitions += newArrayList
+		}
+		for (transition : oldStatechart.transitions) {
+			val index = oldStateIndexes.get(transition.sourceState)
+			if (index !== null) {
+				oldOutgoingTransitions.get(index) += transition
 			}
-			newStateOldStates += {
-				stateClone -> #[state]
+		}
+		// Transitions with the same trigger and guard are nondeterministic
+		val triggerLabels = oldStatechart.transitions.getLabels([it.nonDeterminismKey],
+			[a, b | a.areTransitionsNonDeterministic(b)])
+		val actionLabels = oldStatechart.transitions.getLabels([it.equivalenceKey],
+			[a, b | a.areTransitionsEquivalent(b)])
+
+		// Subset construction: subsets are numbered in the order of their discovery (worklist)
+		val subsets = <BitSet>newArrayList
+		val subsetIndexes = <BitSet, Integer>newHashMap
+		val subsetTransitions = <List<Pair<Transition, Integer>>>newArrayList
+		val initialSubset = new BitSet
+		initialSubset.set(0)
+		subsets += initialSubset
+		subsetIndexes.put(initialSubset, 0)
+		for (var i = 0; i < subsets.size; i++) {
+			val subset = subsets.get(i)
+			val representatives = <Integer, Transition>newLinkedHashMap
+			val targets = <Integer, BitSet>newHashMap
+			for (var oldState = subset.nextSetBit(0); oldState >= 0; oldState = subset.nextSetBit(oldState + 1)) {
+				for (transition : oldOutgoingTransitions.get(oldState)) {
+					val label = triggerLabels.get(transition)
+					if (!representatives.containsKey(label)) {
+						representatives.put(label, transition)
+						targets.put(label, new BitSet)
+					}
+					targets.get(label).set(oldStateIndexes.get(transition.targetState))
+				}
+			}
+			val transitions = <Pair<Transition, Integer>>newArrayList
+			for (label : representatives.keySet) {
+				val target = targets.get(label)
+				var targetIndex = subsetIndexes.get(target)
+				if (targetIndex === null) {
+					targetIndex = subsets.size
+					subsets += target
+					subsetIndexes.put(target, targetIndex)
+				}
+				transitions += representatives.get(label) -> targetIndex
 			}
-			oldNewStateMap += {
-				state -> stateClone
+			subsetTransitions += transitions
+		}
+
+		// Minimization: only states with equal contents (apart from their names) can be merged
+		val subsetStates = subsets.map[it.getStates(oldStates)].toList
+		val int[][] transitionTable = newArrayOfSize(subsets.size)
+		val labelCount = actionLabels.values.fold(0)[max, label | Math.max(max, label + 1)]
+		for (i : 0 ..< subsets.size) {
+			val row = newIntArrayOfSize(labelCount)
+			Arrays.fill(row, -1)
+			for (transition : subsetTransitions.get(i)) {
+				row.set(actionLabels.get(transition.key), transition.value)
 			}
-			firstRegion.stateNodes += stateClone
+			transitionTable.set(i, row)
 		}
+		val initialBlocks = subsetStates.getInitialBlocks
+		val blocks = transitionTable.minimize(initialBlocks, labelCount)
 
-		val oldFirstState = oldFirstRegion.stateNodes.head
-		val oldSecondState = oldFirstRegion.stateNodes.get(1)
-		val newFirstState = oldNewStateMap.get(oldFirstState)
-		val newSecondState = oldNewStateMap.get(oldSecondState)
-		val initialTransition = oldStatechart.transitions.findFirst [
-			it.sourceState == oldFirstState && it.targetState == oldSecondState
-		]
-		firstRegion.stateNodes += newFirstState
-		firstRegion.stateNodes += newSecondState
-		newStatechart.transitions += initialTransition
-		initialTransition.sourceState = newFirstState
-		initialTransition.targetState = newSecondState
-		oldStateNewStates.get(oldFirstState) += #[newFirstState]
-		newStateOldStates += #{newFirstState -> #[oldFirstState]}
-		oldStateNewStates.get(oldSecondState) += #[newSecondState]
-		newStateOldStates += #{newSecondState -> #[oldSecondState]}
-		for (var i = 1; i < firstRegion.stateNodes.size; i++) {
-			val state = firstRegion.stateNodes.get(i)
-			handleState(state)
+		// Writing the result back to the statechart
+		val newStates = <Integer, StateNode>newHashMap
+		val representativeSubsets = newArrayList
+		for (i : 0 ..< subsets.size) {
+			val block = blocks.get(i)
+			if (!newStates.containsKey(block)) {
+				val newState = subsetStates.get(i).createDeterministicState
+				firstRegion.stateNodes += newState
+				newStates.put(block, newState)
+				representativeSubsets += i
+			}
+		}
+		for (i : representativeSubsets) {
+			val source = newStates.get(blocks.get(i))
+			for (transition : subsetTransitions.get(i)) {
+				val newTransition = transition.key.clone
+				newTransition.sourceState = source
+				newTransition.targetState = newStates.get(blocks.get(transition.value))
+				newStatechart.transitions += newTransition
+			}
 		}
 
 		// Reset references inside triggers
@@ -111,9 +175,6 @@ class AutomatonDeterminizator {
 			ecoreUtil.change(newTimeout, timeout, newStatechart)
 		}
 
-		// remove unreachable nodes
-		removeUnreachableNodes()
-
 		// add annotations
 		addAnnotationForAcceptingStates()
 
@@ -129,111 +190,119 @@ class AutomatonDeterminizator {
 		}
 	}
 
-	def void removeUnreachableNodes() {
-		val remove = <StateNode>newArrayList
-		for (stateNode : firstRegion.stateNodes) {
-			if (stateNode.incomingTransitions.isEmpty && stateNode.name != scenarioStatechartUtil.initial)
-				remove += stateNode
-		}
-		newStatechart.transitions.removeAll(remove.flatMap[it.outgoingTransitions])
-		firstRegion.stateNodes -= remove
-		if (firstRegion.stateNodes
-				.exists[it.incomingTransitions.isEmpty && it.name != scenarioStatechartUtil.initial]) {
-			removeUnreachableNodes()
+	protected def getStates(BitSet subset, List<StateNode> oldStates) {
+		val states = <StateNode>newArrayList
+		for (var i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			states += oldStates.get(i)
 		}
+		return states
 	}
 
-	def handleState(StateNode node) {
-		val representedOldStates = newStateOldStates.get(node).toSet
-		val outgoingTransitions = representedOldStates.flatMap[it.outgoingTransitions].toList
-		val sets = findNonDeterministicSets(outgoingTransitions)
-		for (set : sets) {
-			val targetStates = set.map[it.targetState].toSet
-			var StateNode state = null
-			if (targetStates.size == 1) {
-				state = oldNewStateMap.get(targetStates.head)
-			} else {
-				state = findCollectiveState(targetStates)
-			}
-			if (state === null) {
-				state = creatCollectiveState(targetStates)
-			}
-			val newTransition = set.head.clone
-			newTransition.sourceState = node
-			newTransition.targetState = state
-			newStatechart.transitions += newTransition
-		}
-		val allNondeterministicTransition = sets.flatten
-		val deterministicTransitions = outgoingTransitions.filter[!allNondeterministicTransition.contains(it)]
-		for (transition : deterministicTransitions) {
-			val newTransition = transition.clone
-			newTransition.sourceState = node
-			newTransition.targetState = oldNewStateMap.get(transition.targetState)
-			newStatechart.transitions += newTransition
+	protected def StateNode createDeterministicState(List<StateNode> nodes) {
+		if (nodes.size == 1) {
+			return nodes.head.clone
 		}
-	}
-
-	def StateNode creatCollectiveState(Collection<StateNode> nodes) {
 		val newState = createState
 		newState.name = nodes.map[it.name].join('__')
-		firstRegion.stateNodes += newState
-		statesCollectiveState.put(nodes, newState)
-		newStateOldStates.put(newState, nodes)
 		return newState
 	}
 
-	def StateNode findCollectiveState(Collection<StateNode> nodes) {
-		for (key : statesCollectiveState.keySet) {
-			if (areListsEqual(key, nodes)) {
-				return statesCollectiveState.get(key)
-			}
+	/**
+	 * Assigns the same label to transitions that are equal according to the given predicate.
+	 * Transitions that are equal must have equal keys; only transitions with equal keys are compared.
+	 */
+	protected def getLabels(List<Transition> transitions, (Transition) => Object getKey,
+			(Transition, Transition) => boolean areEqual) {
+		val labels = <Transition, Integer>newHashMap
+		val representatives = <Transition>newArrayList
+		val index = <Object, List<Integer>>newHashMap
+		for (transition : transitions) {
+			val label = representatives.getRepresentative(index, transition, getKey.apply(transition), areEqual)
+			labels.put(transition, label)
 		}
-		return null
+		return labels
 	}
 
-	def boolean areListsEqual(Collection<StateNode> list1, Collection<StateNode> list2) {
-		if (list1.size != list2.size) {
-			return false
-		}
-		for (element : list1) {
-			if (!list2.contains(element)) {
-				return false
+	/**
+	 * Collective states can be merged with collective states, original states with original states
+	 * with equal contents; names can differ, but the names of merged states must contain the same special parts.
+	 */
+	protected def getInitialBlocks(List<List<StateNode>> subsetStates) {
+		val initialBlocks = newIntArrayOfSize(subsetStates.size)
+		val representatives = <StateNode>newArrayList
+		val index = <Object, List<Integer>>newHashMap
+		for (i : 0 ..< subsetStates.size) {
+			val states = subsetStates.get(i)
+			val normalizedState = if (states.size == 1) {
+				val state = states.head
+				if (state instanceof State) {
+					state.clone => [
+						it.name = state.name.specialNameParts
+					]
+				}
+				else {
+					state // Pseudo states are not merged
+				}
+			}
+			else {
+				createState => [
+					it.name = states.map[it.name].join('__').specialNameParts
+					it.annotations += createSpecialStateAnnotation // Distinguishing from original states
+				]
 			}
+			val block = representatives.getRepresentative(index, normalizedState,
+				normalizedState.helperHashCode, [a, b | a.helperEquals(b)])
+			initialBlocks.set(i, block)
 		}
-		return true
+		return initialBlocks
 	}
 
-	def Set<Set<Transition>> findNonDeterministicSets(Collection<Transition> transitions) {
-		val output = <Set<Transition>>newHashSet
-		for (transitionI : transitions) {
-			for (transitionJ : transitions) {
-				if (transitionI != transitionJ && areTransitionsNonDeterministic(transitionI, transitionJ)) {
-					var containingSet = findContainingSetForEither(output, transitionI, transitionJ)
-					if (containingSet === null) {
-						containingSet = newHashSet
-						output += containingSet
-					}
-					containingSet += transitionI
-					containingSet += transitionJ
-				}
+	/**
+	 * Returns the index of the representative equal to the given object, registering the object
+	 * as a new representative if there is none. The index maps the keys to the representatives.
+	 */
+	protected def <T> int getRepresentative(List<T> representatives, Map<Object, List<Integer>> index,
+			T object, Object key, (T, T) => boolean areEqual) {
+		var candidates = index.get(key)
+		if (candidates === null) {
+			candidates = newArrayList
+			index.put(key, candidates)
+		}
+		for (candidate : candidates) {
+			if (areEqual.apply(representatives.get(candidate), object)) {
+				return candidate
 			}
 		}
-		return output
+		val newIndex = representatives.size
+		representatives += object
+		candidates += newIndex
+		return newIndex
 	}
 
-	def Set<Transition> findContainingSetForEither(Set<Set<Transition>> sets, Transition a, Transition b) {
-		for (set : sets) {
-			if (set.contains(a) || set.contains(b)) {
-				return set
-			}
-		}
-		return null
+	protected def getSpecialNameParts(String name) {
+		val specialNameParts = #[accepting, hotViolation, coldViolation, hotComponentViolation,
+			hotEnvironmentViolation, initial, firstStateName]
+		return specialNameParts.filter[name.contains(it)].join('_')
+	}
+
+	protected def getNonDeterminismKey(Transition transition) {
+		return #[transition.trigger.helperHashCode, transition.guard.helperHashCode]
+	}
+
+	protected def getEquivalenceKey(Transition transition) {
+		return #[transition.trigger.helperHashCode, transition.guard.helperHashCode,
+			transition.effects.helperHashCode, transition.annotations.helperHashCode]
 	}
 
 	def boolean areTransitionsNonDeterministic(Transition a, Transition b) {
 		return ecoreUtil.helperEquals(a.trigger, b.trigger) && ecoreUtil.helperEquals(a.guard, b.guard)
 	}
 
+	def boolean areTransitionsEquivalent(Transition a, Transition b) {
+		return a.areTransitionsNonDeterministic(b) && ecoreUtil.helperEquals(a.effects, b.effects) &&
+			ecoreUtil.helperEquals(a.annotations, b.annotations)
+	}
+
 	def protected createNewState(String name) {
 		var state = createState
 		state.name = name
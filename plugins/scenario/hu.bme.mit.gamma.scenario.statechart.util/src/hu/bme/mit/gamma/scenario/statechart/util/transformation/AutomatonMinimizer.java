@@ -0,0 +1,197 @@
+/********************************************************************************
+ * Copyright (c) 2020-2022 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.scenario.statechart.util.transformation;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AutomatonMinimizer {
+	// Singleton
+	public static final AutomatonMinimizer INSTANCE = new AutomatonMinimizer();
+	protected AutomatonMinimizer() {}
+	//
+
+	/**
+	 * Computes the coarsest partition of the states of a deterministic automaton that refines the
+	 * initial partition and is compatible with the transitions (Hopcroft's algorithm).
+	 * Missing transitions lead to an implicit sink state.
+	 *
+	 * @param transitions transitions[state][label] is the target state or -1 if there is no such transition
+	 * @param initialBlocks states with different initial blocks are never merged
+	 * @param labelCount the number of labels
+	 * @return the block index of each state; blocks are numbered in the order of their first state
+	 */
+	public int[] minimize(int[][] transitions, int[] initialBlocks, int labelCount) {
+		int stateCount = transitions.length;
+		int sink = stateCount;
+		int allStateCount = stateCount + 1;
+
+		// Inverse transitions in compressed form: the sources of target t with label l are
+		// sources[l][sourceOffsets[l][t]], ..., sources[l][sourceOffsets[l][t + 1] - 1]
+		int[][] sourceOffsets = new int[labelCount][allStateCount + 1];
+		int[][] sources = new int[labelCount][allStateCount];
+		for (int label = 0; label < labelCount; label++) {
+			int[] offsets = sourceOffsets[label];
+			for (int state = 0; state < allStateCount; state++) {
+				offsets[getTarget(transitions, state, label, sink) + 1]++;
+			}
+			for (int state = 0; state < allStateCount; state++) {
+				offsets[state + 1] += offsets[state];
+			}
+			int[] positions = Arrays.copyOf(offsets, allStateCount);
+			for (int state = 0; state < allStateCount; state++) {
+				int target = getTarget(transitions, state, label, sink);
+				sources[label][positions[target]++] = state;
+			}
+		}
+
+		// Refinable partition: the elements of block b are elements[blockStarts[b]..blockEnds[b] - 1]
+		int[] elements = new int[allStateCount];
+		int[] locations = new int[allStateCount];
+		int[] blocks = new int[allStateCount];
+		int[] blockStarts = new int[allStateCount];
+		int[] blockEnds = new int[allStateCount];
+		int[] markedCounts = new int[allStateCount];
+		int blockCount = createInitialPartition(initialBlocks, elements, locations, blocks, blockStarts, blockEnds);
+
+		// Splitters
+		boolean[] isSplitter = new boolean[allStateCount * labelCount];
+		Deque<int[]> splitters = new ArrayDeque<int[]>();
+		for (int block = 0; block < blockCount; block++) {
+			for (int label = 0; label < labelCount; label++) {
+				isSplitter[block * labelCount + label] = true;
+				splitters.add(new int[] { block, label });
+			}
+		}
+
+		boolean[] isMarked = new boolean[allStateCount];
+		int[] markedStates = new int[allStateCount];
+		int[] touchedBlocks = new int[allStateCount];
+		while (!splitters.isEmpty()) {
+			int[] splitter = splitters.poll();
+			int splitterBlock = splitter[0];
+			int label = splitter[1];
+			isSplitter[splitterBlock * labelCount + label] = false;
+			// Marking the states that have a transition with the label into the splitter block
+			int[] targets = Arrays.copyOfRange(elements, blockStarts[splitterBlock], blockEnds[splitterBlock]);
+			int markedCount = 0;
+			int touchedCount = 0;
+			for (int target : targets) {
+				for (int i = sourceOffsets[label][target]; i < sourceOffsets[label][target + 1]; i++) {
+					int source = sources[label][i];
+					if (!isMarked[source]) {
+						isMarked[source] = true;
+						markedStates[markedCount++] = source;
+						int block = blocks[source];
+						if (markedCounts[block] == 0) {
+							touchedBlocks[touchedCount++] = block;
+						}
+						// Moving the marked state to the front of its block
+						int position = blockStarts[block] + markedCounts[block]++;
+						int swappedState = elements[position];
+						elements[locations[source]] = swappedState;
+						locations[swappedState] = locations[source];
+						elements[position] = source;
+						locations[source] = position;
+					}
+				}
+			}
+			// Splitting the touched blocks into marked and unmarked parts
+			for (int i = 0; i < touchedCount; i++) {
+				int block = touchedBlocks[i];
+				int marked = markedCounts[block];
+				markedCounts[block] = 0;
+				int size = blockEnds[block] - blockStarts[block];
+				if (marked < size) {
+					int newBlock = blockCount++;
+					blockStarts[newBlock] = blockStarts[block];
+					blockEnds[newBlock] = blockStarts[block] + marked;
+					blockStarts[block] = blockEnds[newBlock];
+					for (int j = blockStarts[newBlock]; j < blockEnds[newBlock]; j++) {
+						blocks[elements[j]] = newBlock;
+					}
+					int smallerBlock = (marked <= size - marked) ? newBlock : block;
+					for (int splitterLabel = 0; splitterLabel < labelCount; splitterLabel++) {
+						int splitterBlockToAdd = isSplitter[block * labelCount + splitterLabel] ? newBlock : smallerBlock;
+						if (!isSplitter[splitterBlockToAdd * labelCount + splitterLabel]) {
+							isSplitter[splitterBlockToAdd * labelCount + splitterLabel] = true;
+							splitters.add(new int[] { splitterBlockToAdd, splitterLabel });
+						}
+					}
+				}
+			}
+			for (int i = 0; i < markedCount; i++) {
+				isMarked[markedStates[i]] = false;
+			}
+		}
+
+		// Renumbering the blocks in the order of their first states
+		int[] result = new int[stateCount];
+		Map<Integer, Integer> blockIndexes = new HashMap<Integer, Integer>();
+		for (int state = 0; state < stateCount; state++) {
+			Integer index = blockIndexes.get(blocks[state]);
+			if (index == null) {
+				index = blockIndexes.size();
+				blockIndexes.put(blocks[state], index);
+			}
+			result[state] = index;
+		}
+		return result;
+	}
+
+	private int getTarget(int[][] transitions, int state, int label, int sink) {
+		if (state == sink) {
+			return sink;
+		}
+		int target = transitions[state][label];
+		return (target < 0) ? sink : target;
+	}
+
+	private int createInitialPartition(int[] initialBlocks, int[] elements, int[] locations,
+			int[] blocks, int[] blockStarts, int[] blockEnds) {
+		int stateCount = initialBlocks.length;
+		int sink = stateCount;
+		// Dense numbering of the initial blocks, the sink is in a separate block
+		Map<Integer, Integer> blockIndexes = new HashMap<Integer, Integer>();
+		for (int state = 0; state < stateCount; state++) {
+			Integer index = blockIndexes.get(initialBlocks[state]);
+			if (index == null) {
+				index = blockIndexes.size();
+				blockIndexes.put(initialBlocks[state], index);
+			}
+			blocks[state] = index;
+		}
+		int blockCount = blockIndexes.size() + 1;
+		blocks[sink] = blockCount - 1;
+		// Counting sort of the states according to their blocks
+		int[] sizes = new int[blockCount];
+		for (int state = 0; state <= sink; state++) {
+			sizes[blocks[state]]++;
+		}
+		int start = 0;
+		for (int block = 0; block < blockCount; block++) {
+			blockStarts[block] = start;
+			blockEnds[block] = start;
+			start += sizes[block];
+		}
+		for (int state = 0; state <= sink; state++) {
+			int block = blocks[state];
+			int position = blockEnds[block]++;
+			elements[position] = state;
+			locations[state] = position;
+		}
+		return blockCount;
+	}
+
+}
@@ -779,21 +779,20 @@ class ActionOptimizer {
 		val xStsSubactions = newArrayList
 		xStsSubactions += action.actions
 		for (branch : xStsSubactions) {
-			try {
-				val firstAction = branch.firstAtomicAction
-				if (firstAction instanceof AssumeAction) {
-					if (firstAction.isDefinitelyFalseAssumeAction) {
-						branch.remove
-					}
-					else {
-						branch.deleteDefinitelyFalseBranches
-					}
-				}
-			} catch (IllegalArgumentException e) {
+			val firstAction = branch.findFirstAtomicAction
+			if (firstAction === null) {
 				// Branch does not contain a 'firstAtomicAction' - full nondeterministic
 				// continue...
 				branch.deleteDefinitelyFalseBranches
 			}
+			else if (firstAction instanceof AssumeAction) {
+				if (firstAction.isDefinitelyFalseAssumeAction) {
+					branch.remove
+				}
+				else {
+					branch.deleteDefinitelyFalseBranches
+				}
+			}
 		}
 	}
 	
@@ -97,13 +97,14 @@ class EventReferenceTransformer {
 				// We need the max initial value, to make sure each one is true at the beginning
 				val oldValue = lowlevelTimeoutVar.expression
 				val newValue = value.clone
-				try {
-					val evaluatedOldValue = oldValue.evaluateInteger
-					val evaluatedNewValue = newValue.evaluateInteger
-					if (evaluatedOldValue < evaluatedNewValue) {
+				val evaluatedOldValue = oldValue.tryEvaluateInteger
+				val evaluatedNewValue = newValue.tryEvaluateInteger
+				if (evaluatedOldValue.present && evaluatedNewValue.present) {
+					if (evaluatedOldValue.asInt < evaluatedNewValue.asInt) {
 						lowlevelTimeoutVar.expression = newValue
 					}
-				} catch (IllegalArgumentException e) {
+				}
+				else {
 					// One expression is a variable: better to do add expression
 					lowlevelTimeoutVar.expression = createAddExpression => [
 						it.operands += lowlevelTimeoutVar.expression
@@ -0,0 +1,180 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.theta.verification
+
+import hu.bme.mit.gamma.expression.model.Expression
+import hu.bme.mit.gamma.querygenerator.ThetaQueryGenerator
+import hu.bme.mit.gamma.statechart.interface_.Component
+import hu.bme.mit.gamma.statechart.interface_.Package
+import hu.bme.mit.gamma.statechart.interface_.SchedulingConstraintAnnotation
+import hu.bme.mit.gamma.trace.model.ExecutionTrace
+import hu.bme.mit.gamma.trace.model.Step
+import hu.bme.mit.gamma.trace.model.TraceModelFactory
+import hu.bme.mit.gamma.trace.util.TraceUtil
+import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.verification.util.TraceBuilder
+import java.util.logging.Level
+import java.util.logging.Logger
+
+import static com.google.common.base.Preconditions.checkState
+
+import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
+
+/**
+ * Back-annotates sequences of states of the XSTS generated for Theta: the subclasses read the states
+ * (the one after the initialization and then the ones after the environmental and internal transitions
+ * alternately) and this class maps the variable values to the steps of the trace.
+ */
+abstract class AbstractThetaBackAnnotator {
+
+	protected final ThetaQueryGenerator thetaQueryGenerator
+	protected final extension XstsBackAnnotator xStsBackAnnotator
+	protected static final Object engineSynchronizationObject = new Object
+
+	protected final Package gammaPackage
+	protected final Component component
+	protected final Expression schedulingConstraint
+
+	protected final boolean sortTrace
+	// Auxiliary objects
+	protected final extension TraceModelFactory trFact = TraceModelFactory.eINSTANCE
+	protected final extension TraceUtil traceUtil = TraceUtil.INSTANCE
+	protected final extension TraceBuilder traceBuilder = TraceBuilder.INSTANCE
+	protected final extension GammaEcoreUtil gammaEcoreUtil = GammaEcoreUtil.INSTANCE
+
+	protected final Logger logger = Logger.getLogger("GammaLogger")
+
+	new(Package gammaPackage, boolean sortTrace) {
+		this.gammaPackage = gammaPackage
+		this.sortTrace = sortTrace
+		this.component = gammaPackage.firstComponent
+		this.thetaQueryGenerator = new ThetaQueryGenerator(component)
+		this.xStsBackAnnotator = new XstsBackAnnotator(thetaQueryGenerator, ThetaArrayParser.INSTANCE)
+		val schedulingConstraintAnnotation = gammaPackage.annotations
+				.filter(SchedulingConstraintAnnotation).head
+		if (schedulingConstraintAnnotation !== null) {
+			this.schedulingConstraint = schedulingConstraintAnnotation.schedulingConstraint
+		}
+		else {
+			this.schedulingConstraint = null
+		}
+	}
+
+	def ExecutionTrace execute()
+
+	protected def createTrace() {
+		// Creating the trace component
+		val trace = createExecutionTrace => [
+			it.component = this.component
+			it.import = this.gammaPackage
+			it.name = this.component.name + "Trace"
+		]
+		val topComponentArguments = gammaPackage.topComponentArguments
+		// Note that the top component does not contain parameter declarations anymore due to the preprocessing
+		checkState(topComponentArguments.size == component.parameterDeclarations.size,
+			"The number of top component arguments and top component parameters are not equal: " +
+				topComponentArguments.size + " - " + component.parameterDeclarations.size)
+		logger.log(Level.INFO, "The number of top component arguments is " + topComponentArguments.size)
+		trace.arguments += topComponentArguments.map[it.clone]
+		return trace
+	}
+
+	/**
+	 * Closes the given step at the start of a new state and returns the next parsing state.
+	 * After a checked state, a new step is created for the environment actions; it is added to the trace
+	 * and is the new last step of the trace.
+	 */
+	protected def nextState(BackAnnotatorState state, Step step, ExecutionTrace trace) {
+		switch (state) {
+			case STATE_CHECK: {
+				step.checkStates
+				// Creating a new step
+				val newStep = createStep
+				// Add static delay every turn
+				if (schedulingConstraint !== null) {
+					newStep.addTimeElapse(schedulingConstraint)
+				}
+				trace.steps += newStep
+				return BackAnnotatorState.ENVIRONMENT_CHECK
+			}
+			case ENVIRONMENT_CHECK: {
+				step.checkInEvents
+				// Add schedule
+				step.addSchedulingIfNeeded
+				return BackAnnotatorState.STATE_CHECK
+			}
+			default:
+				throw new IllegalArgumentException("Not known state: " + state)
+		}
+	}
+
+	protected def parse(BackAnnotatorState state, String id, String value, Step step) {
+		switch (state) {
+			case STATE_CHECK: {
+				val potentialStateString = '''«id» == «value»'''
+				if (thetaQueryGenerator.isSourceState(potentialStateString)) {
+					potentialStateString.parseState(step)
+				}
+				else if (thetaQueryGenerator.isDelay(id)) {
+					step.addTimeElapse(Integer.valueOf(value))
+				}
+				else if (thetaQueryGenerator.isSourceVariable(id)) {
+					id.parseVariable(value, step)
+				}
+				else if (id.isSchedulingVariable) {
+					id.addScheduling(value, step)
+				}
+				else if (thetaQueryGenerator.isSourceOutEvent(id)) {
+					id.parseOutEvent(value, step)
+				}
+				else if (thetaQueryGenerator.isSourceOutEventParameter(id)) {
+					id.parseOutEventParameter(value, step)
+				}
+				// Checking if an asynchronous in-event is already stored in the queue
+				else if (thetaQueryGenerator.isAsynchronousSourceMessageQueue(id)) {
+					id.handleStoredAsynchronousInEvents(value)
+				}
+			}
+			case ENVIRONMENT_CHECK: {
+				// Synchronous in-event
+				if (thetaQueryGenerator.isSynchronousSourceInEvent(id)) {
+					id.parseSynchronousInEvent(value, step)
+				}
+				// Synchronous in-event parameter
+				else if (thetaQueryGenerator.isSynchronousSourceInEventParameter(id)) {
+					id.parseSynchronousInEventParameter(value, step)
+				}
+				// Asynchronous in-event
+				else if (thetaQueryGenerator.isAsynchronousSourceMessageQueue(id)) {
+					id.parseAsynchronousInEvent(value, step)
+				}
+				// Asynchronous in-event parameter
+				else if (thetaQueryGenerator.isAsynchronousSourceInEventParameter(id)) {
+					id.parseAsynchronousInEventParameter(value, step)
+				}
+			}
+			default:
+				throw new IllegalArgumentException("Not known state: " + state)
+		}
+	}
+
+	protected def finishTrace(ExecutionTrace trace) {
+		trace.removeInternalEventRaiseActs
+		trace.removeTransientVariableReferences // They always have default values
+	}
+
+	def static getEngineSynchronizationObject() {
+		return engineSynchronizationObject
+	}
+
+}
+
+enum BackAnnotatorState {INIT, STATE_CHECK, ENVIRONMENT_CHECK}
@@ -99,7 +99,7 @@ class ThetaTraceGenerator {
 
 	protected def backAnnotate(Package gammaPackage, Scanner traceFileScanner) {
 		// Must be synchronized due to the non-thread-safe VIATRA engine
-		synchronized (TraceBackAnnotator.getEngineSynchronizationObject) {
+		synchronized (AbstractThetaBackAnnotator.getEngineSynchronizationObject) {
 			val backAnnotator = new TraceBackAnnotator(gammaPackage, traceFileScanner)
 			return backAnnotator.execute
 		}
@@ -29,46 +29,33 @@ class ThetaVerification extends AbstractVerification {
 		val gammaPackage = ecoreUtil.normalLoad(modelFile.parent, packageFileName)
 		val queries = fileUtil.loadString(queryFile)
 		
-		var Result result = null
+		// Racing for the whole query list: every verifier checks the queries in batches
+		val racer = new ThreadRacer<Result>
+		val callables = <InterruptableCallable<Result>>newArrayList
 		
-		for (query : queries.splitLines) {
-			// Racing for every query separately
-			val racer = new ThreadRacer<Result>
-			val callables = <InterruptableCallable<Result>>newArrayList
+		for (argument : arguments) {
+			argument.sanitizeArgument
 			
-			for (argument : arguments) {
-				argument.sanitizeArgument
+			val verifier = new ThetaVerifier
+			callables += new InterruptableCallable<Result> {
 				
-				val verifier = new ThetaVerifier
-				callables += new InterruptableCallable<Result> {
-					
-					override Result call() {
-						val currentThread = Thread.currentThread
-						logger.log(Level.INFO, '''Starting Theta on thread «currentThread.name» with "«argument»"''')
-						val result = verifier.verifyQuery(gammaPackage, argument, modelFile, queries)
-						logger.log(Level.INFO, '''Thread «currentThread.name» with "«argument»" has won''')
-						return result
-					}
-					
-					override void cancel() {
-						verifier.cancel
-						logger.log(Level.INFO, '''Theta verification instance with "«argument»" has been cancelled''')
-					}
-					
+				override Result call() {
+					val currentThread = Thread.currentThread
+					logger.log(Level.INFO, '''Starting Theta on thread «currentThread.name» with "«argument»"''')
+					val result = verifier.verifyQuery(gammaPackage, argument, modelFile, queries)
+					logger.log(Level.INFO, '''Thread «currentThread.name» with "«argument»" has won''')
+					return result
 				}
-			}
-			
-			val newResult = racer.execute(callables)
-			
-			if (result === null) {
-				result = newResult
-			}
-			else {
-				result = result.extend(newResult)
+				
+				override void cancel() {
+					verifier.cancel
+					logger.log(Level.INFO, '''Theta verification instance with "«argument»" has been cancelled''')
+				}
+				
 			}
 		}
 		
-		return result
+		return racer.execute(callables)
 	}
 	
 	override getDefaultArguments() {
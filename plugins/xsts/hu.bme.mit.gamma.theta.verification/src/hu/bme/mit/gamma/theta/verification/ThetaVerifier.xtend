@@ -15,8 +15,10 @@ import hu.bme.mit.gamma.util.FileUtil
 import hu.bme.mit.gamma.verification.result.ThreeStateBoolean
 import hu.bme.mit.gamma.verification.util.AbstractVerifier
 import java.io.File
+import java.util.List
 import java.util.Scanner
 import java.util.logging.Level
+import java.util.regex.Pattern
 
 import static com.google.common.base.Preconditions.checkState
 
@@ -27,20 +29,15 @@ class ThetaVerifier extends AbstractVerifier {
 	
 	final String ENVIRONMENT_VARIABLE_FOR_THETA_JAR = "THETA_XSTS_CLI_PATH"
 	
+	final String AG = "A[]"
+	
 	final String SAFE = "SafetyResult Safe"
 	final String UNSAFE = "SafetyResult Unsafe"
 	
 	override Result verifyQuery(Object traceability, String parameters, File modelFile, String query) {
+		val queries = query.split(System.lineSeparator).reject[it.nullOrEmpty].toList
 		var Result result = null
-		for (singleQuery : query.split(System.lineSeparator).reject[it.nullOrEmpty]) {
-			// Supporting multiple queries in separate files
-			val parsedQuery = singleQuery.adaptQuery
-			val wrappedQuery = '''
-				prop {
-					«parsedQuery»
-				}
-			'''
-			val newResult = super.verifyQuery(traceability, parameters, modelFile, wrappedQuery)
+		for (newResult : traceability.verifyQueries(parameters, modelFile, queries)) {
 			val oldTrace = result?.trace
 			val newTrace = newResult?.trace
 			if (oldTrace === null) {
@@ -54,6 +51,100 @@ class ThetaVerifier extends AbstractVerifier {
 		return result
 	}
 	
+	/**
+	 * Returns the results of the given queries in the same order. The queries are verified in batches:
+	 * their invariants are conjoined into a single property, so if all of them hold, the model is parsed
+	 * and the abstraction is built by a single Theta run. Violated batches are bisected. If every invariant
+	 * of the first half holds, the second half is known to be violated by the counterexample of the batch,
+	 * so it is not verified again, and a single query left in it gets this counterexample. If most
+	 * invariants of the first half are violated (e.g., most 'E<>' targets are reachable), the queries
+	 * of the second half are verified one by one instead of being bisected further.
+	 */
+	def List<Result> verifyQueries(Object traceability, String parameters, File modelFile, List<String> queries) {
+		val results = <Result>newArrayList
+		traceability.verifyQueries(parameters, modelFile, queries, null, results)
+		return results
+	}
+	
+	protected def void verifyQueries(Object traceability, String parameters, File modelFile,
+			List<String> queries, Result violatedBatchResult, List<Result> results) {
+		if (queries.size == 1 && violatedBatchResult !== null) {
+			// The counterexample of the batch violates the invariant of this single query
+			val query = queries.head
+			val result = if (query.existential) ThreeStateBoolean.TRUE else ThreeStateBoolean.FALSE
+			results += new Result(result, violatedBatchResult.trace)
+			return
+		}
+		if (queries.size <= 1) {
+			for (query : queries) {
+				results += traceability.verifySingleQuery(parameters, modelFile, query)
+			}
+			return
+		}
+		val batchResult = if (violatedBatchResult !== null) {
+			violatedBatchResult
+		}
+		else {
+			val batchQuery = AG + " " + queries.map['''(«it.invariant»)'''].join(" && ")
+			logger.log(Level.INFO, "Verifying " + queries.size + " queries in a single batch")
+			traceability.verifySingleQuery(parameters, modelFile, batchQuery)
+		}
+		switch (batchResult.result) {
+			case TRUE: {
+				// Every invariant holds: 'A[]' queries are satisfied, 'E<>' ones are not
+				for (query : queries) {
+					val result = if (query.existential) ThreeStateBoolean.FALSE else ThreeStateBoolean.TRUE
+					results += new Result(result, null)
+				}
+			}
+			case FALSE: {
+				// At least one invariant is violated
+				val half = queries.size / 2
+				val firstQueries = queries.subList(0, half)
+				val secondQueries = queries.subList(half, queries.size)
+				val firstIndex = results.size
+				traceability.verifyQueries(parameters, modelFile, firstQueries, null, results)
+				val firstResults = results.subList(firstIndex, results.size)
+				val violatedCount = (0 ..< half).filter[
+						firstQueries.get(it).isInvariantViolated(firstResults.get(it))].size
+				if (violatedCount == 0) {
+					// The counterexample of the batch violates an invariant of the second half
+					traceability.verifyQueries(parameters, modelFile, secondQueries, batchResult, results)
+				}
+				else if (2 * violatedCount > half) {
+					// Most invariants are violated, batches would be bisected all the way down
+					for (query : secondQueries) {
+						results += traceability.verifySingleQuery(parameters, modelFile, query)
+					}
+				}
+				else {
+					traceability.verifyQueries(parameters, modelFile, secondQueries, null, results)
+				}
+			}
+			default: {
+				// Cancelled
+				for (query : queries) {
+					results += new Result(ThreeStateBoolean.UNDEF, null)
+				}
+			}
+		}
+	}
+	
+	protected def isInvariantViolated(String query, Result result) {
+		val violatingResult = if (query.existential) ThreeStateBoolean.TRUE else ThreeStateBoolean.FALSE
+		return result?.result == violatingResult
+	}
+	
+	protected def verifySingleQuery(Object traceability, String parameters, File modelFile, String query) {
+		val parsedQuery = query.adaptQuery
+		val wrappedQuery = '''
+			prop {
+				«parsedQuery»
+			}
+		'''
+		return super.verifyQuery(traceability, parameters, modelFile, wrappedQuery)
+	}
+	
 	override Result verifyQuery(Object traceability, String parameters, File modelFile, File queryFile) {
 		var Scanner resultReader = null
 		var Scanner traceFileScanner = null
@@ -80,16 +171,21 @@ class ThetaVerifier extends AbstractVerifier {
 					"--cex", traceFile.canonicalPath, "--stacktrace"]
 			// Executing the command
 			logger.log(Level.INFO, "Executing command: " + command.join(" "))
+			val backendPhase = phaseRecorder.start("theta")
 			process = Runtime.getRuntime().exec(command)
 			
 			val outputStream = process.inputStream
 			resultReader = new Scanner(outputStream)
+			val output = new StringBuilder
 			var line = ""
 			while (resultReader.hasNext) {
 				// (SafetyResult Safe) or (SafetyResult Unsafe)
 				line = resultReader.nextLine
 				logger.log(Level.INFO, line)
+				output.append(line + System.lineSeparator)
 			}
+			backendPhase.putStatistics(output)
+			backendPhase.put("parameters", parameters).end
 			// Variable 'line' contains the last line of the output - the result
 			if (line.contains(SAFE)) {
 				super.result = ThreeStateBoolean.TRUE
@@ -128,9 +224,24 @@ class ThetaVerifier extends AbstractVerifier {
 	
 	protected def backAnnotate(Package gammaPackage, Scanner traceFileScanner) {
 		// Must be synchronized due to the non-thread-safe VIATRA engine
-		synchronized (TraceBackAnnotator.getEngineSynchronizationObject) {
+		synchronized (AbstractThetaBackAnnotator.getEngineSynchronizationObject) {
+			val backAnnotationPhase = phaseRecorder.start("back-annotation")
 			val backAnnotator = new TraceBackAnnotator(gammaPackage, traceFileScanner)
-			return backAnnotator.execute
+			val trace = backAnnotator.execute
+			backAnnotationPhase.put("steps", trace.steps.size).end
+			return trace
+		}
+	}
+	
+	override protected getStatisticsPatterns() {
+		return #{
+			"iterations" -> Pattern.compile("Iterations[=: ]+(\\d+)"),
+			"algorithmTimeMs" -> Pattern.compile("AlgorithmTimeMs[=: ]+(\\d+)"),
+			"abstractorTimeMs" -> Pattern.compile("AbstractorTimeMs[=: ]+(\\d+)"),
+			"refinerTimeMs" -> Pattern.compile("RefinerTimeMs[=: ]+(\\d+)"),
+			"argSize" -> Pattern.compile("ArgSize[=: ]+(\\d+)"),
+			"argDepth" -> Pattern.compile("ArgDepth[=: ]+(\\d+)"),
+			"cexLength" -> Pattern.compile("CexLength[=: ]+(\\d+)")
 		}
 	}
 	
@@ -161,12 +272,20 @@ class ThetaQueryAdapter {
 	}
 	
 	def adaptQuery(String query) {
-		if (query.startsWith("E<>")) {
-			invert = true
+		val invariant = query.invariant
+		invert = query.existential
+		return invariant
+	}
+	
+	def isExistential(String query) {
+		return query.startsWith(EF)
+	}
+	
+	def getInvariant(String query) {
+		if (query.startsWith(EF)) {
 			return "!(" + query.substring(EF.length) + ")"
 		}
-		if (query.startsWith("A[]")) {
-			invert = false
+		if (query.startsWith(AG)) {
 			return query.substring(AG.length)
 		}
 		throw new IllegalArgumentException("Not supported operator: " + query)
@@ -10,84 +10,30 @@
  ********************************************************************************/
 package hu.bme.mit.gamma.theta.verification
 
-import hu.bme.mit.gamma.expression.model.Expression
-import hu.bme.mit.gamma.querygenerator.ThetaQueryGenerator
-import hu.bme.mit.gamma.statechart.interface_.Component
 import hu.bme.mit.gamma.statechart.interface_.Package
-import hu.bme.mit.gamma.statechart.interface_.SchedulingConstraintAnnotation
 import hu.bme.mit.gamma.trace.model.ExecutionTrace
-import hu.bme.mit.gamma.trace.model.TraceModelFactory
-import hu.bme.mit.gamma.trace.util.TraceUtil
-import hu.bme.mit.gamma.util.GammaEcoreUtil
-import hu.bme.mit.gamma.verification.util.TraceBuilder
 import java.util.NoSuchElementException
 import java.util.Scanner
-import java.util.logging.Level
-import java.util.logging.Logger
 
-import static com.google.common.base.Preconditions.checkState
-
-import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
-
-class TraceBackAnnotator {
+class TraceBackAnnotator extends AbstractThetaBackAnnotator {
 	
 	protected final String XSTS_TRACE = "(XstsStateSequence"
 	protected final String XSTS_STATE = "(XstsState"
 	protected final String EXPL_STATE = "(ExplState"
 	
 	protected final Scanner traceScanner
-	protected final ThetaQueryGenerator thetaQueryGenerator
-	protected final extension XstsBackAnnotator xStsBackAnnotator
-	protected static final Object engineSynchronizationObject = new Object
-	
-	protected final Package gammaPackage
-	protected final Component component
-	protected final Expression schedulingConstraint
-	
-	protected final boolean sortTrace
-	// Auxiliary objects
-	protected final extension TraceModelFactory trFact = TraceModelFactory.eINSTANCE
-	protected final extension TraceUtil traceUtil = TraceUtil.INSTANCE
-	protected final extension TraceBuilder traceBuilder = TraceBuilder.INSTANCE
-	protected final extension GammaEcoreUtil gammaEcoreUtil = GammaEcoreUtil.INSTANCE
-	
-	protected final Logger logger = Logger.getLogger("GammaLogger")
 	
 	new(Package gammaPackage, Scanner traceScanner) {
 		this(gammaPackage, traceScanner, true)
 	}
 	
 	new(Package gammaPackage, Scanner traceScanner, boolean sortTrace) {
-		this.gammaPackage = gammaPackage
+		super(gammaPackage, sortTrace)
 		this.traceScanner = traceScanner
-		this.sortTrace = sortTrace
-		this.component = gammaPackage.firstComponent
-		this.thetaQueryGenerator = new ThetaQueryGenerator(component)
-		this.xStsBackAnnotator = new XstsBackAnnotator(thetaQueryGenerator, ThetaArrayParser.INSTANCE)
-		val schedulingConstraintAnnotation = gammaPackage.annotations
-				.filter(SchedulingConstraintAnnotation).head
-		if (schedulingConstraintAnnotation !== null) {
-			this.schedulingConstraint = schedulingConstraintAnnotation.schedulingConstraint
-		}
-		else {
-			this.schedulingConstraint = null
-		}
 	}
 	
-	def ExecutionTrace execute() {
-		// Creating the trace component
-		val trace = createExecutionTrace => [
-			it.component = this.component
-			it.import = this.gammaPackage
-			it.name = this.component.name + "Trace"
-		]
-		val topComponentArguments = gammaPackage.topComponentArguments
-		// Note that the top component does not contain parameter declarations anymore due to the preprocessing
-		checkState(topComponentArguments.size == component.parameterDeclarations.size, 
-			"The number of top component arguments and top component parameters are not equal: " +
-				topComponentArguments.size + " - " + component.parameterDeclarations.size)
-		logger.log(Level.INFO, "The number of top component arguments is " + topComponentArguments.size)
-		trace.arguments += topComponentArguments.map[it.clone]
+	override ExecutionTrace execute() {
+		val trace = createTrace
 		var step = createStep
 		trace.steps += step
 		
@@ -124,30 +70,8 @@ class TraceBackAnnotator {
 					}
 					case line.startsWith(XSTS_STATE): {
 						// Deleting unnecessary in and out events
-						switch (state) {
-							case STATE_CHECK: {
-								step.checkStates
-								// Creating a new step
-								step = createStep
-								/// Add static delay every turn
-								if (schedulingConstraint !== null) {
-									step.addTimeElapse(schedulingConstraint)
-								}
-								///
-								trace.steps += step
-								// Setting the state
-								state = BackAnnotatorState.ENVIRONMENT_CHECK
-							}
-							case ENVIRONMENT_CHECK: {
-								step.checkInEvents
-								// Add schedule
-								step.addSchedulingIfNeeded
-								// Setting the state
-								state = BackAnnotatorState.STATE_CHECK
-							}
-							default:
-								throw new IllegalArgumentException("Not know state: " + state)
-						}
+						state = state.nextState(step, trace)
+						step = trace.steps.last
 						// Skipping two lines
 						line = traceScanner.nextLine
 						line = traceScanner.nextLine.trim
@@ -158,53 +82,7 @@ class TraceBackAnnotator {
 				val split = line.split(" ", 2) // Only the first " " is checked
 				val id = split.get(0)
 				val value = split.get(1)
-				switch (state) {
-					case STATE_CHECK: {
-						val potentialStateString = '''«id» == «value»'''
-						if (thetaQueryGenerator.isSourceState(potentialStateString)) {
-							potentialStateString.parseState(step)
-						}
-						else if (thetaQueryGenerator.isDelay(id)) {
-							step.addTimeElapse(Integer.valueOf(value))
-						}
-						else if (thetaQueryGenerator.isSourceVariable(id)) {
-							id.parseVariable(value, step)
-						}
-						else if (id.isSchedulingVariable) {
-							id.addScheduling(value, step)
-						}
-						else if (thetaQueryGenerator.isSourceOutEvent(id)) {
-							id.parseOutEvent(value, step)
-						}
-						else if (thetaQueryGenerator.isSourceOutEventParameter(id)) {
-							id.parseOutEventParameter(value, step)
-						}
-						// Checking if an asynchronous in-event is already stored in the queue
-						else if (thetaQueryGenerator.isAsynchronousSourceMessageQueue(id)) {
-							id.handleStoredAsynchronousInEvents(value)
-						}
-					}
-					case ENVIRONMENT_CHECK: {
-						// Synchronous in-event
-						if (thetaQueryGenerator.isSynchronousSourceInEvent(id)) {
-							id.parseSynchronousInEvent(value, step)
-						}
-						// Synchronous in-event parameter
-						else if (thetaQueryGenerator.isSynchronousSourceInEventParameter(id)) {
-							id.parseSynchronousInEventParameter(value, step)
-						}
-						// Asynchronous in-event
-						else if (thetaQueryGenerator.isAsynchronousSourceMessageQueue(id)) {
-							id.parseAsynchronousInEvent(value, step)
-						}
-						// Asynchronous in-event parameter
-						else if (thetaQueryGenerator.isAsynchronousSourceInEventParameter(id)) {
-							id.parseAsynchronousInEventParameter(value, step)
-						}
-					}
-					default:
-						throw new IllegalArgumentException("Not known state: " + state)
-				}
+				state.parse(id, value, step)
 			}
 			// Checking the last state (in events must NOT be deleted here though)
 			step.checkStates
@@ -217,16 +95,9 @@ class TraceBackAnnotator {
 			step.actions += createReset
 		}
 		
-		trace.removeInternalEventRaiseActs
-		trace.removeTransientVariableReferences // They always have default values
+		trace.finishTrace
 		
 		return trace
 	}
 	
-	def static getEngineSynchronizationObject() {
-		return engineSynchronizationObject
-	}
-	
-	enum BackAnnotatorState {INIT, STATE_CHECK, ENVIRONMENT_CHECK}
-	
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition
 import hu.bme.mit.gamma.xsts.model.XSTS
 
 import static extension hu.bme.mit.gamma.codegeneration.java.util.Namings.*
+import static extension hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.*
 import static extension hu.bme.mit.gamma.statechart.derivedfeatures.StatechartModelDerivedFeatures.*
 
 class StatechartCodeGenerator {
@@ -134,6 +135,37 @@ class StatechartCodeGenerator {
 				«ENDFOR»
 			}
 			
+			/** Creates a snapshot of all variables (including timeouts), which can be restored any number of times. */
+			public Object[] createSnapshot() {
+				return new Object[] {
+					«FOR variable : xSts.snapshotVariables SEPARATOR ','»
+						«IF variable.array»copySnapshotValue(«variable.name»)«ELSE»«variable.name»«ENDIF»
+					«ENDFOR»
+				};
+			}
+			
+			/** Restores the variables (including timeouts) to the values stored in the given snapshot. */
+			public void restoreSnapshot(Object[] snapshot) {
+				«FOR variable : xSts.snapshotVariables»
+					this.«variable.name» = («variable.type.serialize») «IF variable.array»copySnapshotValue(snapshot[«xSts.snapshotVariables.indexOf(variable)»])«ELSE»snapshot[«xSts.snapshotVariables.indexOf(variable)»]«ENDIF»;
+				«ENDFOR»
+			}
+			«IF xSts.snapshotVariables.exists[it.array]»
+				
+				/** Arrays are mutable, so they are copied (recursively) when saved into or restored from a snapshot. */
+				private static Object copySnapshotValue(Object value) {
+					if (value != null && value.getClass().isArray()) {
+						int length = java.lang.reflect.Array.getLength(value);
+						Object copy = java.lang.reflect.Array.newInstance(value.getClass().getComponentType(), length);
+						for (int i = 0; i < length; i++) {
+							java.lang.reflect.Array.set(copy, i, copySnapshotValue(java.lang.reflect.Array.get(value, i)));
+						}
+						return copy;
+					}
+					return value;
+				}
+			«ENDIF»
+			
 			@Override
 			public String toString() {
 				return
@@ -149,6 +181,13 @@ class StatechartCodeGenerator {
 		}
 	'''
 	
+	private def getSnapshotVariables(XSTS xSts) {
+		val snapshotVariables = newArrayList
+		snapshotVariables += xSts.retrieveNotTimeoutVariables
+		snapshotVariables += xSts.retrieveTimeouts
+		return snapshotVariables
+	}
+	
 	private def getPrivateTypeDeclarations(XSTS xSts) {
 		val privateTypeDeclarations = newArrayList
 		privateTypeDeclarations += xSts.typeDeclarations
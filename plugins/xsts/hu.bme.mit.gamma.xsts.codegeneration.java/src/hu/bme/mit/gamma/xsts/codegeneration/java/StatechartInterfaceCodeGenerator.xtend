@@ -44,7 +44,15 @@ class StatechartInterfaceCodeGenerator {
 			«ENDFOR»
 			
 			void runCycle();
+			void runFullCycle();
 			void reset();
+			
+			/** Runs the given number of cycles; the listeners are notified after each cycle. */
+			default void runCycles(int count) {
+				for (int i = 0; i < count; i++) {
+					runCycle();
+				}
+			}
 		
 		}
 	'''
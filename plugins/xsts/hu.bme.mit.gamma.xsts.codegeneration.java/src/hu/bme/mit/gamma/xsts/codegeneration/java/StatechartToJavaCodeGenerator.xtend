@@ -79,7 +79,7 @@ class StatechartToJavaCodeGenerator {
 			STATECHART_PACKAGE_NAME, gammaStatechart, this.xSts)
 		this.statechartCodeGenerator = new StatechartCodeGenerator(BASE_PACKAGE_NAME, STATECHART_PACKAGE_NAME,
 			gammaStatechart.wrappedStatemachineClassName, gammaStatechart, xSts, actionSerializer)
-		this.reflectiveComponentCodeGenerator = new ReflectiveComponentCodeGenerator(BASE_PACKAGE_NAME, gammaStatechart)
+		this.reflectiveComponentCodeGenerator = new ReflectiveComponentCodeGenerator(BASE_PACKAGE_NAME)
 	}
 	
 	def execute() {
@@ -94,6 +94,7 @@ class StatechartToJavaCodeGenerator {
 		generateStatechartWrapperClass
 		generateStatechartClass
 		generateReflectiveInterface
+		generateSnapshotableInterface
 		generateReflectiveClass
 	}
 	
@@ -186,8 +187,8 @@ class StatechartToJavaCodeGenerator {
 	}
 	
 	def generateReflectiveClass() {
-		val componentUri = STATECHART_FOLDER_URI + File.separator + reflectiveComponentCodeGenerator.className + ".java"
-		val code = reflectiveComponentCodeGenerator.createReflectiveClass
+		val componentUri = STATECHART_FOLDER_URI + File.separator + gammaStatechart.reflectiveClassName + ".java"
+		val code = reflectiveComponentCodeGenerator.createReflectiveClass(gammaStatechart)
 		code.saveCode(componentUri)
 	}
 	
@@ -196,6 +197,12 @@ class StatechartToJavaCodeGenerator {
 		val code = interfaceGenerator.createReflectiveInterface
 		code.saveCode(componentUri)
 	}
+	
+	def generateSnapshotableInterface() {
+		val componentUri = BASE_FOLDER_URI + File.separator + SNAPSHOTABLE_INTERFACE + ".java"
+		val code = interfaceGenerator.createSnapshotableInterface
+		code.saveCode(componentUri)
+	}
 
 	/**
 	 * Creates a Java class from the the given code at the location specified by the given URI.
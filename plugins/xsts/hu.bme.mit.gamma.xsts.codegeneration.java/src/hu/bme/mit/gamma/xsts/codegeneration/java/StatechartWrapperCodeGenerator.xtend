@@ -57,7 +57,7 @@ class StatechartWrapperCodeGenerator {
 		«ENDFOR»
 		import «STATECHART_PACKAGE_NAME».«gammaStatechart.wrappedStatemachineClassName».*;
 		
-		public class «CLASS_NAME» implements «CLASS_NAME»Interface {
+		public class «CLASS_NAME» implements «CLASS_NAME»Interface, «SNAPSHOTABLE_INTERFACE» {
 			// Port instances
 			«FOR port : gammaStatechart.ports»
 				private «port.name.toFirstUpper» «port.name.toFirstLower» = new «port.name.toFirstUpper»();
@@ -70,6 +70,8 @@ class StatechartWrapperCodeGenerator {
 			// Event queues for the synchronization of statecharts
 			private Queue<Event> eventQueue1 = new LinkedList<Event>();
 			private Queue<Event> eventQueue2 = new LinkedList<Event>();
+			// Indexes of the out-events raised in the current cycle
+			private final java.util.BitSet raisedEvents = new java.util.BitSet();
 			// Clocks
 			private «GAMMA_TIMER_INTERFACE» timer = new «GAMMA_TIMER_CLASS»();
 			«gammaStatechart.createInternalPortHandlingAttributes»
@@ -87,6 +89,7 @@ class StatechartWrapperCodeGenerator {
 				//
 				«CLASS_NAME.toFirstLower».reset();
 				timer.saveTime(this);
+				collectRaisedEvents();
 				notifyListeners();
 				«IF gammaStatechart.hasInternalPort»handleInternalEvents();«ENDIF»
 			}
@@ -125,7 +128,7 @@ class StatechartWrapperCodeGenerator {
 			
 			«FOR port : gammaStatechart.ports SEPARATOR System.lineSeparator»
 				public class «port.name.toFirstUpper» implements «port.interfaceRealization.interface.name.toFirstUpper»Interface.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper» {
-					private List<«port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper»> listeners = new LinkedList<«port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper»>();
+					private «port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper»[] listenerArray = new «port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper»[0];
 					«FOR event : port.getEvents(EventDirection.IN)»
 						@Override
 						public void raise«event.name.toFirstUpper»(«FOR parameter : event.parameterDeclarations SEPARATOR ', '»«parameter.type.serialize» «parameter.name»«ENDFOR») {
@@ -146,11 +149,12 @@ class StatechartWrapperCodeGenerator {
 					«ENDFOR»
 					@Override
 					public void registerListener(«port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper» listener) {
-						listeners.add(listener);
+						listenerArray = java.util.Arrays.copyOf(listenerArray, listenerArray.length + 1);
+						listenerArray[listenerArray.length - 1] = listener;
 					}
 					@Override
 					public List<«port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper»> getRegisteredListeners() {
-						return listeners;
+						return List.of(listenerArray);
 					}
 				}
 				
@@ -164,7 +168,21 @@ class StatechartWrapperCodeGenerator {
 				runComponent();
 			}
 			
+			/** Initiates cycle runs until the event queue is empty, i.e., also the events raised during the cycles are processed. */
+			public void runFullCycle() {
+				do {
+					runCycle();
+				}
+				while (!isEventQueueEmpty());
+			}
+			
 			public void runComponent() {
+				executeComponent();
+				completeComponent();
+			}
+			
+			/** Initiates a cycle run without notifying the registered listeners. */
+			public void executeComponent() {
 				Queue<Event> eventQueue = getProcessQueue();
 				while (!eventQueue.isEmpty()) {
 					«GAMMA_EVENT_CLASS» event = eventQueue.remove();
@@ -184,6 +202,11 @@ class StatechartWrapperCodeGenerator {
 					}
 				}
 				executeStep();
+			}
+			
+			/** Notifies the registered listeners after a cycle run. */
+			public void completeComponent() {
+				notifyListeners();
 				«IF gammaStatechart.hasInternalPort»handleInternalEvents();«ENDIF»
 			}
 			
@@ -194,7 +217,22 @@ class StatechartWrapperCodeGenerator {
 				«ENDFOR»
 				«CLASS_NAME.toFirstLower».runCycle();
 				«IF xSts.hasClockVariable»timer.saveTime(this);«ENDIF»
-				notifyListeners();
+				collectRaisedEvents();
+			}
+			
+			/** Stores the indexes of the out-events raised by the wrapped statemachine in the last cycle. */
+			private void collectRaisedEvents() {
+				raisedEvents.clear();
+				«FOR portEvent : outEvents»
+					if («CLASS_NAME.toFirstLower».get«portEvent.value.getOutputName(portEvent.key).toFirstUpper»()) {
+						raisedEvents.set(«outEvents.indexOf(portEvent)»);
+					}
+				«ENDFOR»
+			}
+			
+			/** Returns whether any out-event has been raised in the last cycle. */
+			public boolean hasRaisedEvents() {
+				return !raisedEvents.isEmpty();
 			}
 			
 			/** Interface method, needed for composite component initialization chain. */
@@ -202,16 +240,21 @@ class StatechartWrapperCodeGenerator {
 				notifyListeners();
 			}
 			
+			/** Notifies the registered listeners only of the out-events raised in the last cycle. */
 			public void notifyListeners() {
-				«FOR port : gammaStatechart.ports»
-					«FOR event : port.getEvents(EventDirection.OUT)»
-						if («port.name.toFirstLower».isRaised«event.name.toFirstUpper»()) {
-							for («port.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«port.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper» listener : «port.name.toFirstLower».getRegisteredListeners()) {
-								listener.raise«event.name.toFirstUpper»(«FOR parameter : event.parameterDeclarations SEPARATOR ", "»«CLASS_NAME.toFirstLower.accessOut(port, parameter)»«ENDFOR»);
-							}
+				«IF !outEvents.empty»
+					for (int i = raisedEvents.nextSetBit(0); i >= 0; i = raisedEvents.nextSetBit(i + 1)) {
+						switch (i) {
+							«FOR portEvent : outEvents»
+								case «outEvents.indexOf(portEvent)»:
+									for («portEvent.key.interfaceRealization.interface.name.toFirstUpper»Interface.Listener.«portEvent.key.interfaceRealization.realizationMode.literal.toLowerCase.toFirstUpper» listener : «portEvent.key.name.toFirstLower».listenerArray) {
+										listener.raise«portEvent.value.name.toFirstUpper»(«FOR parameter : portEvent.value.parameterDeclarations SEPARATOR ", "»«CLASS_NAME.toFirstLower.accessOut(portEvent.key, parameter)»«ENDFOR»);
+									}
+								break;
+							«ENDFOR»
 						}
-					«ENDFOR»
-				«ENDFOR»
+					}
+				«ENDIF»
 			}
 			
 			public void setTimer(«GAMMA_TIMER_INTERFACE» timer) {
@@ -249,6 +292,29 @@ class StatechartWrapperCodeGenerator {
 				public void interrupt() { }
 			«ENDIF»
 			
+			/** Creates a snapshot of the wrapped statemachine and the event queues. The timer is not included. */
+			public Object createSnapshot() {
+				return new Object[] {
+					«CLASS_NAME.toFirstLower».createSnapshot(),
+					insertQueue,
+					processQueue,
+					new LinkedList<Event>(eventQueue1),
+					new LinkedList<Event>(eventQueue2)
+				};
+			}
+			
+			/** Restores the wrapped statemachine and the event queues to the state stored in the given snapshot. */
+			@SuppressWarnings("unchecked")
+			public void restoreSnapshot(Object snapshot) {
+				Object[] values = (Object[]) snapshot;
+				«CLASS_NAME.toFirstLower».restoreSnapshot((Object[]) values[0]);
+				insertQueue = (boolean) values[1];
+				processQueue = (boolean) values[2];
+				eventQueue1 = new LinkedList<Event>((Queue<Event>) values[3]);
+				eventQueue2 = new LinkedList<Event>((Queue<Event>) values[4]);
+				collectRaisedEvents();
+			}
+			
 			@Override
 			public String toString() {
 				return «CLASS_NAME.toFirstLower».toString();
@@ -260,4 +326,9 @@ class StatechartWrapperCodeGenerator {
 		return CLASS_NAME
 	}
 	
+	protected def getOutEvents() {
+		return gammaStatechart.ports.map[port | port.getEvents(EventDirection.OUT).map[port -> it]]
+			.flatten.toList
+	}
+	
 }
\ No newline at end of file
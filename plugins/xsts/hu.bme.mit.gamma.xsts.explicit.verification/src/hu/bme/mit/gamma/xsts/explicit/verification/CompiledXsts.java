@@ -0,0 +1,836 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import hu.bme.mit.gamma.expression.model.AddExpression;
+import hu.bme.mit.gamma.expression.model.AndExpression;
+import hu.bme.mit.gamma.expression.model.ArrayAccessExpression;
+import hu.bme.mit.gamma.expression.model.ArrayLiteralExpression;
+import hu.bme.mit.gamma.expression.model.ArrayTypeDefinition;
+import hu.bme.mit.gamma.expression.model.BooleanTypeDefinition;
+import hu.bme.mit.gamma.expression.model.ConstantDeclaration;
+import hu.bme.mit.gamma.expression.model.Declaration;
+import hu.bme.mit.gamma.expression.model.DirectReferenceExpression;
+import hu.bme.mit.gamma.expression.model.DivExpression;
+import hu.bme.mit.gamma.expression.model.DivideExpression;
+import hu.bme.mit.gamma.expression.model.EnumerationLiteralDefinition;
+import hu.bme.mit.gamma.expression.model.EnumerationLiteralExpression;
+import hu.bme.mit.gamma.expression.model.EnumerationTypeDefinition;
+import hu.bme.mit.gamma.expression.model.EqualityExpression;
+import hu.bme.mit.gamma.expression.model.Expression;
+import hu.bme.mit.gamma.expression.model.FalseExpression;
+import hu.bme.mit.gamma.expression.model.GreaterEqualExpression;
+import hu.bme.mit.gamma.expression.model.GreaterExpression;
+import hu.bme.mit.gamma.expression.model.IfThenElseExpression;
+import hu.bme.mit.gamma.expression.model.ImplyExpression;
+import hu.bme.mit.gamma.expression.model.InequalityExpression;
+import hu.bme.mit.gamma.expression.model.IntegerLiteralExpression;
+import hu.bme.mit.gamma.expression.model.IntegerRangeLiteralExpression;
+import hu.bme.mit.gamma.expression.model.IntegerTypeDefinition;
+import hu.bme.mit.gamma.expression.model.LessEqualExpression;
+import hu.bme.mit.gamma.expression.model.LessExpression;
+import hu.bme.mit.gamma.expression.model.ModExpression;
+import hu.bme.mit.gamma.expression.model.MultiplyExpression;
+import hu.bme.mit.gamma.expression.model.NotExpression;
+import hu.bme.mit.gamma.expression.model.OrExpression;
+import hu.bme.mit.gamma.expression.model.ReferenceExpression;
+import hu.bme.mit.gamma.expression.model.SubtractExpression;
+import hu.bme.mit.gamma.expression.model.TrueExpression;
+import hu.bme.mit.gamma.expression.model.TypeDefinition;
+import hu.bme.mit.gamma.expression.model.UnaryMinusExpression;
+import hu.bme.mit.gamma.expression.model.UnaryPlusExpression;
+import hu.bme.mit.gamma.expression.model.VariableDeclaration;
+import hu.bme.mit.gamma.expression.model.XorExpression;
+import hu.bme.mit.gamma.expression.util.ExpressionEvaluator;
+import hu.bme.mit.gamma.xsts.model.Action;
+import hu.bme.mit.gamma.xsts.model.AssignmentAction;
+import hu.bme.mit.gamma.xsts.model.AssumeAction;
+import hu.bme.mit.gamma.xsts.model.EmptyAction;
+import hu.bme.mit.gamma.xsts.model.HavocAction;
+import hu.bme.mit.gamma.xsts.model.IfAction;
+import hu.bme.mit.gamma.xsts.model.LoopAction;
+import hu.bme.mit.gamma.xsts.model.NonDeterministicAction;
+import hu.bme.mit.gamma.xsts.model.OrthogonalAction;
+import hu.bme.mit.gamma.xsts.model.ParallelAction;
+import hu.bme.mit.gamma.xsts.model.SequentialAction;
+import hu.bme.mit.gamma.xsts.model.UnorderedAction;
+import hu.bme.mit.gamma.xsts.model.VariableDeclarationAction;
+import hu.bme.mit.gamma.xsts.model.XSTS;
+import hu.bme.mit.gamma.xsts.model.XTransition;
+import hu.bme.mit.gamma.xsts.util.PredicateHandler;
+
+import static hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.getTypeDefinition;
+
+/**
+ * Compiles the actions and expressions of an XSTS into trees of closures over integer state vectors,
+ * so the model can be executed without traversing the EMF model in every step.
+ * Every variable is mapped to a slot (or a contiguous block of slots in the case of arrays) of the
+ * vector: booleans are stored as 0 and 1, enumeration literals as their indexes. Local variables are
+ * mapped to slots after the global ones; the states returned by this class contain only global slots.
+ */
+public class CompiledXsts {
+
+	public interface Evaluator {
+		int evaluate(int[] state);
+	}
+
+	/**
+	 * Executes an action on the given state and passes every resulting state to the consumer.
+	 * The executor may modify the given state, and the consumer may modify the passed states.
+	 */
+	public interface Executor {
+		void execute(int[] state, StateConsumer consumer);
+	}
+
+	public interface StateConsumer {
+		void accept(int[] state);
+	}
+
+	/**
+	 * Resolves nondeterminism during simulation: returns the index of the next candidate to try
+	 * (a branch of a choice or a havoced value) out of the given number of remaining candidates.
+	 * The candidates that have been tried and turned out to be blocked are not offered again.
+	 */
+	public interface Resolver {
+		int choose(int count);
+	}
+
+	protected static class Access {
+		protected final Evaluator offset;
+		protected final TypeDefinition type;
+
+		protected Access(Evaluator offset, TypeDefinition type) {
+			this.offset = offset;
+			this.type = type;
+		}
+	}
+
+	protected final XSTS xSts;
+	protected final List<VariableDeclaration> globalVariables;
+	protected final Map<String, VariableDeclaration> namedGlobalVariables = new HashMap<String, VariableDeclaration>();
+	protected final Map<Declaration, Integer> offsets = new HashMap<Declaration, Integer>();
+	protected final int globalWidth;
+	protected int width;
+	// Integer havocs are restricted to finitely many values, so not every reachable state may be explored
+	protected boolean isUnderapproximated = false;
+
+	// Simulation: if the resolvers are set, only the first unblocked resolution is executed
+	protected Resolver havocResolver;
+	protected Resolver choiceResolver;
+	protected boolean isResolved;
+
+	protected final Executor initializingAction;
+	protected final Executor environmentalAction;
+	protected final Executor transitionAction;
+
+	protected final ExpressionEvaluator expressionEvaluator = ExpressionEvaluator.INSTANCE;
+	protected final PredicateHandler predicateHandler = PredicateHandler.INSTANCE;
+
+	public CompiledXsts(XSTS xSts) {
+		this.xSts = xSts;
+		this.globalVariables = new ArrayList<VariableDeclaration>(xSts.getVariableDeclarations());
+		int offset = 0;
+		for (VariableDeclaration variable : globalVariables) {
+			namedGlobalVariables.put(variable.getName(), variable);
+			offsets.put(variable, offset);
+			offset += getWidth(getTypeDefinition(variable));
+		}
+		this.globalWidth = offset;
+		this.width = offset;
+		// Local variables are allocated during the compilation of the actions
+		this.initializingAction = compileSequentially(List.of(
+				xSts.getVariableInitializingTransition().getAction(),
+				xSts.getConfigurationInitializingTransition().getAction(),
+				xSts.getEntryEventTransition().getAction()));
+		this.environmentalAction = compileSequentially(List.of(
+				xSts.getInEventTransition().getAction(),
+				xSts.getOutEventTransition().getAction()));
+		List<XTransition> transitions = xSts.getTransitions();
+		if (transitions.size() == 1) {
+			this.transitionAction = compile(transitions.get(0).getAction());
+		}
+		else {
+			// Multiple transitions are in a choice relation (see 'trans {...} or {...}')
+			Executor[] executors = transitions.stream()
+					.map(it -> compile(it.getAction()))
+					.toArray(Executor[]::new);
+			this.transitionAction = (state, consumer) -> executeNondeterministically(executors, state, consumer);
+		}
+	}
+
+	// States
+
+	public XSTS getXsts() {
+		return xSts;
+	}
+
+	public int getGlobalWidth() {
+		return globalWidth;
+	}
+
+	/**
+	 * Returns true if the model contains integer havocs, whose values are restricted to those in
+	 * getHavocValues. In this case, a state that is not reached may still be reachable in the model.
+	 */
+	public boolean isUnderapproximated() {
+		return isUnderapproximated;
+	}
+
+	public List<int[]> getInitialStates() {
+		List<int[]> initialStates = new ArrayList<int[]>();
+		execute(initializingAction, new int[globalWidth], it -> initialStates.add(it));
+		return initialStates;
+	}
+
+	public void executeEnvironment(int[] state, StateConsumer consumer) {
+		execute(environmentalAction, state, consumer);
+	}
+
+	public void executeTransition(int[] state, StateConsumer consumer) {
+		execute(transitionAction, state, consumer);
+	}
+
+	/**
+	 * Executes the environmental and then the internal transition on the given state.
+	 */
+	public void executeCycle(int[] state, StateConsumer consumer) {
+		executeEnvironment(state, it -> executeTransition(it, consumer));
+	}
+
+	/**
+	 * The given state is not modified and the consumer gets fresh arrays containing only global slots.
+	 */
+	protected void execute(Executor action, int[] state, StateConsumer consumer) {
+		int[] extendedState = Arrays.copyOf(state, width); // Local slots are zeroed
+		isResolved = false;
+		action.execute(extendedState, it -> {
+			if (isResolving()) {
+				isResolved = true; // Stopping the search for further resolutions
+			}
+			consumer.accept(Arrays.copyOf(it, globalWidth));
+		});
+	}
+
+	// Resolution
+
+	/**
+	 * Sets the resolvers for simulation: afterwards, the execution of an action produces at most one
+	 * resulting state, which is chosen by the resolvers. Blocked resolutions are backtracked.
+	 * Note that this makes the instance stateful, so it must not be shared between threads.
+	 */
+	public void setResolvers(Resolver havocResolver, Resolver choiceResolver) {
+		this.havocResolver = havocResolver;
+		this.choiceResolver = choiceResolver;
+	}
+
+	public boolean isResolving() {
+		return havocResolver != null && choiceResolver != null;
+	}
+
+	/**
+	 * Executes the candidates in the order given by the resolver until one of them is not blocked.
+	 */
+	protected void resolve(Resolver resolver, int count, int[] state, IntStateConsumer candidate) {
+		int[] candidates = new int[count];
+		for (int i = 0; i < count; i++) {
+			candidates[i] = i;
+		}
+		for (int remaining = count; remaining > 0 && !isResolved; remaining--) {
+			int index = resolver.choose(remaining);
+			int chosenCandidate = candidates[index];
+			candidates[index] = candidates[remaining - 1];
+			// The last candidate can use the original state
+			candidate.accept(chosenCandidate, (remaining > 1) ? state.clone() : state);
+		}
+	}
+
+	protected interface IntStateConsumer {
+		void accept(int candidate, int[] state);
+	}
+
+	// Variables and values
+
+	public List<VariableDeclaration> getGlobalVariables() {
+		return globalVariables;
+	}
+
+	public VariableDeclaration getGlobalVariable(String name) {
+		return namedGlobalVariables.get(name);
+	}
+
+	public int getOffset(VariableDeclaration variable) {
+		return offsets.get(variable);
+	}
+
+	/**
+	 * Returns the values of the global variables in the format of the counterexamples of Theta,
+	 * e.g., 'true', '12', 'Literal' or '(array (0 1) (1 2) (default 0))'.
+	 */
+	public Map<String, String> getValues(int[] state) {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		for (VariableDeclaration variable : globalVariables) {
+			int offset = offsets.get(variable);
+			TypeDefinition type = getTypeDefinition(variable);
+			values.put(variable.getName(), serializeValue(state, offset, type));
+		}
+		return values;
+	}
+
+	protected String serializeValue(int[] state, int offset, TypeDefinition type) {
+		if (type instanceof ArrayTypeDefinition arrayType) {
+			TypeDefinition elementType = getTypeDefinition(arrayType.getElementType());
+			int elementWidth = getWidth(elementType);
+			int size = getSize(arrayType);
+			StringBuilder builder = new StringBuilder("(array");
+			for (int i = 0; i < size; i++) {
+				builder.append(" (" + i + " " +
+						serializeValue(state, offset + i * elementWidth, elementType) + ")");
+			}
+			builder.append(" (default " + serializeValue(new int[elementWidth], 0, elementType) + "))");
+			return builder.toString();
+		}
+		int value = state[offset];
+		if (type instanceof BooleanTypeDefinition) {
+			return (value != 0) ? "true" : "false";
+		}
+		if (type instanceof EnumerationTypeDefinition enumType) {
+			return enumType.getLiterals().get(value).getName();
+		}
+		return Integer.toString(value);
+	}
+
+	// Types
+
+	protected int getWidth(TypeDefinition type) {
+		if (type instanceof ArrayTypeDefinition arrayType) {
+			TypeDefinition elementType = getTypeDefinition(arrayType.getElementType());
+			return getSize(arrayType) * getWidth(elementType);
+		}
+		if (type instanceof BooleanTypeDefinition || type instanceof IntegerTypeDefinition ||
+				type instanceof EnumerationTypeDefinition) {
+			return 1;
+		}
+		throw new IllegalArgumentException("Not supported type: " + type);
+	}
+
+	protected int getSize(ArrayTypeDefinition type) {
+		return expressionEvaluator.evaluateInteger(type.getSize());
+	}
+
+	protected int allocateLocal(Declaration declaration) {
+		Integer offset = offsets.get(declaration);
+		if (offset == null) {
+			offset = width;
+			offsets.put(declaration, offset);
+			width += getWidth(getTypeDefinition(declaration));
+		}
+		return offset;
+	}
+
+	// Actions
+
+	protected Executor compileSequentially(Collection<? extends Action> actions) {
+		Executor[] executors = actions.stream()
+				.map(it -> compile(it))
+				.toArray(Executor[]::new);
+		if (executors.length == 1) {
+			return executors[0];
+		}
+		return (state, consumer) -> executeSequentially(executors, 0, state, consumer);
+	}
+
+	protected static void executeSequentially(Executor[] executors, int index,
+			int[] state, StateConsumer consumer) {
+		if (index == executors.length) {
+			consumer.accept(state);
+		}
+		else {
+			executors[index].execute(state,
+					it -> executeSequentially(executors, index + 1, it, consumer));
+		}
+	}
+
+	protected void executeNondeterministically(Executor[] executors,
+			int[] state, StateConsumer consumer) {
+		if (choiceResolver != null) {
+			resolve(choiceResolver, executors.length, state,
+					(i, branchState) -> executors[i].execute(branchState, consumer));
+			return;
+		}
+		int last = executors.length - 1;
+		for (int i = 0; i <= last; i++) {
+			// The last branch can use the original state
+			executors[i].execute((i < last) ? state.clone() : state, consumer);
+		}
+	}
+
+	/**
+	 * Every branch is executed on the original state and their writes are merged.
+	 */
+	protected static void executeInParallel(Executor[] executors, int index,
+			int[] original, int[] merged, StateConsumer consumer) {
+		if (index == executors.length) {
+			consumer.accept(merged);
+		}
+		else {
+			executors[index].execute(original.clone(), it -> {
+				int[] extendedMerge = merged.clone(); // The branch can have multiple results
+				for (int i = 0; i < it.length; i++) {
+					if (it[i] != original[i]) {
+						extendedMerge[i] = it[i];
+					}
+				}
+				executeInParallel(executors, index + 1, original, extendedMerge, consumer);
+			});
+		}
+	}
+
+	protected Executor compile(Action action) {
+		if (action == null || action instanceof EmptyAction) {
+			return (state, consumer) -> consumer.accept(state);
+		}
+		if (action instanceof SequentialAction sequentialAction) {
+			return compileSequentially(sequentialAction.getActions());
+		}
+		if (action instanceof UnorderedAction unorderedAction) {
+			return compileSequentially(unorderedAction.getActions());
+		}
+		if (action instanceof ParallelAction || action instanceof OrthogonalAction) {
+			List<Action> actions = (action instanceof ParallelAction parallelAction) ?
+					parallelAction.getActions() : ((OrthogonalAction) action).getActions();
+			Executor[] executors = actions.stream()
+					.map(it -> compile(it))
+					.toArray(Executor[]::new);
+			return (state, consumer) -> executeInParallel(executors, 0, state, state.clone(), consumer);
+		}
+		if (action instanceof NonDeterministicAction nonDeterministicAction) {
+			Executor[] executors = nonDeterministicAction.getActions().stream()
+					.map(it -> compile(it))
+					.toArray(Executor[]::new);
+			return (state, consumer) -> executeNondeterministically(executors, state, consumer);
+		}
+		if (action instanceof IfAction ifAction) {
+			Evaluator condition = compile(ifAction.getCondition());
+			Executor then = compile(ifAction.getThen());
+			Executor _else = compile(ifAction.getElse());
+			return (state, consumer) -> {
+				if (condition.evaluate(state) != 0) {
+					then.execute(state, consumer);
+				}
+				else {
+					_else.execute(state, consumer);
+				}
+			};
+		}
+		if (action instanceof AssumeAction assumeAction) {
+			Evaluator assumption = compile(assumeAction.getAssumption());
+			return (state, consumer) -> {
+				if (assumption.evaluate(state) != 0) {
+					consumer.accept(state);
+				}
+			};
+		}
+		if (action instanceof AssignmentAction assignmentAction) {
+			Access lhs = compileAccess(assignmentAction.getLhs());
+			return compileWrite(lhs, assignmentAction.getRhs());
+		}
+		if (action instanceof HavocAction havocAction) {
+			return compileHavoc(havocAction.getLhs());
+		}
+		if (action instanceof VariableDeclarationAction variableDeclarationAction) {
+			VariableDeclaration variable = variableDeclarationAction.getVariableDeclaration();
+			int offset = allocateLocal(variable);
+			TypeDefinition type = getTypeDefinition(variable);
+			Expression expression = variable.getExpression();
+			if (expression == null) {
+				int localWidth = getWidth(type);
+				return (state, consumer) -> {
+					Arrays.fill(state, offset, offset + localWidth, 0); // Slots are reused
+					consumer.accept(state);
+				};
+			}
+			return compileWrite(new Access(state -> offset, type), expression);
+		}
+		if (action instanceof LoopAction loopAction) {
+			int offset = allocateLocal(loopAction.getIterationParameterDeclaration());
+			Expression range = loopAction.getRange();
+			if (!(range instanceof IntegerRangeLiteralExpression rangeLiteral)) {
+				throw new IllegalArgumentException("Not supported range: " + range);
+			}
+			Evaluator left = compile(rangeLiteral.getLeftOperand());
+			Evaluator right = compile(rangeLiteral.getRightOperand());
+			int leftShift = rangeLiteral.isLeftInclusive() ? 0 : 1;
+			int rightShift = rangeLiteral.isRightInclusive() ? 0 : -1;
+			Executor body = compile(loopAction.getAction());
+			return (state, consumer) -> {
+				int first = left.evaluate(state) + leftShift;
+				int last = right.evaluate(state) + rightShift;
+				executeLoop(body, offset, first, last, state, consumer);
+			};
+		}
+		throw new IllegalArgumentException("Not supported action: " + action);
+	}
+
+	protected static void executeLoop(Executor body, int offset, int index, int last,
+			int[] state, StateConsumer consumer) {
+		if (index > last) {
+			consumer.accept(state);
+		}
+		else {
+			state[offset] = index;
+			body.execute(state, it -> executeLoop(body, offset, index + 1, last, it, consumer));
+		}
+	}
+
+	protected Executor compileWrite(Access lhs, Expression rhs) {
+		if (lhs.type instanceof ArrayTypeDefinition) {
+			int length = getWidth(lhs.type);
+			BlockEvaluator value = compileBlock(rhs, lhs.type);
+			return (state, consumer) -> {
+				int[] block = value.evaluate(state); // Evaluated before writing the array
+				System.arraycopy(block, 0, state, lhs.offset.evaluate(state), length);
+				consumer.accept(state);
+			};
+		}
+		Evaluator value = compile(rhs);
+		return (state, consumer) -> {
+			state[lhs.offset.evaluate(state)] = value.evaluate(state);
+			consumer.accept(state);
+		};
+	}
+
+	protected Executor compileHavoc(ReferenceExpression lhs) {
+		Access access = compileAccess(lhs);
+		if (access.type instanceof ArrayTypeDefinition) {
+			throw new IllegalArgumentException("Not supported havoc: " + lhs);
+		}
+		int[] values = getHavocValues(lhs, access.type);
+		return (state, consumer) -> {
+			int offset = access.offset.evaluate(state);
+			if (havocResolver != null) {
+				resolve(havocResolver, values.length, state, (i, newState) -> {
+					newState[offset] = values[i];
+					consumer.accept(newState);
+				});
+				return;
+			}
+			int last = values.length - 1;
+			for (int i = 0; i <= last; i++) {
+				int[] newState = (i < last) ? state.clone() : state;
+				newState[offset] = values[i];
+				consumer.accept(newState);
+			}
+		};
+	}
+
+	/**
+	 * Similar to the havoc handling of the Promela transformation: integers can take the values
+	 * they are compared to or assigned in the model and an additional 'else' value.
+	 */
+	protected int[] getHavocValues(ReferenceExpression lhs, TypeDefinition type) {
+		if (type instanceof BooleanTypeDefinition) {
+			return new int[] { 0, 1 };
+		}
+		if (type instanceof EnumerationTypeDefinition enumType) {
+			int size = enumType.getLiterals().size();
+			int[] values = new int[size];
+			for (int i = 0; i < size; i++) {
+				values[i] = i;
+			}
+			return values;
+		}
+		Declaration declaration = getDeclaration(lhs);
+		if (!(declaration instanceof VariableDeclaration variable)) {
+			throw new IllegalArgumentException("Not supported havoc: " + lhs);
+		}
+		isUnderapproximated = true;
+		SortedSet<Integer> integerValues = predicateHandler.calculateIntegerValues(xSts, variable);
+		int defaultValue = 0;
+		int elseValue = integerValues.contains(defaultValue) ? integerValues.last() + 1 : defaultValue;
+		integerValues.add(elseValue); // Adding another value for an "else" branch
+		return integerValues.stream()
+				.mapToInt(it -> it)
+				.toArray();
+	}
+
+	// Expressions
+
+	protected interface BlockEvaluator {
+		int[] evaluate(int[] state);
+	}
+
+	protected BlockEvaluator compileBlock(Expression expression, TypeDefinition type) {
+		int length = getWidth(type);
+		if (expression instanceof ArrayLiteralExpression arrayLiteral && type instanceof ArrayTypeDefinition arrayType) {
+			TypeDefinition elementType = getTypeDefinition(arrayType.getElementType());
+			int elementWidth = getWidth(elementType);
+			List<Expression> operands = arrayLiteral.getOperands();
+			BlockEvaluator[] elements = operands.stream()
+					.map(it -> compileBlock(it, elementType))
+					.toArray(BlockEvaluator[]::new);
+			return state -> {
+				int[] block = new int[length]; // Missing elements have default values
+				for (int i = 0; i < elements.length; i++) {
+					System.arraycopy(elements[i].evaluate(state), 0, block, i * elementWidth, elementWidth);
+				}
+				return block;
+			};
+		}
+		if (!(type instanceof ArrayTypeDefinition)) {
+			Evaluator value = compile(expression);
+			return state -> new int[] { value.evaluate(state) };
+		}
+		if (expression instanceof ReferenceExpression reference) {
+			Access access = compileAccess(reference);
+			return state -> {
+				int offset = access.offset.evaluate(state);
+				return Arrays.copyOfRange(state, offset, offset + length);
+			};
+		}
+		throw new IllegalArgumentException("Not supported array expression: " + expression);
+	}
+
+	protected Access compileAccess(Expression expression) {
+		if (expression instanceof DirectReferenceExpression reference) {
+			Declaration declaration = reference.getDeclaration();
+			Integer offset = offsets.get(declaration);
+			if (offset == null) {
+				throw new IllegalArgumentException("Not known declaration: " + declaration);
+			}
+			int constantOffset = offset;
+			return new Access(state -> constantOffset, getTypeDefinition(declaration));
+		}
+		if (expression instanceof ArrayAccessExpression arrayAccess) {
+			Access operand = compileAccess(arrayAccess.getOperand());
+			ArrayTypeDefinition arrayType = (ArrayTypeDefinition) operand.type;
+			TypeDefinition elementType = getTypeDefinition(arrayType.getElementType());
+			int elementWidth = getWidth(elementType);
+			int size = getSize(arrayType);
+			Evaluator index = compile(arrayAccess.getIndex());
+			return new Access(state -> {
+				int i = index.evaluate(state);
+				if (i < 0 || size <= i) {
+					throw new ArrayIndexOutOfBoundsException("Index " + i + " is out of bounds in " +
+							arrayAccess + " (size " + size + ")");
+				}
+				return operand.offset.evaluate(state) + i * elementWidth;
+			}, elementType);
+		}
+		throw new IllegalArgumentException("Not supported reference: " + expression);
+	}
+
+	protected Declaration getDeclaration(Expression expression) {
+		if (expression instanceof DirectReferenceExpression reference) {
+			return reference.getDeclaration();
+		}
+		if (expression instanceof ArrayAccessExpression arrayAccess) {
+			return getDeclaration(arrayAccess.getOperand());
+		}
+		throw new IllegalArgumentException("Not supported reference: " + expression);
+	}
+
+	public Evaluator compile(Expression expression) {
+		if (expression instanceof TrueExpression) {
+			return state -> 1;
+		}
+		if (expression instanceof FalseExpression) {
+			return state -> 0;
+		}
+		if (expression instanceof IntegerLiteralExpression integerLiteral) {
+			int value = integerLiteral.getValue().intValue();
+			return state -> value;
+		}
+		if (expression instanceof EnumerationLiteralExpression enumLiteral) {
+			EnumerationLiteralDefinition literal = enumLiteral.getReference();
+			EnumerationTypeDefinition type = (EnumerationTypeDefinition) literal.eContainer();
+			int index = type.getLiterals().indexOf(literal);
+			return state -> index;
+		}
+		if (expression instanceof DirectReferenceExpression reference &&
+				reference.getDeclaration() instanceof ConstantDeclaration constant) {
+			int value = expressionEvaluator.evaluate(constant.getExpression());
+			return state -> value;
+		}
+		if (expression instanceof DirectReferenceExpression || expression instanceof ArrayAccessExpression) {
+			Access access = compileAccess(expression);
+			if (access.type instanceof ArrayTypeDefinition) {
+				throw new IllegalArgumentException("Not supported array expression: " + expression);
+			}
+			Evaluator offset = access.offset;
+			return state -> state[offset.evaluate(state)];
+		}
+		if (expression instanceof NotExpression notExpression) {
+			Evaluator operand = compile(notExpression.getOperand());
+			return state -> (operand.evaluate(state) == 0) ? 1 : 0;
+		}
+		if (expression instanceof AndExpression andExpression) {
+			Evaluator[] operands = compile(andExpression.getOperands());
+			return state -> {
+				for (Evaluator operand : operands) {
+					if (operand.evaluate(state) == 0) {
+						return 0;
+					}
+				}
+				return 1;
+			};
+		}
+		if (expression instanceof OrExpression orExpression) {
+			Evaluator[] operands = compile(orExpression.getOperands());
+			return state -> {
+				for (Evaluator operand : operands) {
+					if (operand.evaluate(state) != 0) {
+						return 1;
+					}
+				}
+				return 0;
+			};
+		}
+		if (expression instanceof XorExpression xorExpression) {
+			Evaluator[] operands = compile(xorExpression.getOperands());
+			return state -> {
+				int trueCount = 0;
+				for (Evaluator operand : operands) {
+					if (operand.evaluate(state) != 0) {
+						trueCount++;
+					}
+				}
+				return trueCount % 2;
+			};
+		}
+		if (expression instanceof ImplyExpression implyExpression) {
+			Evaluator left = compile(implyExpression.getLeftOperand());
+			Evaluator right = compile(implyExpression.getRightOperand());
+			return state -> (left.evaluate(state) == 0 || right.evaluate(state) != 0) ? 1 : 0;
+		}
+		if (expression instanceof EqualityExpression || expression instanceof InequalityExpression) {
+			hu.bme.mit.gamma.expression.model.BinaryExpression binaryExpression =
+					(hu.bme.mit.gamma.expression.model.BinaryExpression) expression;
+			Evaluator equality = compileEquality(
+					binaryExpression.getLeftOperand(), binaryExpression.getRightOperand());
+			if (expression instanceof InequalityExpression) {
+				return state -> 1 - equality.evaluate(state);
+			}
+			return equality;
+		}
+		if (expression instanceof LessExpression lessExpression) {
+			Evaluator left = compile(lessExpression.getLeftOperand());
+			Evaluator right = compile(lessExpression.getRightOperand());
+			return state -> (left.evaluate(state) < right.evaluate(state)) ? 1 : 0;
+		}
+		if (expression instanceof LessEqualExpression lessEqualExpression) {
+			Evaluator left = compile(lessEqualExpression.getLeftOperand());
+			Evaluator right = compile(lessEqualExpression.getRightOperand());
+			return state -> (left.evaluate(state) <= right.evaluate(state)) ? 1 : 0;
+		}
+		if (expression instanceof GreaterExpression greaterExpression) {
+			Evaluator left = compile(greaterExpression.getLeftOperand());
+			Evaluator right = compile(greaterExpression.getRightOperand());
+			return state -> (left.evaluate(state) > right.evaluate(state)) ? 1 : 0;
+		}
+		if (expression instanceof GreaterEqualExpression greaterEqualExpression) {
+			Evaluator left = compile(greaterEqualExpression.getLeftOperand());
+			Evaluator right = compile(greaterEqualExpression.getRightOperand());
+			return state -> (left.evaluate(state) >= right.evaluate(state)) ? 1 : 0;
+		}
+		if (expression instanceof AddExpression addExpression) {
+			Evaluator[] operands = compile(addExpression.getOperands());
+			return state -> {
+				int sum = 0;
+				for (Evaluator operand : operands) {
+					sum += operand.evaluate(state);
+				}
+				return sum;
+			};
+		}
+		if (expression instanceof MultiplyExpression multiplyExpression) {
+			Evaluator[] operands = compile(multiplyExpression.getOperands());
+			return state -> {
+				int product = 1;
+				for (Evaluator operand : operands) {
+					product *= operand.evaluate(state);
+				}
+				return product;
+			};
+		}
+		if (expression instanceof SubtractExpression subtractExpression) {
+			Evaluator left = compile(subtractExpression.getLeftOperand());
+			Evaluator right = compile(subtractExpression.getRightOperand());
+			return state -> left.evaluate(state) - right.evaluate(state);
+		}
+		if (expression instanceof DivideExpression divideExpression) {
+			Evaluator left = compile(divideExpression.getLeftOperand());
+			Evaluator right = compile(divideExpression.getRightOperand());
+			return state -> left.evaluate(state) / right.evaluate(state);
+		}
+		if (expression instanceof DivExpression divExpression) {
+			Evaluator left = compile(divExpression.getLeftOperand());
+			Evaluator right = compile(divExpression.getRightOperand());
+			return state -> Math.floorDiv(left.evaluate(state), right.evaluate(state));
+		}
+		if (expression instanceof ModExpression modExpression) {
+			Evaluator left = compile(modExpression.getLeftOperand());
+			Evaluator right = compile(modExpression.getRightOperand());
+			return state -> Math.floorMod(left.evaluate(state), right.evaluate(state));
+		}
+		if (expression instanceof UnaryMinusExpression unaryMinusExpression) {
+			Evaluator operand = compile(unaryMinusExpression.getOperand());
+			return state -> -operand.evaluate(state);
+		}
+		if (expression instanceof UnaryPlusExpression unaryPlusExpression) {
+			return compile(unaryPlusExpression.getOperand());
+		}
+		if (expression instanceof IfThenElseExpression ifThenElseExpression) {
+			Evaluator condition = compile(ifThenElseExpression.getCondition());
+			Evaluator then = compile(ifThenElseExpression.getThen());
+			Evaluator _else = compile(ifThenElseExpression.getElse());
+			return state -> (condition.evaluate(state) != 0) ? then.evaluate(state) : _else.evaluate(state);
+		}
+		throw new IllegalArgumentException("Not supported expression: " + expression);
+	}
+
+	protected Evaluator[] compile(List<Expression> expressions) {
+		return expressions.stream()
+				.map(it -> compile(it))
+				.toArray(Evaluator[]::new);
+	}
+
+	protected Evaluator compileEquality(Expression left, Expression right) {
+		if (isArrayReference(left) || isArrayReference(right)) {
+			TypeDefinition type = compileAccess(isArrayReference(left) ? left : right).type;
+			BlockEvaluator leftBlock = compileBlock(left, type);
+			BlockEvaluator rightBlock = compileBlock(right, type);
+			return state -> Arrays.equals(leftBlock.evaluate(state), rightBlock.evaluate(state)) ? 1 : 0;
+		}
+		Evaluator leftValue = compile(left);
+		Evaluator rightValue = compile(right);
+		return state -> (leftValue.evaluate(state) == rightValue.evaluate(state)) ? 1 : 0;
+	}
+
+	protected boolean isArrayReference(Expression expression) {
+		if (expression instanceof DirectReferenceExpression || expression instanceof ArrayAccessExpression) {
+			Declaration declaration = getDeclaration(expression);
+			if (offsets.containsKey(declaration)) {
+				return compileAccess(expression).type instanceof ArrayTypeDefinition;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,228 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import hu.bme.mit.gamma.xsts.explicit.verification.CompiledXsts.Evaluator;
+
+/**
+ * Breadth-first explorer of the state space of a CompiledXsts. A state is the valuation of the global
+ * variables after the initializing or an internal transition; an environmental and an internal
+ * transition together constitute a cycle. The states are stored contiguously in a single int arena
+ * in the order of their discovery, and they are indexed by an open addressing table keyed by their
+ * 64-bit fingerprints. The fingerprints speed up the lookups but the vectors are always compared
+ * too, so no state is lost due to collisions.
+ * The exploration is incremental: a search continues from the frontier left by the previous one,
+ * so multiple (sets of) targets can be checked on the same state space without exploring it again.
+ */
+public class ExplicitStateExplorer {
+
+	protected static final int NONE = -1;
+	protected static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+	protected final CompiledXsts xSts;
+	protected final int width;
+
+	protected int[] states = new int[1024];
+	protected int[] parents = new int[128];
+	protected long[] fingerprints = new long[128];
+	protected int[] table = new int[256]; // State index + 1, 0 means an empty slot
+	protected int stateCount = 0;
+	protected int nextToExpand = 0;
+	protected boolean initialized = false;
+
+	public ExplicitStateExplorer(CompiledXsts xSts) {
+		this.xSts = xSts;
+		this.width = xSts.getGlobalWidth();
+	}
+
+	public CompiledXsts getXsts() {
+		return xSts;
+	}
+
+	public synchronized int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns true if every reachable state has been discovered and expanded.
+	 */
+	public synchronized boolean isExhausted() {
+		return initialized && nextToExpand == stateCount;
+	}
+
+	/**
+	 * Searches states satisfying the targets, and returns for every target the index of the first such
+	 * state in breadth-first order (thus with a shortest path) or -1 if no such state has been found.
+	 * States are not expanded once the number of stored states reaches maxStates or the search is cancelled;
+	 * use isExhausted to decide whether a -1 is a definite answer.
+	 */
+	public synchronized int[] search(List<? extends Evaluator> targets, int maxStates, BooleanSupplier isCancelled) {
+		int[] hits = new int[targets.size()];
+		Arrays.fill(hits, NONE);
+		int remaining = targets.size();
+		if (!initialized) {
+			for (int[] initialState : xSts.getInitialStates()) {
+				add(initialState, NONE);
+			}
+			initialized = true;
+		}
+		int[] state = new int[width];
+		// Checking the already stored states in the order of their discovery
+		for (int i = 0; i < stateCount && remaining > 0; i++) {
+			remaining -= check(i, state, targets, hits);
+		}
+		// Continuing the exploration
+		while (remaining > 0 && nextToExpand < stateCount && stateCount < maxStates &&
+				!isCancelled.getAsBoolean()) {
+			int parent = nextToExpand++;
+			int firstChild = stateCount;
+			xSts.executeCycle(getState(parent, state), it -> add(it, parent));
+			for (int i = firstChild; i < stateCount && remaining > 0; i++) {
+				remaining -= check(i, state, targets, hits);
+			}
+		}
+		return hits;
+	}
+
+	protected int check(int index, int[] buffer, List<? extends Evaluator> targets, int[] hits) {
+		int[] state = getState(index, buffer);
+		int newHits = 0;
+		for (int i = 0; i < hits.length; i++) {
+			if (hits[i] == NONE && targets.get(i).evaluate(state) != 0) {
+				hits[i] = index;
+				newHits++;
+			}
+		}
+		return newHits;
+	}
+
+	/**
+	 * Returns the states of a shortest path leading to the state with the given index:
+	 * the state after the initialization and then the states after the environmental and the internal
+	 * transitions of each cycle alternately.
+	 */
+	public synchronized List<int[]> getPath(int index) {
+		List<Integer> indexes = new ArrayList<Integer>();
+		for (int i = index; i != NONE; i = parents[i]) {
+			indexes.add(i);
+		}
+		Collections.reverse(indexes);
+		List<int[]> path = new ArrayList<int[]>();
+		path.add(getState(indexes.get(0), new int[width]));
+		for (int i = 1; i < indexes.size(); i++) {
+			int[] source = getState(indexes.get(i - 1), new int[width]);
+			int[] target = getState(indexes.get(i), new int[width]);
+			// The intermediate state is not stored, it is recomputed
+			int[] intermediateState = getIntermediateState(source, target);
+			path.add(intermediateState);
+			path.add(target);
+		}
+		return path;
+	}
+
+	protected int[] getIntermediateState(int[] source, int[] target) {
+		List<int[]> environmentalStates = new ArrayList<int[]>();
+		xSts.executeEnvironment(source, it -> environmentalStates.add(it));
+		for (int[] environmentalState : environmentalStates) {
+			boolean[] isFound = { false };
+			xSts.executeTransition(environmentalState, it -> {
+				if (Arrays.equals(it, target)) {
+					isFound[0] = true;
+				}
+			});
+			if (isFound[0]) {
+				return environmentalState;
+			}
+		}
+		throw new IllegalStateException("Not reproducible transition: " +
+				Arrays.toString(source) + " - " + Arrays.toString(target));
+	}
+
+	// Store
+
+	public int[] getState(int index) {
+		return getState(index, new int[width]);
+	}
+
+	protected int[] getState(int index, int[] buffer) {
+		System.arraycopy(states, index * width, buffer, 0, width);
+		return buffer;
+	}
+
+	protected void add(int[] state, int parent) {
+		long fingerprint = getFingerprint(state);
+		int mask = table.length - 1;
+		int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+		while (table[slot] != 0) {
+			int index = table[slot] - 1;
+			if (fingerprints[index] == fingerprint && Arrays.equals(states, index * width, (index + 1) * width,
+					state, 0, width)) {
+				return; // Already stored
+			}
+			slot = (slot + 1) & mask;
+		}
+		int index = stateCount++;
+		ensureCapacity(stateCount);
+		System.arraycopy(state, 0, states, index * width, width);
+		parents[index] = parent;
+		fingerprints[index] = fingerprint;
+		table[slot] = index + 1;
+		if (2 * stateCount > table.length) {
+			rehash();
+		}
+	}
+
+	protected void ensureCapacity(int count) {
+		if (count > parents.length) {
+			int newLength = parents.length * 2;
+			parents = Arrays.copyOf(parents, newLength);
+			fingerprints = Arrays.copyOf(fingerprints, newLength);
+		}
+		long size = (long) count * width;
+		if (size > states.length) {
+			if (size > MAX_ARENA_SIZE) {
+				throw new IllegalStateException("The state space is too large: " + count + " states");
+			}
+			long newSize = Math.max(size, Math.min(2L * states.length, MAX_ARENA_SIZE));
+			states = Arrays.copyOf(states, (int) newSize);
+		}
+	}
+
+	protected void rehash() {
+		int[] newTable = new int[table.length * 2];
+		int mask = newTable.length - 1;
+		for (int index = 0; index < stateCount; index++) {
+			long fingerprint = fingerprints[index];
+			int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+			while (newTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = index + 1;
+		}
+		table = newTable;
+	}
+
+	protected long getFingerprint(int[] state) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < width; i++) {
+			hash = (hash ^ state[i]) * 0x100000001b3L;
+			hash ^= hash >>> 29;
+		}
+		return hash;
+	}
+
+}
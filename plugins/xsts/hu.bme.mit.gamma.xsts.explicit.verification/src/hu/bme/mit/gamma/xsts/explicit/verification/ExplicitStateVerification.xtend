@@ -0,0 +1,45 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification
+
+import hu.bme.mit.gamma.verification.util.AbstractVerification
+import hu.bme.mit.gamma.verification.util.AbstractVerifier.Result
+import java.io.File
+
+class ExplicitStateVerification extends AbstractVerification {
+	// Singleton
+	public static final ExplicitStateVerification INSTANCE = new ExplicitStateVerification
+	protected new() {}
+	//
+
+	override Result execute(File modelFile, File queryFile, String[] arguments) {
+		val fileName = modelFile.name
+		val packageFileName = fileName.unfoldedPackageFileName
+		val gammaPackage = ecoreUtil.normalLoad(modelFile.parent, packageFileName)
+		val verifier = new ExplicitStateVerifier
+		val argument = arguments.head
+
+		argument.sanitizeArgument
+
+		return verifier.verifyQuery(gammaPackage, argument, modelFile, queryFile)
+	}
+
+	override getDefaultArguments() {
+		return #[
+			"--max-states 5000000"
+		]
+	}
+
+	protected override String getArgumentPattern() {
+		return "(--[a-z-]+( )+[0-9]+( )*)*"
+	}
+
+}
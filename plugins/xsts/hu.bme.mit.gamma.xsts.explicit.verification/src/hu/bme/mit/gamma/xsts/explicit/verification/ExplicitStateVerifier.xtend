@@ -0,0 +1,186 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification
+
+import hu.bme.mit.gamma.statechart.interface_.Package
+import hu.bme.mit.gamma.theta.verification.AbstractThetaBackAnnotator
+import hu.bme.mit.gamma.transformation.util.GammaFileNamer
+import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.verification.result.ThreeStateBoolean
+import hu.bme.mit.gamma.verification.util.AbstractVerifier
+import hu.bme.mit.gamma.xsts.model.XSTS
+import java.io.File
+import java.lang.ref.SoftReference
+import java.util.LinkedHashMap
+import java.util.List
+import java.util.Map
+import java.util.Map.Entry
+import java.util.logging.Level
+
+class ExplicitStateVerifier extends AbstractVerifier {
+
+	// The most recently used explorers; the explored state spaces can be reclaimed under memory pressure
+	protected static final int MAX_CACHED_EXPLORERS = 2
+	protected static final Map<String, SoftReference<Pair<Long, ExplicitStateExplorer>>> explorers =
+		new LinkedHashMap<String, SoftReference<Pair<Long, ExplicitStateExplorer>>>(4, 0.75f, true) {
+			override protected removeEldestEntry(Entry<String, SoftReference<Pair<Long, ExplicitStateExplorer>>> eldest) {
+				return size > MAX_CACHED_EXPLORERS
+			}
+		}
+
+	protected final String MAX_STATES = "--max-states"
+	protected final int DEFAULT_MAX_STATES = 5_000_000
+	// Swarm simulation instead of exhaustive exploration
+	protected final String SWARM_CYCLES = "--swarm-cycles"
+	protected final String SWARM_TIMEOUT = "--swarm-timeout" // Seconds
+	protected final int DEFAULT_SWARM_TIMEOUT = 60
+
+	protected volatile SwarmSimulation swarmSimulation
+
+	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
+
+	/**
+	 * Every query line is checked during a single exploration of the state space, which is also reused
+	 * by subsequent calls on the same (unmodified) model.
+	 */
+	override Result verifyQuery(Object traceability, String parameters, File modelFile, File queryFile) {
+		try {
+			val queries = queryFile.loadString.split(System.lineSeparator).reject[it.nullOrEmpty].toList
+			val swarmCycles = parameters.getParameter(SWARM_CYCLES, 0)
+			val results = if (swarmCycles > 0) {
+				traceability.simulate(parameters, modelFile, queries, swarmCycles)
+			}
+			else {
+				traceability.explore(parameters, modelFile, queries)
+			}
+
+			var Result result = null
+			for (newResult : results) {
+				val oldTrace = result?.trace
+				val newTrace = newResult.trace
+				if (oldTrace === null) {
+					result = newResult
+				}
+				else if (newTrace !== null) {
+					oldTrace.extend(newTrace)
+					result = new Result(ThreeStateBoolean.UNDEF, oldTrace)
+				}
+			}
+			super.result = result?.result
+			return result
+		} finally {
+			cancel
+		}
+	}
+
+	protected def explore(Object traceability, String parameters, File modelFile, List<String> queries) {
+		val maxStates = parameters.getParameter(MAX_STATES, DEFAULT_MAX_STATES)
+		val explorer = modelFile.xStsFile.explorer
+		val xSts = explorer.xsts
+		val parsedQueries = queries.map[new QueryParser(xSts).parse(it)]
+
+		val hits = explorer.search(parsedQueries.map[it.target], maxStates, [isCancelled])
+		val isExhausted = explorer.isExhausted
+		logger.log(Level.INFO, "Explored states: " + explorer.stateCount + ", exhausted: " + isExhausted)
+		// Not reaching a target is conclusive only if every havoced value has been considered
+		val isComplete = isExhausted && !xSts.underapproximated
+		if (isExhausted && !isComplete) {
+			logger.log(Level.WARNING, "Integer havocs are restricted to the values in the model, " +
+				"so unreached targets yield undefined results")
+		}
+
+		val results = <Result>newArrayList
+		for (var i = 0; i < parsedQueries.size; i++) {
+			val query = parsedQueries.get(i)
+			val hit = hits.get(i)
+			results += if (hit >= 0) {
+				// Witness for 'E<>' or counterexample for 'A[]'
+				val verdict = if (query.existential) ThreeStateBoolean.TRUE else ThreeStateBoolean.FALSE
+				val trace = traceability.backAnnotate(explorer, hit)
+				new Result(verdict, trace)
+			}
+			else if (isComplete) {
+				val verdict = if (query.existential) ThreeStateBoolean.FALSE else ThreeStateBoolean.TRUE
+				new Result(verdict, null)
+			}
+			else {
+				new Result(ThreeStateBoolean.UNDEF, null)
+			}
+		}
+		return results
+	}
+
+	protected def simulate(Object traceability, String parameters, File modelFile, List<String> queries,
+			int swarmCycles) {
+		val timeout = parameters.getParameter(SWARM_TIMEOUT, DEFAULT_SWARM_TIMEOUT)
+		val xSts = ecoreUtil.normalLoad(modelFile.xStsFile) as XSTS
+		val gammaPackage = traceability as Package
+		swarmSimulation = new SwarmSimulation(xSts, gammaPackage, swarmCycles, timeout * 1000L)
+		return swarmSimulation.execute(queries)
+	}
+
+	override cancel() {
+		swarmSimulation?.cancel
+		super.cancel
+	}
+
+	protected def backAnnotate(Object traceability, ExplicitStateExplorer explorer, int index) {
+		val xSts = explorer.xsts
+		val states = explorer.getPath(index).map[xSts.getValues(it)]
+		val gammaPackage = traceability as Package
+		// Must be synchronized due to the non-thread-safe VIATRA engine
+		synchronized (AbstractThetaBackAnnotator.getEngineSynchronizationObject) {
+			val backAnnotator = new TraceBackAnnotator(gammaPackage, states)
+			return backAnnotator.execute
+		}
+	}
+
+	protected def getExplorer(File xStsFile) {
+		val path = xStsFile.canonicalPath
+		val lastModified = xStsFile.lastModified
+		synchronized (explorers) {
+			val cachedExplorer = explorers.get(path)?.get
+			if (cachedExplorer !== null && cachedExplorer.key == lastModified) {
+				return cachedExplorer.value
+			}
+			val xSts = ecoreUtil.normalLoad(xStsFile) as XSTS
+			val explorer = new ExplicitStateExplorer(new CompiledXsts(xSts))
+			explorers.put(path, new SoftReference<Pair<Long, ExplicitStateExplorer>>(lastModified -> explorer)) // Replacing the outdated one
+			return explorer
+		}
+	}
+
+	/**
+	 * Releases the cached explorers, e.g., at the end of a verification task.
+	 */
+	static def clearExplorers() {
+		synchronized (explorers) {
+			explorers.clear
+		}
+	}
+
+	protected def getXStsFile(File modelFile) {
+		if (modelFile.extension == GammaFileNamer.XSTS_EMF_EXTENSION) {
+			return modelFile
+		}
+		return new File(modelFile.parent, fileNamer.getEmfXStsFileName(modelFile.name))
+	}
+
+	protected def getParameter(String parameters, String name, int defaultValue) {
+		val splitParameters = parameters.trim.split("\\s+").toList
+		val index = splitParameters.indexOf(name)
+		if (index >= 0 && index + 1 < splitParameters.size) {
+			return Integer.parseInt(splitParameters.get(index + 1))
+		}
+		return defaultValue
+	}
+
+}
@@ -0,0 +1,425 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import hu.bme.mit.gamma.expression.model.ArrayAccessExpression;
+import hu.bme.mit.gamma.expression.model.ArrayTypeDefinition;
+import hu.bme.mit.gamma.expression.model.BinaryExpression;
+import hu.bme.mit.gamma.expression.model.DirectReferenceExpression;
+import hu.bme.mit.gamma.expression.model.EnumerationLiteralDefinition;
+import hu.bme.mit.gamma.expression.model.EnumerationLiteralExpression;
+import hu.bme.mit.gamma.expression.model.EnumerationTypeDefinition;
+import hu.bme.mit.gamma.expression.model.Expression;
+import hu.bme.mit.gamma.expression.model.ExpressionModelFactory;
+import hu.bme.mit.gamma.expression.model.IfThenElseExpression;
+import hu.bme.mit.gamma.expression.model.IntegerLiteralExpression;
+import hu.bme.mit.gamma.expression.model.MultiaryExpression;
+import hu.bme.mit.gamma.expression.model.TypeDeclaration;
+import hu.bme.mit.gamma.expression.model.TypeDefinition;
+import hu.bme.mit.gamma.expression.model.UnaryMinusExpression;
+import hu.bme.mit.gamma.expression.model.UnaryPlusExpression;
+import hu.bme.mit.gamma.expression.model.VariableDeclaration;
+import hu.bme.mit.gamma.expression.util.ExpressionUtil;
+import hu.bme.mit.gamma.xsts.explicit.verification.CompiledXsts.Evaluator;
+
+import static hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.getArrayElementType;
+import static hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures.getTypeDefinition;
+
+/**
+ * Parses the 'E<> p' and 'A[] p' queries serialized by the ThetaPropertySerializer, whose
+ * identifiers are the names of XSTS variables and enumeration literals, and compiles them
+ * into evaluators over the state vectors of a CompiledXsts.
+ */
+public class QueryParser {
+
+	public static class Query {
+		protected final boolean existential;
+		protected final Evaluator formula;
+
+		protected Query(boolean existential, Evaluator formula) {
+			this.existential = existential;
+			this.formula = formula;
+		}
+
+		/**
+		 * 'E<> p' if true, 'A[] p' otherwise.
+		 */
+		public boolean isExistential() {
+			return existential;
+		}
+
+		public Evaluator getFormula() {
+			return formula;
+		}
+
+		/**
+		 * The states whose reachability decides the query: 'p' for 'E<> p' and '!p' for 'A[] p'.
+		 */
+		public Evaluator getTarget() {
+			if (existential) {
+				return formula;
+			}
+			return state -> 1 - formula.evaluate(state);
+		}
+	}
+
+	protected static final String EF = "E<>";
+	protected static final String AG = "A[]";
+	protected static final Pattern TOKEN = Pattern.compile(
+			"\\s*([0-9]+|[A-Za-z_][A-Za-z0-9_]*|&&|\\|\\||\\^\\^|==|!=|<=|>=|[()\\[\\]!<>+\\-*/?:])");
+
+	protected final CompiledXsts xSts;
+	protected final List<String> tokens = new ArrayList<String>();
+	protected int position;
+
+	protected final ExpressionModelFactory factory = ExpressionModelFactory.eINSTANCE;
+	protected final ExpressionUtil expressionUtil = ExpressionUtil.INSTANCE;
+
+	public QueryParser(CompiledXsts xSts) {
+		this.xSts = xSts;
+	}
+
+	public Query parse(String query) {
+		String trimmedQuery = query.trim();
+		boolean existential;
+		if (trimmedQuery.startsWith(EF)) {
+			existential = true;
+		}
+		else if (trimmedQuery.startsWith(AG)) {
+			existential = false;
+		}
+		else {
+			throw new IllegalArgumentException("Not supported operator: " + query);
+		}
+		return new Query(existential, parseFormula(trimmedQuery.substring(EF.length())));
+	}
+
+	/**
+	 * Parses a state formula without a path quantifier and operator.
+	 */
+	public Evaluator parseFormula(String formula) {
+		tokenize(formula);
+		Expression expression = parseConditional();
+		if (position < tokens.size()) {
+			throw new IllegalArgumentException("Unexpected token '" + tokens.get(position) + "' in " + formula);
+		}
+		return xSts.compile(expression);
+	}
+
+	protected void tokenize(String formula) {
+		tokens.clear();
+		position = 0;
+		Matcher matcher = TOKEN.matcher(formula);
+		int end = 0;
+		while (matcher.find() && matcher.start() == end) {
+			tokens.add(matcher.group(1));
+			end = matcher.end();
+		}
+		if (!formula.substring(end).isBlank()) {
+			throw new IllegalArgumentException("Not parsable formula: " + formula.substring(end));
+		}
+	}
+
+	// Tokens
+
+	protected String peek() {
+		return (position < tokens.size()) ? tokens.get(position) : null;
+	}
+
+	protected boolean accept(String token) {
+		if (token.equals(peek())) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	protected void expect(String token) {
+		if (!accept(token)) {
+			throw new IllegalArgumentException("Expected '" + token + "' instead of '" + peek() + "'");
+		}
+	}
+
+	// Expressions in the order of precedence
+
+	protected Expression parseConditional() {
+		Expression condition = parseOr();
+		if (accept("?")) {
+			IfThenElseExpression ifThenElseExpression = factory.createIfThenElseExpression();
+			ifThenElseExpression.setCondition(condition);
+			ifThenElseExpression.setThen(parseConditional());
+			expect(":");
+			ifThenElseExpression.setElse(parseConditional());
+			return ifThenElseExpression;
+		}
+		return condition;
+	}
+
+	protected Expression parseOr() {
+		Expression left = parseXor();
+		if (!"||".equals(peek())) {
+			return left;
+		}
+		MultiaryExpression orExpression = factory.createOrExpression();
+		orExpression.getOperands().add(left);
+		while (accept("||")) {
+			orExpression.getOperands().add(parseXor());
+		}
+		return orExpression;
+	}
+
+	protected Expression parseXor() {
+		Expression left = parseAnd();
+		if (!"^^".equals(peek())) {
+			return left;
+		}
+		MultiaryExpression xorExpression = factory.createXorExpression();
+		xorExpression.getOperands().add(left);
+		while (accept("^^")) {
+			xorExpression.getOperands().add(parseAnd());
+		}
+		return xorExpression;
+	}
+
+	protected Expression parseAnd() {
+		Expression left = parseEquality();
+		if (!"&&".equals(peek())) {
+			return left;
+		}
+		MultiaryExpression andExpression = factory.createAndExpression();
+		andExpression.getOperands().add(left);
+		while (accept("&&")) {
+			andExpression.getOperands().add(parseEquality());
+		}
+		return andExpression;
+	}
+
+	protected Expression parseEquality() {
+		Expression left = parseRelational();
+		while (true) {
+			BinaryExpression expression;
+			if (accept("==")) {
+				expression = factory.createEqualityExpression();
+			}
+			else if (accept("!=")) {
+				expression = factory.createInequalityExpression();
+			}
+			else {
+				return left;
+			}
+			Expression right = parseRelational();
+			// Literal names are not unique, e.g., every region variable has an '__Inactive__' literal
+			resolveLiteral(right, left);
+			resolveLiteral(left, right);
+			expression.setLeftOperand(left);
+			expression.setRightOperand(right);
+			left = expression;
+		}
+	}
+
+	protected Expression parseRelational() {
+		Expression left = parseAdditive();
+		BinaryExpression expression;
+		if (accept("<")) {
+			expression = factory.createLessExpression();
+		}
+		else if (accept("<=")) {
+			expression = factory.createLessEqualExpression();
+		}
+		else if (accept(">")) {
+			expression = factory.createGreaterExpression();
+		}
+		else if (accept(">=")) {
+			expression = factory.createGreaterEqualExpression();
+		}
+		else {
+			return left;
+		}
+		expression.setLeftOperand(left);
+		expression.setRightOperand(parseAdditive());
+		return expression;
+	}
+
+	protected Expression parseAdditive() {
+		Expression left = parseMultiplicative();
+		while (true) {
+			if (accept("+")) {
+				MultiaryExpression addExpression = factory.createAddExpression();
+				addExpression.getOperands().add(left);
+				addExpression.getOperands().add(parseMultiplicative());
+				left = addExpression;
+			}
+			else if (accept("-")) {
+				BinaryExpression subtractExpression = factory.createSubtractExpression();
+				subtractExpression.setLeftOperand(left);
+				subtractExpression.setRightOperand(parseMultiplicative());
+				left = subtractExpression;
+			}
+			else {
+				return left;
+			}
+		}
+	}
+
+	protected Expression parseMultiplicative() {
+		Expression left = parseUnary();
+		while (true) {
+			if (accept("*")) {
+				MultiaryExpression multiplyExpression = factory.createMultiplyExpression();
+				multiplyExpression.getOperands().add(left);
+				multiplyExpression.getOperands().add(parseUnary());
+				left = multiplyExpression;
+				continue;
+			}
+			BinaryExpression expression;
+			if (accept("/")) {
+				expression = factory.createDivideExpression();
+			}
+			else if (accept("mod")) {
+				expression = factory.createModExpression();
+			}
+			else if (accept("div")) {
+				expression = factory.createDivExpression();
+			}
+			else {
+				return left;
+			}
+			expression.setLeftOperand(left);
+			expression.setRightOperand(parseUnary());
+			left = expression;
+		}
+	}
+
+	protected Expression parseUnary() {
+		if (accept("!")) {
+			return expressionUtil.createNotExpression(parseUnary());
+		}
+		if (accept("-")) {
+			UnaryMinusExpression unaryMinusExpression = factory.createUnaryMinusExpression();
+			unaryMinusExpression.setOperand(parseUnary());
+			return unaryMinusExpression;
+		}
+		if (accept("+")) {
+			UnaryPlusExpression unaryPlusExpression = factory.createUnaryPlusExpression();
+			unaryPlusExpression.setOperand(parseUnary());
+			return unaryPlusExpression;
+		}
+		return parsePostfix();
+	}
+
+	protected Expression parsePostfix() {
+		Expression operand = parsePrimary();
+		while (accept("[")) {
+			ArrayAccessExpression arrayAccessExpression = factory.createArrayAccessExpression();
+			arrayAccessExpression.setOperand(operand);
+			arrayAccessExpression.setIndex(parseConditional());
+			expect("]");
+			operand = arrayAccessExpression;
+		}
+		return operand;
+	}
+
+	protected Expression parsePrimary() {
+		String token = peek();
+		if (token == null) {
+			throw new IllegalArgumentException("Unexpected end of formula");
+		}
+		position++;
+		if (token.equals("(")) {
+			Expression expression = parseConditional();
+			expect(")");
+			return expression;
+		}
+		if (token.equals("true")) {
+			return factory.createTrueExpression();
+		}
+		if (token.equals("false")) {
+			return factory.createFalseExpression();
+		}
+		if (Character.isDigit(token.charAt(0))) {
+			IntegerLiteralExpression integerLiteral = factory.createIntegerLiteralExpression();
+			integerLiteral.setValue(new BigInteger(token));
+			return integerLiteral;
+		}
+		if (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_') {
+			VariableDeclaration variable = xSts.getGlobalVariable(token);
+			if (variable != null) {
+				DirectReferenceExpression reference = factory.createDirectReferenceExpression();
+				reference.setDeclaration(variable);
+				return reference;
+			}
+			EnumerationLiteralDefinition literal = getLiteral(token, null);
+			if (literal != null) {
+				EnumerationLiteralExpression literalExpression = factory.createEnumerationLiteralExpression();
+				literalExpression.setReference(literal);
+				return literalExpression;
+			}
+			throw new IllegalArgumentException("Not known identifier: " + token);
+		}
+		throw new IllegalArgumentException("Unexpected token: " + token);
+	}
+
+	// Enumeration literals
+
+	/**
+	 * Resolves the literal (if it is one) in the enumeration type of the other operand.
+	 */
+	protected void resolveLiteral(Expression potentialLiteral, Expression other) {
+		if (potentialLiteral instanceof EnumerationLiteralExpression literalExpression) {
+			TypeDefinition type = getType(other);
+			if (type instanceof EnumerationTypeDefinition enumType) {
+				String name = literalExpression.getReference().getName();
+				EnumerationLiteralDefinition literal = getLiteral(name, enumType);
+				if (literal != null) {
+					literalExpression.setReference(literal);
+				}
+			}
+		}
+	}
+
+	protected TypeDefinition getType(Expression expression) {
+		if (expression instanceof DirectReferenceExpression reference) {
+			return getTypeDefinition(reference.getDeclaration());
+		}
+		if (expression instanceof ArrayAccessExpression arrayAccess) {
+			TypeDefinition arrayType = getType(arrayAccess.getOperand());
+			if (arrayType instanceof ArrayTypeDefinition) {
+				return getTypeDefinition(getArrayElementType(arrayType));
+			}
+		}
+		return null;
+	}
+
+	protected EnumerationLiteralDefinition getLiteral(String name, EnumerationTypeDefinition type) {
+		if (type != null) {
+			return type.getLiterals().stream()
+					.filter(it -> it.getName().equals(name))
+					.findFirst().orElse(null);
+		}
+		for (TypeDeclaration typeDeclaration : xSts.getXsts().getTypeDeclarations()) {
+			TypeDefinition typeDefinition = getTypeDefinition(typeDeclaration.getType());
+			if (typeDefinition instanceof EnumerationTypeDefinition enumType) {
+				EnumerationLiteralDefinition literal = getLiteral(name, enumType);
+				if (literal != null) {
+					return literal;
+				}
+			}
+		}
+		return null;
+	}
+
+}
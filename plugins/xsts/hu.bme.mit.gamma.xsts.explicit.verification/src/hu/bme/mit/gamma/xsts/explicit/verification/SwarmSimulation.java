@@ -0,0 +1,199 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hu.bme.mit.gamma.property.model.CommentableStateFormula;
+import hu.bme.mit.gamma.property.model.PropertyPackage;
+import hu.bme.mit.gamma.querygenerator.serializer.ThetaPropertySerializer;
+import hu.bme.mit.gamma.statechart.interface_.Package;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.verification.result.ThreeStateBoolean;
+import hu.bme.mit.gamma.verification.util.AbstractVerifier.Result;
+import hu.bme.mit.gamma.xsts.explicit.verification.CompiledXsts.Evaluator;
+import hu.bme.mit.gamma.xsts.explicit.verification.QueryParser.Query;
+import hu.bme.mit.gamma.xsts.model.XSTS;
+
+/**
+ * Swarm of random simulations running on multiple threads with different seeds and run lengths.
+ * The 'E<> p' and 'A[] p' queries are monitored on the fly: the first state satisfying p (or violating p,
+ * respectively) yields a witness (or counterexample) trace. The swarm stops once every query has been
+ * decided or the time budget has run out; undecided queries have UNDEF results as simulation cannot
+ * prove their negation.
+ */
+public class SwarmSimulation {
+
+	protected final XSTS xSts;
+	protected final Package gammaPackage;
+	protected final int workerCount;
+	protected final int maxCycles;
+	protected final long timeout; // Milliseconds
+	protected final long seed;
+
+	protected volatile boolean isStopped = false;
+
+	protected final Logger logger = Logger.getLogger("GammaLogger");
+
+	/**
+	 * @param gammaPackage the unfolded package the XSTS was generated from, used for the back-annotation
+	 * @param maxCycles the maximum length of a single run; workers use different fractions of it
+	 */
+	public SwarmSimulation(XSTS xSts, Package gammaPackage, int workerCount, int maxCycles,
+			long timeout, long seed) {
+		this.xSts = xSts;
+		this.gammaPackage = gammaPackage;
+		this.workerCount = Math.max(1, workerCount);
+		this.maxCycles = maxCycles;
+		this.timeout = timeout;
+		this.seed = seed;
+	}
+
+	public SwarmSimulation(XSTS xSts, Package gammaPackage, int maxCycles, long timeout) {
+		this(xSts, gammaPackage, Runtime.getRuntime().availableProcessors(), maxCycles, timeout,
+				System.nanoTime());
+	}
+
+	public List<Result> execute(PropertyPackage propertyPackage) throws InterruptedException {
+		ThetaPropertySerializer propertySerializer = ThetaPropertySerializer.INSTANCE;
+		List<String> queries = new ArrayList<String>();
+		for (CommentableStateFormula formula : propertyPackage.getFormulas()) {
+			queries.add(propertySerializer.serialize(formula.getFormula()));
+		}
+		return execute(queries);
+	}
+
+	/**
+	 * Returns the results of the given queries in the same order.
+	 */
+	public List<Result> execute(List<String> queries) throws InterruptedException {
+		int queryCount = queries.size();
+		AtomicReferenceArray<ExecutionTrace> traces = new AtomicReferenceArray<ExecutionTrace>(queryCount);
+		AtomicInteger undecidedQueryCount = new AtomicInteger(queryCount);
+		isStopped = (queryCount == 0);
+		// Compiling sequentially, as EMF models are not thread-safe
+		List<Worker> workers = new ArrayList<Worker>();
+		List<Query> parsedQueries = null;
+		for (int i = 0; i < workerCount; i++) {
+			XstsSimulator simulator = new XstsSimulator(xSts, seed + i);
+			parsedQueries = new ArrayList<Query>();
+			for (String query : queries) {
+				parsedQueries.add(new QueryParser(simulator.getXsts()).parse(query));
+			}
+			// Shorter runs explore the vicinity of the initial state, longer runs go deeper
+			int cycles = Math.max(1, maxCycles >> (i % 4));
+			workers.add(new Worker(simulator, parsedQueries, cycles, traces, undecidedQueryCount));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (Worker worker : workers) {
+				futures.add(executor.submit(worker));
+			}
+			executor.shutdown();
+			if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+				logger.log(Level.INFO, "The time budget of the swarm simulation has run out");
+			}
+			cancel();
+			executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+			for (Future<?> future : futures) {
+				try {
+					future.get(); // Propagating exceptions, e.g., not supported models
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			cancel();
+			executor.shutdownNow();
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for (int i = 0; i < queryCount; i++) {
+			ExecutionTrace trace = traces.get(i);
+			if (trace == null) {
+				results.add(new Result(ThreeStateBoolean.UNDEF, null));
+			}
+			else {
+				boolean isExistential = parsedQueries.get(i).isExistential();
+				results.add(new Result(isExistential ? ThreeStateBoolean.TRUE : ThreeStateBoolean.FALSE, trace));
+			}
+		}
+		logger.log(Level.INFO, "Swarm simulation decided " + (queryCount - undecidedQueryCount.get()) +
+				" out of " + queryCount + " queries");
+		return results;
+	}
+
+	public void cancel() {
+		isStopped = true;
+	}
+
+	protected class Worker implements Runnable {
+
+		protected final XstsSimulator simulator;
+		protected final Evaluator[] targets;
+		protected final int cycles;
+		protected final AtomicReferenceArray<ExecutionTrace> traces;
+		protected final AtomicInteger undecidedQueryCount;
+
+		protected Worker(XstsSimulator simulator, List<Query> queries, int cycles,
+				AtomicReferenceArray<ExecutionTrace> traces, AtomicInteger undecidedQueryCount) {
+			this.simulator = simulator;
+			this.targets = queries.stream()
+					.map(it -> it.getTarget())
+					.toArray(Evaluator[]::new);
+			this.cycles = cycles;
+			this.traces = traces;
+			this.undecidedQueryCount = undecidedQueryCount;
+			simulator.setRecording(true);
+		}
+
+		@Override
+		public void run() {
+			while (!isStopped) {
+				if (!simulator.reset()) {
+					return; // Blocked initialization
+				}
+				check();
+				for (int i = 0; i < cycles && !isStopped && simulator.step(); i++) {
+					check();
+				}
+			}
+		}
+
+		protected void check() {
+			int[] state = simulator.state;
+			for (int i = 0; i < targets.length; i++) {
+				if (traces.get(i) == null && targets[i].evaluate(state) != 0) {
+					ExecutionTrace trace = simulator.getTrace(gammaPackage);
+					if (traces.compareAndSet(i, null, trace)) {
+						if (undecidedQueryCount.decrementAndGet() == 0) {
+							isStopped = true; // Every query is decided
+						}
+					}
+				}
+			}
+		}
+
+	}
+
+}
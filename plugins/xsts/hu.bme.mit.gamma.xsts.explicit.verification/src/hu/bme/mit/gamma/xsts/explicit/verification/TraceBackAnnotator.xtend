@@ -0,0 +1,70 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification
+
+import hu.bme.mit.gamma.statechart.interface_.Package
+import hu.bme.mit.gamma.theta.verification.AbstractThetaBackAnnotator
+import hu.bme.mit.gamma.theta.verification.BackAnnotatorState
+import hu.bme.mit.gamma.trace.model.ExecutionTrace
+import java.util.List
+import java.util.Map
+
+/**
+ * Back-annotates a path of the explicit-state explorer. The XSTS is the one generated for Theta,
+ * so the variable names and the value format are the same as in the counterexamples of Theta.
+ */
+class TraceBackAnnotator extends AbstractThetaBackAnnotator {
+
+	protected final List<Map<String, String>> states
+
+	/**
+	 * The states are the one after the initialization and then the ones after the environmental and
+	 * internal transitions alternately.
+	 */
+	new(Package gammaPackage, List<Map<String, String>> states) {
+		this(gammaPackage, states, true)
+	}
+
+	new(Package gammaPackage, List<Map<String, String>> states, boolean sortTrace) {
+		super(gammaPackage, sortTrace)
+		this.states = states
+	}
+
+	override ExecutionTrace execute() {
+		val trace = createTrace
+		var step = createStep
+		trace.steps += step
+		// Adding reset
+		step.actions += createReset
+
+		var state = BackAnnotatorState.STATE_CHECK
+		for (var i = 0; i < states.size; i++) {
+			if (i > 0) {
+				state = state.nextState(step, trace)
+				step = trace.steps.last
+			}
+			for (entry : states.get(i).entrySet) {
+				state.parse(entry.key, entry.value, step)
+			}
+		}
+		// Checking the last state (in events must NOT be deleted here though)
+		step.checkStates
+		// Sorting if needed
+		if (sortTrace) {
+			trace.sortInstanceStates
+		}
+
+		trace.finishTrace
+
+		return trace
+	}
+
+}
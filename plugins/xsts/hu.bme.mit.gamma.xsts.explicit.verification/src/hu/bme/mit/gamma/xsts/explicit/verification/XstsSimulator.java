@@ -0,0 +1,200 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.explicit.verification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import hu.bme.mit.gamma.statechart.interface_.Package;
+import hu.bme.mit.gamma.theta.verification.AbstractThetaBackAnnotator;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.xsts.explicit.verification.CompiledXsts.Evaluator;
+import hu.bme.mit.gamma.xsts.explicit.verification.CompiledXsts.Resolver;
+import hu.bme.mit.gamma.xsts.model.XSTS;
+
+/**
+ * In-process simulator of XSTS models (e.g., the ones generated for Theta) executing the compiled
+ * actions of a CompiledXsts. In every cycle, the environmental transition (havocing the in-events) and
+ * then the internal transition are executed; nondeterminism is resolved by the given resolvers, and
+ * blocked resolutions (e.g., a choice branch with a false assumption) are backtracked.
+ * Instances are not thread-safe.
+ */
+public class XstsSimulator {
+
+	protected final CompiledXsts xSts;
+
+	protected int[] state;
+	protected long cycleCount;
+	protected boolean isRecording = false;
+	// The state after the initialization and then the states after the environmental and internal transitions
+	protected final List<int[]> history = new ArrayList<int[]>();
+
+	public XstsSimulator(XSTS xSts, Resolver havocResolver, Resolver choiceResolver) {
+		this.xSts = new CompiledXsts(xSts); // Resolvers make it stateful, so it cannot be shared
+		this.xSts.setResolvers(havocResolver, choiceResolver);
+	}
+
+	public XstsSimulator(XSTS xSts, Random random) {
+		this(xSts, getRandomResolver(random), getRandomResolver(random));
+	}
+
+	public XstsSimulator(XSTS xSts, long seed) {
+		this(xSts, new Random(seed));
+	}
+
+	// Resolvers
+
+	/**
+	 * Chooses uniformly from the remaining candidates.
+	 */
+	public static Resolver getRandomResolver(Random random) {
+		return count -> random.nextInt(count);
+	}
+
+	/**
+	 * Chooses the first unblocked candidate, e.g., havocs booleans (in-events) to false, if possible.
+	 */
+	public static Resolver getFirstResolver() {
+		return count -> 0;
+	}
+
+	/**
+	 * Chooses the given indexes one after the other (modulo the number of candidates), and then
+	 * continues with the fallback resolver; can be used to replay or guide a simulation.
+	 */
+	public static Resolver getGuidedResolver(int[] choices, Resolver fallbackResolver) {
+		int[] index = { 0 };
+		return count -> {
+			if (index[0] < choices.length) {
+				return Math.floorMod(choices[index[0]++], count);
+			}
+			return fallbackResolver.choose(count);
+		};
+	}
+
+	// Simulation
+
+	public void setRecording(boolean isRecording) {
+		this.isRecording = isRecording;
+	}
+
+	/**
+	 * Executes the initializing transitions; returns false if they are blocked.
+	 */
+	public boolean reset() {
+		state = null;
+		cycleCount = 0;
+		history.clear();
+		xSts.execute(xSts.initializingAction, new int[xSts.getGlobalWidth()], it -> state = it);
+		if (state == null) {
+			return false;
+		}
+		record(state);
+		return true;
+	}
+
+	/**
+	 * Executes a cycle; returns false (leaving the state unchanged) if every resolution is blocked.
+	 */
+	public boolean step() {
+		checkReset();
+		int[][] newStates = new int[2][];
+		xSts.executeEnvironment(state, environmentalState ->
+			xSts.executeTransition(environmentalState, it -> {
+				newStates[0] = environmentalState;
+				newStates[1] = it;
+			})
+		);
+		if (newStates[1] == null) {
+			return false;
+		}
+		record(newStates[0]);
+		record(newStates[1]);
+		state = newStates[1];
+		cycleCount++;
+		return true;
+	}
+
+	/**
+	 * Executes at most the given number of cycles until the target holds; returns the number of
+	 * executed cycles if the target holds, -1 otherwise (also in the case of a deadlock).
+	 */
+	public long run(long maxCycles, Evaluator target) {
+		checkReset();
+		long firstCycle = cycleCount;
+		while (target.evaluate(state) == 0) {
+			if (cycleCount - firstCycle >= maxCycles || !step()) {
+				return -1;
+			}
+		}
+		return cycleCount - firstCycle;
+	}
+
+	public long run(long maxCycles, String targetFormula) {
+		return run(maxCycles, getFormula(targetFormula));
+	}
+
+	/**
+	 * Compiles a state formula in the syntax of the Theta property serializer, e.g., 'main_region == A'.
+	 */
+	public Evaluator getFormula(String formula) {
+		return new QueryParser(xSts).parseFormula(formula);
+	}
+
+	protected void record(int[] state) {
+		if (isRecording) {
+			history.add(state);
+		}
+	}
+
+	protected void checkReset() {
+		if (state == null) {
+			throw new IllegalStateException("The simulator has not been (successfully) reset");
+		}
+	}
+
+	// Results
+
+	public CompiledXsts getXsts() {
+		return xSts;
+	}
+
+	public long getCycleCount() {
+		return cycleCount;
+	}
+
+	public int[] getState() {
+		return state.clone();
+	}
+
+	public Map<String, String> getValues() {
+		return xSts.getValues(state);
+	}
+
+	/**
+	 * Back-annotates the recorded history into a trace of the (unfolded) Gamma package the XSTS was
+	 * generated from.
+	 */
+	public ExecutionTrace getTrace(Package gammaPackage) {
+		List<Map<String, String>> states = new ArrayList<Map<String, String>>();
+		for (int[] recordedState : history) {
+			states.add(xSts.getValues(recordedState));
+		}
+		// Must be synchronized due to the non-thread-safe VIATRA engine
+		synchronized (AbstractThetaBackAnnotator.getEngineSynchronizationObject()) {
+			TraceBackAnnotator backAnnotator = new TraceBackAnnotator(gammaPackage, states);
+			return backAnnotator.execute();
+		}
+	}
+
+}
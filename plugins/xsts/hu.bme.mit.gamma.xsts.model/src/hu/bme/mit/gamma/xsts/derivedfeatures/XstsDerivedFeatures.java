@@ -53,6 +53,7 @@ import hu.bme.mit.gamma.xsts.model.XSTS;
 import hu.bme.mit.gamma.xsts.model.XSTSModelFactory;
 import hu.bme.mit.gamma.xsts.model.XTransition;
 import hu.bme.mit.gamma.xsts.model.XstsAnnotation;
+import hu.bme.mit.gamma.xsts.util.IntervalAnalysis;
 import hu.bme.mit.gamma.xsts.util.XstsActionUtil;
 
 public class XstsDerivedFeatures extends ExpressionModelDerivedFeatures {
@@ -234,6 +235,14 @@ public class XstsDerivedFeatures extends ExpressionModelDerivedFeatures {
 	}
 	
 	public static AtomicAction getFirstAtomicAction(Action action) {
+		AtomicAction firstAtomicAction = findFirstAtomicAction(action);
+		if (firstAtomicAction == null) {
+			throw new IllegalArgumentException("No first atomic action: " + action);
+		}
+		return firstAtomicAction;
+	}
+	
+	public static AtomicAction findFirstAtomicAction(Action action) {
 		if (action instanceof AtomicAction) {
 			return (AtomicAction) action;
 		}
@@ -241,12 +250,12 @@ public class XstsDerivedFeatures extends ExpressionModelDerivedFeatures {
 			MultiaryAction multiaryAction = (MultiaryAction) action;
 			List<Action> actions = multiaryAction.getActions();
 			if (actions.isEmpty()) {
-				throw new IllegalArgumentException("Empty action list");
+				return null; // Empty action list
 			}
 			Action firstAction = actions.get(0);
-			return getFirstAtomicAction(firstAction);
+			return findFirstAtomicAction(firstAction);
 		}
-		throw new IllegalArgumentException("Not supported action: " + action);
+		return null; // Not supported action
 	}
 
 	private static boolean isTrivialAssignment(EqualityExpression expression, AssignmentAction action) {
@@ -790,35 +799,26 @@ public class XstsDerivedFeatures extends ExpressionModelDerivedFeatures {
 	
 	//
 	
+	/**
+	 * Returns the bounded codomains of the integer variables based on an interval analysis of the
+	 * XSTS (see IntervalAnalysis). Clock variables and unbounded variables are not contained.
+	 */
 	public static Map<VariableDeclaration, Entry<Integer, Integer>>
 			getIntegerVariableCodomains(XSTS xSts) {
+		IntervalAnalysis intervalAnalysis = new IntervalAnalysis(xSts);
+		Map<VariableDeclaration, Entry<Long, Long>> intervals = intervalAnalysis.execute();
 		
-		Triple<Map<VariableDeclaration, List<LiteralExpression>>, Map<VariableDeclaration, List<VariableDeclaration>>,
-			Set<VariableDeclaration>> variableAssignmentGroups = getVariableAssignmentGroups(xSts);
-		
-		Map<VariableDeclaration, List<LiteralExpression>> integerVariableAssignments = variableAssignmentGroups.getFirst();
-		Map<VariableDeclaration, List<VariableDeclaration>> variableVariableAssignments = variableAssignmentGroups.getSecond();
-		Set<VariableDeclaration> notIntegerLiteralVariables = variableAssignmentGroups.getThird();
-		
-		Map<VariableDeclaration, List<LiteralExpression>> integerLiteralVariableAssignments =
-				new HashMap<VariableDeclaration, List<LiteralExpression>>(integerVariableAssignments);
-		Set<VariableDeclaration> integerLiteralVariables = integerLiteralVariableAssignments.keySet();
-		Set<VariableDeclaration> variableVariables = variableVariableAssignments.keySet();
-		integerLiteralVariables.removeAll(variableVariables);
-		integerLiteralVariables.removeAll(notIntegerLiteralVariables);
-		// Every variable in this collection now has only integer value assignments
-		
-		// 1: Calculating precise domains based on these values
-		Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableMinMax = calculatePresiceCodomains(
-				integerLiteralVariableAssignments, integerLiteralVariables);
-		
-		// 2: Extending min/max values for variables that need to hold low/large values
-		// e.g., a := 70.000
-		extendCodomainsForLiteralAssignments(integerVariableAssignments, integerVariableMinMax);
-		
-		// 3: Checking 'var := var2' assignments - note that this is done after the 'extension'
-		extendCodomainsForVariableAssignments(integerVariableAssignments, variableVariableAssignments,
-				notIntegerLiteralVariables, variableVariables, integerVariableMinMax);
+		Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableMinMax =
+				new HashMap<VariableDeclaration, Entry<Integer, Integer>>();
+		for (VariableDeclaration variable : intervals.keySet()) {
+			Entry<Long, Long> interval = intervals.get(variable);
+			long min = interval.getKey();
+			long max = interval.getValue();
+			if (Integer.MIN_VALUE < min && max < Integer.MAX_VALUE) { // Infinity is represented by Long.MIN/MAX
+				integerVariableMinMax.put(variable,
+						new SimpleEntry<Integer, Integer>((int) min, (int) max));
+			}
+		}
 		
 		return integerVariableMinMax;
 	}
@@ -861,90 +861,6 @@ public class XstsDerivedFeatures extends ExpressionModelDerivedFeatures {
 		return variableLiterals;
 	}
 
-	public static void extendCodomainsForVariableAssignments(
-			Map<VariableDeclaration, List<LiteralExpression>> integerVariableAssignments,
-			Map<VariableDeclaration, List<VariableDeclaration>> variableVariableAssignments,
-			Set<VariableDeclaration> notIntegerLiteralVariables,
-			Set<VariableDeclaration> variableVariables,
-			Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableMinMax) {
-		variableVariables.removeAll(notIntegerLiteralVariables);
-		// Every variable in this collection now has only integer value assignments
-		// or 'var := var2' assignments
-		int size = 0;
-		while (size != variableVariableAssignments.size()) {
-			size = variableVariableAssignments.size(); // While we can remove vars from here
-			
-			for (VariableDeclaration assignedVariable :
-						new ArrayList<VariableDeclaration>(variableVariables)) {
-				List<VariableDeclaration> rhsVariables = variableVariableAssignments.get(assignedVariable);
-				if (rhsVariables.stream()
-						.allMatch(it ->
-							integerVariableMinMax.keySet().contains(it))) {
-					List<Integer> mins = new ArrayList<Integer>();
-					List<Integer> maxs = new ArrayList<Integer>();
-					
-					// Rhs variables
-					for (VariableDeclaration rhsVariable : rhsVariables) {
-						VariableDeclaration container = rhsVariable;
-						Entry<Integer, Integer> minMax = integerVariableMinMax.get(container);
-						mins.add(
-								minMax.getKey());
-						maxs.add(
-								minMax.getValue());
-					}
-					
-					// Rhs integer literals
-					if (integerVariableAssignments.containsKey(assignedVariable)) {
-						for (LiteralExpression integerLiteral :
-								integerVariableAssignments.get(assignedVariable)) {
-							mins.add(
-									xStsActionUtil.toInteger(integerLiteral));
-							maxs.add(
-									xStsActionUtil.toInteger(integerLiteral));
-						}
-					}
-					
-					int min = mins.stream()
-							.min((o1, o2) -> o1.compareTo(o2)).get();
-					int max = maxs.stream()
-							.max((o1, o2) -> o1.compareTo(o2)).get();
-					
-					// Now the codomain of the assigned variable is "known"
-					variableVariables.remove(assignedVariable);
-					// So we move it to the other map
-					integerVariableMinMax.put(assignedVariable,
-							new SimpleEntry<Integer, Integer>(min, max));
-				}
-			}
-		}
-	}
-
-	public static void extendCodomainsForLiteralAssignments(Map<VariableDeclaration, List<LiteralExpression>> integerVariableAssignments,
-			Map<VariableDeclaration, Entry<Integer, Integer>> integerVariableMinMax) {
-		List<VariableDeclaration> additionalIntegerVariables =
-				new ArrayList<VariableDeclaration>(integerVariableAssignments.keySet());
-		additionalIntegerVariables.removeIf(
-				it -> integerVariableMinMax.containsKey(it));
-		for (VariableDeclaration integerVariable : additionalIntegerVariables) {
-			List<LiteralExpression> integerLiterals =
-					integerVariableAssignments.get(integerVariable);
-			Integer min = integerLiterals.stream()
-					.map(it -> xStsActionUtil.toInteger(it))
-					.min((o1, o2) -> o1.compareTo(o2)).get();
-			Integer max = integerLiterals.stream()
-					.map(it -> xStsActionUtil.toInteger(it))
-					.max((o1, o2) -> o1.compareTo(o2)).get();
-			
-			min = Integer.min(Short.MIN_VALUE, min);
-			max = Integer.max(Short.MAX_VALUE, max);
-			
-			if (min < Short.MIN_VALUE || Short.MAX_VALUE < max) {
-				integerVariableMinMax.put(integerVariable,
-						new SimpleEntry<Integer, Integer>(min, max));
-			}
-		}
-	}
-
 	public static Map<VariableDeclaration, Entry<Integer, Integer>> calculatePresiceCodomains(
 			Map<VariableDeclaration, List<LiteralExpression>> integerLiteralVariableAssignments,
 			Set<VariableDeclaration> integerLiteralVariables) {
@@ -0,0 +1,674 @@
+/********************************************************************************
+ * Copyright (c) 2022-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.util;
+
+import java.math.BigInteger;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+
+import hu.bme.mit.gamma.expression.derivedfeatures.ExpressionModelDerivedFeatures;
+import hu.bme.mit.gamma.expression.model.AddExpression;
+import hu.bme.mit.gamma.expression.model.AndExpression;
+import hu.bme.mit.gamma.expression.model.BinaryExpression;
+import hu.bme.mit.gamma.expression.model.Declaration;
+import hu.bme.mit.gamma.expression.model.DirectReferenceExpression;
+import hu.bme.mit.gamma.expression.model.DivExpression;
+import hu.bme.mit.gamma.expression.model.DivideExpression;
+import hu.bme.mit.gamma.expression.model.EqualityExpression;
+import hu.bme.mit.gamma.expression.model.Expression;
+import hu.bme.mit.gamma.expression.model.FalseExpression;
+import hu.bme.mit.gamma.expression.model.GreaterEqualExpression;
+import hu.bme.mit.gamma.expression.model.GreaterExpression;
+import hu.bme.mit.gamma.expression.model.IfThenElseExpression;
+import hu.bme.mit.gamma.expression.model.InequalityExpression;
+import hu.bme.mit.gamma.expression.model.IntegerLiteralExpression;
+import hu.bme.mit.gamma.expression.model.IntegerRangeLiteralExpression;
+import hu.bme.mit.gamma.expression.model.IntegerTypeDefinition;
+import hu.bme.mit.gamma.expression.model.LessEqualExpression;
+import hu.bme.mit.gamma.expression.model.LessExpression;
+import hu.bme.mit.gamma.expression.model.ModExpression;
+import hu.bme.mit.gamma.expression.model.MultiaryExpression;
+import hu.bme.mit.gamma.expression.model.MultiplyExpression;
+import hu.bme.mit.gamma.expression.model.NotExpression;
+import hu.bme.mit.gamma.expression.model.OrExpression;
+import hu.bme.mit.gamma.expression.model.ParameterDeclaration;
+import hu.bme.mit.gamma.expression.model.SubtractExpression;
+import hu.bme.mit.gamma.expression.model.TrueExpression;
+import hu.bme.mit.gamma.expression.model.UnaryMinusExpression;
+import hu.bme.mit.gamma.expression.model.UnaryPlusExpression;
+import hu.bme.mit.gamma.expression.model.VariableDeclaration;
+import hu.bme.mit.gamma.util.GammaEcoreUtil;
+import hu.bme.mit.gamma.xsts.derivedfeatures.XstsDerivedFeatures;
+import hu.bme.mit.gamma.xsts.model.AbstractAssignmentAction;
+import hu.bme.mit.gamma.xsts.model.Action;
+import hu.bme.mit.gamma.xsts.model.AssignmentAction;
+import hu.bme.mit.gamma.xsts.model.AssumeAction;
+import hu.bme.mit.gamma.xsts.model.HavocAction;
+import hu.bme.mit.gamma.xsts.model.IfAction;
+import hu.bme.mit.gamma.xsts.model.LoopAction;
+import hu.bme.mit.gamma.xsts.model.MultiaryAction;
+import hu.bme.mit.gamma.xsts.model.NonDeterministicAction;
+import hu.bme.mit.gamma.xsts.model.SequentialAction;
+import hu.bme.mit.gamma.xsts.model.VariableDeclarationAction;
+import hu.bme.mit.gamma.xsts.model.XSTS;
+
+/**
+ * Abstract interpretation of the actions of an XSTS over the interval domain. The initializing
+ * actions are executed once, then the environmental and merged actions are executed until a
+ * fix point is reached. Widening (to the integer constants of the model) guarantees termination
+ * in the case of the top-level execution loop and loop actions. The result of the analysis is the
+ * sound codomain of every integer variable, i.e., every value the variable can take.
+ */
+public class IntervalAnalysis {
+
+	protected final XSTS xSts;
+	protected final long[] thresholds;
+	protected final Map<Declaration, Boolean> integerDeclarations = new HashMap<Declaration, Boolean>();
+	protected final Map<VariableDeclaration, Interval> codomains = new HashMap<VariableDeclaration, Interval>();
+
+	protected static final int WIDENING_DELAY = 3;
+
+	protected final XstsActionUtil xStsActionUtil = XstsActionUtil.INSTANCE;
+	protected final GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE;
+
+	public IntervalAnalysis(XSTS xSts) {
+		this.xSts = xSts;
+		this.thresholds = calculateThresholds(xSts);
+	}
+
+	/**
+	 * Returns the codomains of the integer variables (global and local) of the XSTS.
+	 * Unbounded codomains are represented by Long.MIN_VALUE and Long.MAX_VALUE.
+	 */
+	public Map<VariableDeclaration, Entry<Long, Long>> execute() {
+		Map<Declaration, Interval> state = new HashMap<Declaration, Interval>();
+		for (VariableDeclaration variable : xSts.getVariableDeclarations()) {
+			if (isInteger(variable)) {
+				Expression initialValue = xStsActionUtil.getInitialValue(variable);
+				assign(variable, evaluate(initialValue, state), state);
+			}
+		}
+
+		List<Action> initializingActions = List.of(
+				xSts.getVariableInitializingTransition().getAction(),
+				xSts.getConfigurationInitializingTransition().getAction(),
+				xSts.getEntryEventTransition().getAction());
+		for (Action initializingAction : initializingActions) {
+			state = transform(initializingAction, state);
+			if (state == null) {
+				return getCodomains(); // The initialization is blocked
+			}
+		}
+
+		List<Action> cycleActions = List.of(
+				xSts.getInEventTransition().getAction(),
+				xSts.getOutEventTransition().getAction(),
+				XstsDerivedFeatures.getMergedAction(xSts));
+		int iteration = 0;
+		while (true) {
+			Map<Declaration, Interval> nextState = new HashMap<Declaration, Interval>(state);
+			for (Action cycleAction : cycleActions) {
+				join(nextState, transform(cycleAction, copy(state)));
+			}
+			if (iteration++ >= WIDENING_DELAY) {
+				nextState = widen(state, nextState);
+			}
+			if (nextState.equals(state)) {
+				return getCodomains();
+			}
+			state = nextState;
+		}
+	}
+
+	protected Map<VariableDeclaration, Entry<Long, Long>> getCodomains() {
+		Map<VariableDeclaration, Entry<Long, Long>> codomains =
+				new HashMap<VariableDeclaration, Entry<Long, Long>>();
+		for (Entry<VariableDeclaration, Interval> entry : this.codomains.entrySet()) {
+			Interval interval = entry.getValue();
+			codomains.put(entry.getKey(),
+					new SimpleEntry<Long, Long>(interval.min, interval.max));
+		}
+		return codomains;
+	}
+
+	// Actions: null represents the unreachable (bottom) state
+
+	protected Map<Declaration, Interval> transform(Action action, Map<Declaration, Interval> state) {
+		if (state == null || action == null) {
+			return state;
+		}
+		if (action instanceof AssignmentAction assignmentAction) {
+			Declaration declaration = getAssignedDeclaration(assignmentAction);
+			if (declaration != null) {
+				assign(declaration, evaluate(assignmentAction.getRhs(), state), state);
+			}
+			return state;
+		}
+		if (action instanceof HavocAction havocAction) {
+			Declaration declaration = getAssignedDeclaration(havocAction);
+			if (declaration != null) {
+				assign(declaration, Interval.TOP, state);
+			}
+			return state;
+		}
+		if (action instanceof VariableDeclarationAction declarationAction) {
+			VariableDeclaration variable = declarationAction.getVariableDeclaration();
+			if (isInteger(variable)) {
+				Expression initialValue = xStsActionUtil.getInitialValue(variable);
+				assign(variable, evaluate(initialValue, state), state);
+			}
+			return state;
+		}
+		if (action instanceof AssumeAction assumeAction) {
+			return refine(assumeAction.getAssumption(), true, state);
+		}
+		if (action instanceof IfAction ifAction) {
+			Expression condition = ifAction.getCondition();
+			Map<Declaration, Interval> thenState = transform(ifAction.getThen(),
+					refine(condition, true, copy(state)));
+			Map<Declaration, Interval> elseState = transform(ifAction.getElse(),
+					refine(condition, false, state));
+			return join(thenState, elseState);
+		}
+		if (action instanceof LoopAction loopAction) {
+			return transform(loopAction, state);
+		}
+		if (action instanceof SequentialAction sequentialAction) {
+			for (Action subaction : sequentialAction.getActions()) {
+				state = transform(subaction, state);
+			}
+			return state;
+		}
+		if (action instanceof NonDeterministicAction nonDeterministicAction) {
+			Map<Declaration, Interval> joinedState = null;
+			for (Action subaction : nonDeterministicAction.getActions()) {
+				joinedState = join(joinedState, transform(subaction, copy(state)));
+			}
+			return joinedState;
+		}
+		if (action instanceof MultiaryAction multiaryAction) {
+			// Parallel, orthogonal and unordered actions: each branch starts from the same state and
+			// they write disjunct variables, so joining the results (and the input) is sound
+			Map<Declaration, Interval> joinedState = copy(state);
+			for (Action subaction : multiaryAction.getActions()) {
+				Map<Declaration, Interval> branchState = transform(subaction, copy(state));
+				if (branchState == null) {
+					return null;
+				}
+				join(joinedState, branchState);
+			}
+			return joinedState;
+		}
+		return state; // Empty and assert actions
+	}
+
+	protected Map<Declaration, Interval> transform(LoopAction action, Map<Declaration, Interval> state) {
+		ParameterDeclaration parameter = action.getIterationParameterDeclaration();
+		IntegerRangeLiteralExpression range = action.getRange();
+		Interval left = evaluate(range.getLeftOperand(), state);
+		Interval right = evaluate(range.getRightOperand(), state);
+		Interval parameterInterval = new Interval(
+				range.isLeftInclusive() ? left.min : add(left.min, 1),
+				range.isRightInclusive() ? right.max : add(right.max, -1));
+		if (parameterInterval.isEmpty()) {
+			return state; // No iterations
+		}
+		int iteration = 0;
+		while (true) {
+			Map<Declaration, Interval> bodyState = copy(state);
+			bodyState.put(parameter, parameterInterval);
+			Map<Declaration, Interval> nextState = join(copy(state), transform(action.getAction(), bodyState));
+			nextState.remove(parameter);
+			if (iteration++ >= WIDENING_DELAY) {
+				nextState = widen(state, nextState);
+			}
+			if (nextState.equals(state)) {
+				return state;
+			}
+			state = nextState;
+		}
+	}
+
+	protected void assign(Declaration declaration, Interval interval, Map<Declaration, Interval> state) {
+		if (!isInteger(declaration)) {
+			return;
+		}
+		if (isClock(declaration)) {
+			interval = Interval.TOP; // Clocks can be changed by time elapse, too
+		}
+		state.put(declaration, interval);
+		if (declaration instanceof VariableDeclaration variable) {
+			Interval codomain = codomains.get(variable);
+			codomains.put(variable, (codomain == null) ? interval : codomain.join(interval));
+		}
+	}
+
+	protected Declaration getAssignedDeclaration(AbstractAssignmentAction action) {
+		Expression lhs = action.getLhs();
+		if (lhs instanceof DirectReferenceExpression reference) {
+			return reference.getDeclaration(); // Array elements are not tracked
+		}
+		return null;
+	}
+
+	// Conditions
+
+	protected Map<Declaration, Interval> refine(Expression condition,
+			boolean positive, Map<Declaration, Interval> state) {
+		if (state == null) {
+			return null;
+		}
+		if (condition instanceof TrueExpression) {
+			return positive ? state : null;
+		}
+		if (condition instanceof FalseExpression) {
+			return positive ? null : state;
+		}
+		if (condition instanceof NotExpression notExpression) {
+			return refine(notExpression.getOperand(), !positive, state);
+		}
+		if (condition instanceof AndExpression && positive ||
+				condition instanceof OrExpression && !positive) {
+			List<Expression> operands = ((MultiaryExpression) condition)
+					.getOperands();
+			for (Expression operand : operands) {
+				state = refine(operand, positive, state);
+			}
+			return state;
+		}
+		if (condition instanceof AndExpression || condition instanceof OrExpression) {
+			List<Expression> operands = ((MultiaryExpression) condition)
+					.getOperands();
+			Map<Declaration, Interval> joinedState = null;
+			for (Expression operand : operands) {
+				joinedState = join(joinedState, refine(operand, positive, copy(state)));
+			}
+			return joinedState;
+		}
+		if (condition instanceof BinaryExpression binaryExpression) {
+			Expression left = binaryExpression.getLeftOperand();
+			Expression right = binaryExpression.getRightOperand();
+			if (condition instanceof LessExpression) {
+				return positive ? refineLess(left, right, 1, state) : refineLess(right, left, 0, state);
+			}
+			if (condition instanceof LessEqualExpression) {
+				return positive ? refineLess(left, right, 0, state) : refineLess(right, left, 1, state);
+			}
+			if (condition instanceof GreaterExpression) {
+				return positive ? refineLess(right, left, 1, state) : refineLess(left, right, 0, state);
+			}
+			if (condition instanceof GreaterEqualExpression) {
+				return positive ? refineLess(right, left, 0, state) : refineLess(left, right, 1, state);
+			}
+			if (condition instanceof EqualityExpression && positive ||
+					condition instanceof InequalityExpression && !positive) {
+				return refineEqual(left, right, state);
+			}
+			if (condition instanceof EqualityExpression || condition instanceof InequalityExpression) {
+				return refineNotEqual(left, right, state);
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Refines the state according to 'left + difference <= right'.
+	 */
+	protected Map<Declaration, Interval> refineLess(Expression left, Expression right,
+			long difference, Map<Declaration, Interval> state) {
+		Interval leftInterval = evaluate(left, state);
+		Interval rightInterval = evaluate(right, state);
+		if (!isTrackedReference(left, state) && !isTrackedReference(right, state)) {
+			if (add(leftInterval.min, difference) > rightInterval.max) {
+				return null; // Definitely false
+			}
+			return state;
+		}
+		Interval newLeft = leftInterval.meet(
+				new Interval(Long.MIN_VALUE, add(rightInterval.max, -difference)));
+		Interval newRight = rightInterval.meet(
+				new Interval(add(leftInterval.min, difference), Long.MAX_VALUE));
+		return update(left, newLeft, update(right, newRight, state));
+	}
+
+	protected Map<Declaration, Interval> refineEqual(Expression left, Expression right,
+			Map<Declaration, Interval> state) {
+		Interval interval = evaluate(left, state).meet(evaluate(right, state));
+		return update(left, interval, update(right, interval, state));
+	}
+
+	protected Map<Declaration, Interval> refineNotEqual(Expression left, Expression right,
+			Map<Declaration, Interval> state) {
+		Interval leftInterval = evaluate(left, state);
+		Interval rightInterval = evaluate(right, state);
+		if (rightInterval.isSingleton()) {
+			state = update(left, leftInterval.exclude(rightInterval.min), state);
+		}
+		if (leftInterval.isSingleton()) {
+			state = update(right, rightInterval.exclude(leftInterval.min), state);
+		}
+		return state;
+	}
+
+	protected Map<Declaration, Interval> update(Expression expression,
+			Interval interval, Map<Declaration, Interval> state) {
+		if (state == null) {
+			return null;
+		}
+		if (interval.isEmpty()) {
+			return null;
+		}
+		if (isTrackedReference(expression, state)) {
+			Declaration declaration = ((DirectReferenceExpression) expression).getDeclaration();
+			state.put(declaration, interval); // Refinement is not an assignment
+		}
+		return state;
+	}
+
+	protected boolean isTrackedReference(Expression expression, Map<Declaration, Interval> state) {
+		return expression instanceof DirectReferenceExpression reference &&
+				state.containsKey(reference.getDeclaration());
+	}
+
+	// Expressions
+
+	protected Interval evaluate(Expression expression, Map<Declaration, Interval> state) {
+		if (expression instanceof IntegerLiteralExpression literal) {
+			BigInteger value = literal.getValue();
+			if (value.bitLength() < Long.SIZE - 1) {
+				long longValue = value.longValue();
+				return new Interval(longValue, longValue);
+			}
+			return Interval.TOP;
+		}
+		if (expression instanceof DirectReferenceExpression reference) {
+			Declaration declaration = reference.getDeclaration();
+			if (isClock(declaration)) {
+				return Interval.TOP;
+			}
+			Interval interval = state.get(declaration);
+			return (interval == null) ? Interval.TOP : interval;
+		}
+		if (expression instanceof AddExpression addExpression) {
+			Interval sum = new Interval(0, 0);
+			for (Expression operand : addExpression.getOperands()) {
+				Interval interval = evaluate(operand, state);
+				sum = new Interval(add(sum.min, interval.min), add(sum.max, interval.max));
+			}
+			return sum;
+		}
+		if (expression instanceof SubtractExpression subtractExpression) {
+			Interval left = evaluate(subtractExpression.getLeftOperand(), state);
+			Interval right = evaluate(subtractExpression.getRightOperand(), state);
+			return new Interval(add(left.min, negate(right.max)), add(left.max, negate(right.min)));
+		}
+		if (expression instanceof MultiplyExpression multiplyExpression) {
+			Interval product = new Interval(1, 1);
+			for (Expression operand : multiplyExpression.getOperands()) {
+				Interval interval = evaluate(operand, state);
+				product = Interval.of(
+						multiply(product.min, interval.min), multiply(product.min, interval.max),
+						multiply(product.max, interval.min), multiply(product.max, interval.max));
+			}
+			return product;
+		}
+		if (expression instanceof DivExpression || expression instanceof DivideExpression) {
+			BinaryExpression divExpression = (BinaryExpression) expression;
+			Interval left = evaluate(divExpression.getLeftOperand(), state);
+			Interval right = evaluate(divExpression.getRightOperand(), state);
+			if (left.isFinite() && right.isFinite() && !right.contains(0)) {
+				return Interval.of(left.min / right.min, left.min / right.max,
+						left.max / right.min, left.max / right.max);
+			}
+			return Interval.TOP;
+		}
+		if (expression instanceof ModExpression modExpression) {
+			Interval left = evaluate(modExpression.getLeftOperand(), state);
+			Interval right = evaluate(modExpression.getRightOperand(), state);
+			if (right.isFinite() && !right.contains(0)) {
+				long bound = Math.max(Math.abs(right.min), Math.abs(right.max)) - 1;
+				if (left.min >= 0) {
+					return new Interval(0, Math.min(bound, left.max));
+				}
+				return new Interval(-bound, bound); // Both remainder and modulo semantics
+			}
+			return Interval.TOP;
+		}
+		if (expression instanceof UnaryMinusExpression unaryMinusExpression) {
+			Interval operand = evaluate(unaryMinusExpression.getOperand(), state);
+			return new Interval(negate(operand.max), negate(operand.min));
+		}
+		if (expression instanceof UnaryPlusExpression unaryPlusExpression) {
+			return evaluate(unaryPlusExpression.getOperand(), state);
+		}
+		if (expression instanceof IfThenElseExpression ifThenElseExpression) {
+			Expression condition = ifThenElseExpression.getCondition();
+			Map<Declaration, Interval> thenState = refine(condition, true, copy(state));
+			Map<Declaration, Interval> elseState = refine(condition, false, copy(state));
+			Interval thenInterval = (thenState == null) ? null :
+				evaluate(ifThenElseExpression.getThen(), thenState);
+			Interval elseInterval = (elseState == null) ? null :
+				evaluate(ifThenElseExpression.getElse(), elseState);
+			if (thenInterval == null) {
+				return (elseInterval == null) ? Interval.TOP : elseInterval;
+			}
+			return (elseInterval == null) ? thenInterval : thenInterval.join(elseInterval);
+		}
+		return Interval.TOP;
+	}
+
+	// States
+
+	protected Map<Declaration, Interval> copy(Map<Declaration, Interval> state) {
+		if (state == null) {
+			return null;
+		}
+		return new HashMap<Declaration, Interval>(state);
+	}
+
+	/**
+	 * Joins the right state into the left one; declarations present in only one of the states
+	 * (local variables) keep their intervals.
+	 */
+	protected Map<Declaration, Interval> join(Map<Declaration, Interval> left, Map<Declaration, Interval> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		for (Entry<Declaration, Interval> entry : right.entrySet()) {
+			left.merge(entry.getKey(), entry.getValue(), (a, b) -> a.join(b));
+		}
+		return left;
+	}
+
+	protected Map<Declaration, Interval> widen(Map<Declaration, Interval> oldState,
+			Map<Declaration, Interval> newState) {
+		Map<Declaration, Interval> widenedState = new HashMap<Declaration, Interval>();
+		for (Entry<Declaration, Interval> entry : newState.entrySet()) {
+			Declaration declaration = entry.getKey();
+			Interval newInterval = entry.getValue();
+			Interval oldInterval = oldState.get(declaration);
+			widenedState.put(declaration,
+					(oldInterval == null) ? newInterval : widen(oldInterval, newInterval));
+		}
+		return widenedState;
+	}
+
+	/**
+	 * Widening with thresholds: a growing bound jumps to the next constant of the model.
+	 */
+	protected Interval widen(Interval oldInterval, Interval newInterval) {
+		long min = oldInterval.min;
+		if (newInterval.min < oldInterval.min) {
+			int index = Arrays.binarySearch(thresholds, newInterval.min);
+			if (index < 0) {
+				index = -index - 2; // The largest threshold below the value
+			}
+			min = (index < 0) ? Long.MIN_VALUE : thresholds[index];
+		}
+		long max = oldInterval.max;
+		if (newInterval.max > oldInterval.max) {
+			int index = Arrays.binarySearch(thresholds, newInterval.max);
+			if (index < 0) {
+				index = -index - 1; // The smallest threshold above the value
+			}
+			max = (index >= thresholds.length) ? Long.MAX_VALUE : thresholds[index];
+		}
+		return new Interval(min, max);
+	}
+
+	protected long[] calculateThresholds(XSTS xSts) {
+		TreeSet<Long> thresholds = new TreeSet<Long>();
+		thresholds.add(0L);
+		for (IntegerLiteralExpression literal : ecoreUtil.getAllContentsOfType(
+				xSts, IntegerLiteralExpression.class)) {
+			BigInteger value = literal.getValue();
+			if (value.bitLength() < Long.SIZE - 2) {
+				long longValue = value.longValue();
+				thresholds.add(longValue - 1);
+				thresholds.add(longValue);
+				thresholds.add(longValue + 1);
+			}
+		}
+		return thresholds.stream().mapToLong(it -> it).toArray();
+	}
+
+	protected boolean isInteger(Declaration declaration) {
+		return integerDeclarations.computeIfAbsent(declaration, it ->
+				ExpressionModelDerivedFeatures.getTypeDefinition(it) instanceof IntegerTypeDefinition);
+	}
+
+	protected boolean isClock(Declaration declaration) {
+		if (declaration instanceof VariableDeclaration variable) {
+			return ExpressionModelDerivedFeatures.isClock(variable) ||
+					ExpressionModelDerivedFeatures.isScheduledClock(variable);
+		}
+		return false;
+	}
+
+	// Saturating arithmetic: Long.MIN_VALUE and Long.MAX_VALUE represent the infinities
+
+	protected static long add(long left, long right) {
+		if (left == Long.MIN_VALUE || right == Long.MIN_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		if (left == Long.MAX_VALUE || right == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		try {
+			return Math.addExact(left, right);
+		} catch (ArithmeticException e) {
+			return (left > 0) ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+	}
+
+	protected static long negate(long value) {
+		if (value == Long.MIN_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		if (value == Long.MAX_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		return -value;
+	}
+
+	protected static long multiply(long left, long right) {
+		if (left == 0 || right == 0) {
+			return 0;
+		}
+		boolean isPositive = (left > 0) == (right > 0);
+		if (left == Long.MIN_VALUE || left == Long.MAX_VALUE ||
+				right == Long.MIN_VALUE || right == Long.MAX_VALUE) {
+			return isPositive ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+		try {
+			return Math.multiplyExact(left, right);
+		} catch (ArithmeticException e) {
+			return isPositive ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+	}
+
+	//
+
+	protected static final class Interval {
+
+		public static final Interval TOP = new Interval(Long.MIN_VALUE, Long.MAX_VALUE);
+
+		public final long min;
+		public final long max;
+
+		public Interval(long min, long max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		public static Interval of(long... values) {
+			return new Interval(Arrays.stream(values).min().getAsLong(),
+					Arrays.stream(values).max().getAsLong());
+		}
+
+		public Interval join(Interval interval) {
+			return new Interval(Math.min(min, interval.min), Math.max(max, interval.max));
+		}
+
+		public Interval meet(Interval interval) {
+			return new Interval(Math.max(min, interval.min), Math.min(max, interval.max));
+		}
+
+		public Interval exclude(long value) {
+			if (value == min) {
+				return new Interval(add(min, 1), max);
+			}
+			if (value == max) {
+				return new Interval(min, add(max, -1));
+			}
+			return this;
+		}
+
+		public boolean isEmpty() {
+			return min > max;
+		}
+
+		public boolean isSingleton() {
+			return min == max;
+		}
+
+		public boolean isFinite() {
+			return min != Long.MIN_VALUE && max != Long.MAX_VALUE;
+		}
+
+		public boolean contains(long value) {
+			return min <= value && value <= max;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (object instanceof Interval interval) {
+				return min == interval.min && max == interval.max;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(min) * 31 + Long.hashCode(max);
+		}
+
+	}
+
+}
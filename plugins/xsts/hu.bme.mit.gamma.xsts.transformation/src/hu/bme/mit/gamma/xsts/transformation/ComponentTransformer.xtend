@@ -71,6 +71,8 @@ class ComponentTransformer {
 	protected final boolean transformOrthogonalActions
 	protected final boolean optimize
 	protected final TransitionMerging transitionMerging
+	// Incremental transformation, if set
+	protected XstsFragmentCache fragmentCache = null
 	// Auxiliary objects
 	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
 	protected final extension JavaUtil javaUtil = JavaUtil.INSTANCE
@@ -101,6 +103,10 @@ class ComponentTransformer {
 		this.traceability = new Traceability
 	}
 	
+	def setFragmentCache(XstsFragmentCache fragmentCache) {
+		this.fragmentCache = fragmentCache
+	}
+	
 	def dispatch XSTS transform(Component component, Package lowlevelPackage) {
 		throw new IllegalArgumentException("Not supported component type: " + component)
 	}
@@ -1165,6 +1171,15 @@ class ComponentTransformer {
 	
 	def dispatch XSTS transform(StatechartDefinition statechart, Package lowlevelPackage) {
 		logger.log(Level.INFO, "Transforming statechart " + statechart.name)
+		// Statecharts are the leaves, composite levels are always recomposed due to cross-component optimizations
+		val fragmentKey = fragmentCache?.getKey(statechart, // Parameters are already extracted
+			transformOrthogonalActions.toString, optimize.toString, transitionMerging.toString)
+		if (fragmentKey !== null) {
+			val cachedXSts = fragmentCache.load(fragmentKey)
+			if (cachedXSts !== null) {
+				return cachedXSts
+			}
+		}
 		/* Note that the package is already transformed and traced because of
 		   the "val lowlevelPackage = gammaToLowlevelTransformer.transform(_package)" call */
 		val lowlevelStatechart = gammaToLowlevelTransformer.transform(statechart)
@@ -1179,6 +1194,9 @@ class ComponentTransformer {
 		for (variable : xSts.variableDeclarations) {
 			variable.expression = variable.defaultExpression
 		}
+		if (fragmentKey !== null) {
+			fragmentCache.store(fragmentKey, xSts)
+		}
 		
 		return xSts
 	}
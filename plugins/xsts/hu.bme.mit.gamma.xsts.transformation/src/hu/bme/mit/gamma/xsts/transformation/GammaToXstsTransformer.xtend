@@ -31,6 +31,7 @@ import hu.bme.mit.gamma.statechart.interface_.SchedulingConstraintAnnotation
 import hu.bme.mit.gamma.statechart.lowlevel.transformation.GammaToLowlevelTransformer
 import hu.bme.mit.gamma.transformation.util.preprocessor.AnalysisModelPreprocessor
 import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.util.PhaseRecorder
 import hu.bme.mit.gamma.xsts.model.SystemInEventGroup
 import hu.bme.mit.gamma.xsts.model.SystemInEventParameterGroup
 import hu.bme.mit.gamma.xsts.model.SystemOutEventGroup
@@ -77,6 +78,7 @@ class GammaToXstsTransformer {
 	protected final extension XstsActionUtil xStsActionUtil = XstsActionUtil.INSTANCE
 	protected final extension ExpressionEvaluator expressionEvaluator = ExpressionEvaluator.INSTANCE
 	protected final extension VariableGroupRetriever variableGroupRetriever = VariableGroupRetriever.INSTANCE
+	protected final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE
 	// Logger
 	protected final Logger logger = Logger.getLogger("GammaLogger")
 	
@@ -113,6 +115,13 @@ class GammaToXstsTransformer {
 		this.optimizeArrays = optimizeArrays
 	}
 	
+	/**
+	 * Enables the reuse of the XSTS fragments of unchanged statecharts across transformation runs.
+	 */
+	def setFragmentCache(XstsFragmentCache fragmentCache) {
+		componentTransformer.fragmentCache = fragmentCache
+	}
+	
 	def preprocessAndExecuteAndSerialize(Package _package,
 			String targetFolderUri, String fileName) {
 		return _package.preprocessAndExecute(#[], targetFolderUri, fileName).serializeXsts
@@ -158,7 +167,9 @@ class GammaToXstsTransformer {
 		// Remove internal parameter assignments from environment
 		xSts.removeInternalParameterAssignment(gammaComponent)
 		// Optimizing
+		val optimizationPhase = phaseRecorder.start("xsts-optimization")
 		xSts.optimize
+		optimizationPhase.end
 		
 		if (initialState !== null) {
 			logger.log(Level.INFO, "Setting initial state " + gammaComponent.name)
@@ -228,26 +239,26 @@ class GammaToXstsTransformer {
 		val root = variable.root
 		val values = newHashSet
 		val comparisons = root.getAllContentsOfType(PredicateExpression).filter(BinaryExpression)
-		try {
-			for (comparison : comparisons) {
-				val left = comparison.leftOperand
-				val right = comparison.rightOperand
-				if (left instanceof DirectReferenceExpression) {
-					if (left.declaration === variable) {
-						values += right.evaluateInteger
-					}
-				}
-				else if (right instanceof DirectReferenceExpression) {
-					if (right.declaration === variable) {
-						values += left.evaluateInteger
-					}
+		for (comparison : comparisons) {
+			val left = comparison.leftOperand
+			val right = comparison.rightOperand
+			val compared = if (left instanceof DirectReferenceExpression && 
+					(left as DirectReferenceExpression).declaration === variable) {
+				right
+			}
+			else if (right instanceof DirectReferenceExpression &&
+					(right as DirectReferenceExpression).declaration === variable) {
+				left
+			}
+			if (compared !== null) {
+				val value = compared.tryEvaluateInteger
+				if (!value.present) {
+					return null // A variable is referenced
 				}
+				values += value.asInt
 			}
-			return (values.empty) ? null : values.max
-		} catch (IllegalArgumentException e) {
-			// A variable is referenced
-			return null
 		}
+		return (values.empty) ? null : values.max
 	}
 	
 	protected def void setSchedulingAnnotation(Package _package) {
@@ -26,6 +26,7 @@ import hu.bme.mit.gamma.statechart.composite.CompositeComponent
 import hu.bme.mit.gamma.util.GammaEcoreUtil
 import hu.bme.mit.gamma.util.JavaUtil
 import hu.bme.mit.gamma.xsts.model.AbstractAssignmentAction
+import hu.bme.mit.gamma.xsts.model.VariableDeclarationAction
 import hu.bme.mit.gamma.xsts.model.XSTS
 import hu.bme.mit.gamma.xsts.model.XSTSModelFactory
 import hu.bme.mit.gamma.xsts.util.XstsActionUtil
@@ -153,14 +154,15 @@ class SystemReducer {
 		clonedXSts.deleteUnusedAndWrittenOnlyVariables
 		
 		val xStsDeletedInputEventVariables = xStsInputEventVariables
-				.filter[it.containingXsts === null]
+				.filter[it.containingXsts === null].toList
 		
+		val xStsDirectReferenceExpressions = xSts.getAllContentsOfType(DirectReferenceExpression) // Caching
 		for (xStsDeletedInputEventVariable : xStsDeletedInputEventVariables) {
 			val name = xStsDeletedInputEventVariable.name
 			val xStsInputVariable = xSts.getVariable(name) // Tracing
 			logger.log(Level.INFO, "Deleting input variable " + name)
 			
-			for (reference : xSts.getAllContentsOfType(DirectReferenceExpression)) {
+			for (reference : xStsDirectReferenceExpressions) {
 				if (reference.declaration === xStsDeletedInputEventVariable) {
 					val xStsDefaultValue = xStsInputVariable.defaultExpression // Input: default value
 					xStsDefaultValue.replace(reference)
@@ -191,28 +193,34 @@ class SystemReducer {
 			Collection<? extends VariableDeclaration> keepableXStsVariables) { // XSTS variables
 		val mapper = new ReferenceToXstsVariableMapper(xSts)
 		
-		val xStsKeepableVariables = newArrayList
+		val xStsKeepableVariables = newHashSet
 		xStsKeepableVariables += keepableXStsVariables
 		for (keepableVariable : keepableVariables) {
 			xStsKeepableVariables += mapper.getVariableVariables(keepableVariable)
 		}
 		
-		var size = 0
-		val xStsVariables = xSts.variableDeclarations
-		while (size != xStsVariables.size) { // Until a fix point is reached
-			size = xStsVariables.size
-			
-			val xStsDeleteableVariables = newLinkedHashSet
-			
-			xStsDeleteableVariables += xStsVariables
+		val index = new VariableUsageIndex(xSts)
+		val xStsVariables = xSts.variableDeclarations.toSet
+		val xStsDeleteableVariables = newLinkedHashSet
+		// Worklist instead of recomputing the read variables until a fix point is reached:
+		// a variable can become deletable only if one of its reads is deleted
+		val queue = <VariableDeclaration>newLinkedList
+		queue += xStsVariables
+		while (!queue.empty) {
+			val xStsVariable = queue.poll
 			// To check and remove 'a := a - 1' like deletable variables
-			xStsDeleteableVariables -= xSts.externallyReadVariables
-			xStsDeleteableVariables -= xStsKeepableVariables
-			xStsDeleteableVariables.removeIf[it.hasAnnotation(UnremovableVariableDeclarationAnnotation)]
-			
-			
-			xSts.deleteVariablesAndAssignments(xStsDeleteableVariables)
+			if (!index.isRead(xStsVariable) && !xStsDeleteableVariables.contains(xStsVariable) &&
+					!xStsKeepableVariables.contains(xStsVariable) &&
+					!xStsVariable.hasAnnotation(UnremovableVariableDeclarationAnnotation)) {
+				xStsDeleteableVariables += xStsVariable
+				for (xStsAssignment : index.getAssignments(xStsVariable).toList) {
+					val xStsUnreadVariables = index.replaceWithEmptyAction(xStsAssignment)
+					queue += xStsUnreadVariables.filter[xStsVariables.contains(it)]
+				}
+			}
 		}
+		
+		xSts.deleteVariables(index, xStsDeleteableVariables)
 	}
 	
 	def void deleteTrivialCodomainVariablesExceptOutEvents(XSTS xSts,
@@ -233,15 +241,17 @@ class SystemReducer {
 			xStsKeepableVariables += mapper.getVariableVariables(keepableVariable)
 		}
 		
+		val index = new VariableUsageIndex(xSts)
+		
 		val oneValueXStsVariableCodomains = xSts.oneValueVariableCodomains
 		val oneValueXStsVariables = oneValueXStsVariableCodomains.keySet
 		for (xStsVariable : oneValueXStsVariables) {
 			val xStsTrivialCodomain = oneValueXStsVariableCodomains.get(xStsVariable)
 			
-			for (reference : xSts.getAllContentsOfType(DirectReferenceExpression)
-					.filter[!it.isLhs && it.declaration === xStsVariable]) {
+			for (reference : index.getReferences(xStsVariable).filter[!it.isLhs].toList) {
 				// No lhs references, so assignment actions can be deleted later 
 				val xStsLiteral = xStsTrivialCodomain.clone
+				index.removeReference(reference)
 				xStsLiteral.replace(reference)
 			}
 		}
@@ -251,7 +261,7 @@ class SystemReducer {
 		xStsDeletableVariables -= xStsKeepableVariables
 		xStsDeletableVariables.removeIf[it.hasAnnotation(UnremovableVariableDeclarationAnnotation)]
 		
-		xSts.deleteVariablesAndAssignments(xStsDeletableVariables)
+		xSts.deleteVariablesAndAssignments(index, xStsDeletableVariables)
 	}
 	
 	def void deleteUnnecessaryInputVariablesExceptOutEvents(XSTS xSts,
@@ -272,6 +282,7 @@ class SystemReducer {
 			xStsKeepableVariables += mapper.getVariableVariables(keepableVariable)
 		}
 		
+		val index = new VariableUsageIndex(xSts)
 		val xStsDeletableVariables = newHashSet
 		
 		val xStsInputVariables = xSts.inputVariables
@@ -279,7 +290,7 @@ class SystemReducer {
 				+ xStsKeepableVariables).toSet
 				
 		for (xStsInputVariable : xStsInputVariables) {
-			val allReaderXStsVariables = xStsInputVariable.allReaderVariables
+			val allReaderXStsVariables = index.getAllReaderVariables(xStsInputVariable)
 			if (xStsVariablesReferencedFromConditions.containsNone(allReaderXStsVariables)) {
 				xStsDeletableVariables += allReaderXStsVariables
 				if (!xStsVariablesReferencedFromConditions.contains(xStsInputVariable)) {
@@ -290,22 +301,35 @@ class SystemReducer {
 	
 		xStsDeletableVariables -= xStsKeepableVariables
 		
-		xSts.deleteVariablesAndAssignments(xStsDeletableVariables)
+		xSts.deleteVariablesAndAssignments(index, xStsDeletableVariables)
 	}
 	//
 	
-	protected def void deleteVariablesAndAssignments(XSTS xSts,
+	protected def void deleteVariablesAndAssignments(XSTS xSts, VariableUsageIndex index,
 			Collection<VariableDeclaration> xStsDeleteableVariables) {
-		val xStsDeletableAssignments = xStsDeleteableVariables.getAssignments(xSts)
+		val xStsDeletableAssignments = index.getAssignments(xStsDeleteableVariables)
 		for (xStsDeletableAssignmentAction : xStsDeletableAssignments) {
-			createEmptyAction.replace(
-				xStsDeletableAssignmentAction) // To avoid nullptrs
+			index.replaceWithEmptyAction(xStsDeletableAssignmentAction) // To avoid nullptrs
 		}
 		
+		xSts.deleteVariables(index, xStsDeleteableVariables)
+	}
+	
+	protected def void deleteVariables(XSTS xSts, VariableUsageIndex index,
+			Collection<VariableDeclaration> xStsDeleteableVariables) {
 		// Note that only writes are handled - reads are not, so the following can cause
 		// nullptr exceptions if the method call (parameters) is not correct
+		val xStsDeletableGlobalVariables = xStsDeleteableVariables
+				.filter[!(it.eContainer instanceof VariableDeclarationAction)].toSet
+		if (!xStsDeletableGlobalVariables.empty) {
+			// A single cross-reference traversal for all global variables instead of one per variable
+			xStsDeletableGlobalVariables.deleteAll // Delete needed due to e.g., transientVariables list
+		}
 		for (xStsDeletableVariable : xStsDeleteableVariables) {
-			xStsDeletableVariable.deleteDeclaration // Delete needed due to e.g., transientVariables list
+			if (!xStsDeletableGlobalVariables.contains(xStsDeletableVariable)) {
+				xStsDeletableVariable.deleteDeclaration
+			}
+			index.removeVariable(xStsDeletableVariable)
 			logger.log(Level.INFO, "Deleting XSTS variable " + xStsDeletableVariable.name)
 		}
 	}
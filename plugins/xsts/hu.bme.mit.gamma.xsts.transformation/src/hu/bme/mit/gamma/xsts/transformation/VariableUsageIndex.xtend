@@ -0,0 +1,189 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.transformation
+
+import hu.bme.mit.gamma.expression.model.DirectReferenceExpression
+import hu.bme.mit.gamma.expression.model.VariableDeclaration
+import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.xsts.model.AbstractAssignmentAction
+import hu.bme.mit.gamma.xsts.model.Action
+import hu.bme.mit.gamma.xsts.model.AssignmentAction
+import hu.bme.mit.gamma.xsts.model.XSTS
+import hu.bme.mit.gamma.xsts.model.XSTSModelFactory
+import hu.bme.mit.gamma.xsts.util.XstsActionUtil
+import java.util.Collection
+import java.util.Map
+import java.util.Set
+import org.eclipse.emf.ecore.EObject
+
+/**
+ * Def-use index of the variables of an XSTS built with a single traversal of the model.
+ * The read semantics is the same as that of XstsDerivedFeatures.getExternallyReadVariables:
+ * a reference is a read if it is contained by an action but not by an assignment writing the
+ * referenced variable. The index is kept up-to-date if assignments are deleted via this class.
+ */
+class VariableUsageIndex {
+
+	protected final Map<VariableDeclaration, Set<DirectReferenceExpression>> references = newHashMap
+	protected final Map<VariableDeclaration, Set<AbstractAssignmentAction>> assignments = newHashMap
+	protected final Map<VariableDeclaration, Integer> readCounts = newHashMap
+	// Auxiliary objects
+	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
+	protected final extension XstsActionUtil xStsActionUtil = XstsActionUtil.INSTANCE
+	protected final extension XSTSModelFactory xStsFactory = XSTSModelFactory.eINSTANCE
+
+	new(XSTS xSts) {
+		val iterator = xSts.eAllContents
+		while (iterator.hasNext) {
+			val object = iterator.next
+			if (object instanceof DirectReferenceExpression) {
+				object.register
+			}
+			else if (object instanceof AbstractAssignmentAction) {
+				val variable = object.writtenVariable
+				assignments.computeIfAbsent(variable, [newLinkedHashSet]) += object
+			}
+		}
+	}
+
+	// Queries
+
+	def getReferences(VariableDeclaration variable) {
+		return references.get(variable) ?: emptySet
+	}
+
+	def getAssignments(VariableDeclaration variable) {
+		return assignments.get(variable) ?: emptySet
+	}
+
+	def getAssignments(Collection<? extends VariableDeclaration> variables) {
+		val variableAssignments = <AbstractAssignmentAction>newArrayList
+		for (variable : variables) {
+			variableAssignments += variable.assignments
+		}
+		return variableAssignments
+	}
+
+	def isRead(VariableDeclaration variable) {
+		return readCounts.getOrDefault(variable, 0) > 0
+	}
+
+	/**
+	 * The variables written by assignments that read the given variable.
+	 */
+	def getReaderVariables(VariableDeclaration variable) {
+		val readerVariables = <VariableDeclaration>newLinkedHashSet
+		for (reference : variable.references) {
+			val assignment = reference.containingAssignment
+			if (assignment instanceof AssignmentAction) {
+				val writtenVariable = assignment.writtenVariable
+				if (writtenVariable !== variable) {
+					readerVariables += writtenVariable
+				}
+			}
+		}
+		return readerVariables
+	}
+
+	/**
+	 * Equivalent to XstsDerivedFeatures.getAllReaderVariables, i.e., the transitive closure of
+	 * getReaderVariables, computed by traversing only the reached part of the def-use graph.
+	 */
+	def getAllReaderVariables(VariableDeclaration variable) {
+		val allReaderVariables = <VariableDeclaration>newLinkedHashSet
+		val queue = newLinkedList(variable)
+		while (!queue.empty) {
+			val readVariable = queue.poll
+			for (readerVariable : readVariable.readerVariables) {
+				if (allReaderVariables.add(readerVariable)) {
+					queue += readerVariable
+				}
+			}
+		}
+		return allReaderVariables
+	}
+
+	// Updates
+
+	/**
+	 * Replaces the given assignment with an empty action and removes its references from the index.
+	 * Returns the variables that were read by the assignment and are not read anymore.
+	 */
+	def replaceWithEmptyAction(AbstractAssignmentAction assignment) {
+		val unreadVariables = <VariableDeclaration>newLinkedHashSet
+		val writtenVariable = assignment.writtenVariable
+		assignments.get(writtenVariable)?.remove(assignment)
+		for (reference : assignment.getAllContentsOfType(DirectReferenceExpression)) {
+			val variable = reference.unregister(assignment)
+			if (variable !== null && !variable.read) {
+				unreadVariables += variable
+			}
+		}
+		createEmptyAction.replace(assignment) // To avoid nullptrs
+		return unreadVariables
+	}
+
+	/**
+	 * Removes the given reference from the index, it must be called before it is detached.
+	 */
+	def void removeReference(DirectReferenceExpression reference) {
+		reference.unregister(reference.containingAssignment)
+	}
+
+	def void removeVariable(VariableDeclaration variable) {
+		references.remove(variable)
+		assignments.remove(variable)
+		readCounts.remove(variable)
+	}
+
+	//
+
+	protected def void register(DirectReferenceExpression reference) {
+		val declaration = reference.declaration
+		if (declaration instanceof VariableDeclaration) {
+			references.computeIfAbsent(declaration, [newLinkedHashSet]) += reference
+			if (reference.isRead(reference.containingAssignment)) {
+				readCounts.merge(declaration, 1, [a, b | a + b])
+			}
+		}
+	}
+
+	protected def unregister(DirectReferenceExpression reference, AbstractAssignmentAction assignment) {
+		val declaration = reference.declaration
+		if (declaration instanceof VariableDeclaration) {
+			val variableReferences = references.get(declaration)
+			if (variableReferences !== null && variableReferences.remove(reference)) {
+				if (reference.isRead(assignment)) {
+					readCounts.merge(declaration, -1, [a, b | a + b])
+				}
+				return declaration
+			}
+		}
+		return null
+	}
+
+	protected def isRead(DirectReferenceExpression reference, AbstractAssignmentAction assignment) {
+		if (assignment !== null) {
+			return assignment instanceof AssignmentAction && // Havocs do not read variables
+				assignment.writtenVariable !== reference.declaration // 'a := a - 1' is not a read
+		}
+		return reference.getContainerOfType(Action) !== null
+	}
+
+	protected def getContainingAssignment(EObject reference) {
+		return reference.getContainerOfType(AbstractAssignmentAction)
+	}
+
+	protected def getWrittenVariable(AbstractAssignmentAction assignment) {
+		return assignment.lhs.accessedDeclaration as VariableDeclaration
+	}
+
+}
@@ -0,0 +1,149 @@
+/********************************************************************************
+ * Copyright (c) 2018-2023 Contributors to the Gamma project
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package hu.bme.mit.gamma.xsts.transformation
+
+import hu.bme.mit.gamma.lowlevel.xsts.transformation.LowlevelToXstsTransformer
+import hu.bme.mit.gamma.statechart.lowlevel.transformation.GammaToLowlevelTransformer
+import hu.bme.mit.gamma.transformation.util.GammaFileNamer
+import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.util.ModelFingerprinter
+import hu.bme.mit.gamma.xsts.model.XSTS
+import java.io.File
+import java.time.Duration
+import java.util.logging.Level
+import java.util.logging.Logger
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.osgi.framework.FrameworkUtil
+
+/**
+ * Opt-in on-disk cache of the XSTS fragments of components, keyed by the structural fingerprint of the
+ * component (and its referenced elements), the transformation settings and the versions of the transformation
+ * bundles. As the names of the fragment declarations are customized only after the transformation, fragments
+ * can be reused across instances, runs and models. Only self-contained fragments are stored. Fragments older
+ * than the maximum age are evicted, and so are the least recently used ones if the folder exceeds the maximum size.
+ */
+class XstsFragmentCache {
+
+	public static final String FOLDER_NAME = ".xsts-fragments"
+	// The cache is used only if this environment variable is set to 'true'
+	public static final String ENVIRONMENT_VARIABLE_FOR_CACHE = "GAMMA_XSTS_FRAGMENT_CACHE"
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024 // Bytes
+	public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30)
+
+	protected final File folder
+	protected final long maxSize
+	protected final long maxAge // Milliseconds
+	protected final String version
+	// Auxiliary objects
+	protected final extension GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE
+	protected final extension ModelFingerprinter modelFingerprinter = ModelFingerprinter.INSTANCE
+	// Logger
+	protected final Logger logger = Logger.getLogger("GammaLogger")
+
+	new(String targetFolderUri) {
+		this(targetFolderUri, DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE)
+	}
+
+	new(String targetFolderUri, long maxSize, Duration maxAge) {
+		this.folder = new File(targetFolderUri + File.separator + FOLDER_NAME)
+		this.maxSize = maxSize
+		this.maxAge = maxAge.toMillis
+		this.version = transformationVersion
+		evict
+	}
+
+	/**
+	 * Returns whether the cache is enabled by the environment variable and the transformation bundles
+	 * have known versions (i.e., Gamma is running in an OSGi framework).
+	 */
+	def static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getenv(ENVIRONMENT_VARIABLE_FOR_CACHE)) &&
+			transformationVersion !== null
+	}
+
+	/**
+	 * Returns the versions of the bundles transforming statecharts into XSTS fragments, or null if they
+	 * are unknown. The version qualifiers are replaced by build timestamps, so every build has a new version.
+	 */
+	def static String getTransformationVersion() {
+		val bundles = #[ComponentTransformer, LowlevelToXstsTransformer, GammaToLowlevelTransformer]
+			.map[FrameworkUtil.getBundle(it)]
+		if (bundles.contains(null)) {
+			return null
+		}
+		return bundles.map[it.symbolicName + "_" + it.version].join(",")
+	}
+
+	def String getKey(EObject component, String... settings) {
+		return component.getFingerprint(version + ":" + settings.join(","))
+	}
+
+	/**
+	 * Returns a fresh copy of the cached fragment, or null if there is no such fragment.
+	 */
+	def XSTS load(String key) {
+		val file = key.file
+		if (!file.exists) {
+			return null
+		}
+		try {
+			val xSts = ecoreUtil.normalLoad(file) as XSTS
+			xSts.eResource.contents -= xSts // Detaching it, so it can be merged or saved again
+			file.setLastModified(System.currentTimeMillis) // Recently used
+			logger.log(Level.INFO, "Reusing the cached XSTS fragment " + file.name)
+			return xSts
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Could not load the cached XSTS fragment " + file.name + ": " + e.message)
+			file.delete // Probably a corrupted file
+			return null
+		}
+	}
+
+	def void store(String key, XSTS xSts) {
+		if (!EcoreUtil.ExternalCrossReferencer.find(xSts).empty) {
+			logger.log(Level.INFO, "The XSTS fragment " + xSts.name + " is not self-contained, not caching it")
+			return
+		}
+		try {
+			folder.mkdirs
+			// The fragment is modified by the subsequent steps of the transformation
+			xSts.clone.normalSave(folder.path, key.file.name)
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Could not cache the XSTS fragment " + xSts.name + ": " + e.message)
+		}
+		evict
+	}
+
+	/**
+	 * Deletes the fragments older than the maximum age, and then the least recently used ones
+	 * until the folder fits into the maximum size.
+	 */
+	protected def void evict() {
+		val files = folder.listFiles
+		if (files === null) {
+			return // No folder yet
+		}
+		val now = System.currentTimeMillis
+		var size = files.map[it.length].fold(0L)[sum, length | sum + length]
+		for (file : files.sortBy[it.lastModified]) { // Least recently used first
+			if (now - file.lastModified > maxAge || size > maxSize) {
+				size -= file.length
+				file.delete
+			}
+		}
+	}
+
+	protected def getFile(String key) {
+		return new File(folder, key + "." + GammaFileNamer.XSTS_EMF_EXTENSION)
+	}
+
+}
@@ -23,8 +23,11 @@ import hu.bme.mit.gamma.transformation.util.annotations.InteractionCoverageCrite
 import hu.bme.mit.gamma.transformation.util.preprocessor.AnalysisModelPreprocessor
 import hu.bme.mit.gamma.util.FileUtil
 import hu.bme.mit.gamma.util.GammaEcoreUtil
+import hu.bme.mit.gamma.util.PhaseRecorder
+import hu.bme.mit.gamma.xsts.model.Action
 import hu.bme.mit.gamma.xsts.transformation.GammaToXstsTransformer
 import hu.bme.mit.gamma.xsts.transformation.InitialStateSetting
+import hu.bme.mit.gamma.xsts.transformation.XstsFragmentCache
 import hu.bme.mit.gamma.xsts.transformation.serializer.ActionSerializer
 import java.io.File
 import java.util.List
@@ -55,6 +58,7 @@ class Gamma2XstsTransformerSerializer {
 	protected final extension GammaFileNamer fileNamer = GammaFileNamer.INSTANCE
 	protected final extension ActionSerializer actionSerializer = ActionSerializer.INSTANCE
 	protected final extension FileUtil fileUtil = FileUtil.INSTANCE
+	protected final PhaseRecorder phaseRecorder = PhaseRecorder.INSTANCE
 	
 	new(Component component, String targetFolderUri, String fileName) {
 		this(component, #[], targetFolderUri, fileName)
@@ -116,18 +120,31 @@ class Gamma2XstsTransformerSerializer {
 				slicingProperties,
 				annotatableElements,
 				targetFolderUri, fileName)
+		val slicingPhase = phaseRecorder.start("slicing")
 		slicerAnnotatorAndPropertyGenerator.execute
+		slicingPhase.end
 		val gammaToXSTSTransformer = new GammaToXstsTransformer(
 			minSchedulingConstraint, maxSchedulingConstraint, true, true, optimizeArray,
 			transitionMerging, initialState, initialStateSetting)
+		// Reusing the fragments of unchanged statecharts if the cache is enabled
+		if (XstsFragmentCache.enabled) {
+			gammaToXSTSTransformer.fragmentCache = new XstsFragmentCache(targetFolderUri)
+		}
 		// Normal transformation
+		val transformationPhase = phaseRecorder.start("xsts-transformation")
 		val xSts = gammaToXSTSTransformer.execute(newGammaPackage)
+		transformationPhase.put("variables", xSts.variableDeclarations.size)
+			.put("transitions", xSts.transitions.size)
+			.put("actionNodes", xSts.getAllContentsOfType(Action).size)
+			.end
 		// EMF
+		val serializationPhase = phaseRecorder.start("xsts-serialization")
 		xSts.normalSave(targetFolderUri, fileName.emfXStsFileName)
 		// String
 		val xStsFile = new File(targetFolderUri + File.separator + fileName.xtextXStsFileName)
 		val xStsString = xSts.serializeXsts
 		xStsFile.saveString(xStsString)
+		serializationPhase.put("characters", xStsString.length).end
 	}
 	
 }
\ No newline at end of file
@@ -17,8 +17,11 @@ import hu.bme.mit.gamma.util.GammaEcoreUtil
 import hu.bme.mit.gamma.xsts.model.HavocAction
 import hu.bme.mit.gamma.xsts.model.NonDeterministicAction
 import hu.bme.mit.gamma.xsts.model.XSTS
+import java.util.AbstractMap.SimpleEntry
+import java.util.Map.Entry
 import java.util.logging.Level
 import java.util.logging.Logger
+import uppaal.declarations.VariableContainer
 import uppaal.templates.LocationKind
 
 import static hu.bme.mit.gamma.uppaal.util.XstsNamings.*
@@ -86,10 +89,8 @@ class XstsToUppaalTransformer {
 			mergedAction.transformIntoFunction(environmentFinishLocation, stableLocation)
 		}
 		
-		// Optimizing edges from these location
-		initialLocation.optimizeSubsequentEdges
-		stableLocation.optimizeSubsequentEdges
-		environmentFinishLocation.optimizeSubsequentEdges
+		// Optimizing edges from these location (and removing the unreachable locations)
+		#[initialLocation, stableLocation, environmentFinishLocation].optimizeSubsequentEdges
 		
 		if (environmentFinishLocation !== stableLocation) {
 			// Model checking is faster if the environment finish location is committed
@@ -99,7 +100,7 @@ class XstsToUppaalTransformer {
 		logger.log(Level.INFO, "Basic NTA transformation has finished")
 		
 		//
-		optimizelIntegerCodomains
+		optimizelIntegerCodomains(xSts.integerCodomains)
 		//
 		val nta = ntaBuilder.nta
 		nta.transformClockExpressions
@@ -110,4 +111,22 @@ class XstsToUppaalTransformer {
 		return nta
 	}
 	
+	protected def getIntegerCodomains(XSTS xSts) {
+		// Tight codomains of the XSTS variables from the interval analysis (clocks are not included)
+		val xStsIntegerVariableCodomains = xSts.integerVariableCodomains
+		val integerVariableCodomains = <VariableContainer, Entry<Integer, Integer>>newHashMap
+		for (xStsVariable : xStsIntegerVariableCodomains.keySet) {
+			if (traceability.isMapped(xStsVariable)) {
+				val uppaalVariable = traceability.get(xStsVariable)
+				var codomain = xStsIntegerVariableCodomains.get(xStsVariable)
+				if (xStsVariable.local) {
+					// Local variables are declared in UPPAAL without initializer, i.e., they start from 0
+					codomain = new SimpleEntry<Integer, Integer>(Integer.min(0, codomain.key), Integer.max(0, codomain.value))
+				}
+				integerVariableCodomains.put(uppaalVariable, codomain)
+			}
+		}
+		return integerVariableCodomains
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package hu.bme.mit.gamma.trace.util.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import hu.bme.mit.gamma.expression.model.ExpressionModelFactory;
+import hu.bme.mit.gamma.expression.model.IntegerLiteralExpression;
+import hu.bme.mit.gamma.expression.model.VariableDeclaration;
+import hu.bme.mit.gamma.trace.model.Act;
+import hu.bme.mit.gamma.trace.model.Cycle;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.trace.model.Step;
+import hu.bme.mit.gamma.trace.model.TimeElapse;
+import hu.bme.mit.gamma.trace.model.TraceModelFactory;
+import hu.bme.mit.gamma.trace.util.CompactTraceStore;
+import hu.bme.mit.gamma.trace.util.TraceUtil;
+import hu.bme.mit.gamma.util.GammaEcoreUtil;
+
+public class CompactTraceStoreTest {
+	private final TraceModelFactory traceFactory = TraceModelFactory.eINSTANCE;
+	private final ExpressionModelFactory expressionFactory = ExpressionModelFactory.eINSTANCE;
+	private final GammaEcoreUtil ecoreUtil = GammaEcoreUtil.INSTANCE;
+	private final TraceUtil traceUtil = TraceUtil.INSTANCE;
+
+	/**
+	 * Exposes the encoding of the store.
+	 */
+	private static class InspectableTraceStore extends CompactTraceStore {
+		int getElementCount() {
+			return elements.size();
+		}
+		int getRecordSize() {
+			return size;
+		}
+	}
+
+	@Test
+	public void testStoredTracesAreMaterializedUnchanged() {
+		// Arrange
+		ExecutionTrace first = createTrace("First",
+				createStep(true, traceFactory.createReset(), createTimeElapse(100)),
+				createStep(true, traceFactory.createComponentSchedule()));
+		ExecutionTrace second = createTrace("Second",
+				createStep(false, traceFactory.createReset()));
+		Cycle cycle = traceFactory.createCycle();
+		cycle.getSteps().add(createStep(true, createTimeElapse(200)));
+		cycle.getSteps().add(createStep(false, traceFactory.createComponentSchedule()));
+		second.setCycle(cycle);
+		InspectableTraceStore store = new InspectableTraceStore();
+
+		// Act
+		store.add(ecoreUtil.clone(first));
+		store.add(ecoreUtil.clone(second));
+
+		// Assert
+		assertEquals(2, store.size());
+		assertTraceEquals(List.of(first, second), store.materialize());
+		assertTraceEquals(List.of(first, second), store.asList());
+		assertTraceEquals(List.of(second), List.of(store.get(1)));
+	}
+
+	@Test
+	public void testEqualActsAreInterned() {
+		// Arrange
+		InspectableTraceStore store = new InspectableTraceStore();
+
+		// Act
+		store.add(createTrace("First", createStep(false, traceFactory.createReset(), createTimeElapse(100))));
+		store.add(createTrace("Second", createStep(false, traceFactory.createReset(), createTimeElapse(100))));
+		int sharedElementCount = store.getElementCount();
+		ExecutionTrace traceWithVariable = createTrace("Third",
+				createStep(false, traceFactory.createReset(), createTimeElapse(100)));
+		traceWithVariable.getVariableDeclarations().add(createVariable("a"));
+		store.add(traceWithVariable);
+
+		// Assert: acts of traces with variables are not shared
+		assertEquals(2, sharedElementCount);
+		assertEquals(4, store.getElementCount());
+		assertEquals(3, store.materialize().size());
+	}
+
+	@Test
+	public void testCoveredTracesAreRemovedAsByTraceUtil() {
+		// Arrange
+		List<ExecutionTrace> traces = new ArrayList<ExecutionTrace>();
+		traces.add(createTrace("Prefixed",
+				createStep(false, traceFactory.createReset(), createTimeElapse(1)),
+				createStep(false, traceFactory.createComponentSchedule())));
+		traces.add(createTrace("Prefix",
+				createStep(false, traceFactory.createReset(), createTimeElapse(1))));
+		traces.add(createTrace("Original",
+				createStep(false, traceFactory.createReset(), createTimeElapse(2)),
+				createStep(false, traceFactory.createComponentSchedule())));
+		traces.add(createTrace("Duplicate",
+				createStep(false, traceFactory.createReset(), createTimeElapse(2)),
+				createStep(false, traceFactory.createComponentSchedule())));
+		traces.add(createTrace("Ordered",
+				createStep(false, traceFactory.createReset()),
+				createStep(false, traceFactory.createComponentSchedule(), createTimeElapse(3))));
+		traces.add(createTrace("Permuted",
+				createStep(false, traceFactory.createReset()),
+				createStep(false, createTimeElapse(3), traceFactory.createComponentSchedule())));
+		traces.add(createTrace("Segmented",
+				createStep(false, traceFactory.createReset(), createTimeElapse(5)),
+				createStep(false, traceFactory.createReset(), createTimeElapse(4))));
+		traces.add(createTrace("Segment",
+				createStep(false, traceFactory.createReset(), createTimeElapse(4))));
+		List<ExecutionTrace> expectedTraces = ecoreUtil.clone(traces);
+		traceUtil.removeCoveredExecutionTraces(expectedTraces);
+		CompactTraceStore store = new CompactTraceStore();
+		for (ExecutionTrace trace : ecoreUtil.clone(traces)) {
+			store.add(trace);
+		}
+
+		// Act
+		store.removeCoveredTraces();
+
+		// Assert
+		assertTraceEquals(expectedTraces, store.materialize());
+	}
+
+	@Test
+	public void testCompactionDropsTheActsOfRemovedTraces() {
+		// Arrange: asserts do not matter for coverage, so the one of the prefix is referenced only by it
+		ExecutionTrace prefixed = createTrace("Prefixed",
+				createStep(false, traceFactory.createReset(), createTimeElapse(1)),
+				createStep(false, traceFactory.createComponentSchedule()));
+		ExecutionTrace prefix = createTrace("Prefix",
+				createStep(true, traceFactory.createReset(), createTimeElapse(1)));
+		InspectableTraceStore store = new InspectableTraceStore();
+		store.add(ecoreUtil.clone(prefixed));
+		store.add(ecoreUtil.clone(prefix));
+		int recordSize = store.getRecordSize();
+
+		// Act
+		store.removeCoveredTraces();
+		int compactedRecordSize = store.getRecordSize();
+		int compactedElementCount = store.getElementCount();
+		ExecutionTrace added = createTrace("Added",
+				createStep(false, traceFactory.createComponentSchedule(), createTimeElapse(6)));
+		store.add(ecoreUtil.clone(added));
+
+		// Assert
+		assertTrue(compactedRecordSize < recordSize);
+		assertEquals(3, compactedElementCount); // Reset, 1 ms and schedule, without the assert
+		assertEquals(4, store.getElementCount()); // The schedule is still found after compaction
+		assertTraceEquals(List.of(prefixed, added), store.materialize());
+		assertTrue(store.isCovered(prefix));
+		assertFalse(store.isCovered(createTrace("Uncovered",
+				createStep(false, traceFactory.createReset(), createTimeElapse(7)))));
+	}
+
+	private void assertTraceEquals(List<ExecutionTrace> expectedTraces, List<ExecutionTrace> actualTraces) {
+		assertEquals(expectedTraces.size(), actualTraces.size());
+		for (int i = 0; i < expectedTraces.size(); i++) {
+			assertTrue("Different trace at index " + i,
+					ecoreUtil.helperEquals(expectedTraces.get(i), actualTraces.get(i)));
+		}
+	}
+
+	private ExecutionTrace createTrace(String name, Step... steps) {
+		ExecutionTrace trace = traceFactory.createExecutionTrace();
+		trace.setName(name);
+		for (Step step : steps) {
+			trace.getSteps().add(step);
+		}
+		return trace;
+	}
+
+	private Step createStep(boolean hasAssert, Act... actions) {
+		Step step = traceFactory.createStep();
+		for (Act action : actions) {
+			step.getActions().add(action);
+		}
+		if (hasAssert) {
+			step.getAsserts().add(expressionFactory.createTrueExpression());
+		}
+		return step;
+	}
+
+	private TimeElapse createTimeElapse(int milliseconds) {
+		IntegerLiteralExpression elapsedTime = expressionFactory.createIntegerLiteralExpression();
+		elapsedTime.setValue(BigInteger.valueOf(milliseconds));
+		TimeElapse timeElapse = traceFactory.createTimeElapse();
+		timeElapse.setElapsedTime(elapsedTime);
+		return timeElapse;
+	}
+
+	private VariableDeclaration createVariable(String name) {
+		VariableDeclaration variable = expressionFactory.createVariableDeclaration();
+		variable.setName(name);
+		variable.setType(expressionFactory.createIntegerTypeDefinition());
+		return variable;
+	}
+
+}
@@ -0,0 +1,93 @@
+package hu.bme.mit.gamma.trace.testgeneration.java.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import hu.bme.mit.gamma.trace.testgeneration.java.PrefixTreeTestGenerator.PrefixTreeNode;
+
+public class PrefixTreeNodeTest {
+	
+	@Test
+	public void testSharedPrefixesAreMerged() {
+		// Act
+		List<PrefixTreeNode> leaves = PrefixTreeNode.createPrefixTree(List.of(
+				List.of("a", "b", "c"),
+				List.of("a", "b", "d"),
+				List.of("e")));
+		
+		// Assert
+		assertEquals(3, leaves.size());
+		PrefixTreeNode root = leaves.get(0).getRoot();
+		assertNull(root.getParent());
+		assertEquals(3, root.getTraceCount());
+		assertEquals(2, root.getChildren().size());
+		PrefixTreeNode a = root.getChildren().get("a");
+		assertEquals(2, a.getTraceCount());
+		PrefixTreeNode b = a.getChildren().get("b");
+		assertEquals(2, b.getTraceCount());
+		assertSame(b, leaves.get(0).getParent());
+		assertSame(b, leaves.get(1).getParent());
+		assertSame(root, leaves.get(2).getParent());
+		assertEquals("c", leaves.get(0).getStep());
+		assertEquals("d", leaves.get(1).getStep());
+	}
+	
+	@Test
+	public void testSnapshotsAtDeepestSharedNodes() {
+		// Act
+		List<PrefixTreeNode> leaves = PrefixTreeNode.createPrefixTree(List.of(
+				List.of("a", "b", "c"),
+				List.of("a", "b", "d"),
+				List.of("e")));
+		
+		// Assert
+		PrefixTreeNode root = leaves.get(0).getRoot();
+		PrefixTreeNode a = root.getChildren().get("a");
+		PrefixTreeNode b = a.getChildren().get("b");
+		assertTrue(root.isSnapshotNode());
+		// "a" has a single child shared by the same traces, so only "b" is saved
+		assertFalse(a.isSnapshotNode());
+		assertTrue(b.isSnapshotNode());
+		for (PrefixTreeNode leaf : leaves) {
+			assertFalse(leaf.isSnapshotNode());
+		}
+	}
+	
+	@Test
+	public void testEqualTracesShareTheirLeaf() {
+		// Act
+		List<PrefixTreeNode> leaves = PrefixTreeNode.createPrefixTree(List.of(
+				List.of("a", "b"),
+				List.of("a", "b")));
+		
+		// Assert
+		assertSame(leaves.get(0), leaves.get(1));
+		assertEquals(2, leaves.get(0).getTraceCount());
+		// Both test cases continue from the snapshot of the shared leaf
+		assertTrue(leaves.get(0).isSnapshotNode());
+		assertFalse(leaves.get(0).getParent().isSnapshotNode());
+	}
+	
+	@Test
+	public void testIdsAreUnique() {
+		// Act
+		List<PrefixTreeNode> leaves = PrefixTreeNode.createPrefixTree(List.of(
+				List.of("a", "b"),
+				List.of("a", "c"),
+				List.of("d")));
+		
+		// Assert
+		PrefixTreeNode root = leaves.get(0).getRoot();
+		assertEquals(0, root.getId());
+		assertEquals(4, leaves.get(2).getId());
+		assertEquals(3, leaves.stream().map(it -> it.getId()).distinct().count());
+	}
+	
+}
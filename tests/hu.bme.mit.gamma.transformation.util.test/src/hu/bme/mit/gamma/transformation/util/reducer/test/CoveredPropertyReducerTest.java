@@ -0,0 +1,166 @@
+package hu.bme.mit.gamma.transformation.util.reducer.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hu.bme.mit.gamma.expression.model.BinaryExpression;
+import hu.bme.mit.gamma.expression.model.ExpressionModelFactory;
+import hu.bme.mit.gamma.expression.model.IntegerLiteralExpression;
+import hu.bme.mit.gamma.expression.model.ParameterDeclaration;
+import hu.bme.mit.gamma.property.model.AtomicFormula;
+import hu.bme.mit.gamma.property.model.PathQuantifier;
+import hu.bme.mit.gamma.property.model.PropertyModelFactory;
+import hu.bme.mit.gamma.property.model.QuantifiedFormula;
+import hu.bme.mit.gamma.property.model.StateFormula;
+import hu.bme.mit.gamma.property.model.UnaryOperandPathFormula;
+import hu.bme.mit.gamma.property.model.UnaryPathOperator;
+import hu.bme.mit.gamma.statechart.composite.ComponentInstanceEventParameterReferenceExpression;
+import hu.bme.mit.gamma.statechart.composite.CompositeModelFactory;
+import hu.bme.mit.gamma.statechart.interface_.Event;
+import hu.bme.mit.gamma.statechart.interface_.EventDeclaration;
+import hu.bme.mit.gamma.statechart.interface_.EventDirection;
+import hu.bme.mit.gamma.statechart.interface_.Interface;
+import hu.bme.mit.gamma.statechart.interface_.InterfaceModelFactory;
+import hu.bme.mit.gamma.statechart.interface_.InterfaceRealization;
+import hu.bme.mit.gamma.statechart.interface_.Package;
+import hu.bme.mit.gamma.statechart.interface_.Port;
+import hu.bme.mit.gamma.statechart.interface_.RealizationMode;
+import hu.bme.mit.gamma.statechart.statechart.StatechartDefinition;
+import hu.bme.mit.gamma.statechart.statechart.StatechartModelFactory;
+import hu.bme.mit.gamma.trace.model.ExecutionTrace;
+import hu.bme.mit.gamma.trace.model.RaiseEventAct;
+import hu.bme.mit.gamma.trace.model.Step;
+import hu.bme.mit.gamma.trace.model.TraceModelFactory;
+import hu.bme.mit.gamma.transformation.util.reducer.CoveredPropertyReducer;
+
+public class CoveredPropertyReducerTest {
+	private final ExpressionModelFactory expressionFactory = ExpressionModelFactory.eINSTANCE;
+	private final InterfaceModelFactory interfaceFactory = InterfaceModelFactory.eINSTANCE;
+	private final StatechartModelFactory statechartFactory = StatechartModelFactory.eINSTANCE;
+	private final CompositeModelFactory compositeFactory = CompositeModelFactory.eINSTANCE;
+	private final PropertyModelFactory propertyFactory = PropertyModelFactory.eINSTANCE;
+	private final TraceModelFactory traceFactory = TraceModelFactory.eINSTANCE;
+
+	private Port port;
+	private Event event;
+	private ParameterDeclaration parameter;
+
+	@Before
+	public void createComponent() {
+		parameter = expressionFactory.createParameterDeclaration();
+		parameter.setName("value");
+		parameter.setType(expressionFactory.createIntegerTypeDefinition());
+		event = interfaceFactory.createEvent();
+		event.setName("done");
+		event.getParameterDeclarations().add(parameter);
+		EventDeclaration eventDeclaration = interfaceFactory.createEventDeclaration();
+		eventDeclaration.setDirection(EventDirection.OUT);
+		eventDeclaration.setEvent(event);
+		Interface _interface = interfaceFactory.createInterface();
+		_interface.setName("Done");
+		_interface.getEvents().add(eventDeclaration);
+
+		InterfaceRealization interfaceRealization = interfaceFactory.createInterfaceRealization();
+		interfaceRealization.setRealizationMode(RealizationMode.PROVIDED);
+		interfaceRealization.setInterface(_interface);
+		port = interfaceFactory.createPort();
+		port.setName("Output");
+		port.setInterfaceRealization(interfaceRealization);
+		StatechartDefinition statechart = statechartFactory.createStatechartDefinition();
+		statechart.setName("Statechart");
+		statechart.getPorts().add(port);
+
+		Package _package = interfaceFactory.createPackage();
+		_package.setName("test");
+		_package.getInterfaces().add(_interface);
+		_package.getComponents().add(statechart);
+	}
+
+	@Test
+	public void testParameterOfNotRaisedEventIsNotCovered() {
+		// Arrange: E<> Output.done::value != 5 over a step without raised events
+		StateFormula formula = createReachabilityFormula(
+				expressionFactory.createInequalityExpression(), 5);
+		ExecutionTrace trace = createTrace(traceFactory.createStep());
+
+		// Act
+		List<StateFormula> coveredFormulas = new CoveredPropertyReducer(List.of(formula), trace).execute();
+
+		// Assert
+		assertTrue(coveredFormulas.isEmpty());
+	}
+
+	@Test
+	public void testParameterOfNotRaisedEventIsNotCoveredByEquality() {
+		// Arrange: E<> Output.done::value == 0 over a step without raised events
+		StateFormula formula = createReachabilityFormula(
+				expressionFactory.createEqualityExpression(), 0);
+		ExecutionTrace trace = createTrace(traceFactory.createStep());
+
+		// Act
+		List<StateFormula> coveredFormulas = new CoveredPropertyReducer(List.of(formula), trace).execute();
+
+		// Assert
+		assertTrue(coveredFormulas.isEmpty());
+	}
+
+	@Test
+	public void testParameterOfRaisedEventIsCovered() {
+		// Arrange: E<> Output.done::value != 5 over a step raising Output.done(3)
+		StateFormula formula = createReachabilityFormula(
+				expressionFactory.createInequalityExpression(), 5);
+		Step step = traceFactory.createStep();
+		RaiseEventAct raiseEventAct = traceFactory.createRaiseEventAct();
+		raiseEventAct.setPort(port);
+		raiseEventAct.setEvent(event);
+		raiseEventAct.getArguments().add(createIntegerLiteral(3));
+		step.getAsserts().add(raiseEventAct);
+		ExecutionTrace trace = createTrace(step);
+
+		// Act
+		List<StateFormula> coveredFormulas = new CoveredPropertyReducer(List.of(formula), trace).execute();
+
+		// Assert
+		assertEquals(List.of(formula), coveredFormulas);
+	}
+
+	private StateFormula createReachabilityFormula(BinaryExpression comparison, int value) {
+		ComponentInstanceEventParameterReferenceExpression parameterReference =
+				compositeFactory.createComponentInstanceEventParameterReferenceExpression();
+		parameterReference.setPort(port);
+		parameterReference.setEvent(event);
+		parameterReference.setParameterDeclaration(parameter);
+		comparison.setLeftOperand(parameterReference);
+		comparison.setRightOperand(createIntegerLiteral(value));
+
+		AtomicFormula atomicFormula = propertyFactory.createAtomicFormula();
+		atomicFormula.setExpression(comparison);
+		UnaryOperandPathFormula future = propertyFactory.createUnaryOperandPathFormula();
+		future.setOperator(UnaryPathOperator.FUTURE);
+		future.setOperand(atomicFormula);
+		QuantifiedFormula formula = propertyFactory.createQuantifiedFormula();
+		formula.setQuantifier(PathQuantifier.EXISTS);
+		formula.setFormula(future);
+		return formula;
+	}
+
+	private IntegerLiteralExpression createIntegerLiteral(int value) {
+		IntegerLiteralExpression literal = expressionFactory.createIntegerLiteralExpression();
+		literal.setValue(BigInteger.valueOf(value));
+		return literal;
+	}
+
+	private ExecutionTrace createTrace(Step step) {
+		ExecutionTrace trace = traceFactory.createExecutionTrace();
+		trace.setName("Trace");
+		trace.getSteps().add(step);
+		return trace;
+	}
+
+}